@@ -12,6 +12,7 @@
 
 package com.net2plan.cli.plugins;
 
+import static com.net2plan.internal.sim.SimKernel.runReplications;
 import static com.net2plan.internal.sim.SimKernel.runSimulation;
 
 import java.io.File;
@@ -110,6 +111,21 @@ public class CLIOnlineSimulation extends ICLIModule {
         eventProcessorClassName.setArgName("classname");
         eventProcessorClassName.setRequired(true);
         OPTIONS.addOption(eventProcessorClassName);
+
+        Option replications = new Option(null, "replications", true, "(Optional) Number of independent replications, each one with a different random seed. The output file reports the mean and confidence interval of the statistics among them (default 1)");
+        replications.setType(PatternOptionBuilder.NUMBER_VALUE);
+        replications.setArgName("replications");
+        OPTIONS.addOption(replications);
+
+        Option threads = new Option(null, "threads", true, "(Optional) Maximum number of replications running in parallel (default, the number of available processors)");
+        threads.setType(PatternOptionBuilder.NUMBER_VALUE);
+        threads.setArgName("threads");
+        OPTIONS.addOption(threads);
+
+        Option confidenceLevel = new Option(null, "confidence-level", true, "(Optional) Confidence level of the intervals among replications, in range (0, 1) (default 0.95)");
+        confidenceLevel.setType(PatternOptionBuilder.NUMBER_VALUE);
+        confidenceLevel.setArgName("level");
+        OPTIONS.addOption(confidenceLevel);
     }
 
     @Override
@@ -146,6 +162,7 @@ public class CLIOnlineSimulation extends ICLIModule {
         {
         	ucl = new URLClassLoader(new URL[] { classFileForClassLoader_generator.toURI().toURL() , classFileForClassLoader_processor.toURI().toURL() }, ClassLoader.getSystemClassLoader());
         } catch (Exception e) { throw new Net2PlanException ("Unable to create the URL for class loading. Wrong file name.");  }
+        final URLClassLoader classLoader = ucl;
         IExternal aux_eventGenerator = ClassLoaderUtils.getInstance(generatorClassFile, generatorClassName, IEventGenerator.class , ucl);
         IExternal aux_eventProcessor = ClassLoaderUtils.getInstance(provisioningClassFile, provisioningClassName, IEventProcessor.class , ucl);
 
@@ -158,9 +175,41 @@ public class CLIOnlineSimulation extends ICLIModule {
         File inputFile = (File) cli.getParsedOptionValue("input-file");
         File outputFile = (File) cli.getParsedOptionValue("output-file");
 
+		/* Read the replication options */
+        int numReplications = 1;
+        if (cli.hasOption("replications"))
+        {
+            numReplications = ((Number) cli.getParsedOptionValue("replications")).intValue();
+            if (numReplications < 1) throw new Net2PlanException("Number of replications must be positive");
+        }
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        if (cli.hasOption("threads"))
+        {
+            numThreads = ((Number) cli.getParsedOptionValue("threads")).intValue();
+            if (numThreads < 1) throw new Net2PlanException("Number of threads must be positive");
+        }
+        double confidenceLevel = 0.95;
+        if (cli.hasOption("confidence-level"))
+        {
+            confidenceLevel = ((Number) cli.getParsedOptionValue("confidence-level")).doubleValue();
+            if (confidenceLevel <= 0 || confidenceLevel >= 1) throw new Net2PlanException("Confidence level must be in range (0, 1)");
+        }
+
 		/* Initialize and run simulation */
         NetPlan aux_netPlan = new NetPlan(inputFile);
-        String html = runSimulation(new SimKernel(), aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
+        String html;
+        if (numReplications == 1)
+        {
+            html = runSimulation(new SimKernel(), aux_netPlan, aux_eventGenerator, customEventGeneratorParameters, aux_eventProcessor, customEventProcessorParameters, customSimulationParameters, net2planParameters).getSecond();
+        }
+        else
+        {
+            /* Each replication needs its own event generator and processor instances */
+            html = runReplications(aux_netPlan,
+                    () -> ClassLoaderUtils.getInstance(generatorClassFile, generatorClassName, IEventGenerator.class, classLoader), customEventGeneratorParameters,
+                    () -> ClassLoaderUtils.getInstance(provisioningClassFile, provisioningClassName, IEventProcessor.class, classLoader), customEventProcessorParameters,
+                    customSimulationParameters, net2planParameters, numReplications, numThreads, confidenceLevel).getSecond();
+        }
         HTMLUtils.saveToFile(outputFile, html);
     }
 
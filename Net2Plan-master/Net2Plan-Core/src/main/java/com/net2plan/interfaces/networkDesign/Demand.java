@@ -21,8 +21,8 @@ import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import com.google.common.collect.Sets;
 import com.net2plan.internal.AttributeMap;
 import com.net2plan.internal.ErrorHandling;
-import com.net2plan.libraries.GraphUtils;
 import com.net2plan.libraries.GraphUtils.ClosedCycleRoutingException;
+import com.net2plan.libraries.RoutingFundamentalVectorSolver;
 import com.net2plan.utils.Constants.RoutingCycleType;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.DoubleUtils;
@@ -68,6 +68,35 @@ public class Demand extends NetworkElement
 	Map<Link,Double> cacheHbH_frs; // cannot be an entry if zero in FR
 	Map<Link,Pair<Double,Double>> cacheHbH_normCarriedOccupiedPerLinkCurrentState; // norm carried is respect to demand total CARRIED traffic, occupied capacity is absolute
 	Map<Node,Set<Link>> cacheHbH_linksPerNodeWithNonZeroFr; 
+	Map<Link,Double> cacheHbH_failureStateSolutionsFrs; // the forwarding rules for which the solutions below were computed
+	Map<Set<Link>,HopByHopFailureStateSolution> cacheHbH_failureStateSolutions; // key: links with non-zero forwarding rule that are down, or have an end node down
+
+	private static final int MAX_NUMBER_OF_HOPBYHOP_FAILURE_STATE_SOLUTIONS = 16;
+
+	/* Hop-by-hop routing of the demand in a failure state, normalized respect to the offered traffic. It only depends on the forwarding rules,
+	 * and on which of them are in failing links, so it is reused when the same failure state occurs again (e.g. in failure-repair cycles) */
+	static final class HopByHopFailureStateSolution
+	{
+		final RoutingCycleType routingCycleType;
+		final double fundamentalVectorEgressNode;
+		final double fractionAbsorbedEgressNode;
+		final double worstCasePropagationTimeMs;
+		final double worstCaseLengthInKm;
+		final Map<Link,Double> normalizedCarriedPerLink;
+
+		HopByHopFailureStateSolution (Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation , Map<Link,Double> frsToApply , Node egressNode)
+		{
+			final DoubleMatrix1D M = fundMatrixComputation.getFirst ();
+			this.routingCycleType = fundMatrixComputation.getSecond();
+			this.fundamentalVectorEgressNode = M.get(egressNode.index);
+			this.fractionAbsorbedEgressNode = fundMatrixComputation.getThird();
+			this.worstCasePropagationTimeMs = fundMatrixComputation.getFourth();
+			this.worstCaseLengthInKm = fundMatrixComputation.getFifth();
+			this.normalizedCarriedPerLink = new HashMap<> ();
+			for (Entry<Link,Double> fr : frsToApply.entrySet())
+				normalizedCarriedPerLink.put(fr.getKey(), M.get (fr.getKey().originNode.index) * fr.getValue());
+		}
+	}
 	
 	public enum IntendedRecoveryType
 	{
@@ -116,6 +145,12 @@ public class Demand extends NetworkElement
 		this.cacheHbH_frs = new HashMap<> ();
 		this.cacheHbH_normCarriedOccupiedPerLinkCurrentState = new HashMap<> ();
 		this.cacheHbH_linksPerNodeWithNonZeroFr = new HashMap<> ();
+		this.cacheHbH_failureStateSolutionsFrs = null;
+		this.cacheHbH_failureStateSolutions = new LinkedHashMap<Set<Link>,HopByHopFailureStateSolution> (16 , 0.75f , true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Set<Link>,HopByHopFailureStateSolution> eldest) { return size() > MAX_NUMBER_OF_HOPBYHOP_FAILURE_STATE_SOLUTIONS; }
+		};
 		this.cache_worstCasePropagationTimeMs = 0;
 		this.cache_worstCaseLengthInKm = 0;
 		this.bidirectionalPair = null;
@@ -148,6 +183,8 @@ public class Demand extends NetworkElement
 		this.cacheHbH_linksPerNodeWithNonZeroFr.clear();
 		for (Entry<Node,Set<Link>> entry : origin.cacheHbH_linksPerNodeWithNonZeroFr.entrySet())
 			this.cacheHbH_linksPerNodeWithNonZeroFr.put(netPlan.getNodeFromId(entry.getKey().id), (Set<Link>) (Set<?>) netPlan.translateCollectionToThisNetPlan(entry.getValue()));
+		this.cacheHbH_failureStateSolutionsFrs = null;
+		this.cacheHbH_failureStateSolutions.clear();
 		this.bidirectionalPair = origin.bidirectionalPair == null? null : netPlan.getDemandFromId(origin.bidirectionalPair.getId());
 	}
 
@@ -674,6 +711,7 @@ public class Demand extends NetworkElement
 
 		link.coupledLowerLayerDemand = null;
 		this.coupledUpperLayerLink = null;
+		netPlan.notifyStateChanged(link);
 		link.layer.cache_coupledLinks.remove (link);
 		this.layer.cache_coupledDemands.remove(this);
 		DemandLinkMapping coupling_thisLayerPair = netPlan.interLayerCoupling.getEdge(lowerLayer, upperLayer);
@@ -766,12 +804,14 @@ public class Demand extends NetworkElement
 				e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.remove(this);
 				e.cache_carriedTraffic -= x_deOccup; 
 				e.cache_occupiedCapacity -= x_deOccup; 
+				netPlan.notifyStateChanged(e);
 			}
 		}
 		layer.cache_nodePairDemandsThisLayer.get(Pair.of(ingressNode, egressNode)).remove(this);
 
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 		netPlan.cache_id2DemandMap.remove(id);
+		netPlan.notifyElementToBeRemoved(this);
 		NetPlan.removeNetworkElementAndShiftIndexes (layer.demands , index);
 		ingressNode.cache_nodeOutgoingDemands.remove (this);
 		egressNode.cache_nodeIncomingDemands.remove (this);
@@ -791,7 +831,8 @@ public class Demand extends NetworkElement
 		netPlan.checkIsModifiable();
 		if (offeredTraffic < 0) throw new Net2PlanException("Offered traffic must be greater or equal than zero");
 		this.offeredTraffic = offeredTraffic;
-		if (!layer.isSourceRouting()) updateHopByHopRoutingToGivenFrs(this.cacheHbH_frs);
+		netPlan.notifyStateChanged(this);
+		if (!layer.isSourceRouting()) updateHopByHopRoutingToCurrentFrs();
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 	}
 
@@ -924,41 +965,140 @@ public class Demand extends NetworkElement
 	/* Updates all the network state, to the new situation where the hop-by-hop routing of a demand has changed */
 	void updateHopByHopRoutingToGivenFrs (Map<Link,Double> newFrsWithoutZeros)
 	{
-		final Set<Link> affectedLinks = Sets.union(newFrsWithoutZeros.keySet() , cacheHbH_frs.keySet());
+		updateHopByHopRouting (newFrsWithoutZeros , false , null);
+	}
+
+	/* Updates all the network state, to the new situation where the forwarding rules of the demand are the same, but the failure state 
+	 * of the links and nodes, or the demand offered traffic, may have changed */
+	void updateHopByHopRoutingToCurrentFrs ()
+	{
+		updateHopByHopRouting (cacheHbH_frs , true , null);
+	}
+
+	/* Same as updateHopByHopRoutingToGivenFrs for several demands, but the carried traffic and occupied capacity of each link are written once, 
+	 * after all the demands are updated */
+	static void updateHopByHopRoutingToGivenFrs (NetPlan netPlan , Map<Demand,Map<Link,Double>> newFrsWithoutZerosPerDemand)
+	{
+		final HopByHopLinkTrafficUpdate linkTrafficUpdate = new HopByHopLinkTrafficUpdate(netPlan);
+		try
+		{
+			for (Entry<Demand,Map<Link,Double>> entry : newFrsWithoutZerosPerDemand.entrySet())
+				entry.getKey().updateHopByHopRouting(entry.getValue() , false , linkTrafficUpdate);
+		}
+		finally { linkTrafficUpdate.apply(); }
+	}
+
+	/* Same as updateHopByHopRoutingToCurrentFrs for several demands, but the carried traffic and occupied capacity of each link are written once, 
+	 * after all the demands are updated */
+	static void updateHopByHopRoutingToCurrentFrs (NetPlan netPlan , Collection<Demand> demands)
+	{
+		final HopByHopLinkTrafficUpdate linkTrafficUpdate = new HopByHopLinkTrafficUpdate(netPlan);
+		try
+		{
+			for (Demand d : demands)
+				d.updateHopByHopRouting(d.cacheHbH_frs , true , linkTrafficUpdate);
+		}
+		finally { linkTrafficUpdate.apply(); }
+	}
+
+	/* Changes in the link carried traffic (and occupied capacity) accumulated during the update of the hop-by-hop routing of several demands */
+	static final class HopByHopLinkTrafficUpdate
+	{
+		private final NetPlan netPlan;
+		private final double [][] increment_le;
+		private final boolean [][] affected_le;
+
+		HopByHopLinkTrafficUpdate (NetPlan netPlan)
+		{
+			this.netPlan = netPlan;
+			this.increment_le = new double [netPlan.layers.size()][];
+			this.affected_le = new boolean [netPlan.layers.size()][];
+		}
+
+		void add (Link link , double increment)
+		{
+			final int l = link.layer.index;
+			if (increment_le [l] == null) { increment_le [l] = new double [link.layer.links.size()]; affected_le [l] = new boolean [link.layer.links.size()]; }
+			increment_le [l][link.index] += increment;
+			affected_le [l][link.index] = true;
+		}
+
+		void apply ()
+		{
+			for (int l = 0; l < increment_le.length ; l ++)
+			{
+				if (increment_le [l] == null) continue;
+				final NetworkLayer layer = netPlan.layers.get(l);
+				for (int e = 0; e < increment_le [l].length ; e ++)
+				{
+					if (!affected_le [l][e]) continue;
+					final Link link = layer.links.get(e);
+					link.cache_carriedTraffic += increment_le [l][e]; // in hop-by-hop carried traffic is the same as occupied capacity
+					link.cache_occupiedCapacity += increment_le [l][e];
+					netPlan.notifyStateChanged(link);
+				}
+				increment_le [l] = null;
+				affected_le [l] = null;
+			}
+		}
+	}
+
+	private void updateHopByHopRouting (Map<Link,Double> newFrsWithoutZeros , boolean sameFrs , HopByHopLinkTrafficUpdate linkTrafficUpdate)
+	{
+		final Set<Link> affectedLinks = sameFrs? cacheHbH_frs.keySet() : Sets.union(newFrsWithoutZeros.keySet() , cacheHbH_frs.keySet());
 		
 		/* set 0 in the down links and the link in-out from the down nodes (they do not send traffic) */
 		/* update the cache per node (include failed links if fr > 0) */
-		Map<Link,Double> frsToApply = new HashMap<> ();
-		Map<Node,Set<Link>> tentativeCacheHbH_linksPerNodeWithNonZeroFr = new HashMap<> (); // tentative since if closed cycles => not used
+		Map<Node,Set<Link>> tentativeCacheHbH_linksPerNodeWithNonZeroFr = sameFrs? cacheHbH_linksPerNodeWithNonZeroFr : new HashMap<> (); // tentative since if closed cycles => not used
+		Set<Link> failingLinksWithNonZeroFr = new HashSet<> ();
 		for (Entry<Link,Double> fr : newFrsWithoutZeros.entrySet())
 		{
 			final Link e = fr.getKey();
 			final Node a_e = e.getOriginNode();
 			final double f_e = fr.getValue();
 			if (f_e == 0) continue;
-			Set<Link> set = tentativeCacheHbH_linksPerNodeWithNonZeroFr.get(a_e); if (set == null) { set = new HashSet<> (); tentativeCacheHbH_linksPerNodeWithNonZeroFr.put(a_e, set); }
-			set.add(e);
-			if (e.isDown() || e.getOriginNode().isDown() || e.getDestinationNode().isDown()) continue;
-			frsToApply.put(e, f_e);
+			if (!sameFrs)
+			{
+				Set<Link> set = tentativeCacheHbH_linksPerNodeWithNonZeroFr.get(a_e); if (set == null) { set = new HashSet<> (); tentativeCacheHbH_linksPerNodeWithNonZeroFr.put(a_e, set); }
+				set.add(e);
+			}
+			if (e.isDown() || e.getOriginNode().isDown() || e.getDestinationNode().isDown()) failingLinksWithNonZeroFr.add(e);
 		}
 		
-		Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation = 
-				GraphUtils.computeRoutingFundamentalVector(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
-		if (fundMatrixComputation.getSecond() == RoutingCycleType.CLOSED_CYCLES) 
-			throw new ClosedCycleRoutingException("Closed routing cycle for demand " + this); 
-		DoubleMatrix1D M = fundMatrixComputation.getFirst ();
-		this.routingCycleType = fundMatrixComputation.getSecond();
-		double s_egressNode = fundMatrixComputation.getThird();
-		this.cache_worstCasePropagationTimeMs = fundMatrixComputation.getFourth();
-		this.cache_worstCaseLengthInKm = fundMatrixComputation.getFifth();
+		/* the routing only depends on the forwarding rules, and which of them are failing: reuse it if this failure state was already solved */
+		if (!sameFrs && !newFrsWithoutZeros.equals(cacheHbH_failureStateSolutionsFrs))
+		{
+			cacheHbH_failureStateSolutions.clear();
+			cacheHbH_failureStateSolutionsFrs = new HashMap<> (newFrsWithoutZeros);
+		}
+		HopByHopFailureStateSolution solution = cacheHbH_failureStateSolutions.get(failingLinksWithNonZeroFr);
+		if (solution == null)
+		{
+			Map<Link,Double> frsToApply = new HashMap<> ();
+			for (Entry<Link,Double> fr : newFrsWithoutZeros.entrySet())
+				if ((fr.getValue() != 0) && !failingLinksWithNonZeroFr.contains(fr.getKey())) frsToApply.put(fr.getKey(), fr.getValue());
+			/* the solver depends only on the forwarding rules: reuse the one of other demands of the layer with the same rules (e.g. same egress node in destination-based routing) */
+			RoutingFundamentalVectorSolver solver = layer.cacheHbH_routingSolvers.get(frsToApply);
+			if ((solver == null) || (solver.getNumberOfNodes() != netPlan.getNumberOfNodes()))
+			{
+				solver = new RoutingFundamentalVectorSolver(frsToApply, netPlan.getNumberOfNodes());
+				layer.cacheHbH_routingSolvers.put(frsToApply, solver);
+			}
+			Quintuple<DoubleMatrix1D, RoutingCycleType , Double , Double , Double> fundMatrixComputation = 
+					solver.computeRoutingFundamentalVector(frsToApply, tentativeCacheHbH_linksPerNodeWithNonZeroFr , ingressNode ,  egressNode);
+			if (fundMatrixComputation.getSecond() == RoutingCycleType.CLOSED_CYCLES) 
+				throw new ClosedCycleRoutingException("Closed routing cycle for demand " + this); 
+			solution = new HopByHopFailureStateSolution(fundMatrixComputation, frsToApply, egressNode);
+			cacheHbH_failureStateSolutions.put(failingLinksWithNonZeroFr, solution);
+		}
+		this.routingCycleType = solution.routingCycleType;
+		this.cache_worstCasePropagationTimeMs = solution.worstCasePropagationTimeMs;
+		this.cache_worstCaseLengthInKm = solution.worstCaseLengthInKm;
 
 		/* update different caches */
-//		System.out.println(offeredTraffic);
-//		System.out.println(M.get(egressNode.index));
-//		System.out.println(M);
-//		System.out.println("s_egress: "  + s_egressNode);
 		this.cacheHbH_linksPerNodeWithNonZeroFr = tentativeCacheHbH_linksPerNodeWithNonZeroFr;
-		carriedTraffic = offeredTraffic * M.get(egressNode.index) * s_egressNode;
+		carriedTraffic = offeredTraffic * solution.fundamentalVectorEgressNode * solution.fractionAbsorbedEgressNode;
+		netPlan.notifyStateChanged(this);
 		if (coupledUpperLayerLink != null)
 			coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(carriedTraffic);
 
@@ -967,11 +1107,12 @@ public class Demand extends NetworkElement
 		/* update the xde caches (link and demand), and the link occupations */
 		for (Link link : affectedLinks)
 		{
-			Double new_fde = frsToApply.get(link); if (new_fde == null) new_fde = 0.0;
 			final Pair<Double,Double> oldOccupInfo = cacheHbH_normCarriedOccupiedPerLinkCurrentState.get(link);
 			final double oldXdeOccup = oldOccupInfo == null? 0 : oldOccupInfo.getSecond(); //layer.forwardingRulesCurrentFailureState_x_de.get (demand.index , link.index);
-			final double newXdeNormalized = M.get (link.originNode.index) * new_fde; //fowardingRulesThisFailureState_f_e.get (link.index);
+			final Double normalizedCarried = solution.normalizedCarriedPerLink.get(link);
+			final double newXdeNormalized = normalizedCarried == null? 0.0 : normalizedCarried; //fowardingRulesThisFailureState_f_e.get (link.index);
 			final double newXdeOccup = offeredTraffic * newXdeNormalized; //fowardingRulesThisFailureState_f_e.get (link.index);
+			if (oldOccupInfo == null? newXdeNormalized == 0 : (oldOccupInfo.getFirst() == newXdeNormalized) && (oldXdeOccup == newXdeOccup)) continue; // unchanged
 			if (newXdeNormalized < -1E-5) throw new RuntimeException ("Bad");
 			//System.out.println("Demand " + this + ", link " + link + ", xdeNorm: " + newXdeNormalized + ", newXdeOccup: " + newXdeOccup);
 			if (newXdeNormalized <= Configuration.precisionFactor)
@@ -984,17 +1125,26 @@ public class Demand extends NetworkElement
 				cacheHbH_normCarriedOccupiedPerLinkCurrentState.put(link, Pair.of(newXdeNormalized, newXdeOccup));
 				link.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.put(this, Pair.of(newXdeNormalized, newXdeOccup));
 			}
-			link.cache_carriedTraffic += newXdeOccup - oldXdeOccup; // in hop-by-hop carried traffic is the same as occupied capacity
-			link.cache_occupiedCapacity += newXdeOccup - oldXdeOccup;
+			if (linkTrafficUpdate != null)
+				linkTrafficUpdate.add(link , newXdeOccup - oldXdeOccup);
+			else
+			{
+				link.cache_carriedTraffic += newXdeOccup - oldXdeOccup; // in hop-by-hop carried traffic is the same as occupied capacity
+				link.cache_occupiedCapacity += newXdeOccup - oldXdeOccup;
+				netPlan.notifyStateChanged(link);
+			}
 			if ((newXdeNormalized > 1e-3) && (!link.isUp)) throw new RuntimeException ("Bad");
 		}
 		
 		/* update the cache_frs in the link and demand */
-		for (Link e : this.cacheHbH_frs.keySet())
-			e.cacheHbH_frs.remove(this);
-		this.cacheHbH_frs = new HashMap<> (newFrsWithoutZeros);
-		for (Entry<Link,Double> fr : this.cacheHbH_frs.entrySet())
-			fr.getKey().cacheHbH_frs.put(this , fr.getValue());
+		if (!sameFrs)
+		{
+			for (Link e : this.cacheHbH_frs.keySet())
+				e.cacheHbH_frs.remove(this);
+			this.cacheHbH_frs = new HashMap<> (newFrsWithoutZeros);
+			for (Entry<Link,Double> fr : this.cacheHbH_frs.entrySet())
+				fr.getKey().cacheHbH_frs.put(this , fr.getValue());
+		}
 		
 		/* update the routing cycle type */
 //		System.out.println ("updateHopByHopRoutingDemand demand: " + demand + ", this demand x_e: " + forwardingRules_x_de.viewRow(demand.index));
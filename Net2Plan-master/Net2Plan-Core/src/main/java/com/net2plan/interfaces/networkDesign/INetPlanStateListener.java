@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+/**
+ * <p>Receives the changes in the state of the network layers, nodes, links and demands of a {@link NetPlan NetPlan} object, as they happen.
+ * This allows keeping information derived from the design (e.g. simulation statistics) without scanning the whole design after each change.</p>
+ *
+ * <p>Notifications are received in the thread that makes the change, and while the change is being made: the listener should just record
+ * which elements changed, and read their new state later. The listener must not modify the design.</p>
+ *
+ * @see NetPlan#addStateListener(INetPlanStateListener)
+ */
+public interface INetPlanStateListener
+{
+	/**
+	 * Called when a network layer, node, link or demand was added to the design. The element index is already valid.
+	 *
+	 * @param e The added element
+	 */
+	public void elementAdded(NetworkElement e);
+
+	/**
+	 * Called when a network layer, node, link or demand is about to be removed from the design. The element, and its index, are still valid.
+	 *
+	 * @param e The element to remove
+	 */
+	public void elementToBeRemoved(NetworkElement e);
+
+	/**
+	 * Called when the state of a node (up/down), link (capacity, occupied capacity, length, up/down) or demand (offered traffic,
+	 * carried traffic, worst case length) may have changed. The same element can be notified several times in the same change.
+	 *
+	 * @param e The element
+	 */
+	public void elementStateChanged(NetworkElement e);
+
+	/**
+	 * Called when all the design contents were replaced at once (e.g. the design was copied from other design, or reset).
+	 * No other notification is received for the elements removed or added this way.
+	 */
+	public void allElementsReplaced();
+}
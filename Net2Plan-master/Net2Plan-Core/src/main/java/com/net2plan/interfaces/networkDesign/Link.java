@@ -268,6 +268,7 @@ public class Link extends NetworkElement
 		final boolean fromZeroToMore = (this.capacity < Configuration.precisionFactor) && (newCapacity >= Configuration.precisionFactor); 
 		final boolean fromMoreToZero = (this.capacity >= Configuration.precisionFactor) && (newCapacity < Configuration.precisionFactor); 
 		this.capacity = newCapacity;
+		netPlan.notifyStateChanged(this);
 		if (fromMoreToZero)
 		{
 			layer.cache_linksZeroCap.add(this);
@@ -365,6 +366,7 @@ public class Link extends NetworkElement
 		netPlan.checkIsModifiable();
 		if (lengthInKm < 0) throw new Net2PlanException ("Link lengths cannot be negative");
 		this.lengthInKm = lengthInKm;
+		netPlan.notifyStateChanged(this);
 		this.updateWorstCasePropagationTraversingUnicastDemandsAndMaybeRoutes();
 	}
 
@@ -644,6 +646,7 @@ public class Link extends NetworkElement
 		else
 			this.removeAllForwardingRules();
 
+		netPlan.notifyElementToBeRemoved(this);
 		NetPlan.removeNetworkElementAndShiftIndexes (layer.links , index);
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
 
@@ -774,6 +777,7 @@ public class Link extends NetworkElement
 	
 	void updateLinkTrafficAndOccupation ()
 	{
+		netPlan.notifyStateChanged(this);
 		this.cache_carriedTraffic = 0;
 		this.cache_occupiedCapacity = 0;
 		if (layer.isSourceRouting())
@@ -1000,10 +1004,12 @@ public class Link extends NetworkElement
 		if (layer.isSourceRouting())
 		{
 			/* updates route and associated demand times */
-			for (Route r : cache_traversingRoutes.keySet()) r.updatePropagationAndProcessingDelayInMiliseconds();
+			for (Route r : cache_traversingRoutes.keySet()) { r.updatePropagationAndProcessingDelayInMiliseconds(); netPlan.notifyStateChanged(r.demand); }
 		}
 		else
 		{
+			/* the hop-by-hop solutions reused in failure states include the propagation delay and length */
+			for (Demand d : cacheHbH_frs.keySet()) d.cacheHbH_failureStateSolutions.clear();
 			final Set<Demand> demandsToUpdate = new HashSet<> ();
 			for (Entry<Demand,Pair<Double,Double>> entry : this.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.entrySet())
 				if (entry.getValue().getFirst() > Configuration.precisionFactor) demandsToUpdate.add(entry.getKey());
@@ -1013,6 +1019,7 @@ public class Link extends NetworkElement
 					final Pair<Double,Double> p = GraphUtils.computeWorstCasePropagationDelayAndLengthInKmMsForLoopLess(d.cacheHbH_frs, d.cacheHbH_linksPerNodeWithNonZeroFr, d.ingressNode, d.egressNode);
 					d.cache_worstCasePropagationTimeMs = p.getFirst();
 					d.cache_worstCaseLengthInKm = p.getSecond();
+					netPlan.notifyStateChanged(d);
 				}
 		}
 	}
@@ -374,7 +374,10 @@ public class MulticastDemand extends NetworkElement
 		upperLayer.cache_coupledLinks.removeAll(links);
 		layer.cache_coupledMulticastDemands.remove(this);
 		for (Link link : links)
+		{
 			link.coupledLowerLayerMulticastDemand = null;
+			netPlan.notifyStateChanged(link);
+		}
 
 		DemandLinkMapping coupling_thisLayerPair = netPlan.interLayerCoupling.getEdge(lowerLayer, upperLayer);
 		coupling_thisLayerPair.remove(this);
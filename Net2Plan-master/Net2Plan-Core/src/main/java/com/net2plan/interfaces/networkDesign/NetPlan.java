@@ -20,19 +20,30 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.xml.stream.FactoryConfigurationError;
@@ -51,7 +62,9 @@ import com.net2plan.internal.AttributeMap;
 import com.net2plan.internal.ErrorHandling;
 import com.net2plan.internal.Version;
 import com.net2plan.internal.XMLUtils;
+import com.net2plan.libraries.CSRGraph;
 import com.net2plan.libraries.GraphUtils;
+import com.net2plan.libraries.MulticastCandidateTreeGenerator;
 import com.net2plan.libraries.ProfileUtils;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.utils.CollectionUtils;
@@ -128,6 +141,15 @@ public class NetPlan extends NetworkElement
     final static String TEMPLATE_FORWARDINGRULE_NOT_ACTIVE_IN_LAYER = "Forwarding rule %d is not in layer %d";
     final static String TEMPLATE_ROUTE_NOT_ALL_LINKS_SAME_LAYER = "Not all of the links of the route belong to the same layer";
     final static String TEMPLATE_MULTICASTTREE_NOT_ALL_LINKS_SAME_LAYER = "Not all of the links of the multicast tree belong to the same layer";
+
+    /* Parallel computation of candidate path lists: default number of threads, and results pending to be consumed per thread */
+    final static int DEFAULT_CANDIDATE_PATH_LIST_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private final static int PARALLEL_COMPUTATION_WINDOW_SIZE_PER_THREAD = 16;
+
+    /* Routes added with deferred caches (e.g. when reading a file): threads used to build their caches, and routes processed per task */
+    final static int DEFAULT_DEFERRED_ROUTE_CACHES_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private final static int DEFERRED_ROUTE_CACHES_ROUTES_PER_TASK = 1024;
+
     final static String UNMODIFIABLE_EXCEPTION_STRING = "Unmodifiable NetState object - can't be changed";
 //    final static String KEY_STRING_BIDIRECTIONALCOUPLE = "bidirectionalCouple";
 
@@ -156,10 +178,14 @@ public class NetPlan extends NetworkElement
     Map<Long, SharedRiskGroup> cache_id2srgMap;
 
     Map<String,Set<NetworkElement>> cache_taggedElements;
+    Map<String,Map<String,Set<NetworkElement>>> cache_attributeIndexes; // attribute key -> attribute value -> elements. Only for the keys with an index
     Map<String,Set<Node>> cache_nodesPerSiteName;
     Map<String, Set<Node>> cache_planningDomain2nodes;
 
     DirectedAcyclicGraph<NetworkLayer, DemandLinkMapping> interLayerCoupling;
+
+    List<INetPlanStateListener> stateListeners;
+    Set<Link> failureStateBatchAffectedLinks; // null if no batch of failure state changes is started
     
     
     /**
@@ -174,6 +200,7 @@ public class NetPlan extends NetworkElement
         this.netPlan = this;
         DEFAULT_ROUTING_TYPE = RoutingType.SOURCE_ROUTING;
         isModifiable = true;
+        stateListeners = new ArrayList<INetPlanStateListener>();
 
         networkDescription = "";
         networkName = "";
@@ -198,6 +225,7 @@ public class NetPlan extends NetworkElement
         this.cache_id2MulticastTreeMap = new HashMap<Long, MulticastTree>();
         
         this.cache_taggedElements = new HashMap<> ();
+        this.cache_attributeIndexes = new HashMap<> ();
         this.cache_nodesPerSiteName = new HashMap<> ();
         this.cache_planningDomain2nodes = new HashMap<> ();
         interLayerCoupling = new DirectedAcyclicGraph<NetworkLayer, DemandLinkMapping>(DemandLinkMapping.class);
@@ -365,6 +393,19 @@ public class NetPlan extends NetworkElement
     }
 
 
+    /**
+     * <p>Static factory method to get a {@link com.net2plan.interfaces.networkDesign.NetPlan NetPlan} object from a binary {@code .n2pb} file,
+     * as saved by {@link #saveToBinaryFile(File)}.</p>
+     *
+     * @param file Input file
+     * @return A network design
+     */
+    public static NetPlan loadFromBinaryFile(File file)
+    {
+        return NetPlanBinaryFormat.read(file);
+    }
+
+
     /**
      * <p>Returns true if the given NetPlan object contains the same network than this, meaning that all the network elements
      * are a copy in every aspect. In particular, saving in disk a design and then loading it again, should produce a network
@@ -492,6 +533,7 @@ public class NetPlan extends NetworkElement
         Set<Demand> setDemandsNodePair = layer.cache_nodePairDemandsThisLayer.get(Pair.of(ingressNode, egressNode));
         if (setDemandsNodePair == null) { setDemandsNodePair = new HashSet<> (); layer.cache_nodePairDemandsThisLayer.put(Pair.of(ingressNode, egressNode) , setDemandsNodePair); }  
         setDemandsNodePair.add(demand);
+        notifyElementAdded(demand);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return demand;
@@ -564,6 +606,7 @@ public class NetPlan extends NetworkElement
         cache_id2LayerMap.put(id, layer);
         layers.add(layer);
         if (layers.size() == 1) defaultLayer = layer;
+        notifyElementAdded(layer);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return layer;
@@ -678,6 +721,7 @@ public class NetPlan extends NetworkElement
         Set<Link> setLinksNodePair = layer.cache_nodePairLinksThisLayer.get(Pair.of(originNode, destinationNode));
         if (setLinksNodePair == null) { setLinksNodePair = new HashSet<> (); layer.cache_nodePairLinksThisLayer.put(Pair.of(originNode, destinationNode) , setLinksNodePair); }  
         setLinksNodePair.add(link);
+        notifyElementAdded(link);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return link;
     }
@@ -861,6 +905,7 @@ public class NetPlan extends NetworkElement
 
         nodes.add(node);
         cache_id2NodeMap.put(nodeId, node);
+        notifyElementAdded(node);
 
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
         return node;
@@ -1008,71 +1053,184 @@ public class NetPlan extends NetworkElement
         return route;
     }
 
+    /* Adds a route with the given initial state and current state, leaving it as addServiceChain followed by Route.setPath would, but without
+     * updating the caches of the route that depend on its path, the caches of the traversed links, nodes and resources, nor the demand
+     * carried traffic. Used when reading a design from a file:
+     * the route cannot be used until updateCachesOfRoutesWithDeferredCaches is called */
+    Route addServiceChainWithDeferredCaches(long routeId, Demand demand, double initialStateCarriedTraffic, List<Double> initialStateOccupiedLinkAndResourceCapacities,
+            List<? extends NetworkElement> initialStateSequenceOfLinksAndResources, double carriedTraffic, List<Double> occupiedLinkAndResourceCapacities, List<? extends NetworkElement> sequenceOfLinksAndResources)
+    {
+        checkIsModifiable();
+        checkInThisNetPlan(demand);
+        demand.layer.checkRoutingType(RoutingType.SOURCE_ROUTING);
+        checkPathValidityForDemand(sequenceOfLinksAndResources, demand);
+        initialStateCarriedTraffic = NetPlan.adjustToTolerance(initialStateCarriedTraffic);
+        initialStateOccupiedLinkAndResourceCapacities = NetPlan.adjustToTolerance(initialStateOccupiedLinkAndResourceCapacities);
+        carriedTraffic = NetPlan.adjustToTolerance(carriedTraffic);
+        occupiedLinkAndResourceCapacities = NetPlan.adjustToTolerance(occupiedLinkAndResourceCapacities);
+        if (initialStateCarriedTraffic < 0 || carriedTraffic < 0) throw new Net2PlanException("Carried traffic must be non-negative");
+        if (initialStateOccupiedLinkAndResourceCapacities.size() != initialStateSequenceOfLinksAndResources.size() || occupiedLinkAndResourceCapacities.size() != sequenceOfLinksAndResources.size())
+            throw new Net2PlanException("Wrong size of occupations vector");
+        for (double val : initialStateOccupiedLinkAndResourceCapacities) if (val < 0) throw new Net2PlanException("Occupied capacities cannot be negative");
+        for (double val : occupiedLinkAndResourceCapacities) if (val < 0) throw new Net2PlanException("Occupied capacities cannot be negative");
+
+        final NetworkLayer layer = demand.layer;
+        final Route route = new Route(this, routeId, layer.routes.size(), demand, initialStateSequenceOfLinksAndResources, new AttributeMap(null), false);
+        route.initialStateCarriedTrafficIfNotFailing = initialStateCarriedTraffic;
+        route.initialStateOccupationIfNotFailing = new ArrayList<Double>(initialStateOccupiedLinkAndResourceCapacities);
+        route.currentPath = new LinkedList<NetworkElement>(sequenceOfLinksAndResources);
+        route.currentCarriedTrafficIfNotFailing = carriedTraffic;
+        route.currentLinksAndResourcesOccupationIfNotFailing = new ArrayList<Double>(occupiedLinkAndResourceCapacities);
+
+        layer.routes.add(route);
+        cache_id2RouteMap.put(routeId, route);
+        demand.cache_routes.add(route);
+        return route;
+    }
+
+    /* Builds the caches of the routes added with addServiceChainWithDeferredCaches: the caches depending only on the path of each route are
+     * computed in parallel, and then the caches of the traversed links, nodes and resources, and the carried traffic of the links, resources
+     * and demands, are updated once for all the routes */
+    void updateCachesOfRoutesWithDeferredCaches(List<Route> routes, int parallelism)
+    {
+        final List<List<Route>> routesPerTask = new ArrayList<>();
+        for (int firstRoute = 0; firstRoute < routes.size(); firstRoute += DEFERRED_ROUTE_CACHES_ROUTES_PER_TASK)
+            routesPerTask.add(routes.subList(firstRoute, Math.min(routes.size(), firstRoute + DEFERRED_ROUTE_CACHES_ROUTES_PER_TASK)));
+
+        final Set<Link> affectedLinks = new LinkedHashSet<>();
+        final Set<Resource> affectedResources = new LinkedHashSet<>();
+        final Set<Demand> affectedDemands = new LinkedHashSet<>();
+        computeInParallelInOrder(routesPerTask, parallelism, () -> routesThisTask ->
+        {
+            for (Route route : routesThisTask) route.updateCachesOfCurrentPath();
+            return routesThisTask;
+        }, (routesThisTask, sameRoutes) ->
+        {
+            for (Route route : routesThisTask)
+            {
+                if (route.cache_hasLoops) route.demand.routingCycleType = RoutingCycleType.OPEN_CYCLES;
+                route.updatePropagationAndProcessingDelayInMiliseconds();
+                boolean isRouteUp = route.demand.ingressNode.isUp;
+                boolean isRouteTravZeroCapLinks = false;
+                for (Link e : route.cache_seqLinksRealPath)
+                {
+                    isRouteUp = (isRouteUp && e.isUp && e.destinationNode.isUp);
+                    if (e.capacity < Configuration.precisionFactor) isRouteTravZeroCapLinks = true;
+                    final Integer numPassingTimes = e.cache_traversingRoutes.get(route);
+                    e.cache_traversingRoutes.put(route, numPassingTimes == null ? 1 : numPassingTimes + 1);
+                    affectedLinks.add(e);
+                }
+                for (Node node : route.cache_seqNodesRealPath) node.cache_nodeAssociatedRoutes.add(route);
+                if (!isRouteUp) route.layer.cache_routesDown.add(route);
+                if (isRouteTravZeroCapLinks) route.layer.cache_routesTravLinkZeroCap.add(route);
+                for (Entry<NetworkElement, Double> occupation : route.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap.entrySet())
+                {
+                    if (!(occupation.getKey() instanceof Resource)) continue;
+                    final Resource resource = (Resource) occupation.getKey();
+                    if (!route.cache_seqNodesRealPath.contains(resource.hostNode)) throw new Net2PlanException("The route does not traverse the host node of this resource");
+                    resource.cache_traversingRoutesAndOccupiedCapacitiesIfNotFailingRoute.put(route, occupation.getValue());
+                    affectedResources.add(resource);
+                }
+                affectedDemands.add(route.demand);
+            }
+        });
+
+        /* The traffic is updated once all the routes are up or down */
+        for (Resource resource : affectedResources) resource.updateTotalOccupiedCapacity();
+        for (Demand demand : affectedDemands)
+        {
+            demand.carriedTraffic = 0;
+            for (Route r : demand.cache_routes) demand.carriedTraffic += r.getCarriedTraffic();
+            notifyStateChanged(demand);
+            if (demand.coupledUpperLayerLink != null)
+                demand.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(demand.carriedTraffic);
+        }
+        for (Link link : affectedLinks) link.updateLinkTrafficAndOccupation();
+        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+    }
+
     /**
-     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given.</p>
+     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given.
+     * The node pairs are processed in parallel, using as many threads as available processors.</p>
      *
      * @param cpl          Candidate path list per demand
      * @param disjointType Type of disjointness: 0 for SRG-disjoint, 1 for link and node disjoint, other value means link disjoint
      * @return List of disjoint path pairs for each demand
      */
     public static Map<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> computeUnicastCandidate11PathList(Map<Pair<Node, Node>, List<List<Link>>> cpl, int disjointType)
+    {
+        return computeUnicastCandidate11PathList(cpl, disjointType, DEFAULT_CANDIDATE_PATH_LIST_PARALLELISM);
+    }
+
+    /**
+     * <p>Computes a list of disjoint path pairs for each node pair, using the paths in the input candidate path list given.
+     * The node pairs are processed in parallel, and the output map iterates them in the same order as the input map.</p>
+     *
+     * @param cpl          Candidate path list per demand
+     * @param disjointType Type of disjointness: 0 for SRG-disjoint, 1 for link and node disjoint, other value means link disjoint
+     * @param parallelism  Number of threads to use (one means a sequential computation)
+     * @return List of disjoint path pairs for each demand
+     * @since 0.5.3
+     */
+    public static Map<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> computeUnicastCandidate11PathList(Map<Pair<Node, Node>, List<List<Link>>> cpl, int disjointType, int parallelism)
+    {
+        final Map<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> result = new LinkedHashMap<>();
+        if (cpl.isEmpty()) return result;
+        computeInParallelInOrder(new ArrayList<>(cpl.keySet()), parallelism, () -> nodePair -> computeUnicastCandidate11PathList(nodePair, cpl.get(nodePair), disjointType), result::put);
+        return result;
+    }
+
+    private static List<Pair<List<Link>, List<Link>>> computeUnicastCandidate11PathList(Pair<Node, Node> nodePair, List<List<Link>> pathsThisNodePair, int disjointType)
     {
         final boolean srgDisjoint = disjointType == 0;
         final boolean linkAndNodeDisjoint = disjointType == 1;
         final boolean linkDisjoint = !srgDisjoint && !linkAndNodeDisjoint;
-        Map<Pair<Node, Node>, List<Pair<List<Link>, List<Link>>>> result = new HashMap<>();
-        if (cpl.isEmpty()) return result;
-
-        for (Pair<Node, Node> nodePair : cpl.keySet())
-        {
-            List<Pair<List<Link>, List<Link>>> pairs11ThisDemand = new ArrayList<>();
-            final List<List<Link>> paths = new ArrayList<>(cpl.get(nodePair));
-            final int P_d = paths.size();
-            for (int firstPathIndex = 0; firstPathIndex < P_d - 1; firstPathIndex++)
+        List<Pair<List<Link>, List<Link>>> pairs11ThisDemand = new ArrayList<>();
+        final List<List<Link>> paths = new ArrayList<>(pathsThisNodePair);
+        final int P_d = paths.size();
+        for (int firstPathIndex = 0; firstPathIndex < P_d - 1; firstPathIndex++)
+        {
+            final List<Link> firstPathSeqLinks = paths.get(firstPathIndex).stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
+            final Set<Link> firstPathLinks = new HashSet<Link>(firstPathSeqLinks);
+            Set<Node> firstPathNodesButLastAndFirst = null;
+            Set<SharedRiskGroup> firstPathSRGs = null;
+            if (linkAndNodeDisjoint)
             {
-                final List<Link> firstPathSeqLinks = paths.get(firstPathIndex).stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
-                final Set<Link> firstPathLinks = new HashSet<Link>(firstPathSeqLinks);
-                Set<Node> firstPathNodesButLastAndFirst = null;
-                Set<SharedRiskGroup> firstPathSRGs = null;
-                if (linkAndNodeDisjoint)
+                List<Node> firstPathSeqNodes = GraphUtils.convertSequenceOfLinksToSequenceOfNodes(firstPathSeqLinks);
+                firstPathNodesButLastAndFirst = new HashSet<Node>(firstPathSeqNodes);
+                firstPathNodesButLastAndFirst.remove(nodePair.getFirst());
+                firstPathNodesButLastAndFirst.remove(nodePair.getSecond());
+            } else if (srgDisjoint)
+            {
+                firstPathSRGs = SRGUtils.getAffectingSRGs(firstPathLinks);
+            }
+            for (int secondPathIndex = firstPathIndex + 1; secondPathIndex < P_d; secondPathIndex++)
+            {
+                //List<Link> secondPath = paths.get(secondPathIndex);
+                final List<Link> secondPathSeqLinks = paths.get(secondPathIndex); //.stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
+                boolean disjoint = true;
+                if (linkDisjoint)
                 {
-                    List<Node> firstPathSeqNodes = GraphUtils.convertSequenceOfLinksToSequenceOfNodes(firstPathSeqLinks);
-                    firstPathNodesButLastAndFirst = new HashSet<Node>(firstPathSeqNodes);
-                    firstPathNodesButLastAndFirst.remove(nodePair.getFirst());
-                    firstPathNodesButLastAndFirst.remove(nodePair.getSecond());
+                    disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty();
+                } else if (linkAndNodeDisjoint)
+                {
+                    Set<Node> secondPathNodes = new HashSet<Node>(GraphUtils.convertSequenceOfLinksToSequenceOfNodes(secondPathSeqLinks));
+                    secondPathNodes.remove(nodePair.getFirst());
+                    secondPathNodes.remove(nodePair.getSecond());
+                    disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty() &&
+                            Sets.intersection(firstPathNodesButLastAndFirst, secondPathNodes).isEmpty();
                 } else if (srgDisjoint)
                 {
-                    firstPathSRGs = SRGUtils.getAffectingSRGs(firstPathLinks);
+                    disjoint = Sets.intersection(firstPathSRGs, SRGUtils.getAffectingSRGs(secondPathSeqLinks)).isEmpty();
                 }
-                for (int secondPathIndex = firstPathIndex + 1; secondPathIndex < P_d; secondPathIndex++)
+                if (disjoint)
                 {
-                    //List<Link> secondPath = paths.get(secondPathIndex);
-                    final List<Link> secondPathSeqLinks = paths.get(secondPathIndex); //.stream().filter(e -> e instanceof Link).map(e -> (Link) e).collect(Collectors.toList());
-                    boolean disjoint = true;
-                    if (linkDisjoint)
-                    {
-                        disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty();
-                    } else if (linkAndNodeDisjoint)
-                    {
-                        Set<Node> secondPathNodes = new HashSet<Node>(GraphUtils.convertSequenceOfLinksToSequenceOfNodes(secondPathSeqLinks));
-                        secondPathNodes.remove(nodePair.getFirst());
-                        secondPathNodes.remove(nodePair.getSecond());
-                        disjoint = Sets.intersection(firstPathLinks, new HashSet<>(secondPathSeqLinks)).isEmpty() &&
-                                Sets.intersection(firstPathNodesButLastAndFirst, secondPathNodes).isEmpty();
-                    } else if (srgDisjoint)
-                    {
-                        disjoint = Sets.intersection(firstPathSRGs, SRGUtils.getAffectingSRGs(secondPathSeqLinks)).isEmpty();
-                    }
-                    if (disjoint)
-                    {
-                        checkDisjointness(firstPathSeqLinks, secondPathSeqLinks, disjointType);
-                        pairs11ThisDemand.add(Pair.of(paths.get(firstPathIndex), paths.get(secondPathIndex)));
-                    }
+                    checkDisjointness(firstPathSeqLinks, secondPathSeqLinks, disjointType);
+                    pairs11ThisDemand.add(Pair.of(paths.get(firstPathIndex), paths.get(secondPathIndex)));
                 }
             }
-            result.put(nodePair, pairs11ThisDemand);
         }
-        return result;
+        return pairs11ThisDemand;
     }
 
     /**
@@ -1199,6 +1357,7 @@ public class NetPlan extends NetworkElement
      * the link and resources cost information provided, as well as other constraints defined in the input parameters.
      * The algorithm calls the function getKMinimumCostServiceChains in GraphUtils, for each demand. Some of the constraints limit the vaild subpaths,
      * where a subpath means the sequence of links between two consecutive resources, or from origin/end node to to/from its next/previous visited resource.
+     * The demands are processed in parallel, using as many threads as available processors.
      *
      * @param linkCosts                  the cost of each link (if null, all links have cost one), all numbers must be strictly positive
      * @param resourceCosts              a vector with the cost of each resource (if null, all resources have cost zero). All costs must be nonnegative. If a resource has a cost of Double.MAX_VALUE, it is as if it did not existed (cannot be traversed)
@@ -1213,30 +1372,53 @@ public class NetPlan extends NetworkElement
     public Map<Demand, List<List<NetworkElement>>> computeUnicastCandidateServiceChainList(DoubleMatrix1D linkCosts, DoubleMatrix1D resourceCosts,
                                                                                            int K, double maxCostServiceChain, double maxLengthInKmPerSubpath, int maxNumHopsPerSubpath, double maxPropDelayInMsPerSubpath,
                                                                                            NetworkLayer... optionalLayerParameter)
+    {
+        final Map<Demand, List<List<NetworkElement>>> cpl = new LinkedHashMap<Demand, List<List<NetworkElement>>>();
+        computeUnicastCandidateServiceChainList(linkCosts, resourceCosts, K, maxCostServiceChain, maxLengthInKmPerSubpath, maxNumHopsPerSubpath, maxPropDelayInMsPerSubpath, DEFAULT_CANDIDATE_PATH_LIST_PARALLELISM, cpl::put, optionalLayerParameter);
+        return cpl;
+    }
+
+    /**
+     * Computes for each demand (service chain request) up to k minimum cost service chain paths, as {@link #computeUnicastCandidateServiceChainList(DoubleMatrix1D, DoubleMatrix1D, int, double, double, int, double, NetworkLayer...) computeUnicastCandidateServiceChainList},
+     * processing the demands in parallel. The service chains of each demand are passed to the consumer as they are computed, in the order of the demand indexes
+     * and from the calling thread, so the whole list does not need to be kept in memory.
+     *
+     * @param linkCosts                  the cost of each link (if null, all links have cost one), all numbers must be strictly positive
+     * @param resourceCosts              a vector with the cost of each resource (if null, all resources have cost zero). All costs must be nonnegative. If a resource has a cost of Double.MAX_VALUE, it is as if it did not existed (cannot be traversed)
+     * @param K                          The maximum number of service chains to return (less than K may be returned if there are no different paths).
+     * @param maxCostServiceChain        Service chains with a cost higher than this are not enumerated
+     * @param maxLengthInKmPerSubpath    The maximum length in km in each subpath. Service chains not satisfying this are not enumerated
+     * @param maxNumHopsPerSubpath       The maximum number of traversed links in each subpath. Service chains not satisfying this are not enumerated
+     * @param maxPropDelayInMsPerSubpath The propagation delay summing the links in each subpath. Service chains not satisfying this are not enumerated
+     * @param parallelism                Number of threads to use (one means a sequential computation)
+     * @param consumer                   Receives each demand and its service chains
+     * @param optionalLayerParameter     the optional layer parameter
+     * @since 0.5.3
+     */
+    public void computeUnicastCandidateServiceChainList(DoubleMatrix1D linkCosts, DoubleMatrix1D resourceCosts,
+                                                        int K, double maxCostServiceChain, double maxLengthInKmPerSubpath, int maxNumHopsPerSubpath, double maxPropDelayInMsPerSubpath,
+                                                        int parallelism, BiConsumer<Demand, List<List<NetworkElement>>> consumer, NetworkLayer... optionalLayerParameter)
     {
         final NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
-        Map<Pair<Node, Node>, List<Pair<List<Link>, Double>>> cacheSubpathLists = new HashMap<>();
-        if (linkCosts == null) linkCosts = DoubleFactory1D.dense.make(layer.links.size(), 1.0);
+        final DoubleMatrix1D linkCostsToUse = linkCosts == null ? DoubleFactory1D.dense.make(layer.links.size(), 1.0) : linkCosts;
         if (resourceCosts == null) resourceCosts = DoubleFactory1D.dense.make(resources.size(), 0.0);
         Map<Resource, Double> resourceCostMap = new HashMap<Resource, Double>();
         for (int rIndex = 0; rIndex < resources.size(); rIndex++)
             resourceCostMap.put(resources.get(rIndex), resourceCosts.get(rIndex));
-        Map<Demand, List<List<NetworkElement>>> cpl = new HashMap<Demand, List<List<NetworkElement>>>();
-        for (Demand d : layer.demands)
+        computeInParallelInOrder(new ArrayList<>(layer.demands), parallelism, () ->
         {
-            List<Pair<List<NetworkElement>, Double>> kSCsInfo = GraphUtils.getKMinimumCostServiceChains(layer.links,
+            final Map<Pair<Node, Node>, List<Pair<List<Link>, Double>>> cacheSubpathLists = new HashMap<>(); // one per thread
+            return d -> GraphUtils.getKMinimumCostServiceChains(layer.links,
                     d.ingressNode, d.egressNode, d.mandatorySequenceOfTraversedResourceTypes,
-                    linkCosts, resourceCostMap,
+                    linkCostsToUse, resourceCostMap,
                     K, maxCostServiceChain, maxLengthInKmPerSubpath, maxNumHopsPerSubpath, maxPropDelayInMsPerSubpath,
-                    cacheSubpathLists);
-            List<List<NetworkElement>> kSCs = kSCsInfo.stream().map(e -> e.getFirst()).collect(Collectors.toList());
-            cpl.put(d, kSCs);
-        }
-        return cpl;
+                    cacheSubpathLists).stream().map(e -> e.getFirst()).collect(Collectors.toList());
+        }, consumer);
     }
 
     /**
-     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.</p>
+     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.
+     * The node pairs are processed in parallel, using as many threads as available processors.</p>
      *
      * @param linkCosts                               the cost of each link (if null, all links have cost one), all numbers must be strictly positive
      * @param K                                       Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
@@ -1253,24 +1435,129 @@ public class NetPlan extends NetworkElement
     public Map<Pair<Node, Node>, List<List<Link>>> computeUnicastCandidatePathList(DoubleMatrix1D linkCosts,
                                                                                    int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost,
                                                                                    double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, Set<Pair<Node, Node>> nodePairs, NetworkLayer... optionalLayerParameter)
+    {
+        return computeUnicastCandidatePathList(linkCosts, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath, nodePairs, DEFAULT_CANDIDATE_PATH_LIST_PARALLELISM, optionalLayerParameter);
+    }
+
+    /**
+     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.
+     * The node pairs are processed in parallel. The result does not depend on the parallelism level, and the returned map iterates the node pairs in
+     * increasing order of the origin node index, and then of the destination node index.</p>
+     *
+     * @param linkCosts                               the cost of each link (if null, all links have cost one), all numbers must be strictly positive
+     * @param K                                       Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
+     * @param maxLengthInKm                           Maximum length of the path. If non-positive, no maximum limit is assumed
+     * @param maxNumHops                              Maximum number of hops. If non-positive, no maximum limit is assumed
+     * @param maxPropDelayInMs                        Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+     * @param maxRouteCost                            Maximum route cost. If non-positive, no maximum limit is assumed
+     * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+     * @param maxRouteCostRespectToShortestPath       Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+     * @param nodePairs                               if this parameter is not null, the paths are computed only for this node pairs
+     * @param parallelism                             Number of threads to use (one means a sequential computation)
+     * @param optionalLayerParameter                  the layer (optional)
+     * @return Map with all the computed paths (values) per node pairs (keys)
+     * @since 0.5.3
+     */
+    public Map<Pair<Node, Node>, List<List<Link>>> computeUnicastCandidatePathList(DoubleMatrix1D linkCosts,
+                                                                                   int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost,
+                                                                                   double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, Set<Pair<Node, Node>> nodePairs,
+                                                                                   int parallelism, NetworkLayer... optionalLayerParameter)
+    {
+        final Map<Pair<Node, Node>, List<List<Link>>> cpl = new LinkedHashMap<>();
+        computeUnicastCandidatePathList(linkCosts, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath, nodePairs, parallelism, cpl::put, optionalLayerParameter);
+        return cpl;
+    }
+
+    /**
+     * <p>Computes for all the node pairs, a candidate path list in the given layer, composed of the k shortest paths according with the options indicated below.
+     * The node pairs are processed in parallel, and the paths of each node pair are passed to the consumer as they are computed, so the whole candidate
+     * path list does not need to be kept in memory. The consumer is called from the calling thread, in increasing order of the origin node index,
+     * and then of the destination node index.</p>
+     *
+     * @param linkCosts                               the cost of each link (if null, all links have cost one), all numbers must be strictly positive
+     * @param K                                       Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
+     * @param maxLengthInKm                           Maximum length of the path. If non-positive, no maximum limit is assumed
+     * @param maxNumHops                              Maximum number of hops. If non-positive, no maximum limit is assumed
+     * @param maxPropDelayInMs                        Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+     * @param maxRouteCost                            Maximum route cost. If non-positive, no maximum limit is assumed
+     * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+     * @param maxRouteCostRespectToShortestPath       Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+     * @param nodePairs                               if this parameter is not null, the paths are computed only for this node pairs
+     * @param parallelism                             Number of threads to use (one means a sequential computation)
+     * @param consumer                                Receives each node pair and its paths
+     * @param optionalLayerParameter                  the layer (optional)
+     * @since 0.5.3
+     */
+    public void computeUnicastCandidatePathList(DoubleMatrix1D linkCosts,
+                                                int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost,
+                                                double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, Set<Pair<Node, Node>> nodePairs,
+                                                int parallelism, BiConsumer<Pair<Node, Node>, List<List<Link>>> consumer, NetworkLayer... optionalLayerParameter)
     {
         checkIsModifiable();
         final NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
         if (linkCosts != null) if (linkCosts.size() != layer.links.size())
             throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
-        Map<Pair<Node, Node>, List<List<Link>>> cpl = new HashMap<>();
         Map<Link, Double> linkCostMap = new HashMap<Link, Double>();
         for (Link e : layer.links) linkCostMap.put(e, linkCosts == null ? 1.0 : linkCosts.get(e.index));
+        final List<Pair<Node, Node>> orderedNodePairs = new ArrayList<>();
         if (nodePairs == null)
         {
-            nodePairs = new HashSet<>();
             for (Node n1 : nodes)
                 for (Node n2 : nodes)
-                    if (n1 != n2) nodePairs.add(Pair.of(n1, n2));
+                    if (n1 != n2) orderedNodePairs.add(Pair.of(n1, n2));
+        }
+        else
+        {
+            orderedNodePairs.addAll(nodePairs);
+            orderedNodePairs.sort(Comparator.comparingInt((Pair<Node, Node> p) -> p.getFirst().index).thenComparingInt(p -> p.getSecond().index));
+        }
+        computeInParallelInOrder(orderedNodePairs, parallelism, () ->
+        {
+            final CSRGraph graph = new CSRGraph(nodes, layer.links, linkCostMap); // one graph per thread, for all its node pairs
+            return pair -> graph.getKLooplessShortestPaths(pair.getFirst(), pair.getSecond(), K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath);
+        }, consumer);
+    }
+
+    /* Applies the computation to each key in a fork-join pool, and passes the results to the consumer from the calling thread, in the order of the keys.
+     * Each thread obtains its own computation function from the supplier, so it can keep its own auxiliary structures. At most a window of results,
+     * proportional to the parallelism, is pending to be consumed at any moment */
+    private static <K, V> void computeInParallelInOrder(List<K> keys, int parallelism, Supplier<Function<K, V>> computationPerThread, BiConsumer<K, V> consumer)
+    {
+        if (parallelism <= 0) throw new Net2PlanException("The parallelism level must be positive");
+        if (parallelism == 1 || keys.size() <= 1)
+        {
+            final Function<K, V> computation = computationPerThread.get();
+            for (K key : keys) consumer.accept(key, computation.apply(key));
+            return;
+        }
+        final ThreadLocal<Function<K, V>> computationThisThread = ThreadLocal.withInitial(computationPerThread);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            final int windowSize = parallelism * PARALLEL_COMPUTATION_WINDOW_SIZE_PER_THREAD;
+            final Deque<Future<V>> pendingResults = new ArrayDeque<>(windowSize);
+            int nextKeyToSubmit = 0;
+            for (K key : keys)
+            {
+                while (nextKeyToSubmit < keys.size() && pendingResults.size() < windowSize)
+                {
+                    final K keyToSubmit = keys.get(nextKeyToSubmit++);
+                    pendingResults.add(pool.submit(() -> computationThisThread.get().apply(keyToSubmit)));
+                }
+                consumer.accept(key, pendingResults.poll().get());
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new Net2PlanException("The computation was interrupted");
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally
+        {
+            pool.shutdownNow();
         }
-        for (Pair<Node, Node> pair : nodePairs)
-            cpl.put(pair, GraphUtils.getKLooplessShortestPaths(nodes, layer.links, pair.getFirst(), pair.getSecond(), linkCostMap, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath));
-        return cpl;
     }
 
     /**
@@ -1380,6 +1667,71 @@ public class NetPlan extends NetworkElement
         if (linkCosts.size() != layer.links.size())
             throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
         Map<MulticastDemand, List<Set<Link>>> cpl = new HashMap<MulticastDemand, List<Set<Link>>>();
+        final Map<String, Double> params = getMulticastCandidateTreeListParameters(candidateTreeListParamValuePairs);
+        final int K = params.get("K").intValue();
+        final int maxCopyCapability = params.get("maxCopyCapability").intValue();
+        final double maxE2ELengthInKm = params.get("maxE2ELengthInKm");
+        final int maxE2ENumHops = params.get("maxE2ENumHops").intValue();
+        final double maxE2EPropDelayInMs = params.get("maxE2EPropDelayInMs");
+        final double maxTreeCost = params.get("maxTreeCost");
+        final double maxTreeCostFactorRespectToMinimumCostTree = params.get("maxTreeCostFactorRespectToMinimumCostTree");
+        final double maxTreeCostRespectToMinimumCostTree = params.get("maxTreeCostRespectToMinimumCostTree");
+
+        final DoubleMatrix2D Aout_ne = getMatrixNodeLinkOutgoingIncidence(layer);
+        final DoubleMatrix2D Ain_ne = getMatrixNodeLinkIncomingIncidence(layer);
+
+        for (MulticastDemand d : layer.multicastDemands)
+        {
+            List<Set<Link>> trees = GraphUtils.getKMinimumCostMulticastTrees(layer.links,
+                    d.getIngressNode(), d.getEgressNodes(),
+                    Aout_ne, Ain_ne, linkCosts,
+                    solverName, solverLibraryName,
+                    maxSolverTimeInSecondsPerTree, K, maxCopyCapability,
+                    maxE2ELengthInKm, maxE2ENumHops, maxE2EPropDelayInMs,
+                    maxTreeCost, maxTreeCostFactorRespectToMinimumCostTree, maxTreeCostRespectToMinimumCostTree);
+            cpl.put(d, trees);
+        }
+        return cpl;
+    }
+
+    /**
+     * <p>Computes a candidate multicast tree list as {@link #computeMulticastCandidatePathList(NetworkLayer, DoubleMatrix1D, String, String, double, String...) computeMulticastCandidatePathList},
+     * but without solving any ILP: the trees are combinations of one of the k-shortest paths from the origin node to each destination node (see {@link MulticastCandidateTreeGenerator}),
+     * and the multicast demands are processed in parallel. The exploration of the trees of a demand stops when {@code K} trees are found, or the time or the number of
+     * path combinations allowed per demand are exhausted: then, the trees found so far are returned. The trees are not necessarily the minimum cost ones.</p>
+     * <p>The options are the same as in {@link #computeMulticastCandidatePathList(NetworkLayer, DoubleMatrix1D, String, String, double, String...) computeMulticastCandidatePathList}, plus:</p>
+     * <ul>
+     * <li>{@code numPathsPerDestination}: Number of shortest paths computed from the origin node to each destination node, to be combined in the trees (default: the value of {@code K})</li>
+     * </ul>
+     *
+     * @param layer                            the layer for which the candidate multicast tree list is computed
+     * @param linkCosts                        Link weight vector. If {@code null}, a vector of ones is assumed
+     * @param numThreads                       Number of threads
+     * @param maxTimeInSecondsPerDemand        Maximum time for the exploration of the trees of each demand. If non-positive, no time limit is set
+     * @param maxNumCombinationsPerDemand      Maximum number of path combinations explored for each demand. If non-positive, no limit is set
+     * @param candidateTreeListParamValuePairs Parameters to be passed to the class to tune its operation. An even number of {@code String} is to be passed. For each {@code String} pair, first {@code String}
+     *                                         must be the name of the parameter, second a {@code String} with its value. If no name-value pairs are set, default values are used
+     * @return Map with a list of all the computed trees (a tree is a set of links) per multicast demands
+     * @since 0.5.3
+     */
+    public Map<MulticastDemand, List<Set<Link>>> computeMulticastCandidatePathList(NetworkLayer layer, DoubleMatrix1D linkCosts, int numThreads, double maxTimeInSecondsPerDemand, int maxNumCombinationsPerDemand, String... candidateTreeListParamValuePairs)
+    {
+        checkInThisNetPlan(layer);
+        if (linkCosts == null) linkCosts = DoubleFactory1D.dense.make(layer.links.size(), 1);
+        if (linkCosts.size() != layer.links.size())
+            throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
+        final Map<String, Double> params = getMulticastCandidateTreeListParameters(candidateTreeListParamValuePairs);
+        final MulticastCandidateTreeGenerator generator = new MulticastCandidateTreeGenerator(nodes, layer.links, linkCosts,
+                params.get("K").intValue(), params.get("numPathsPerDestination").intValue(), params.get("maxCopyCapability").intValue(),
+                params.get("maxE2ELengthInKm"), params.get("maxE2ENumHops").intValue(), params.get("maxE2EPropDelayInMs"),
+                params.get("maxTreeCost"), params.get("maxTreeCostFactorRespectToMinimumCostTree"), params.get("maxTreeCostRespectToMinimumCostTree"),
+                maxTimeInSecondsPerDemand, maxNumCombinationsPerDemand);
+        return generator.computeCandidateTrees(layer.multicastDemands, numThreads);
+    }
+
+    /* Parses the options of the candidate multicast tree list computation, setting the default values of the options not given */
+    private static Map<String, Double> getMulticastCandidateTreeListParameters(String... candidateTreeListParamValuePairs)
+    {
         int K = 3;
         int maxCopyCapability = Integer.MAX_VALUE;
         double maxE2ELengthInKm = Double.MAX_VALUE;
@@ -1388,6 +1740,7 @@ public class NetPlan extends NetworkElement
         double maxTreeCost = Double.MAX_VALUE;
         double maxTreeCostFactorRespectToMinimumCostTree = Double.MAX_VALUE;
         double maxTreeCostRespectToMinimumCostTree = Double.MAX_VALUE;
+        int numPathsPerDestination = -1;
 
         int numParameters = (int) (candidateTreeListParamValuePairs.length / 2);
         if (numParameters * 2 != candidateTreeListParamValuePairs.length)
@@ -1416,25 +1769,23 @@ public class NetPlan extends NetworkElement
                 maxTreeCostFactorRespectToMinimumCostTree = Double.parseDouble(value) <= 0 ? Double.MAX_VALUE : Double.parseDouble(value);
             else if (parameter.equalsIgnoreCase("maxTreeCostRespectToMinimumCostTree"))
                 maxTreeCostRespectToMinimumCostTree = Double.parseDouble(value) <= 0 ? Double.MAX_VALUE : Double.parseDouble(value);
+            else if (parameter.equalsIgnoreCase("numPathsPerDestination"))
+                numPathsPerDestination = Integer.parseInt(value);
             else
                 throw new RuntimeException("Unknown parameter " + parameter);
         }
 
-        final DoubleMatrix2D Aout_ne = getMatrixNodeLinkOutgoingIncidence(layer);
-        final DoubleMatrix2D Ain_ne = getMatrixNodeLinkIncomingIncidence(layer);
-
-        for (MulticastDemand d : layer.multicastDemands)
-        {
-            List<Set<Link>> trees = GraphUtils.getKMinimumCostMulticastTrees(layer.links,
-                    d.getIngressNode(), d.getEgressNodes(),
-                    Aout_ne, Ain_ne, linkCosts,
-                    solverName, solverLibraryName,
-                    maxSolverTimeInSecondsPerTree, K, maxCopyCapability,
-                    maxE2ELengthInKm, maxE2ENumHops, maxE2EPropDelayInMs,
-                    maxTreeCost, maxTreeCostFactorRespectToMinimumCostTree, maxTreeCostRespectToMinimumCostTree);
-            cpl.put(d, trees);
-        }
-        return cpl;
+        final Map<String, Double> params = new HashMap<String, Double>();
+        params.put("K", (double) K);
+        params.put("maxCopyCapability", (double) maxCopyCapability);
+        params.put("maxE2ELengthInKm", maxE2ELengthInKm);
+        params.put("maxE2ENumHops", (double) maxE2ENumHops);
+        params.put("maxE2EPropDelayInMs", maxE2EPropDelayInMs);
+        params.put("maxTreeCost", maxTreeCost);
+        params.put("maxTreeCostFactorRespectToMinimumCostTree", maxTreeCostFactorRespectToMinimumCostTree);
+        params.put("maxTreeCostRespectToMinimumCostTree", maxTreeCostRespectToMinimumCostTree);
+        params.put("numPathsPerDestination", (double) numPathsPerDestination);
+        return params;
     }
 
     /**
@@ -1497,6 +1848,54 @@ public class NetPlan extends NetworkElement
     }
 
 
+    /**
+     * <p>Adds a listener to be notified of the changes in the state of the layers, nodes, links and demands of this design. The listeners
+     * are not copied when the design is copied, but are kept when the design contents are replaced with {@link #copyFrom(NetPlan) copyFrom()},
+     * {@link #assignFrom(NetPlan) assignFrom()} or {@link #reset() reset()}.</p>
+     *
+     * @param listener The listener
+     */
+    public void addStateListener(INetPlanStateListener listener)
+    {
+        if (listener == null) throw new Net2PlanException("A listener must be provided");
+        if (!stateListeners.contains(listener)) stateListeners.add(listener);
+    }
+
+    /**
+     * <p>Removes a listener previously added with {@link #addStateListener(INetPlanStateListener) addStateListener()}. Does nothing if the
+     * listener was not added.</p>
+     *
+     * @param listener The listener
+     */
+    public void removeStateListener(INetPlanStateListener listener)
+    {
+        stateListeners.remove(listener);
+    }
+
+    void notifyElementAdded(NetworkElement e)
+    {
+        if (stateListeners.isEmpty()) return;
+        for (INetPlanStateListener listener : stateListeners) listener.elementAdded(e);
+    }
+
+    void notifyElementToBeRemoved(NetworkElement e)
+    {
+        if (stateListeners.isEmpty()) return;
+        for (INetPlanStateListener listener : stateListeners) listener.elementToBeRemoved(e);
+    }
+
+    void notifyStateChanged(NetworkElement e)
+    {
+        if (stateListeners.isEmpty()) return;
+        for (INetPlanStateListener listener : stateListeners) listener.elementStateChanged(e);
+    }
+
+    void notifyAllElementsReplaced()
+    {
+        if (stateListeners.isEmpty()) return;
+        for (INetPlanStateListener listener : stateListeners) listener.allElementsReplaced();
+    }
+
     /**
      * <p>Assigns the information from the input {@code NetPlan}.</p>
      * <p><b>Important</b>: A shadow copy is made, an the object netPlan used as parameter cannot be longer used,
@@ -1535,12 +1934,20 @@ public class NetPlan extends NetworkElement
         this.cache_nodesPerSiteName = netPlan.cache_nodesPerSiteName;
         this.cache_planningDomain2nodes = netPlan.cache_planningDomain2nodes;
         this.interLayerCoupling = netPlan.interLayerCoupling;
-        this.tags.clear(); this.tags.addAll(netPlan.tags);
+        this.tags = netPlan.tags.isEmpty()? Collections.emptySet() : new HashSet<> (netPlan.tags);
         for (String tag : this.tags) // remove reference to origin netPlan in tags (the other network elements do not change, but NetPlan does) 
         { 
         	this.cache_taggedElements.get(tag).remove(netPlan); 
         	this.cache_taggedElements.get(tag).add(this); 
         }
+        this.cache_attributeIndexes = netPlan.cache_attributeIndexes;
+        for (String key : this.cache_attributeIndexes.keySet()) // same for the attribute indexes
+        {
+        	final String value = netPlan.attributes.get(key);
+        	if (value == null) continue;
+        	this.cache_attributeIndexes.get(key).get(value).remove(netPlan); 
+        	this.cache_attributeIndexes.get(key).get(value).add(this); 
+        }
         this.attributes.clear();
         this.attributes.putAll(netPlan.attributes);
         for (Node node : netPlan.nodes) node.netPlan = this;
@@ -1555,6 +1962,7 @@ public class NetPlan extends NetworkElement
             for (Route e : layer.routes) e.netPlan = this;
             for (MulticastTree e : layer.multicastTrees) e.netPlan = this;
         }
+        notifyAllElementsReplaced();
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -2219,7 +2627,9 @@ public class NetPlan extends NetworkElement
         checkIsModifiable();
         if (originNetPlan == this) return;
         if (originNetPlan == null) throw new Net2PlanException("A NetPlan object must be provided");
+        if (originNetPlan.failureStateBatchAffectedLinks != null) throw new Net2PlanException("A batch of failure state changes is started in the NetPlan object to copy: commit it first");
 
+        this.failureStateBatchAffectedLinks = null;
         this.attributes.clear();
         this.attributes.putAll(originNetPlan.attributes);
         this.netPlan = this;
@@ -2239,6 +2649,7 @@ public class NetPlan extends NetworkElement
         this.cache_id2RouteMap = new HashMap<Long, Route>();
         this.cache_id2MulticastTreeMap = new HashMap<Long, MulticastTree>();
         this.cache_taggedElements = new HashMap<> ();
+        this.cache_attributeIndexes = new HashMap<> (); // the indexes are built when all the elements are created
         this.cache_nodesPerSiteName = new HashMap<> ();
         this.cache_planningDomain2nodes = new HashMap<> (); 
         for (String pd : originNetPlan.cache_planningDomain2nodes.keySet()) this.cache_planningDomain2nodes.put(pd, new HashSet<> ());
@@ -2379,6 +2790,8 @@ public class NetPlan extends NetworkElement
                 throw new RuntimeException("Bad: " + e);
             }
         }
+        for (String key : originNetPlan.cache_attributeIndexes.keySet()) addAttributeIndex(key);
+        notifyAllElementsReplaced();
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -3861,6 +4274,7 @@ public class NetPlan extends NetworkElement
      * @param attribute      Attribute name
      * @param value          Attribute value
      * @return List of all network elements with the attribute key-value
+     * @see #getNetworkElementsByAttribute(String, String)
      */
     public static Collection<? extends NetworkElement> getNetworkElementsByAttribute(Collection<? extends NetworkElement> listOfElements, String attribute, String value)
     {
@@ -3875,6 +4289,125 @@ public class NetPlan extends NetworkElement
         return res;
     }
 
+    /**
+     * <p>Creates an index of the network elements of this design (of any type, including the design itself) by the value of the given attribute.
+     * Then, {@link #getNetworkElementsByAttribute(String, String)} does not need to scan all the elements. The index is updated when the attribute of an element
+     * is set or removed, and when elements are added or removed. The copies of this design have the same indexes. If the index already exists, nothing happens.</p>
+     *
+     * @param attribute Attribute name
+     * @since 0.5.3
+     */
+    public void addAttributeIndex(String attribute)
+    {
+        if (attribute == null || attribute.isEmpty()) throw new Net2PlanException("The attribute name cannot be null or empty");
+        if (cache_attributeIndexes.containsKey(attribute)) return;
+        final Map<String, Set<NetworkElement>> index = new HashMap<>();
+        for (NetworkElement e : getAllNetworkElements())
+        {
+            final String value = e.attributes.get(attribute);
+            if (value != null) index.computeIfAbsent(value, v -> new HashSet<>()).add(e);
+        }
+        cache_attributeIndexes.put(attribute, index);
+    }
+
+    /**
+     * <p>Removes the index of the network elements by the value of the given attribute, if it exists.</p>
+     *
+     * @param attribute Attribute name
+     * @see #addAttributeIndex(String)
+     * @since 0.5.3
+     */
+    public void removeAttributeIndex(String attribute)
+    {
+        cache_attributeIndexes.remove(attribute);
+    }
+
+    /**
+     * <p>Returns the attributes for which an index of the network elements exists.</p>
+     *
+     * @return The attribute names (unmodifiable)
+     * @see #addAttributeIndex(String)
+     * @since 0.5.3
+     */
+    public Set<String> getAttributeIndexes()
+    {
+        return Collections.unmodifiableSet(cache_attributeIndexes.keySet());
+    }
+
+    /**
+     * <p>Returns all the network elements of this design (of any type, including the design itself) that have the given key-value as attribute.
+     * If an index exists for the attribute, it is used. If not, all the elements are scanned.</p>
+     *
+     * @param attribute Attribute name
+     * @param value     Attribute value
+     * @return The set of network elements (or an empty set if there are no elements to return)
+     * @see #addAttributeIndex(String)
+     * @since 0.5.3
+     */
+    public Set<NetworkElement> getNetworkElementsByAttribute(String attribute, String value)
+    {
+        final Map<String, Set<NetworkElement>> index = cache_attributeIndexes.get(attribute);
+        if (index != null)
+        {
+            final Set<NetworkElement> res = index.get(value);
+            return res == null ? new HashSet<>() : new HashSet<>(res);
+        }
+        final Set<NetworkElement> res = new HashSet<>();
+        for (NetworkElement e : getAllNetworkElements())
+        {
+            final String atValue = e.attributes.get(attribute);
+            if (atValue != null && atValue.equals(value)) res.add(e);
+        }
+        return res;
+    }
+
+    /* Keeps the attribute index of the given key (if any) updated, after the attribute of an element changed. Null values mean no attribute */
+    void updateAttributeIndex(NetworkElement e, String attribute, String oldValue, String newValue)
+    {
+        if (cache_attributeIndexes.isEmpty()) return;
+        final Map<String, Set<NetworkElement>> index = cache_attributeIndexes.get(attribute);
+        if (index == null) return;
+        if (oldValue != null && oldValue.equals(newValue)) return;
+        if (oldValue != null)
+        {
+            final Set<NetworkElement> elements = index.get(oldValue);
+            elements.remove(e);
+            if (elements.isEmpty()) index.remove(oldValue);
+        }
+        if (newValue != null) index.computeIfAbsent(newValue, v -> new HashSet<>()).add(e);
+    }
+
+    void addToAttributeIndexes(NetworkElement e)
+    {
+        for (String attribute : cache_attributeIndexes.keySet())
+            updateAttributeIndex(e, attribute, null, e.attributes.get(attribute));
+    }
+
+    void removeFromAttributeIndexes(NetworkElement e)
+    {
+        for (String attribute : cache_attributeIndexes.keySet())
+            updateAttributeIndex(e, attribute, e.attributes.get(attribute), null);
+    }
+
+    private List<NetworkElement> getAllNetworkElements()
+    {
+        final List<NetworkElement> res = new ArrayList<>();
+        res.add(this);
+        res.addAll(nodes);
+        res.addAll(resources);
+        res.addAll(srgs);
+        for (NetworkLayer layer : layers)
+        {
+            res.add(layer);
+            res.addAll(layer.links);
+            res.addAll(layer.demands);
+            res.addAll(layer.multicastDemands);
+            res.addAll(layer.routes);
+            res.addAll(layer.multicastTrees);
+        }
+        return res;
+    }
+
     /**
      * <p>Returns the network layer with the given unique identifier.</p>
      *
@@ -5575,6 +6108,7 @@ public class NetPlan extends NetworkElement
         
         netPlan.interLayerCoupling.removeVertex(layer);
         netPlan.cache_id2LayerMap.remove(layer.id);
+        notifyElementToBeRemoved(layer);
         NetPlan.removeNetworkElementAndShiftIndexes(netPlan.layers, layer.index);
         if (netPlan.defaultLayer.equals(layer)) netPlan.defaultLayer = netPlan.layers.get(0);
         if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -5608,12 +6142,15 @@ public class NetPlan extends NetworkElement
         for (Demand d : layer.demands)
         {
         	d.cacheHbH_frs.clear();
+        	d.cacheHbH_failureStateSolutions.clear();
+        	d.cacheHbH_failureStateSolutionsFrs = null;
         	d.cacheHbH_linksPerNodeWithNonZeroFr.clear();
         	d.cacheHbH_normCarriedOccupiedPerLinkCurrentState.clear();
         	d.cache_worstCaseLengthInKm = Double.MAX_VALUE;
         	d.cache_worstCasePropagationTimeMs = Double.MAX_VALUE;
             d.routingCycleType = RoutingCycleType.LOOPLESS;
             d.carriedTraffic = 0;
+            notifyStateChanged(d);
             if (d.coupledUpperLayerLink != null)
             	d.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(d.carriedTraffic);
         }
@@ -5623,6 +6160,7 @@ public class NetPlan extends NetworkElement
         	e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.clear();
             e.cache_carriedTraffic = e.getMulticastCarriedTraffic();
             e.cache_occupiedCapacity = e.getMulticastOccupiedLinkCapacity();
+            notifyStateChanged(e);
         }
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
@@ -5753,6 +6291,7 @@ public class NetPlan extends NetworkElement
         for (Demand d : netPlan.getDemands(layer))
         {
         	d.carriedTraffic = 0;
+        	notifyStateChanged(d);
         	d.routingCycleType = RoutingCycleType.LOOPLESS;
         	if (d.coupledUpperLayerLink != null)
         		d.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(0);
@@ -5902,6 +6441,19 @@ public class NetPlan extends NetworkElement
         }
     }
 
+    /**
+     * <p>Saves the current network plan to a given file, in the binary {@code .n2pb} format. This format is faster to read and write, and
+     * smaller, than the {@code .n2p} XML format. If extension {@code .n2pb} is not in the file name, it will be added automatically.</p>
+     *
+     * @param file Output file
+     */
+    public void saveToBinaryFile(File file)
+    {
+        String filePath = file.getPath();
+        if (!filePath.toLowerCase(Locale.getDefault()).endsWith(".n2pb")) file = new File(filePath + ".n2pb");
+        NetPlanBinaryFormat.write(this, file);
+    }
+
     /**
      * <p>Saves the current network plan to a given output stream.</p>
      *
@@ -6335,7 +6887,8 @@ public class NetPlan extends NetworkElement
 
     /**
      * <p>Changes the failure state of the links and updates the routes/trees (they do not carry traffic nor occupy capacity), and hop-by-hop routing
-     * (no traffic is forwarded in links down)</p>
+     * (no traffic is forwarded in links down). If a batch of failure state changes is started, the routes, trees and hop-by-hop routing
+     * are updated when it is committed (see {@link #startFailureStateBatch()})</p>
      *
      * @param linksToSetAsUp   Links to set as up
      * @param linksToSetAsDown Links to set as down
@@ -6365,6 +6918,7 @@ public class NetPlan extends NetworkElement
             if (!e.isUp)
             {
                 e.isUp = true;
+                notifyStateChanged(e);
                 e.layer.cache_linksDown.remove(e);
                 affectedLinks.add(e);
             }
@@ -6372,6 +6926,7 @@ public class NetPlan extends NetworkElement
             if (e.isUp)
             {
                 e.isUp = false;
+                notifyStateChanged(e);
                 e.layer.cache_linksDown.add(e);
                 affectedLinks.add(e);
             }
@@ -6380,6 +6935,7 @@ public class NetPlan extends NetworkElement
                 if (!node.isUp)
                 {
                     node.isUp = true;
+                    notifyStateChanged(node);
                     cache_nodesDown.remove(node);
                     affectedLinks.addAll(node.cache_nodeOutgoingLinks);
                     affectedLinks.addAll(node.cache_nodeIncomingLinks);
@@ -6389,11 +6945,77 @@ public class NetPlan extends NetworkElement
                 if (node.isUp)
                 {
                     node.isUp = false;
+                    notifyStateChanged(node);
                     cache_nodesDown.add(node);
                     affectedLinks.addAll(node.cache_nodeOutgoingLinks);
                     affectedLinks.addAll(node.cache_nodeIncomingLinks);
                 }
 
+        /* In a batch, the routes, trees and hop-by-hop routing are updated once, when the batch is committed */
+        if (failureStateBatchAffectedLinks != null)
+        {
+            failureStateBatchAffectedLinks.addAll(affectedLinks);
+            return;
+        }
+
+        updateRoutingToFailureStateChanges(affectedLinks);
+
+        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+    }
+
+    /**
+     * <p>Starts a batch of failure state changes. Until the batch is committed (see {@link #commitFailureStateBatch()}), the changes in the
+     * failure state of links and nodes (e.g. with {@link #setLinksAndNodesFailureState(Collection, Collection, Collection, Collection) setLinksAndNodesFailureState},
+     * {@link Link#setFailureState(boolean) Link.setFailureState}, {@link Node#setFailureState(boolean) Node.setFailureState}, or
+     * {@link SharedRiskGroup#setAsDown() SharedRiskGroup.setAsDown}) only change the up/down state of the links and nodes. The routes, multicast trees
+     * and hop-by-hop routing affected are updated when the batch is committed, once per demand, whatever the number of changes made.
+     * This is much faster when many changes are made at once, e.g. repairing a failure and producing the next one in a per-SRG failure analysis.</p>
+     * <p><b>Important</b>: While the batch is started, the carried traffic and occupied capacities of routes, trees, demands and links
+     * are not updated to the new failure state.</p>
+     *
+     * @since 0.5.3
+     */
+    public void startFailureStateBatch()
+    {
+        checkIsModifiable();
+        if (failureStateBatchAffectedLinks != null) throw new Net2PlanException("A batch of failure state changes was already started");
+        failureStateBatchAffectedLinks = new HashSet<Link>();
+    }
+
+    /**
+     * <p>Indicates whether a batch of failure state changes is started, and not yet committed (see {@link #startFailureStateBatch()}).</p>
+     *
+     * @return {@code true} if a batch is started, {@code false} otherwise
+     * @since 0.5.3
+     */
+    public boolean isFailureStateBatchStarted()
+    {
+        return failureStateBatchAffectedLinks != null;
+    }
+
+    /**
+     * <p>Commits the batch of failure state changes started with {@link #startFailureStateBatch()}: the routes, multicast trees and hop-by-hop
+     * routing affected by any of the changes in the batch are updated to the current failure state of the links and nodes.</p>
+     *
+     * @since 0.5.3
+     */
+    public void commitFailureStateBatch()
+    {
+        checkIsModifiable();
+        if (failureStateBatchAffectedLinks == null) throw new Net2PlanException("No batch of failure state changes was started");
+        final Set<Link> affectedLinks = failureStateBatchAffectedLinks;
+        failureStateBatchAffectedLinks = null;
+
+        /* Links removed during the batch are skipped */
+        affectedLinks.removeIf(e -> e.netPlan != this);
+        updateRoutingToFailureStateChanges(affectedLinks);
+
+        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+    }
+
+    /* Updates the routes, trees and hop-by-hop routing traversing the given links, to the current failure state of links and nodes */
+    private void updateRoutingToFailureStateChanges(Set<Link> affectedLinks)
+    {
         Set<Demand> affectedDemandsHopByHopRouting = new HashSet<>();
         Set<Route> affectedRoutesSourceRouting = new HashSet<Route>();
         Set<MulticastTree> affectedTrees = new HashSet<MulticastTree>();
@@ -6411,11 +7033,9 @@ public class NetPlan extends NetworkElement
         }
 
 //		System.out.println ("affected routes: " + affectedRoutesSourceRouting);
-        for (Demand d : affectedDemandsHopByHopRouting) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
+        Demand.updateHopByHopRoutingToCurrentFrs(this , affectedDemandsHopByHopRouting);
         netPlan.updateFailureStateRoutesAndTrees(affectedRoutesSourceRouting);
         netPlan.updateFailureStateRoutesAndTrees(affectedTrees);
-
-        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
     /**
@@ -6494,14 +7114,10 @@ public class NetPlan extends NetworkElement
         checkInThisNetPlanAndLayer(demands, layer);
         checkInThisNetPlanAndLayer(links, layer);
 
-        /* If asked, remove previous forwarding rules of the affected demands */
-    	final Set<Demand> affectedDemands = new HashSet<> (demands);
-        if (removePreviousRulesAffectedDemands)
-        	for (Demand d : affectedDemands) d.removeAllForwardingRules();
-
-        /* Initialize the map with existing demands */
-        Map<Demand,Map<Link,Double>> newForwardingRules = new HashMap<> ();
-        for (Demand d : affectedDemands) newForwardingRules.put(d, d.cacheHbH_frs);
+        /* Initialize the map with existing rules of the affected demands, unless asked to remove them */
+        Map<Demand,Map<Link,Double>> newForwardingRules = new LinkedHashMap<> ();
+        for (Demand d : demands)
+        	if (!newForwardingRules.containsKey(d)) newForwardingRules.put(d, removePreviousRulesAffectedDemands? new HashMap<> () : new HashMap<> (d.cacheHbH_frs));
         
         /* Update with new demands */
         Iterator<Demand> it_d = demands.iterator();
@@ -6512,30 +7128,75 @@ public class NetPlan extends NetworkElement
             final Demand demand = it_d.next();
             final Link link = it_e.next();
             final double splittingFactor = it_sf.next();
+            if (splittingFactor > 1 || splittingFactor < 0) throw new Net2PlanException ("Split factors must be between 0 and 1");
             if (splittingFactor < Configuration.precisionFactor) continue;
+            newForwardingRules.get(demand).put(link, splittingFactor);
+        }
+
+        setForwardingRulesInBatch(newForwardingRules);
+    }
+
+    /**
+     * <p>Sets a set of forwarding rules in a single batch, given by the indexes of the demands and links in the layer: the splitting factor of demand {@code demandIndexes[i]} in
+     * link {@code linkIndexes[i]} is set to {@code splittingFactors[i]}. The routing of all the affected demands is recomputed, and the carried traffic and occupied capacity of the
+     * links are updated once, after all the demands are processed. This is the method to use when the forwarding rules of many demands change at once
+     * (e.g. when the ECMP rules are recomputed after a change in the IGP weights).
+     * Splitting factors lower than the Net2Plan precision factor are not set.</p>
+     * <p><b>Important</b>: Routing type must be {@link com.net2plan.utils.Constants.RoutingType#HOP_BY_HOP_ROUTING HOP_BY_HOP_ROUTING}.</p>
+     *
+     * @param demandIndexes                      Indexes of the demands in the layer
+     * @param linkIndexes                        Indexes of the links in the layer
+     * @param splittingFactors                   Splitting ratios (fraction of traffic from demand 'd' entering to the origin node of link 'e', going through link 'e').
+     *                                           Each value must be equal or greater than 0 and equal or lesser than 1.
+     * @param removePreviousRulesAffectedDemands If {@code true}, the previous forwarding rules of the demands appearing in {@code demandIndexes} are removed. If {@code false}, they are kept, unless overriden
+     * @param optionalLayerParameter             Network layer (optional)
+     * @since 0.5.3
+     */
+    public void setForwardingRules(int [] demandIndexes, int [] linkIndexes, double [] splittingFactors, boolean removePreviousRulesAffectedDemands, NetworkLayer... optionalLayerParameter)
+    {
+        checkIsModifiable();
+        NetworkLayer layer = checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+        layer.checkRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+        if ((demandIndexes.length != linkIndexes.length) || (demandIndexes.length != splittingFactors.length))
+            throw new Net2PlanException("The number of demands, links and aplitting factors must be the same");
+        final int D = layer.demands.size();
+        final int E = layer.links.size();
+        final List<Map<Link,Double>> newFrs_d = new ArrayList<> (Collections.<Map<Link,Double>> nCopies(D, null));
+        final List<Demand> affectedDemands = new ArrayList<> ();
+        for (int cont = 0; cont < demandIndexes.length ; cont ++)
+        {
+            final int d = demandIndexes [cont];
+            final int e = linkIndexes [cont];
+            final double splittingFactor = splittingFactors [cont];
+            if ((d < 0) || (d >= D)) throw new Net2PlanException("Wrong demand index: " + d);
+            if ((e < 0) || (e >= E)) throw new Net2PlanException("Wrong link index: " + e);
             if (splittingFactor > 1 || splittingFactor < 0) throw new Net2PlanException ("Split factors must be between 0 and 1");
-            Map<Link,Double> frMap = newForwardingRules.get(demand);
-            if (frMap == null) { frMap = new HashMap <> (); newForwardingRules.put(demand, frMap); }
-            frMap.put(link, splittingFactor);
+            if (newFrs_d.get(d) == null)
+            {
+                final Demand demand = layer.demands.get(d);
+                newFrs_d.set(d, removePreviousRulesAffectedDemands? new HashMap<> () : new HashMap<> (demand.cacheHbH_frs));
+                affectedDemands.add(demand);
+            }
+            if (splittingFactor < Configuration.precisionFactor) continue;
+            newFrs_d.get(d).put(layer.links.get(e), splittingFactor);
         }
+        final Map<Demand,Map<Link,Double>> newForwardingRules = new LinkedHashMap<> ();
+        for (Demand d : affectedDemands) newForwardingRules.put(d, newFrs_d.get(d.index));
+        setForwardingRulesInBatch(newForwardingRules);
+    }
 
-        /* Check if the update rules are valid */
-        final Map<Pair<Node,Demand>,Double> sumOutFrs = new HashMap<> ();
-        for (Demand d : newForwardingRules.keySet())
+    /* Checks that the forwarding rules are valid (the sum of the splitting factors of the output links of a node is not above one), and sets them in a single batch */
+    private void setForwardingRulesInBatch(Map<Demand,Map<Link,Double>> newForwardingRules)
+    {
+        for (Entry<Demand,Map<Link,Double>> entry : newForwardingRules.entrySet())
         {
-        	for (Entry<Link,Double> fr : newForwardingRules.get(d).entrySet())
-        	{
-        		final Link e = fr.getKey();
-        		final double split = fr.getValue();
-                Double sumOutSoFar = sumOutFrs.get(Pair.of(e.getOriginNode(), d));
-                sumOutFrs.put(Pair.of(e.getOriginNode(), d), split + (sumOutSoFar == null? 0 : sumOutSoFar));
-        	}
+            final Map<Node,Double> sumOutFrs = new HashMap<> ();
+            for (Entry<Link,Double> fr : entry.getValue().entrySet())
+                if (sumOutFrs.merge(fr.getKey().getOriginNode(), fr.getValue(), Double::sum) > 1 + Configuration.precisionFactor)
+                    throw new Net2PlanException("The sum of the splitting factors of the output links of a node cannot exceed one");
         }
-        for (double val : sumOutFrs.values()) if (val > 1 + Configuration.precisionFactor)
-        	throw new Net2PlanException ();
         
-        for (Demand d : newForwardingRules.keySet())
-        	d.updateHopByHopRoutingToGivenFrs(newForwardingRules.get(d));
+        Demand.updateHopByHopRoutingToGivenFrs(this , newForwardingRules);
         
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
@@ -6564,11 +7225,6 @@ public class NetPlan extends NetworkElement
         if ((D > 0) && (E > 0))
             if ((f_de.getMinLocation()[0] < -1e-3) || (f_de.getMaxLocation()[0] > 1 + 1e-3))
                 throw new Net2PlanException("Splitting ratios must be greater or equal than zero and lower or equal than one");
-        final DoubleMatrix2D Aout_ne = netPlan.getMatrixNodeLinkOutgoingIncidence(layer);
-        final DoubleMatrix2D A_dn = f_de.zMult(Aout_ne, null, 1, 0, false, true); // traffic of demand d that leaves node n
-        if (A_dn.size() > 0) if (A_dn.getMaxLocation()[0] > 1 + Configuration.precisionFactor)
-            throw new Net2PlanException("The sum of the splitting factors of the output links of a node cannot exceed one");
-
         IntArrayList ds = new IntArrayList();
         IntArrayList es = new IntArrayList();
         DoubleArrayList splits = new DoubleArrayList();
@@ -6578,17 +7234,39 @@ public class NetPlan extends NetworkElement
         {
             final Demand demand = layer.demands.get(ds.get(cont));
             final Link link = layer.links.get(es.get(cont));
-            final double splittingFactor = splits.get(cont);
-            if (splittingFactor < Configuration.precisionFactor) continue;
-            if (splittingFactor > 1 || splittingFactor < 0) throw new Net2PlanException ("Split factors must be between 0 and 1");
             Map<Link,Double> frMap = newFrs.get(demand);
             if (frMap == null) { frMap = new HashMap <> (); newFrs.put(demand, frMap); }
-            frMap.put(link, splittingFactor);
+            frMap.put(link, splits.get(cont));
         }
+        setForwardingRulesAllDemands(newFrs, layer);
+    }
 
-        for (Demand d : layer.demands)
-        	d.updateHopByHopRoutingToGivenFrs(newFrs.containsKey(d)? newFrs.get(d) : new HashMap<> ());
-        if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
+    /* Sets the forwarding rules of all the demands in the layer, given per demand (the demands not in the map have no rules), as
+     * setForwardingRules(DoubleMatrix2D) does, but without a demand x link matrix. Used when the rules are read from a file */
+    void setForwardingRulesAllDemands(Map<Demand,Map<Link,Double>> frsPerDemand, NetworkLayer layer)
+    {
+        checkIsModifiable();
+        checkInThisNetPlan(layer);
+        layer.checkRoutingType(RoutingType.HOP_BY_HOP_ROUTING);
+        if (layer.demands.isEmpty() || layer.links.isEmpty()) return;
+        final Map<Demand,Map<Link,Double>> newFrsAllDemands = new LinkedHashMap<> ();
+        for (Demand d : layer.demands) newFrsAllDemands.put(d, new HashMap<> ());
+        for (Entry<Demand,Map<Link,Double>> frsThisDemand : frsPerDemand.entrySet())
+        {
+            final Map<Link,Double> frMap = newFrsAllDemands.get(frsThisDemand.getKey());
+            if (frMap == null) throw new Net2PlanException ("The demand is not in this layer");
+            for (Entry<Link,Double> fr : frsThisDemand.getValue().entrySet())
+            {
+                final Link link = fr.getKey();
+                final double splittingFactor = fr.getValue();
+                if (link.netPlan != this || link.layer != layer) throw new Net2PlanException ("The link is not in this layer");
+                if (splittingFactor < -1e-3 || splittingFactor > 1 + 1e-3) throw new Net2PlanException("Splitting ratios must be greater or equal than zero and lower or equal than one");
+                if (splittingFactor < Configuration.precisionFactor) continue;
+                if (splittingFactor > 1 || splittingFactor < 0) throw new Net2PlanException ("Split factors must be between 0 and 1");
+                frMap.put(link, splittingFactor);
+            }
+        }
+        setForwardingRulesInBatch(newFrsAllDemands);
     }
 
     /**
@@ -6873,8 +7551,9 @@ public class NetPlan extends NetworkElement
             	Map<Demand,Map<Link,Double>> newFrs = GraphUtils.convert_xp2fdeMap(layer.demands, layer.routes);
                 removeAllRoutes(layer);
                 layer.routingType = RoutingType.HOP_BY_HOP_ROUTING;
-                for (Demand d : layer.demands)
-                	d.updateHopByHopRoutingToGivenFrs(newFrs.get(d));
+                final Map<Demand,Map<Link,Double>> newFrsAllDemands = new LinkedHashMap<> ();
+                for (Demand d : layer.demands) newFrsAllDemands.put(d, newFrs.get(d));
+                Demand.updateHopByHopRoutingToGivenFrs(this , newFrsAllDemands);
                 break;
             }
 
@@ -6889,13 +7568,17 @@ public class NetPlan extends NetworkElement
                 {
                     e.cache_carriedTraffic = e.getMulticastCarriedTraffic();
                     e.cache_occupiedCapacity = e.getMulticastOccupiedLinkCapacity();
+                    notifyStateChanged(e);
                 	e.cacheHbH_frs.clear();
                 	e.cacheHbH_normCarriedOccupiedPerTraversingDemandCurrentState.clear ();
                 }
                 for (Demand d : layer.demands)
                 {
                 	d.carriedTraffic = 0;
+                	notifyStateChanged(d);
                 	d.cacheHbH_frs.clear();
+                	d.cacheHbH_failureStateSolutions.clear();
+                	d.cacheHbH_failureStateSolutionsFrs = null;
                 	d.cacheHbH_linksPerNodeWithNonZeroFr.clear();
                 	d.cacheHbH_normCarriedOccupiedPerLinkCurrentState.clear();
                 }
@@ -6973,8 +7656,9 @@ public class NetPlan extends NetworkElement
         for (Demand d : layer.demands)
         {
             d.offeredTraffic = offeredTrafficVector.get(d.index);
-            if (layer.routingType == RoutingType.HOP_BY_HOP_ROUTING) d.updateHopByHopRoutingToGivenFrs(d.cacheHbH_frs);
+            notifyStateChanged(d);
         }
+        if (layer.routingType == RoutingType.HOP_BY_HOP_ROUTING) Demand.updateHopByHopRoutingToCurrentFrs(this , layer.demands);
         if (ErrorHandling.isDebugEnabled()) this.checkCachesConsistency();
     }
 
@@ -7510,6 +8194,9 @@ public class NetPlan extends NetworkElement
      */
     public void checkCachesConsistency()
     {
+        /* Routes, trees and hop-by-hop routing are not consistent with the failure state until the batch is committed */
+        if (failureStateBatchAffectedLinks != null) return;
+
 		super.checkCachesConsistency ();
 
 //		System.out.println ("Check caches consistency of object: " + hashCode());
@@ -7536,6 +8223,14 @@ public class NetPlan extends NetworkElement
         for (String tag : cache_taggedElements.keySet ())
         	for (NetworkElement e : cache_taggedElements.get(tag))
         		if (!e.tags.contains (tag)) throw new RuntimeException();
+        /* Check attribute indexes: all the elements in the indexes are in this design, with the attribute value (the other way around is checked in each element) */
+        for (String key : cache_attributeIndexes.keySet ())
+        	for (Entry<String,Set<NetworkElement>> valueAndElements : cache_attributeIndexes.get(key).entrySet())
+        	{
+        		if (valueAndElements.getValue().isEmpty()) throw new RuntimeException("attribute: " + key);
+        		for (NetworkElement e : valueAndElements.getValue())
+        			if (e.netPlan != this || !valueAndElements.getKey().equals(e.attributes.get(key))) throw new RuntimeException("attribute: " + key);
+        	}
         /* Check site names are correct */
         for (String siteName : cache_nodesPerSiteName.keySet ())
         	for (Node n : cache_nodesPerSiteName.get(siteName))
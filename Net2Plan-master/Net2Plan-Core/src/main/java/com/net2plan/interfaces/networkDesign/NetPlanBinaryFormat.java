@@ -0,0 +1,747 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.lang3.mutable.MutableLong;
+
+import com.net2plan.internal.ErrorHandling;
+import com.net2plan.utils.Constants.RoutingType;
+
+import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+
+/**
+ * Compact binary snapshot format for {@code NetPlan} objects (extension {@code .n2pb}), an alternative to the {@code .n2p} XML.
+ * Each type of element is stored as a set of primitive columns (one array per field), and every string (names, tags, attribute
+ * keys and values...) is stored once in a string table, and referenced by its index. The file is read
+ * at once into a buffer, and closed before the design is built. The elements are created in the same order and with the same calls as
+ * the {@code .n2p} reader, so that a design saved in any of both formats produces the same {@code NetPlan} when read.
+ *
+ * <p>Layout: magic number, version and number of sections, and then each section preceded by its length. The sections are the
+ * network information, the nodes, the resources, one per layer, the SRGs and the layer coupling. Each section starts with its own
+ * string table, so that it does not depend on the others: this is what allows {@link NetPlanSnapshot} to share the unchanged sections.</p>
+ */
+class NetPlanBinaryFormat
+{
+	private final static int MAGIC = 0x4E325042; // "N2PB"
+	private final static int VERSION = 1;
+	private final static int NULLSTRING = -1;
+	/* The file is read into a single buffer, indexed by int */
+	private final static long MAXFILESIZE = Integer.MAX_VALUE;
+
+	private NetPlanBinaryFormat () {}
+
+	/* ******************************************* WRITING ***************************************************/
+
+	static void write (NetPlan np , File file)
+	{
+		final List<byte []> sections = writeSections (np);
+		long fileSize = 12;
+		for (byte [] section : sections) fileSize += 4 + section.length;
+		if (fileSize > MAXFILESIZE) throw new Net2PlanException ("The design is too large for the binary format");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file) , 1 << 16)))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(sections.size());
+			for (byte [] section : sections) { out.writeInt(section.length); out.write(section); }
+			out.flush();
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error writing the binary design file: " + e.getMessage());
+		}
+	}
+
+	/* Returns the sections of the design, each one self-contained (with its own string table), so that the unchanged sections of two
+	 * designs are byte-wise equal */
+	static List<byte []> writeSections (NetPlan np)
+	{
+		try
+		{
+			return new Writer ().writeNetPlan(np);
+		} catch (IOException e)
+		{
+			throw new RuntimeException (e);
+		}
+	}
+
+	private static class Writer
+	{
+		private final List<byte []> sections = new ArrayList<> ();
+		private ByteArrayOutputStream payload;
+		private DataOutputStream out;
+		private Map<String,Integer> stringTable;
+
+		private void beginSection ()
+		{
+			this.payload = new ByteArrayOutputStream ();
+			this.out = new DataOutputStream (payload);
+			this.stringTable = new LinkedHashMap<> ();
+		}
+
+		/* The section is its string table followed by the payload */
+		private void endSection () throws IOException
+		{
+			final ByteArrayOutputStream section = new ByteArrayOutputStream (payload.size() + 16 * stringTable.size() + 4);
+			final DataOutputStream sectionOut = new DataOutputStream (section);
+			sectionOut.writeInt(stringTable.size());
+			for (String s : stringTable.keySet())
+			{
+				final byte [] bytes = s.getBytes(StandardCharsets.UTF_8);
+				sectionOut.writeInt(bytes.length);
+				sectionOut.write(bytes);
+			}
+			out.flush();
+			payload.writeTo(sectionOut);
+			sectionOut.flush();
+			sections.add(section.toByteArray());
+		}
+
+		private int str (String s)
+		{
+			if (s == null) return NULLSTRING;
+			Integer index = stringTable.get(s);
+			if (index == null) { index = stringTable.size(); stringTable.put(s, index); }
+			return index;
+		}
+		private int url (URL url) { return url == null? NULLSTRING : str (url.toString()); }
+
+		private void ints (int [] x) throws IOException { out.writeInt(x.length); for (int v : x) out.writeInt(v); }
+		private void longs (long [] x) throws IOException { out.writeInt(x.length); for (long v : x) out.writeLong(v); }
+		private void doubles (double [] x) throws IOException { out.writeInt(x.length); for (double v : x) out.writeDouble(v); }
+		private void booleans (boolean [] x) throws IOException { out.writeInt(x.length); for (boolean v : x) out.writeByte(v? 1 : 0); }
+		private void ints (List<Integer> x) throws IOException { out.writeInt(x.size()); for (int v : x) out.writeInt(v); }
+		private void longs (Collection<Long> x) throws IOException { out.writeInt(x.size()); for (long v : x) out.writeLong(v); }
+		private void doubles (List<Double> x) throws IOException { out.writeInt(x.size()); for (double v : x) out.writeDouble(v); }
+		private void strings (Collection<String> x) throws IOException { out.writeInt(x.size()); for (String s : x) out.writeInt(str(s)); }
+
+		/* Ragged columns: the size of each element entry, and then all the entries one after the other */
+		private void raggedIds (List<? extends Collection<? extends NetworkElement>> x) throws IOException
+		{
+			final int [] sizes = new int [x.size()]; for (int cont = 0; cont < sizes.length ; cont ++) sizes [cont] = x.get(cont).size();
+			ints (sizes);
+			for (Collection<? extends NetworkElement> c : x) for (NetworkElement e : c) out.writeLong(e.id);
+		}
+		private void raggedDoubles (List<? extends Collection<Double>> x) throws IOException
+		{
+			final int [] sizes = new int [x.size()]; for (int cont = 0; cont < sizes.length ; cont ++) sizes [cont] = x.get(cont).size();
+			ints (sizes);
+			for (Collection<Double> c : x) for (double v : c) out.writeDouble(v);
+		}
+		private void raggedStrings (List<? extends Collection<String>> x) throws IOException
+		{
+			final int [] sizes = new int [x.size()]; for (int cont = 0; cont < sizes.length ; cont ++) sizes [cont] = x.get(cont).size();
+			ints (sizes);
+			for (Collection<String> c : x) for (String s : c) out.writeInt(str(s));
+		}
+
+		private void tagsAndAttributes (List<? extends NetworkElement> elements) throws IOException
+		{
+			final List<Set<String>> tags = new ArrayList<> (elements.size());
+			final List<List<String>> attributes = new ArrayList<> (elements.size());
+			for (NetworkElement e : elements)
+			{
+				tags.add(e.tags);
+				final List<String> keysAndValues = new ArrayList<> (2 * e.attributes.size());
+				for (Entry<String,String> entry : e.attributes.entrySet()) { keysAndValues.add(entry.getKey()); keysAndValues.add(entry.getValue()); }
+				attributes.add(keysAndValues);
+			}
+			raggedStrings (tags);
+			raggedStrings (attributes);
+		}
+
+		List<byte []> writeNetPlan (NetPlan np) throws IOException
+		{
+			/* Network */
+			beginSection ();
+			out.writeInt(str(np.networkDescription));
+			out.writeInt(str(np.networkName));
+			out.writeLong(np.nextElementId.longValue());
+			strings (np.cache_planningDomain2nodes.keySet());
+			out.writeInt(np.layers.size());
+			final List<NetworkElement> thisNetPlan = new ArrayList<> (); thisNetPlan.add(np);
+			tagsAndAttributes (thisNetPlan);
+			endSection ();
+
+			/* Nodes */
+			beginSection ();
+			final int N = np.nodes.size();
+			final long [] nodeIds = new long [N]; final double [] xCoord = new double [N]; final double [] yCoord = new double [N];
+			final int [] nodeNames = new int [N]; final double [] population = new double [N]; final int [] siteNames = new int [N];
+			final boolean [] nodeIsUp = new boolean [N];
+			final List<Set<String>> nodePlanningDomains = new ArrayList<> (N);
+			final List<Integer> iconNodeIndexes = new ArrayList<> (); final List<Long> iconLayerIds = new ArrayList<> (); final List<Integer> iconUrls = new ArrayList<> ();
+			for (Node node : np.nodes)
+			{
+				final int n = node.index;
+				nodeIds [n] = node.id; xCoord [n] = node.nodeXYPositionMap.getX(); yCoord [n] = node.nodeXYPositionMap.getY();
+				nodeNames [n] = str(node.name); population [n] = node.population; siteNames [n] = str(node.siteName); nodeIsUp [n] = node.isUp;
+				nodePlanningDomains.add(node.getPlanningDomains());
+				for (NetworkLayer layer : np.layers)
+					if (node.getUrlNodeIcon(layer) != null) { iconNodeIndexes.add(n); iconLayerIds.add(layer.id); iconUrls.add(url(node.getUrlNodeIcon(layer))); }
+			}
+			longs (nodeIds); doubles (xCoord); doubles (yCoord); ints (nodeNames); doubles (population); ints (siteNames); booleans (nodeIsUp);
+			raggedStrings (nodePlanningDomains);
+			ints (iconNodeIndexes); longs (iconLayerIds); ints (iconUrls);
+			tagsAndAttributes (np.nodes);
+			endSection ();
+
+			/* Resources */
+			beginSection ();
+			final int R = np.resources.size();
+			final long [] resIds = new long [R]; final long [] hostNodeIds = new long [R]; final int [] resTypes = new int [R]; final int [] resNames = new int [R];
+			final int [] resUnits = new int [R]; final double [] processingTimes = new double [R]; final double [] resCapacities = new double [R]; final int [] resIcons = new int [R];
+			final List<List<Resource>> baseResources = new ArrayList<> (R); final List<List<Double>> baseResourceOccupations = new ArrayList<> (R);
+			for (Resource res : np.resources)
+			{
+				final int r = res.index;
+				resIds [r] = res.id; hostNodeIds [r] = res.hostNode.id; resTypes [r] = str(res.type); resNames [r] = str(res.name);
+				resUnits [r] = str(res.capacityMeasurementUnits); processingTimes [r] = res.processingTimeToTraversingTrafficInMs; resCapacities [r] = res.capacity; resIcons [r] = url(res.urlIcon);
+				baseResources.add(new ArrayList<> (res.capacityIOccupyInBaseResource.keySet()));
+				baseResourceOccupations.add(new ArrayList<> (res.capacityIOccupyInBaseResource.values()));
+			}
+			longs (resIds); longs (hostNodeIds); ints (resTypes); ints (resNames); ints (resUnits); doubles (processingTimes); doubles (resCapacities); ints (resIcons);
+			raggedIds (baseResources); raggedDoubles (baseResourceOccupations);
+			tagsAndAttributes (np.resources);
+			endSection ();
+
+			/* Layers, one section each */
+			for (NetworkLayer layer : np.layers) { beginSection (); writeLayer (np , layer); endSection (); }
+
+			/* SRGs */
+			beginSection ();
+			final int S = np.srgs.size();
+			final long [] srgIds = new long [S]; final double [] mttf = new double [S]; final double [] mttr = new double [S];
+			final List<Set<Node>> srgNodes = new ArrayList<> (S); final List<Set<Link>> srgLinks = new ArrayList<> (S);
+			for (SharedRiskGroup srg : np.srgs)
+			{
+				final int s = srg.index;
+				srgIds [s] = srg.id; mttf [s] = srg.meanTimeToFailInHours; mttr [s] = srg.meanTimeToRepairInHours;
+				srgNodes.add(srg.nodes); srgLinks.add(srg.links);
+			}
+			longs (srgIds); doubles (mttf); doubles (mttr); raggedIds (srgNodes); raggedIds (srgLinks);
+			tagsAndAttributes (np.srgs);
+			endSection ();
+
+			/* Layer coupling */
+			beginSection ();
+			final List<Long> couplingDemandIds = new ArrayList<> (); final List<Long> couplingLinkIds = new ArrayList<> ();
+			final List<Long> couplingMDemandIds = new ArrayList<> (); final List<Set<Link>> couplingMDemandLinks = new ArrayList<> ();
+			for (DemandLinkMapping d_e : np.interLayerCoupling.edgeSet())
+			{
+				for (Entry<Demand, Link> coupling : d_e.demandLinkMapping.entrySet()) { couplingDemandIds.add(coupling.getKey().id); couplingLinkIds.add(coupling.getValue().id); }
+				for (Entry<MulticastDemand, Set<Link>> coupling : d_e.multicastDemandLinkMapping.entrySet()) { couplingMDemandIds.add(coupling.getKey().id); couplingMDemandLinks.add(coupling.getValue()); }
+			}
+			longs (couplingDemandIds); longs (couplingLinkIds); longs (couplingMDemandIds); raggedIds (couplingMDemandLinks);
+			endSection ();
+
+			return sections;
+		}
+
+		private void writeLayer (NetPlan np , NetworkLayer layer) throws IOException
+		{
+			out.writeLong(layer.id);
+			out.writeInt(str(layer.name));
+			out.writeInt(str(layer.description));
+			out.writeBoolean(np.defaultLayer == layer);
+			out.writeInt(str(layer.linkCapacityUnitsName));
+			out.writeInt(str(layer.demandTrafficUnitsName));
+			out.writeInt(url(layer.defaultNodeIconURL));
+
+			/* Links */
+			final int E = layer.links.size();
+			final long [] linkIds = new long [E]; final long [] originIds = new long [E]; final long [] destinationIds = new long [E];
+			final double [] capacities = new double [E]; final double [] lengths = new double [E]; final double [] speeds = new double [E];
+			final long [] linkBidirPairIds = new long [E]; final boolean [] linkIsUp = new boolean [E];
+			for (Link link : layer.links)
+			{
+				final int e = link.index;
+				linkIds [e] = link.id; originIds [e] = link.originNode.id; destinationIds [e] = link.destinationNode.id;
+				capacities [e] = link.capacity; lengths [e] = link.lengthInKm; speeds [e] = link.propagationSpeedInKmPerSecond;
+				linkBidirPairIds [e] = link.bidirectionalPair == null? -1 : link.bidirectionalPair.id; linkIsUp [e] = link.isUp;
+			}
+			longs (linkIds); longs (originIds); longs (destinationIds); doubles (capacities); doubles (lengths); doubles (speeds); longs (linkBidirPairIds); booleans (linkIsUp);
+			tagsAndAttributes (layer.links);
+
+			/* Demands */
+			final int D = layer.demands.size();
+			final long [] demandIds = new long [D]; final long [] ingressIds = new long [D]; final long [] egressIds = new long [D];
+			final double [] offered = new double [D]; final int [] recoveryTypes = new int [D]; final long [] demandBidirPairIds = new long [D];
+			final List<List<String>> serviceChainTypes = new ArrayList<> (D);
+			for (Demand demand : layer.demands)
+			{
+				final int d = demand.index;
+				demandIds [d] = demand.id; ingressIds [d] = demand.ingressNode.id; egressIds [d] = demand.egressNode.id;
+				offered [d] = demand.offeredTraffic; recoveryTypes [d] = str(demand.recoveryType.toString());
+				demandBidirPairIds [d] = demand.bidirectionalPair == null? -1 : demand.bidirectionalPair.id;
+				serviceChainTypes.add(demand.mandatorySequenceOfTraversedResourceTypes);
+			}
+			longs (demandIds); longs (ingressIds); longs (egressIds); doubles (offered); ints (recoveryTypes); longs (demandBidirPairIds);
+			raggedStrings (serviceChainTypes);
+			tagsAndAttributes (layer.demands);
+
+			/* Multicast demands */
+			final int MD = layer.multicastDemands.size();
+			final long [] mDemandIds = new long [MD]; final long [] mIngressIds = new long [MD]; final double [] mOffered = new double [MD];
+			final List<Set<Node>> mEgressNodes = new ArrayList<> (MD);
+			for (MulticastDemand demand : layer.multicastDemands)
+			{
+				final int d = demand.index;
+				mDemandIds [d] = demand.id; mIngressIds [d] = demand.ingressNode.id; mOffered [d] = demand.offeredTraffic;
+				mEgressNodes.add(demand.egressNodes);
+			}
+			longs (mDemandIds); longs (mIngressIds); doubles (mOffered); raggedIds (mEgressNodes);
+			tagsAndAttributes (layer.multicastDemands);
+
+			/* Multicast trees. If the original link set was removed, it is replaced by the current link set */
+			final int T = layer.multicastTrees.size();
+			final long [] treeIds = new long [T]; final long [] treeDemandIds = new long [T]; final double [] treeCarried = new double [T]; final double [] treeOccupied = new double [T];
+			final List<Set<Link>> treeCurrentLinks = new ArrayList<> (T); final List<Set<Link>> treeInitialLinks = new ArrayList<> (T);
+			for (MulticastTree tree : layer.multicastTrees)
+			{
+				final int t = tree.index;
+				treeIds [t] = tree.id; treeDemandIds [t] = tree.demand.id; treeCarried [t] = tree.carriedTrafficIfNotFailing; treeOccupied [t] = tree.occupiedLinkCapacityIfNotFailing;
+				treeCurrentLinks.add(tree.linkSet);
+				boolean initialLinkSetNotRemoved = true;
+				for (Link e : tree.initialSetLinksWhenWasCreated) if (e.netPlan == null) { initialLinkSetNotRemoved = false; break; }
+				treeInitialLinks.add(initialLinkSetNotRemoved? tree.initialSetLinksWhenWasCreated : tree.linkSet);
+			}
+			longs (treeIds); longs (treeDemandIds); doubles (treeCarried); doubles (treeOccupied); raggedIds (treeCurrentLinks); raggedIds (treeInitialLinks);
+			tagsAndAttributes (layer.multicastTrees);
+
+			/* Routing */
+			out.writeBoolean(layer.routingType == RoutingType.SOURCE_ROUTING);
+			if (layer.routingType == RoutingType.SOURCE_ROUTING)
+			{
+				final int P = layer.routes.size();
+				final long [] routeIds = new long [P]; final long [] routeDemandIds = new long [P];
+				final double [] currentCarried = new double [P]; final double [] initialCarried = new double [P];
+				final List<List<Double>> currentOccupation = new ArrayList<> (P); final List<List<NetworkElement>> currentPath = new ArrayList<> (P);
+				final List<List<Double>> initialOccupation = new ArrayList<> (P); final List<List<NetworkElement>> initialPath = new ArrayList<> (P);
+				final List<List<Route>> backupRoutes = new ArrayList<> (P);
+				for (Route route : layer.routes)
+				{
+					final int r = route.index;
+					routeIds [r] = route.id; routeDemandIds [r] = route.demand.id;
+					currentCarried [r] = route.currentCarriedTrafficIfNotFailing; initialCarried [r] = route.initialStateCarriedTrafficIfNotFailing;
+					currentOccupation.add(route.currentLinksAndResourcesOccupationIfNotFailing); currentPath.add(route.currentPath);
+					initialOccupation.add(route.initialStateOccupationIfNotFailing); initialPath.add(route.initialStatePath);
+					backupRoutes.add(route.backupRoutes);
+				}
+				longs (routeIds); longs (routeDemandIds); doubles (currentCarried); doubles (initialCarried);
+				raggedDoubles (currentOccupation); raggedIds (currentPath); raggedDoubles (initialOccupation); raggedIds (initialPath); raggedIds (backupRoutes);
+				tagsAndAttributes (layer.routes);
+			}
+			else
+			{
+				final List<Integer> frDemandIndexes = new ArrayList<> (); final List<Integer> frLinkIndexes = new ArrayList<> (); final List<Double> frSplittingRatios = new ArrayList<> ();
+				for (Demand d : layer.demands)
+					for (Entry<Link,Double> fr : d.cacheHbH_frs.entrySet())
+					{
+						frDemandIndexes.add(d.index); frLinkIndexes.add(fr.getKey().index); frSplittingRatios.add(fr.getValue());
+					}
+				ints (frDemandIndexes); ints (frLinkIndexes); doubles (frSplittingRatios);
+			}
+
+			final List<NetworkElement> thisLayer = new ArrayList<> (); thisLayer.add(layer);
+			tagsAndAttributes (thisLayer);
+		}
+	}
+
+	/* ******************************************* READING ***************************************************/
+
+	static NetPlan read (File file)
+	{
+		final ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath() , StandardOpenOption.READ))
+		{
+			if (channel.size() > MAXFILESIZE) throw new Net2PlanException ("The binary design file is too large");
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) if (channel.read(buffer) < 0) throw new Net2PlanException ("Wrong binary design file");
+		} catch (IOException e)
+		{
+			throw new Net2PlanException ("Error reading the binary design file: " + e.getMessage());
+		}
+		buffer.flip();
+		if (buffer.getInt() != MAGIC) throw new Net2PlanException ("Not a valid binary design file");
+		if (buffer.getInt() != VERSION) throw new Net2PlanException ("Wrong version number");
+		final int numSections = buffer.getInt();
+		final List<ByteBuffer> sections = new ArrayList<> (numSections);
+		for (int cont = 0; cont < numSections ; cont ++)
+		{
+			final int length = buffer.getInt();
+			final ByteBuffer section = buffer.slice();
+			section.limit(length);
+			sections.add(section);
+			buffer.position(buffer.position() + length);
+		}
+		return readSections (sections);
+	}
+
+	/* Builds a new design from the sections produced by writeSections */
+	static NetPlan readSections (List<ByteBuffer> sections)
+	{
+		final NetPlan np = new NetPlan ();
+		new Reader (sections).readNetPlan(np);
+		if (ErrorHandling.isDebugEnabled()) np.checkCachesConsistency();
+		return np;
+	}
+
+	private static class Reader
+	{
+		private final List<ByteBuffer> sections;
+		private int nextSection = 0;
+		private ByteBuffer in;
+		private String [] stringTable;
+
+		Reader (List<ByteBuffer> sections) { this.sections = sections; }
+
+		/* Moves to the next section, reading its string table */
+		private void beginSection ()
+		{
+			if (nextSection >= sections.size()) throw new Net2PlanException ("Wrong binary design file");
+			this.in = sections.get(nextSection ++);
+			this.stringTable = new String [in.getInt()];
+			for (int cont = 0; cont < stringTable.length ; cont ++)
+			{
+				final byte [] bytes = new byte [in.getInt()];
+				in.get(bytes);
+				stringTable [cont] = new String (bytes , StandardCharsets.UTF_8);
+			}
+		}
+		private void endSection ()
+		{
+			if (in.hasRemaining()) throw new Net2PlanException ("Wrong binary design file");
+		}
+
+		private String str (int index) { return index == NULLSTRING? null : stringTable [index]; }
+		private URL url (int index) { if (index == NULLSTRING) return null; try { return new URL (stringTable [index]); } catch (MalformedURLException e) { throw new Net2PlanException ("Wrong URL in the binary design file: " + stringTable [index]); } }
+
+		/* Bulk reads of the columns through views of the buffer */
+		private int [] ints () { final int [] x = new int [in.getInt()]; in.asIntBuffer().get(x); in.position(in.position() + 4 * x.length); return x; }
+		private long [] longs () { final long [] x = new long [in.getInt()]; in.asLongBuffer().get(x); in.position(in.position() + 8 * x.length); return x; }
+		private double [] doubles () { final double [] x = new double [in.getInt()]; in.asDoubleBuffer().get(x); in.position(in.position() + 8 * x.length); return x; }
+		private boolean [] booleans () { final boolean [] x = new boolean [in.getInt()]; for (int cont = 0; cont < x.length ; cont ++) x [cont] = in.get() != 0; return x; }
+
+		/* A ragged column: the entries of element i are in positions [offsets[i], offsets[i+1]) of the values */
+		private int [] raggedOffsets ()
+		{
+			final int [] sizes = ints ();
+			final int [] offsets = new int [sizes.length + 1];
+			for (int cont = 0; cont < sizes.length ; cont ++) offsets [cont+1] = offsets [cont] + sizes [cont];
+			return offsets;
+		}
+
+		private void tagsAndAttributes (List<? extends NetworkElement> elements)
+		{
+			final int [] tagOffsets = raggedOffsets (); final int [] tags = new int [tagOffsets [tagOffsets.length-1]]; in.asIntBuffer().get(tags); in.position(in.position() + 4 * tags.length);
+			final int [] attOffsets = raggedOffsets (); final int [] atts = new int [attOffsets [attOffsets.length-1]]; in.asIntBuffer().get(atts); in.position(in.position() + 4 * atts.length);
+			if (elements.size() != tagOffsets.length - 1) throw new Net2PlanException ("Wrong binary design file");
+			for (int cont = 0; cont < elements.size() ; cont ++)
+			{
+				final NetworkElement e = elements.get(cont);
+				for (int i = tagOffsets [cont] ; i < tagOffsets [cont+1] ; i ++) e.addTag(stringTable [tags [i]]);
+				for (int i = attOffsets [cont] ; i < attOffsets [cont+1] ; i += 2) e.setAttribute(stringTable [atts [i]], stringTable [atts [i+1]]);
+			}
+		}
+
+		void readNetPlan (NetPlan netPlan)
+		{
+			/* Network */
+			beginSection ();
+			netPlan.setNetworkDescription(str(in.getInt()));
+			netPlan.setNetworkName(str(in.getInt()));
+			netPlan.nextElementId = new MutableLong(in.getLong());
+			if (netPlan.nextElementId.toLong() <= 0) throw new Net2PlanException ("A network element has an id higher than the nextElementId");
+			for (int pd : ints ()) netPlan.addGlobalPlanningDomain(str(pd));
+			final int numLayers = in.getInt();
+			final List<NetworkElement> thisNetPlan = new ArrayList<> (); thisNetPlan.add(netPlan);
+			tagsAndAttributes (thisNetPlan);
+			endSection ();
+
+			/* Nodes */
+			beginSection ();
+			final long [] nodeIds = longs (); final double [] xCoord = doubles (); final double [] yCoord = doubles (); final int [] nodeNames = ints ();
+			final double [] population = doubles (); final int [] siteNames = ints (); final boolean [] nodeIsUp = booleans ();
+			final int [] pdOffsets = raggedOffsets (); final int [] pds = new int [pdOffsets [pdOffsets.length-1]]; in.asIntBuffer().get(pds); in.position(in.position() + 4 * pds.length);
+			final int [] iconNodeIndexes = ints (); final long [] iconLayerIds = longs ();
+			final URL [] iconUrls = new URL [iconNodeIndexes.length]; final int [] iconUrlStrings = ints (); for (int i = 0; i < iconUrls.length ; i ++) iconUrls [i] = url(iconUrlStrings [i]);
+			for (int n = 0; n < nodeIds.length ; n ++)
+			{
+				checkId (netPlan , nodeIds [n]);
+				final Node newNode = netPlan.addNode(nodeIds [n] , xCoord [n], yCoord [n], str(nodeNames [n]), null);
+				for (int i = pdOffsets [n] ; i < pdOffsets [n+1] ; i ++) newNode.addToPlanningDomain(str(pds [i]));
+				newNode.setFailureState(nodeIsUp [n]);
+				newNode.setPopulation(population [n]);
+				if (siteNames [n] != NULLSTRING) newNode.setSiteName(str(siteNames [n]));
+			}
+			tagsAndAttributes (netPlan.nodes);
+			endSection ();
+
+			/* Resources */
+			beginSection ();
+			final long [] resIds = longs (); final long [] hostNodeIds = longs (); final int [] resTypes = ints (); final int [] resNames = ints ();
+			final int [] resUnits = ints (); final double [] processingTimes = doubles (); final double [] resCapacities = doubles (); final int [] resIcons = ints ();
+			final int [] baseResOffsets = raggedOffsets (); final long [] baseResIds = new long [baseResOffsets [baseResOffsets.length-1]]; in.asLongBuffer().get(baseResIds); in.position(in.position() + 8 * baseResIds.length);
+			final int [] baseOccOffsets = raggedOffsets (); final double [] baseOcc = new double [baseOccOffsets [baseOccOffsets.length-1]]; in.asDoubleBuffer().get(baseOcc); in.position(in.position() + 8 * baseOcc.length);
+			for (int r = 0; r < resIds.length ; r ++)
+			{
+				checkId (netPlan , resIds [r]);
+				final Node hostNode = netPlan.getNodeFromId(hostNodeIds [r]);
+				if (hostNode == null) throw new Net2PlanException ("Could not find the hot node of a resource when reading");
+				final Map<Resource,Double> occupiedCapacitiesInBaseResources = new HashMap<> ();
+				for (int i = baseResOffsets [r] ; i < baseResOffsets [r+1] ; i ++)
+				{
+					final Resource baseResource = netPlan.getResourceFromId(baseResIds [i]); if (baseResource == null) throw new Net2PlanException ("Unknown resource id");
+					occupiedCapacitiesInBaseResources.put(baseResource , baseOcc [i]);
+				}
+				final Resource newResource = netPlan.addResource(resIds [r] , str(resTypes [r]) , str(resNames [r]) , hostNode , resCapacities [r] , str(resUnits [r]) ,
+						occupiedCapacitiesInBaseResources , processingTimes [r] , null);
+				newResource.setUrlIcon(url(resIcons [r]));
+			}
+			tagsAndAttributes (netPlan.resources);
+			endSection ();
+
+			/* Layers. The node icons are set once the layer exists */
+			for (int cont = 0; cont < numLayers ; cont ++)
+			{
+				beginSection ();
+				final NetworkLayer newLayer = readLayer (netPlan , cont == 0);
+				endSection ();
+				for (int i = 0 ; i < iconNodeIndexes.length ; i ++)
+					if (iconLayerIds [i] == newLayer.id)
+						netPlan.nodes.get(iconNodeIndexes [i]).setUrlNodeIcon(newLayer , iconUrls [i]);
+			}
+
+			/* SRGs */
+			beginSection ();
+			final long [] srgIds = longs (); final double [] mttf = doubles (); final double [] mttr = doubles ();
+			final int [] srgNodeOffsets = raggedOffsets (); final long [] srgNodeIds = new long [srgNodeOffsets [srgNodeOffsets.length-1]]; in.asLongBuffer().get(srgNodeIds); in.position(in.position() + 8 * srgNodeIds.length);
+			final int [] srgLinkOffsets = raggedOffsets (); final long [] srgLinkIds = new long [srgLinkOffsets [srgLinkOffsets.length-1]]; in.asLongBuffer().get(srgLinkIds); in.position(in.position() + 8 * srgLinkIds.length);
+			for (int s = 0; s < srgIds.length ; s ++)
+			{
+				checkId (netPlan , srgIds [s]);
+				final SharedRiskGroup newSRG = netPlan.addSRG(srgIds [s] , mttf [s], mttr [s], null);
+				for (int i = srgNodeOffsets [s] ; i < srgNodeOffsets [s+1] ; i ++) newSRG.addNode(netPlan.getNodeFromId(srgNodeIds [i]));
+				for (int i = srgLinkOffsets [s] ; i < srgLinkOffsets [s+1] ; i ++) newSRG.addLink(netPlan.getLinkFromId(srgLinkIds [i]));
+			}
+			tagsAndAttributes (netPlan.srgs);
+			endSection ();
+
+			/* Layer coupling */
+			beginSection ();
+			final long [] couplingDemandIds = longs (); final long [] couplingLinkIds = longs (); final long [] couplingMDemandIds = longs ();
+			final int [] couplingMOffsets = raggedOffsets (); final long [] couplingMLinkIds = new long [couplingMOffsets [couplingMOffsets.length-1]]; in.asLongBuffer().get(couplingMLinkIds); in.position(in.position() + 8 * couplingMLinkIds.length);
+			for (int i = 0; i < couplingDemandIds.length ; i ++)
+				netPlan.getDemandFromId(couplingDemandIds [i]).coupleToUpperLayerLink(netPlan.getLinkFromId(couplingLinkIds [i]));
+			for (int i = 0; i < couplingMDemandIds.length ; i ++)
+			{
+				final Set<Link> setLinksToCouple = new HashSet<> ();
+				for (int j = couplingMOffsets [i] ; j < couplingMOffsets [i+1] ; j ++) setLinksToCouple.add(netPlan.getLinkFromId(couplingMLinkIds [j]));
+				netPlan.getMulticastDemandFromId(couplingMDemandIds [i]).couple(setLinksToCouple);
+			}
+			endSection ();
+			if (nextSection != sections.size()) throw new Net2PlanException ("Wrong binary design file");
+		}
+
+		private NetworkLayer readLayer (NetPlan netPlan , boolean isFirstLayer)
+		{
+			final long layerId = in.getLong();
+			checkId (netPlan , layerId);
+			final String layerName = str(in.getInt());
+			final String layerDescription = str(in.getInt());
+			final boolean isDefaultLayer = in.get() != 0;
+			final String linkCapacityUnitsName = str(in.getInt());
+			final String demandTrafficUnitsName = str(in.getInt());
+			final URL defaultNodeIconURL = url(in.getInt());
+
+			NetworkLayer newLayer;
+			if (isFirstLayer)
+			{
+				if (netPlan.layers.size() != 1) throw new RuntimeException ("Bad");
+				if (netPlan.layers.get (0).id != layerId)
+				{
+					// the Id of first layer is different => create a new one and remove the existing
+					newLayer = netPlan.addLayer(layerId , layerName, layerDescription, linkCapacityUnitsName, demandTrafficUnitsName, defaultNodeIconURL , null);
+					netPlan.removeNetworkLayer(netPlan.layers.get (0));
+				}
+				else
+				{
+					newLayer = netPlan.layers.get (0); // it already has the right Id
+					newLayer.demandTrafficUnitsName = demandTrafficUnitsName;
+					newLayer.description = layerDescription;
+					newLayer.name = layerName;
+					newLayer.linkCapacityUnitsName= linkCapacityUnitsName;
+				}
+			}
+			else
+			{
+				newLayer = netPlan.addLayer(layerId , layerName, layerDescription, linkCapacityUnitsName, demandTrafficUnitsName, defaultNodeIconURL , null);
+			}
+			if (isDefaultLayer) netPlan.setNetworkLayerDefault(newLayer);
+
+			/* Links */
+			final long [] linkIds = longs (); final long [] originIds = longs (); final long [] destinationIds = longs ();
+			final double [] capacities = doubles (); final double [] lengths = doubles (); final double [] speeds = doubles ();
+			final long [] linkBidirPairIds = longs (); final boolean [] linkIsUp = booleans ();
+			for (int e = 0; e < linkIds.length ; e ++)
+			{
+				checkId (netPlan , linkIds [e]);
+				final Link newLink = netPlan.addLink(linkIds [e] , netPlan.getNodeFromId(originIds [e]), netPlan.getNodeFromId(destinationIds [e]), capacities [e], lengths [e], speeds [e], null , newLayer);
+				newLink.setFailureState(linkIsUp [e]);
+				final Link bidirPairLink = linkBidirPairIds [e] == -1? null : netPlan.getLinkFromId(linkBidirPairIds [e]);
+				if (bidirPairLink != null)
+				{
+					if (bidirPairLink.isBidirectional()) throw new RuntimeException ();
+					bidirPairLink.setBidirectionalPair(newLink);
+				}
+			}
+			tagsAndAttributes (newLayer.links);
+
+			/* Demands */
+			final long [] demandIds = longs (); final long [] ingressIds = longs (); final long [] egressIds = longs ();
+			final double [] offered = doubles (); final int [] recoveryTypes = ints (); final long [] demandBidirPairIds = longs ();
+			final int [] scOffsets = raggedOffsets (); final int [] scTypes = new int [scOffsets [scOffsets.length-1]]; in.asIntBuffer().get(scTypes); in.position(in.position() + 4 * scTypes.length);
+			for (int d = 0; d < demandIds.length ; d ++)
+			{
+				checkId (netPlan , demandIds [d]);
+				Demand.IntendedRecoveryType recoveryType;
+				try { recoveryType = Demand.IntendedRecoveryType.valueOf(str(recoveryTypes [d])); }
+				catch (Exception e) { recoveryType = Demand.IntendedRecoveryType.UNKNOWNTYPE; }
+				final Demand newDemand = netPlan.addDemand(demandIds [d] , netPlan.getNodeFromId(ingressIds [d]), netPlan.getNodeFromId(egressIds [d]), offered [d], null , newLayer);
+				newDemand.setIntendedRecoveryType(recoveryType);
+				final Demand bidirPairDemand = demandBidirPairIds [d] == -1? null : netPlan.getDemandFromId(demandBidirPairIds [d]);
+				if (bidirPairDemand != null)
+				{
+					if (bidirPairDemand.isBidirectional()) throw new RuntimeException ();
+					bidirPairDemand.setBidirectionalPair(newDemand);
+				}
+				final List<String> mandatorySequenceOfTraversedResourceTypes = new ArrayList<> (scOffsets [d+1] - scOffsets [d]);
+				for (int i = scOffsets [d] ; i < scOffsets [d+1] ; i ++) mandatorySequenceOfTraversedResourceTypes.add(str(scTypes [i]));
+				newDemand.setServiceChainSequenceOfTraversedResourceTypes(mandatorySequenceOfTraversedResourceTypes);
+			}
+			tagsAndAttributes (newLayer.demands);
+
+			/* Multicast demands */
+			final long [] mDemandIds = longs (); final long [] mIngressIds = longs (); final double [] mOffered = doubles ();
+			final int [] mEgressOffsets = raggedOffsets (); final long [] mEgressIds = new long [mEgressOffsets [mEgressOffsets.length-1]]; in.asLongBuffer().get(mEgressIds); in.position(in.position() + 8 * mEgressIds.length);
+			for (int d = 0; d < mDemandIds.length ; d ++)
+			{
+				checkId (netPlan , mDemandIds [d]);
+				final Set<Node> egressNodes = new HashSet<> ();
+				for (int i = mEgressOffsets [d] ; i < mEgressOffsets [d+1] ; i ++) egressNodes.add(netPlan.getNodeFromId(mEgressIds [i]));
+				netPlan.addMulticastDemand(mDemandIds [d] , netPlan.getNodeFromId(mIngressIds [d]), egressNodes , mOffered [d], null , newLayer);
+			}
+			tagsAndAttributes (newLayer.multicastDemands);
+
+			/* Multicast trees */
+			final long [] treeIds = longs (); final long [] treeDemandIds = longs (); final double [] treeCarried = doubles (); final double [] treeOccupied = doubles ();
+			final int [] curOffsets = raggedOffsets (); final long [] curLinkIds = new long [curOffsets [curOffsets.length-1]]; in.asLongBuffer().get(curLinkIds); in.position(in.position() + 8 * curLinkIds.length);
+			final int [] iniOffsets = raggedOffsets (); final long [] iniLinkIds = new long [iniOffsets [iniOffsets.length-1]]; in.asLongBuffer().get(iniLinkIds); in.position(in.position() + 8 * iniLinkIds.length);
+			for (int t = 0; t < treeIds.length ; t ++)
+			{
+				checkId (netPlan , treeIds [t]);
+				final Set<Link> initialSetLinks = new HashSet<> (); for (int i = iniOffsets [t] ; i < iniOffsets [t+1] ; i ++) initialSetLinks.add(netPlan.getLinkFromId(iniLinkIds [i]));
+				final Set<Link> currentSetLinks = new HashSet<> (); for (int i = curOffsets [t] ; i < curOffsets [t+1] ; i ++) currentSetLinks.add(netPlan.getLinkFromId(curLinkIds [i]));
+				final MulticastTree newTree = netPlan.addMulticastTree(treeIds [t] , netPlan.getMulticastDemandFromId(treeDemandIds [t]) , treeCarried [t] , treeOccupied [t] , initialSetLinks , null);
+				newTree.setLinks(currentSetLinks);
+			}
+			tagsAndAttributes (newLayer.multicastTrees);
+
+			/* Routing */
+			final boolean isSourceRouting = in.get() != 0;
+			if (isSourceRouting)
+			{
+				netPlan.setRoutingType (RoutingType.SOURCE_ROUTING , newLayer);
+				final long [] routeIds = longs (); final long [] routeDemandIds = longs (); final double [] currentCarried = doubles (); final double [] initialCarried = doubles ();
+				final int [] curOccOffsets = raggedOffsets (); final double [] curOcc = new double [curOccOffsets [curOccOffsets.length-1]]; in.asDoubleBuffer().get(curOcc); in.position(in.position() + 8 * curOcc.length);
+				final int [] curPathOffsets = raggedOffsets (); final long [] curPath = new long [curPathOffsets [curPathOffsets.length-1]]; in.asLongBuffer().get(curPath); in.position(in.position() + 8 * curPath.length);
+				final int [] iniOccOffsets = raggedOffsets (); final double [] iniOcc = new double [iniOccOffsets [iniOccOffsets.length-1]]; in.asDoubleBuffer().get(iniOcc); in.position(in.position() + 8 * iniOcc.length);
+				final int [] iniPathOffsets = raggedOffsets (); final long [] iniPath = new long [iniPathOffsets [iniPathOffsets.length-1]]; in.asLongBuffer().get(iniPath); in.position(in.position() + 8 * iniPath.length);
+				final int [] backupOffsets = raggedOffsets (); final long [] backupIds = new long [backupOffsets [backupOffsets.length-1]]; in.asLongBuffer().get(backupIds); in.position(in.position() + 8 * backupIds.length);
+				for (int r = 0; r < routeIds.length ; r ++)
+				{
+					checkId (netPlan , routeIds [r]);
+					final List<NetworkElement> currentPath = getLinkAndResourceList(netPlan , curPath , curPathOffsets [r] , curPathOffsets [r+1]);
+					final List<Double> currentOccupation = getDoubleList(curOcc , curOccOffsets [r] , curOccOffsets [r+1]);
+					final List<NetworkElement> initialStatePath = getLinkAndResourceList(netPlan , iniPath , iniPathOffsets [r] , iniPathOffsets [r+1]);
+					final List<Double> initialStateOccupation = getDoubleList(iniOcc , iniOccOffsets [r] , iniOccOffsets [r+1]);
+					final Route newRoute = netPlan.addServiceChain(routeIds [r] , netPlan.getDemandFromId(routeDemandIds [r]), initialCarried [r],
+							initialStateOccupation, initialStatePath, null);
+					newRoute.setPath(currentCarried [r], currentPath, currentOccupation);
+				}
+				/* Backup routes at the end: they may not exist before */
+				for (int r = 0; r < routeIds.length ; r ++)
+				{
+					final Route primary = newLayer.routes.get(r);
+					for (int i = backupOffsets [r] ; i < backupOffsets [r+1] ; i ++) primary.addBackupRoute(netPlan.getRouteFromId(backupIds [i]));
+				}
+				tagsAndAttributes (newLayer.routes);
+			}
+			else
+			{
+				netPlan.setRoutingType (RoutingType.HOP_BY_HOP_ROUTING , newLayer);
+				final int [] frDemandIndexes = ints (); final int [] frLinkIndexes = ints (); final double [] frSplittingRatios = doubles ();
+				final DoubleMatrix2D f_de = DoubleFactory2D.sparse.make (newLayer.demands.size() , newLayer.links.size());
+				for (int i = 0; i < frDemandIndexes.length ; i ++) f_de.set(frDemandIndexes [i] , frLinkIndexes [i] , frSplittingRatios [i]);
+				netPlan.setForwardingRules(f_de , newLayer);
+			}
+
+			final List<NetworkElement> thisLayer = new ArrayList<> (); thisLayer.add(newLayer);
+			tagsAndAttributes (thisLayer);
+			return newLayer;
+		}
+
+		private static void checkId (NetPlan netPlan , long id)
+		{
+			if (id >= netPlan.nextElementId.toLong()) throw new Net2PlanException ("A network element has an id higher than the nextElementId");
+		}
+		private static List<Double> getDoubleList (double [] values , int from , int to)
+		{
+			final List<Double> res = new ArrayList<> (to - from); for (int i = from ; i < to ; i ++) res.add(values [i]); return res;
+		}
+		private static List<NetworkElement> getLinkAndResourceList (NetPlan np , long [] ids , int from , int to)
+		{
+			final List<NetworkElement> res = new ArrayList<> (to - from);
+			for (int i = from ; i < to ; i ++)
+			{
+				NetworkElement e = np.getLinkFromId(ids [i]);
+				if (e == null) e = np.getResourceFromId(ids [i]);
+				if (e == null) throw new Net2PlanException ("Unknown id in the list");
+				res.add(e);
+			}
+			return res;
+		}
+	}
+}
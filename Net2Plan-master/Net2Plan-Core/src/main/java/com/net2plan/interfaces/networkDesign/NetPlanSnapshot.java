@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.interfaces.networkDesign;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>An immutable, compact image of the state of a {@code NetPlan} object, from which any number of independent {@code NetPlan} copies can be
+ * created later. Intended for storing many versions of a design (e.g. an undo history) without keeping a full copy of each version in memory.</p>
+ *
+ * <p>The image is divided in sections (the network information, the nodes, the resources, each layer, the SRGs, and the layer coupling),
+ * stored in the {@code .n2pb} binary format. When a snapshot is created from a previous one, the sections that did not change are
+ * shared with it, and not duplicated. Then, the memory used by a sequence of snapshots grows with the size of the sections changed
+ * between them, and not with the size of the design.</p>
+ *
+ * <p>This is not a copy-on-write {@code NetPlan}: creating a snapshot always serializes the whole design (the time grows with the size
+ * of the design, not of the change), and the sharing is per section, not per element. A change in one link of a layer stores again the
+ * whole section of that layer, and a change in one node stores again the whole nodes section. Creating a {@code NetPlan} from a snapshot
+ * also reads the whole design.</p>
+ *
+ * @see NetPlan#saveToBinaryFile(java.io.File)
+ */
+public class NetPlanSnapshot
+{
+	private final List<byte []> sections;
+
+	/**
+	 * <p>Creates a snapshot of the current state of the given design</p>
+	 * @param np the design
+	 */
+	public NetPlanSnapshot (NetPlan np)
+	{
+		this (np , null);
+	}
+
+	/**
+	 * <p>Creates a snapshot of the current state of the given design, sharing with the given previous snapshot the sections that are equal
+	 * in both</p>
+	 * @param np the design
+	 * @param previous a previous snapshot, typically of an earlier version of the same design (or {@code null})
+	 */
+	public NetPlanSnapshot (NetPlan np , NetPlanSnapshot previous)
+	{
+		final List<byte []> newSections = NetPlanBinaryFormat.writeSections(np);
+		if (previous != null)
+		{
+			final Map<Integer,List<byte []>> previousSectionsByHash = new HashMap<> ();
+			for (byte [] section : previous.sections)
+			{
+				List<byte []> sameHash = previousSectionsByHash.get(Arrays.hashCode(section));
+				if (sameHash == null) { sameHash = new ArrayList<> (1); previousSectionsByHash.put(Arrays.hashCode(section) , sameHash); }
+				sameHash.add(section);
+			}
+			for (int cont = 0; cont < newSections.size() ; cont ++)
+			{
+				final List<byte []> candidates = previousSectionsByHash.get(Arrays.hashCode(newSections.get(cont)));
+				if (candidates == null) continue;
+				for (byte [] candidate : candidates)
+					if (Arrays.equals(candidate , newSections.get(cont))) { newSections.set(cont , candidate); break; }
+			}
+		}
+		this.sections = Collections.unmodifiableList(newSections);
+	}
+
+	/**
+	 * <p>Creates a new {@code NetPlan} object with the design stored in this snapshot. Each call returns a new, independent object</p>
+	 * @return the design
+	 */
+	public NetPlan getNetPlan ()
+	{
+		final List<ByteBuffer> buffers = new ArrayList<> (sections.size());
+		for (byte [] section : sections) buffers.add(ByteBuffer.wrap(section));
+		return NetPlanBinaryFormat.readSections(buffers);
+	}
+
+	/**
+	 * <p>Returns the number of bytes of the image of the design</p>
+	 * @return see above
+	 */
+	public long getSizeInBytes ()
+	{
+		long res = 0; for (byte [] section : sections) res += section.length;
+		return res;
+	}
+
+	/**
+	 * <p>Returns the number of bytes of this snapshot that are not shared with the given one, that is, the extra memory
+	 * that this snapshot needs when the other one is also stored</p>
+	 * @param other the other snapshot
+	 * @return see above
+	 */
+	public long getSizeInBytesNotSharedWith (NetPlanSnapshot other)
+	{
+		final Map<byte [],Boolean> otherSections = new IdentityHashMap<> ();
+		for (byte [] section : other.sections) otherSections.put(section , true);
+		long res = 0; for (byte [] section : sections) if (!otherSections.containsKey(section)) res += section.length;
+		return res;
+	}
+}
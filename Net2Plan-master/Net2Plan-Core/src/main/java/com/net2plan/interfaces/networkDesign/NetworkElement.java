@@ -37,7 +37,7 @@ public abstract class NetworkElement
 	final protected long id;
 	protected int index;
 	protected final AttributeMap attributes;
-	protected final Set<String> tags;
+	protected Set<String> tags; // shared empty set until the first tag is added, since most elements have no tags
 	
 	NetworkElement (NetPlan netPlan , long id , int index , AttributeMap attributes) 
 	{ 
@@ -45,7 +45,8 @@ public abstract class NetworkElement
 		this.id = id; 
 		this.index = index; 
 		this.attributes = new AttributeMap (attributes); 
-		this.tags = new HashSet<> (); 
+		this.tags = Collections.emptySet(); 
+		if (netPlan != null && netPlan.cache_attributeIndexes != null) netPlan.addToAttributeIndexes(this);
 	}
 
 	
@@ -247,6 +248,7 @@ public abstract class NetworkElement
 	 */
 	public void addTag (String tag)
 	{
+		if (this.tags.isEmpty()) this.tags = new HashSet<> ();
 		this.tags.add (tag);
 		Set<NetworkElement> setElements = netPlan.cache_taggedElements.get (tag);
 		if (setElements == null) { setElements = new HashSet<> (); netPlan.cache_taggedElements.put (tag , setElements); }
@@ -320,6 +322,7 @@ public abstract class NetworkElement
 	{ 
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.removeFromAttributeIndexes(this);
 		attributes.clear();
 	}
 
@@ -332,7 +335,8 @@ public abstract class NetworkElement
 	{ 
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
-		attributes.remove(key);
+		final String oldValue = attributes.remove(key);
+		if (oldValue != null) netPlan.updateAttributeIndex(this , key , oldValue , null);
 	}
 
 	/**
@@ -346,7 +350,7 @@ public abstract class NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
-		attributes.put (key,value);
+		putAttribute (key,value);
 	}
 
 	/**
@@ -359,7 +363,7 @@ public abstract class NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
-		attributes.put (key,value.toString());
+		putAttribute (key,value.toString());
 	}
 
 	/**
@@ -379,7 +383,7 @@ public abstract class NetworkElement
 			if (firstTime) { firstTime = false; } else { st.append(MATRIX_COLSEPARATOR); }
 			st.append(val.toString()); 
 		}
-		attributes.put (key,st.toString());
+		putAttribute (key,st.toString());
 	}
 
 	/**
@@ -401,7 +405,7 @@ public abstract class NetworkElement
 			if (firstTime) { firstTime = false; } else { st.append(MATRIX_COLSEPARATOR); }
 			st.append(escapedStringToWrite(val)); 
 		}
-		attributes.put (key,st.toString());
+		putAttribute (key,st.toString());
 	}
 
 	/**
@@ -429,7 +433,7 @@ public abstract class NetworkElement
 				st.append(escapedStringToWrite(cell));
 			}
 		}
-		attributes.put (key,st.toString());
+		putAttribute (key,st.toString());
 	}
 
 	/**
@@ -452,7 +456,7 @@ public abstract class NetworkElement
     		}
 			if (row != vals.rows()-1) st.append(MATRIX_ROWSEPARATOR);
 		}
-		attributes.put (key,st.toString());
+		putAttribute (key,st.toString());
 	}
 	
 	/**
@@ -463,10 +467,18 @@ public abstract class NetworkElement
 	{
 		checkAttachedToNetPlanObject();
 		netPlan.checkIsModifiable();
+		netPlan.removeFromAttributeIndexes(this);
 		attributes.clear(); 
 		if (map != null) 
 			for (Map.Entry<String,String> e : map.entrySet())
-				attributes.put (e.getKey() , e.getValue());
+				putAttribute (e.getKey() , e.getValue());
+	}
+
+	/* Sets the attribute, updating the attribute index of the key (if any) */
+	private void putAttribute (String key , String value)
+	{
+		final String oldValue = attributes.put (key,value);
+		netPlan.updateAttributeIndex(this , key , oldValue , value);
 	}
 
 	/**
@@ -496,6 +508,7 @@ public abstract class NetworkElement
 
 	final protected void removeId () 
 	{ 
+		if (this.netPlan != null) this.netPlan.removeFromAttributeIndexes(this);
 		this.netPlan = null;
 	} // called when the element is removed from the net2plan object
 
@@ -504,6 +517,13 @@ public abstract class NetworkElement
 	{
 		/* Check all the tags here are in the cache */
 		for (String tag : tags) if (!netPlan.cache_taggedElements.get(tag).contains (this)) throw new RuntimeException ("tag: " + tag);
+
+		/* Check this element is in the attribute indexes */
+		for (String key : netPlan.cache_attributeIndexes.keySet())
+		{
+			final String value = attributes.get(key);
+			if (value != null && !netPlan.cache_attributeIndexes.get(key).get(value).contains(this)) throw new RuntimeException ("attribute: " + key);
+		}
 	}
 
 	private static String escapedStringToWrite (String s)
@@ -15,12 +15,14 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import java.util.Set;
 
 import com.net2plan.internal.AttributeMap;
+import com.net2plan.libraries.RoutingFundamentalVectorSolver;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.Pair;
 
@@ -36,6 +38,8 @@ import com.net2plan.utils.Pair;
  * @since 0.4.0 */
 public class NetworkLayer extends NetworkElement
 {
+	private static final int MAX_NUMBER_OF_HOPBYHOP_ROUTING_SOLVERS = 64;
+
 	String demandTrafficUnitsName;
 	String description;
 	String name;
@@ -64,6 +68,7 @@ public class NetworkLayer extends NetworkElement
 	Set<MulticastTree> cache_multicastTreesTravLinkZeroCap;
 	Map<Pair<Node,Node>,Set<Link>> cache_nodePairLinksThisLayer;
 	Map<Pair<Node,Node>,Set<Demand>> cache_nodePairDemandsThisLayer;
+	Map<Map<Link,Double>,RoutingFundamentalVectorSolver> cacheHbH_routingSolvers; // key: forwarding rules applied (no zeros, no failing links), shared by the demands with the same rules
 	
 	URL defaultNodeIconURL;
 
@@ -95,6 +100,11 @@ public class NetworkLayer extends NetworkElement
 		this.cache_multicastTreesTravLinkZeroCap = new HashSet<> ();
 		this.cache_nodePairLinksThisLayer = new HashMap<> ();
 		this.cache_nodePairDemandsThisLayer = new HashMap<> ();
+		this.cacheHbH_routingSolvers = new LinkedHashMap<Map<Link,Double>,RoutingFundamentalVectorSolver> (16 , 0.75f , true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Map<Link,Double>,RoutingFundamentalVectorSolver> eldest) { return size() > MAX_NUMBER_OF_HOPBYHOP_ROUTING_SOLVERS; }
+		};
 
 //		this.forwardingRulesNoFailureState_f_de = null;
 //		this.forwardingRulesCurrentFailureState_x_de = null;
@@ -145,6 +155,7 @@ public class NetworkLayer extends NetworkElement
 		this.cache_multicastTreesTravLinkZeroCap.clear(); for (MulticastTree t : origin.cache_multicastTreesTravLinkZeroCap) this.cache_multicastTreesTravLinkZeroCap.add(this.netPlan.getMulticastTreeFromId (t.id));
 		this.cache_nodePairLinksThisLayer.clear(); for (Entry<Pair<Node,Node>,Set<Link>> entry : origin.cache_nodePairLinksThisLayer.entrySet()) this.cache_nodePairLinksThisLayer.put(Pair.of(this.netPlan.getNodeFromId(entry.getKey().getFirst().getId()) , this.netPlan.getNodeFromId(entry.getKey().getSecond().getId())) , (Set<Link>) (Set<?>) this.netPlan.translateCollectionToThisNetPlan(entry.getValue()));
 		this.cache_nodePairDemandsThisLayer.clear(); for (Entry<Pair<Node,Node>,Set<Demand>> entry : origin.cache_nodePairDemandsThisLayer.entrySet()) this.cache_nodePairDemandsThisLayer.put(Pair.of(this.netPlan.getNodeFromId(entry.getKey().getFirst().getId()) , this.netPlan.getNodeFromId(entry.getKey().getSecond().getId())) , (Set<Demand>) (Set<?>) this.netPlan.translateCollectionToThisNetPlan(entry.getValue()));
+		this.cacheHbH_routingSolvers.clear();
 		
 		for (Link e : origin.links) this.links.get(e.index).copyFrom(e);
 		for (Demand d : origin.demands) this.demands.get(d.index).copyFrom(d);
@@ -785,7 +785,9 @@ public class Node extends NetworkElement
 
 		netPlan.cache_id2NodeMap.remove (id);
         for (String tag : tags) netPlan.cache_taggedElements.get(tag).remove(this);
+		netPlan.notifyElementToBeRemoved(this);
 		NetPlan.removeNetworkElementAndShiftIndexes(netPlan.nodes , this.index);
+		for (NetworkLayer layer : netPlan.layers) layer.cacheHbH_routingSolvers.clear(); // the solvers keep the node indexes
 		if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
 		removeId ();
 	}
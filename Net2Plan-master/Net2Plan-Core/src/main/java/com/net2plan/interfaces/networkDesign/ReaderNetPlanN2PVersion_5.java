@@ -45,14 +45,12 @@ import com.net2plan.utils.DoubleUtils;
 import com.net2plan.utils.LongUtils;
 import com.net2plan.utils.Pair;
 
-import cern.colt.matrix.tdouble.DoubleFactory2D;
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
-
 class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanFormat_v3
 {
 	private boolean hasAlreadyReadOneLayer;
 	private XMLStreamReader2 xmlStreamReader;
 	private Map<Route,List<Long>> backupRouteIdsMap;
+	private List<Route> routesWithDeferredCaches;
 	private Map<Long , List<Pair<Node,URL>>> nodeAndLayerToIconURLMap;
 	
 	public void create(NetPlan netPlan, XMLStreamReader2 xmlStreamReader) throws XMLStreamException
@@ -61,6 +59,7 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 		this.hasAlreadyReadOneLayer = false;
 		this.xmlStreamReader = xmlStreamReader;
 		this.backupRouteIdsMap = new HashMap<Route,List<Long>> ();
+		this.routesWithDeferredCaches = new ArrayList<Route> ();
 		this.nodeAndLayerToIconURLMap = new HashMap<> ();
 
 		parseNetwork(netPlan);
@@ -261,9 +260,10 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 		final double initialStateCarriedTrafficIfNotFailing = initialPathExists? getDouble ("initialStateCarriedTrafficIfNotFailing") : currentCarriedTrafficIfNotFailing;
 		final List<Double> initialStateOccupationIfNotFailing = initialPathExists? getListDouble("initialStateOccupationIfNotFailing") : new ArrayList<Double> (currentLinksAndResourcesOccupationIfNotFailing);
 		
-		final Route newRoute = netPlan.addServiceChain(routeId , netPlan.getDemandFromId(demandId), initialStateCarriedTrafficIfNotFailing, 
-				initialStateOccupationIfNotFailing, initialStatePath, null);
-		newRoute.setPath(currentCarriedTrafficIfNotFailing, currentPath, currentLinksAndResourcesOccupationIfNotFailing);
+		/* The caches of the traversed links, nodes and resources are built at the end of the layer routes, for all of them at once */
+		final Route newRoute = netPlan.addServiceChainWithDeferredCaches(routeId , netPlan.getDemandFromId(demandId), initialStateCarriedTrafficIfNotFailing, 
+				initialStateOccupationIfNotFailing, initialStatePath, currentCarriedTrafficIfNotFailing, currentLinksAndResourcesOccupationIfNotFailing, currentPath);
+		this.routesWithDeferredCaches.add(newRoute);
 
 		/* To be added at the end: backup routes may not exist yet */
 		this.backupRouteIdsMap.put(newRoute ,  getListLong ("backupRoutes")); 
@@ -272,23 +272,24 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 	}
 	
 	
-	private void parseForwardingRule(NetPlan netPlan, long layerId , DoubleMatrix2D f_de) throws XMLStreamException
+	private void parseForwardingRule(NetPlan netPlan, long layerId , Map<Demand,Map<Link,Double>> frsPerDemand) throws XMLStreamException
 	{
 		final long linkId = getLong ("linkId");
 		final long demandId = getLong ("demandId");
 		final double splittingRatio = getDouble ("splittingRatio");
 
-		f_de.set (netPlan.getDemandFromId(demandId).index , netPlan.getLinkFromId(linkId).index  , splittingRatio);
+		final Demand demand = netPlan.getDemandFromId(demandId); if (demand == null) throw new Net2PlanException ("Unknown demand id");
+		final Link link = netPlan.getLinkFromId(linkId); if (link == null) throw new Net2PlanException ("Unknown link id");
+		Map<Link,Double> frsThisDemand = frsPerDemand.get(demand);
+		if (frsThisDemand == null) { frsThisDemand = new HashMap<> (); frsPerDemand.put(demand , frsThisDemand); }
+		frsThisDemand.put(link , splittingRatio);
 		readAndAddAttributesToEndAndPdForNodes(null, "forwardingRule");
 	}
 
 	private void parseHopByHopRouting(NetPlan netPlan, long layerId) throws XMLStreamException
 	{
 		netPlan.setRoutingType (RoutingType.HOP_BY_HOP_ROUTING , netPlan.getNetworkLayerFromId(layerId) );
-		final NetworkLayer layer = netPlan.getNetworkLayerFromId(layerId);
-		final int D = netPlan.getNumberOfDemands(layer);
-		final int E = netPlan.getNumberOfLinks(layer);
-		DoubleMatrix2D f_de = DoubleFactory2D.sparse.make (D,E);
+		final Map<Demand,Map<Link,Double>> frsPerDemand = new HashMap<> ();
 
 		while(xmlStreamReader.hasNext())
 		{
@@ -301,7 +302,7 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 					switch(startElementName)
 					{
 						case "forwardingRule":
-							parseForwardingRule(netPlan, layerId,f_de);
+							parseForwardingRule(netPlan, layerId,frsPerDemand);
 							break;
 
 						default:
@@ -314,7 +315,7 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 					if (endElementName.equals("hopByHopRouting")) 
 					{ 
 						NetworkLayer thisLayer = netPlan.getNetworkLayerFromId(layerId); 
-						netPlan.setForwardingRules(f_de , thisLayer); 
+						netPlan.setForwardingRulesAllDemands(frsPerDemand , thisLayer); 
 						return; 
 					}
 					break;
@@ -501,6 +502,7 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 	{
 		netPlan.setRoutingType (RoutingType.SOURCE_ROUTING , netPlan.getNetworkLayerFromId(layerId));
 		this.backupRouteIdsMap.clear(); // in multiple layers, we have to refresh this
+		this.routesWithDeferredCaches.clear();
 		
 		while(xmlStreamReader.hasNext())
 		{
@@ -525,7 +527,8 @@ class ReaderNetPlanN2PVersion_5 implements IReaderNetPlan //extends NetPlanForma
 					String endElementName = xmlStreamReader.getName().toString();
 					if (endElementName.equals("sourceRouting"))
 					{
-						/* Before returning, we add the backup routes */
+						/* Before returning, we build the caches of the routes read, and add the backup routes */
+						netPlan.updateCachesOfRoutesWithDeferredCaches(routesWithDeferredCaches , NetPlan.DEFAULT_DEFERRED_ROUTE_CACHES_PARALLELISM);
 						for (Entry<Route,List<Long>> entry : this.backupRouteIdsMap.entrySet())
 						{
 							final Route primary = entry.getKey();
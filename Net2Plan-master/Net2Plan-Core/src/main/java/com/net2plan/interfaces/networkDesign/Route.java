@@ -62,6 +62,13 @@ public class Route extends NetworkElement
 	double cache_propagationDelayMs;
 
 	Route (NetPlan netPlan , long id , int index , Demand demand , List<? extends NetworkElement> seqLinksAndResourcesTraversed , AttributeMap attributes)
+	{
+		this (netPlan , id , index , demand , seqLinksAndResourcesTraversed , attributes , true);
+	}
+
+	/* If computePathCaches is false, the caches depending on the path (real links and nodes traversed, occupation map, loops and propagation
+	 * delay) are left empty: the caller must compute them later with updateCachesOfCurrentPath and updatePropagationAndProcessingDelayInMiliseconds */
+	Route (NetPlan netPlan , long id , int index , Demand demand , List<? extends NetworkElement> seqLinksAndResourcesTraversed , AttributeMap attributes , boolean computePathCaches)
 	{
 		super (netPlan , id , index , attributes);
 
@@ -85,10 +92,11 @@ public class Route extends NetworkElement
 		this.initialStateCarriedTrafficIfNotFailing = -1;
 		this.initialStateOccupationIfNotFailing = null;
 		this.initialStatePath = new ArrayList<NetworkElement> (seqLinksAndResourcesTraversed);
+		this.cache_routesIAmBackUp = new HashSet<Route> ();
+		if (!computePathCaches) return;
 		this.cache_seqLinksRealPath = Route.getSeqLinks(seqLinksAndResourcesTraversed);
 		this.cache_seqNodesRealPath = Route.listTraversedNodes(cache_seqLinksRealPath);
 		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
-		this.cache_routesIAmBackUp = new HashSet<Route> ();
 		this.cache_hasLoops = hasLoops (cache_seqNodesRealPath);
 		if (cache_hasLoops) demand.routingCycleType = RoutingCycleType.OPEN_CYCLES;
 		this.cache_propagationDelayMs = 0;
@@ -462,6 +470,17 @@ public class Route extends NetworkElement
 	{
 		return this.cache_hasLoops;
 	}
+	/* Updates the caches of the route that only depend on its current path and occupation, as setPath does, without modifying any other
+	 * element (used for the routes added with deferred caches, so it can be called for several routes in parallel) */
+	void updateCachesOfCurrentPath ()
+	{
+		this.cache_seqLinksRealPath = Route.getSeqLinks(currentPath);
+		this.cache_seqNodesRealPath = new LinkedList<Node> (); cache_seqNodesRealPath.add (demand.getIngressNode());
+		for (Link e : cache_seqLinksRealPath) cache_seqNodesRealPath.add (e.getDestinationNode());
+		this.cache_hasLoops = hasLoops(cache_seqNodesRealPath);
+		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
+	}
+
 	private static boolean hasLoops (List<Node> seqNodes)
 	{
 		Set<Node> nodes = new HashSet<Node> (seqNodes);
@@ -531,6 +550,7 @@ public class Route extends NetworkElement
         {
         	demand.cache_worstCaseLengthInKm = 0;
         	for (Route r : demand.cache_routes) demand.cache_worstCaseLengthInKm = Math.max(demand.cache_worstCaseLengthInKm, r.getLengthInKm());
+        	netPlan.notifyStateChanged(demand);
         }
 
         if (ErrorHandling.isDebugEnabled()) netPlan.checkCachesConsistency();
@@ -590,6 +610,7 @@ public class Route extends NetworkElement
 		this.cache_linkAndResourcesTraversedOccupiedCapIfnotFailMap = updateLinkResourceOccupationCache ();
 
 		demand.carriedTraffic = 0; for (Route r : demand.cache_routes) demand.carriedTraffic += r.getCarriedTraffic();
+		netPlan.notifyStateChanged(demand);
 		if (demand.coupledUpperLayerLink != null)
 			demand.coupledUpperLayerLink.updateCapacityAndZeroCapacityLinksAndRoutesCaches(demand.carriedTraffic);
 
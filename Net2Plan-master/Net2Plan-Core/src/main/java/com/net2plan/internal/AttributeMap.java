@@ -21,8 +21,12 @@ package com.net2plan.internal;
 import java.util.Map;
 import java.util.TreeMap;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 /**
- * Extends {@code TreeMap} to forbid 'null or empty' keys.
+ * Extends {@code TreeMap} to forbid 'null or empty' keys. The keys are interned: the same attribute name in
+ * different maps (e.g. of different network elements) is stored once.
  * 
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.3.0
@@ -30,6 +34,7 @@ import java.util.TreeMap;
 public class AttributeMap extends TreeMap<String, String>
 {
 	private static final long serialVersionUID = 1L;
+	private static final Interner<String> KEY_INTERNER = Interners.newWeakInterner();
 	
 	/**
 	 * Default constructor.
@@ -52,20 +57,20 @@ public class AttributeMap extends TreeMap<String, String>
 		this();
 
 		if (m == null) return;
-		for (Map.Entry<String, String> entry : m.entrySet()) put(new String (entry.getKey()), new String (entry.getValue()));
+		for (Map.Entry<String, String> entry : m.entrySet()) put(entry.getKey(), entry.getValue());
 	}
 
 	@Override
 	public String put(String key, String value)
 	{
 		if (key == null || key.isEmpty()) throw new RuntimeException("Key cannot be null or empty");
-		return super.put(key, value);
+		return super.put(KEY_INTERNER.intern(key), value);
 	}
 	
 	@Override
 	public void putAll(Map<? extends String, ? extends String> m)
 	{
 		if (m == null) { clear(); return; }
-		super.putAll(m);
+		for (Map.Entry<? extends String, ? extends String> entry : m.entrySet()) put(entry.getKey(), entry.getValue());
 	}
 }
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Future event queue based on a binary heap ({@code java.util.PriorityQueue}). Operations are O(log n). The relative
+ * order of events with the same time and priority is not specified.
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+final class BinaryHeapEventQueue implements IFutureEventQueue
+{
+	private final PriorityQueue<SimEvent> queue = new PriorityQueue<SimEvent>();
+
+	@Override
+	public void add(SimEvent event) { queue.add(event); }
+
+	@Override
+	public void clear() { queue.clear(); }
+
+	@Override
+	public boolean isEmpty() { return queue.isEmpty(); }
+
+	@Override
+	public SimEvent peek() { return queue.peek(); }
+
+	@Override
+	public SimEvent poll() { return queue.poll(); }
+
+	@Override
+	public boolean remove(SimEvent event) { return queue.remove(event); }
+
+	@Override
+	public int size() { return queue.size(); }
+
+	@Override
+	public List<SimEvent> toList() { return new ArrayList<SimEvent>(queue); }
+
+	PriorityQueue<SimEvent> getPriorityQueue() { return queue; }
+}
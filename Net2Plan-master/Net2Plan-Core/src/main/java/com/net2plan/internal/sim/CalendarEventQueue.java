@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Future event queue based on a calendar queue (R. Brown, "Calendar queues: a fast O(1) priority queue implementation
+ * for the simulation event set problem", Communications of the ACM, 1988).</p>
+ *
+ * <p>Time is split in intervals of the same width ("days"), and the events of a day are kept in a sorted list, in
+ * the bucket of the day modulo the number of buckets ("year"). The number of buckets follows the number of pending events, and the
+ * day width is re-estimated from the separation of the first events each time the calendar is resized. Then, enqueue and dequeue
+ * take O(1) average time when the event times are not heavily clustered.</p>
+ *
+ * <p>Events with the same time and priority are returned in insertion order.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+final class CalendarEventQueue implements IFutureEventQueue
+{
+	private static final int MIN_NUMBER_OF_BUCKETS = 16;
+	private static final int NUMBER_OF_EVENTS_TO_ESTIMATE_WIDTH = 25;
+
+	private static final class Entry
+	{
+		private SimEvent event;
+		private double time;
+		private int priority;
+		private long insertionOrder;
+		private long dayNumber;
+		private Entry next;
+	}
+
+	private Entry [] heads;
+	private Entry [] tails;
+	private int bucketMask;
+	private double dayWidth;
+	private long currentDayNumber;
+	private int size;
+	private long numberOfInsertions;
+	private Entry freeEntries;
+
+	/**
+	 * Default constructor.
+	 */
+	CalendarEventQueue()
+	{
+		clear();
+	}
+
+	@Override
+	public void add(SimEvent event)
+	{
+		final Entry e = freeEntries == null ? new Entry() : freeEntries;
+		if (e == freeEntries) freeEntries = e.next;
+		e.event = event;
+		e.time = event.getEventTime();
+		e.priority = event.getEventPriority();
+		e.insertionOrder = numberOfInsertions ++;
+		e.dayNumber = getDayNumber(e.time);
+		e.next = null;
+
+		if (size == 0 || e.dayNumber < currentDayNumber) currentDayNumber = e.dayNumber;
+		insert(e);
+		size ++;
+
+		if (size > 2 * heads.length) resize(2 * heads.length);
+	}
+
+	@Override
+	public void clear()
+	{
+		heads = new Entry [MIN_NUMBER_OF_BUCKETS];
+		tails = new Entry [MIN_NUMBER_OF_BUCKETS];
+		bucketMask = MIN_NUMBER_OF_BUCKETS - 1;
+		dayWidth = 1;
+		currentDayNumber = 0;
+		size = 0;
+		numberOfInsertions = 0;
+		freeEntries = null;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public SimEvent peek()
+	{
+		final Entry first = findFirst();
+		return first == null ? null : first.event;
+	}
+
+	@Override
+	public SimEvent poll()
+	{
+		final Entry first = findFirst();
+		if (first == null) return null;
+
+		final int bucket = (int) (first.dayNumber & bucketMask);
+		heads [bucket] = first.next;
+		if (first.next == null) tails [bucket] = null;
+		size --;
+
+		final SimEvent event = first.event;
+		recycle(first);
+
+		if (size < heads.length / 2 && heads.length > MIN_NUMBER_OF_BUCKETS) resize(heads.length / 2);
+
+		return event;
+	}
+
+	@Override
+	public boolean remove(SimEvent event)
+	{
+		if (size == 0) return false;
+
+		final int bucket = (int) (getDayNumber(event.getEventTime()) & bucketMask);
+		Entry previous = null;
+		for (Entry e = heads [bucket]; e != null; previous = e, e = e.next)
+		{
+			if (!e.event.equals(event)) continue;
+
+			if (previous == null) heads [bucket] = e.next; else previous.next = e.next;
+			if (tails [bucket] == e) tails [bucket] = previous;
+			size --;
+			recycle(e);
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public List<SimEvent> toList()
+	{
+		final List<SimEvent> res = new ArrayList<SimEvent>(size);
+		for (Entry head : heads)
+			for (Entry e = head; e != null; e = e.next)
+				res.add(e.event);
+		return res;
+	}
+
+	/* Returns the first entry, moving the current day to its day */
+	private Entry findFirst()
+	{
+		if (size == 0) return null;
+
+		/* Look for an event in the current day, and the following ones, for one year */
+		for (int day = 0; day < heads.length; day ++)
+		{
+			final Entry head = heads [(int) ((currentDayNumber + day) & bucketMask)];
+			if (head != null && head.dayNumber == currentDayNumber + day)
+			{
+				currentDayNumber += day;
+				return head;
+			}
+		}
+
+		/* No events in a whole year: direct search of the first event among the bucket heads */
+		Entry first = null;
+		for (Entry head : heads)
+			if (head != null && (first == null || precedes(head, first))) first = head;
+		currentDayNumber = first.dayNumber;
+		return first;
+	}
+
+	/* Inserts the entry in its bucket, keeping the bucket sorted. Appending at the end is O(1), as it is common that events are scheduled in time order */
+	private void insert(Entry e)
+	{
+		final int bucket = (int) (e.dayNumber & bucketMask);
+		final Entry head = heads [bucket];
+		if (head == null) { heads [bucket] = e; tails [bucket] = e; return; }
+		if (!precedes(e, tails [bucket])) { tails [bucket].next = e; tails [bucket] = e; return; }
+		if (precedes(e, head)) { e.next = head; heads [bucket] = e; return; }
+
+		Entry previous = head;
+		while (!precedes(e, previous.next)) previous = previous.next;
+		e.next = previous.next;
+		previous.next = e;
+	}
+
+	private void resize(int newNumberOfBuckets)
+	{
+		final Entry [] entries = new Entry [size];
+		int numEntries = 0;
+		for (Entry head : heads)
+			for (Entry e = head; e != null; e = e.next)
+				entries [numEntries ++] = e;
+
+		dayWidth = estimateDayWidth(entries);
+		heads = new Entry [newNumberOfBuckets];
+		tails = new Entry [newNumberOfBuckets];
+		bucketMask = newNumberOfBuckets - 1;
+
+		long firstDayNumber = Long.MAX_VALUE;
+		for (Entry e : entries)
+		{
+			e.next = null;
+			e.dayNumber = getDayNumber(e.time);
+			firstDayNumber = Math.min(firstDayNumber, e.dayNumber);
+			insert(e);
+		}
+		if (numEntries > 0) currentDayNumber = firstDayNumber;
+	}
+
+	/* The day width is three times the average separation between the first events, discarding the separations larger than twice the average */
+	private double estimateDayWidth(Entry [] entries)
+	{
+		final int numSamples = Math.min(NUMBER_OF_EVENTS_TO_ESTIMATE_WIDTH, entries.length);
+		if (numSamples < 2) return dayWidth;
+
+		final double [] firstTimes = new double [numSamples];
+		Arrays.fill(firstTimes, Double.MAX_VALUE);
+		for (Entry e : entries)
+		{
+			if (e.time >= firstTimes [numSamples - 1]) continue;
+			int position = numSamples - 1;
+			while (position > 0 && firstTimes [position - 1] > e.time) { firstTimes [position] = firstTimes [position - 1]; position --; }
+			firstTimes [position] = e.time;
+		}
+
+		final double averageSeparation = (firstTimes [numSamples - 1] - firstTimes [0]) / (numSamples - 1);
+		if (!(averageSeparation > 0) || Double.isInfinite(averageSeparation)) return dayWidth;
+
+		double sumOfSeparations = 0;
+		int numSeparations = 0;
+		for (int cont = 1; cont < numSamples; cont ++)
+		{
+			final double separation = firstTimes [cont] - firstTimes [cont - 1];
+			if (separation > 2 * averageSeparation) continue;
+			sumOfSeparations += separation;
+			numSeparations ++;
+		}
+
+		final double newDayWidth = 3 * sumOfSeparations / numSeparations;
+		return newDayWidth > 0 ? newDayWidth : 3 * averageSeparation;
+	}
+
+	private long getDayNumber(double time)
+	{
+		final double dayNumber = time / dayWidth;
+		return dayNumber >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) dayNumber;
+	}
+
+	private void recycle(Entry e)
+	{
+		e.event = null;
+		e.next = freeEntries;
+		freeEntries = e;
+	}
+
+	/* Order of the events: time, then priority (the higher, the first), then insertion order */
+	private static boolean precedes(Entry e1, Entry e2)
+	{
+		if (e1.time != e2.time) return e1.time < e2.time;
+		if (e1.priority != e2.priority) return e1.priority > e2.priority;
+		return e1.insertionOrder < e2.insertionOrder;
+	}
+}
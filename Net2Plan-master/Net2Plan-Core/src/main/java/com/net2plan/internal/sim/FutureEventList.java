@@ -23,7 +23,6 @@ import com.net2plan.interfaces.simulation.SimEvent;
 import com.net2plan.utils.StringUtils;
 
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.PriorityQueue;
 
 /**
@@ -37,12 +36,57 @@ import java.util.PriorityQueue;
  * <li>3. Insertion order (first in, first out)</li>
  * </ul>
  *
+ * <p>The pending events are kept in one of several {@link EventQueueType queue implementations}. The binary heap does not
+ * guarantee the insertion order of events with the same time and priority.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.2.0
  */
 public final class FutureEventList
 {
-	private final PriorityQueue<SimEvent> futureEventList;
+	/**
+	 * Implementations of the queue of pending events.
+	 *
+	 * @since 0.5.3
+	 */
+	public enum EventQueueType
+	{
+		/**
+		 * Binary heap: O(log n) per operation.
+		 *
+		 * @since 0.5.3
+		 */
+		BINARY_HEAP("heap"),
+
+		/**
+		 * Calendar queue: O(1) average time per operation, suited to simulations with many pending events.
+		 *
+		 * @since 0.5.3
+		 */
+		CALENDAR_QUEUE("calendar");
+
+		private final String label;
+		private EventQueueType(String label) { this.label = label; }
+
+		/**
+		 * Returns the queue type from its label, as used in the simulation parameters.
+		 *
+		 * @param label Label ("heap" or "calendar")
+		 * @return Queue type
+		 * @since 0.5.3
+		 */
+		public static EventQueueType fromLabel(String label)
+		{
+			for (EventQueueType type : values()) if (type.label.equalsIgnoreCase(label)) return type;
+			throw new Net2PlanException("Unknown future event list type: " + label);
+		}
+
+		@Override
+		public String toString() { return label; }
+	};
+
+	private IFutureEventQueue futureEventList;
+	private EventQueueType eventQueueType;
 	private double currentTime;
 	private long eventsProcessed;
 
@@ -53,7 +97,18 @@ public final class FutureEventList
 	 */
 	public FutureEventList()
 	{
-		futureEventList = new PriorityQueue<SimEvent>();
+		this(EventQueueType.BINARY_HEAP);
+	}
+
+	/**
+	 * Constructor using the given implementation for the queue of pending events.
+	 *
+	 * @param eventQueueType Queue implementation
+	 * @since 0.5.3
+	 */
+	public FutureEventList(EventQueueType eventQueueType)
+	{
+		setEventQueueType(eventQueueType);
 		reset();
 	}
 	
@@ -62,8 +117,7 @@ public final class FutureEventList
 	{
 		StringBuilder out = new StringBuilder();
 		
-		Iterator<SimEvent> it = futureEventList.iterator();
-		while(it.hasNext()) out.append(it.next());
+		for (SimEvent event : futureEventList.toList()) out.append(event);
 		
 		return out.toString();
 	}
@@ -188,15 +242,27 @@ public final class FutureEventList
 	/**
 	 * <p>Returns the whole future event list.</p>
 	 *
-	 * <p><b>Important</b>: It is the original future event list, changes by user
-	 * are not checked, so it is discouraged at all.</p>
+	 * <p><b>Important</b>: With the binary heap, it is the original future event list, changes by user
+	 * are not checked, so it is discouraged at all. With other implementations, it is a copy.</p>
 	 *
 	 * @return Future event list
 	 * @since 0.2.0
 	 */
 	public PriorityQueue<SimEvent> getPendingEvents()
 	{
-		return futureEventList;
+		if (futureEventList instanceof BinaryHeapEventQueue) return ((BinaryHeapEventQueue) futureEventList).getPriorityQueue();
+		return new PriorityQueue<SimEvent>(futureEventList.toList());
+	}
+
+	/**
+	 * Returns the implementation of the queue of pending events.
+	 *
+	 * @return Queue implementation
+	 * @since 0.5.3
+	 */
+	public EventQueueType getEventQueueType()
+	{
+		return eventQueueType;
 	}
 
 	/**
@@ -221,6 +287,32 @@ public final class FutureEventList
 		futureEventList.remove(event);
 	}
 
+	/**
+	 * Sets the implementation of the queue of pending events. Pending events, if any, are moved to the new queue.
+	 *
+	 * @param eventQueueType Queue implementation
+	 * @since 0.5.3
+	 */
+	public void setEventQueueType(EventQueueType eventQueueType)
+	{
+		if (eventQueueType == null) throw new Net2PlanException("The future event list type cannot be null");
+		if (eventQueueType == this.eventQueueType) return;
+
+		final IFutureEventQueue newFutureEventList;
+		switch (eventQueueType)
+		{
+			case BINARY_HEAP: newFutureEventList = new BinaryHeapEventQueue(); break;
+			case CALENDAR_QUEUE: newFutureEventList = new CalendarEventQueue(); break;
+			default: throw new RuntimeException("Bad");
+		}
+
+		if (futureEventList != null)
+			for (SimEvent event : futureEventList.toList()) newFutureEventList.add(event);
+
+		this.futureEventList = newFutureEventList;
+		this.eventQueueType = eventQueueType;
+	}
+
 	/**
 	 * Resets the future event list.
 	 *
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+
+import java.util.List;
+
+/**
+ * Priority queue holding the pending events of the {@link FutureEventList FutureEventList}. Events are returned by
+ * increasing event time, and then by decreasing priority.
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+interface IFutureEventQueue
+{
+	/**
+	 * Adds an event to the queue.
+	 *
+	 * @param event Event to add
+	 */
+	public void add(SimEvent event);
+
+	/**
+	 * Removes all the events.
+	 */
+	public void clear();
+
+	/**
+	 * Returns {@code true} if there are no events in the queue.
+	 *
+	 * @return See description above
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Returns the first event, without removing it.
+	 *
+	 * @return The first event (or null, if empty)
+	 */
+	public SimEvent peek();
+
+	/**
+	 * Removes and returns the first event.
+	 *
+	 * @return The first event (or null, if empty)
+	 */
+	public SimEvent poll();
+
+	/**
+	 * Removes the given event from the queue, if present.
+	 *
+	 * @param event Event to remove
+	 * @return {@code true} if the event was in the queue
+	 */
+	public boolean remove(SimEvent event);
+
+	/**
+	 * Returns the number of events in the queue.
+	 *
+	 * @return Number of events
+	 */
+	public int size();
+
+	/**
+	 * Returns the events in the queue, in no particular order.
+	 *
+	 * @return List of events
+	 */
+	public List<SimEvent> toList();
+}
@@ -89,8 +89,12 @@ public final class SimCore implements Runnable
 		}
 	};
 	
+	/* In the loop without user interaction, the CPU time is measured once per this number of events */
+	private static final int EVENTS_PER_CPU_TIME_MEASURE = 1024;
+
 	private final IEventCallback callback;
 	private final FutureEventList futureEventList;
+	private final Object stateMonitor = new Object();
 	private double cpuTime;
 	private double refreshTimeInSeconds;
 	private double timeSinceLastRefresh;
@@ -99,8 +103,8 @@ public final class SimCore implements Runnable
 	private double totalSimTime;
 	private double totalTransitoryTime;
 	private boolean isInTransitory;
-	private SimState simulationState;
-	private boolean processingEvent;
+	private volatile SimState simulationState;
+	private volatile boolean processingEvent;
 
 	/**
 	 * Default constructor.
@@ -123,6 +127,14 @@ public final class SimCore implements Runnable
 
 		isInTransitory = true;
 		if (totalTransitoryEvents == -1 && totalTransitoryTime == -1) isInTransitory = false;
+
+		/* In the CLI nobody else reads the network state or changes the simulation state while running */
+		if (SystemUtils.getUserInterface() == UserInterface.CLI)
+		{
+			runWithoutUserInteraction();
+			return;
+		}
+
 		while (simulationState != SimState.STOPPED)
 		{
 			while (futureEventList.hasMoreEvents())
@@ -221,21 +233,99 @@ public final class SimCore implements Runnable
 				setSimulationState(SimState.STOPPED, new EndSimulationException());
 			}
 
-			simulationState = SimState.PAUSED;
+			boolean interrupted = false;
+			synchronized (stateMonitor)
+			{
+				simulationState = SimState.PAUSED;
+
+				while (simulationState == SimState.PAUSED)
+				{
+					try
+					{
+						stateMonitor.wait();
+					}
+					catch (InterruptedException ex)
+					{
+						interrupted = true;
+						break;
+					}
+				}
+			}
+
+			if (interrupted) setSimulationState(SimState.STOPPED);
+		}
+	}
 
-			while (simulationState == SimState.PAUSED)
+	/* Event loop when the simulation cannot be paused, stepped or inspected: no monitor is taken per event, and the CPU time
+	 * (including the handling of the future event list) is measured once per EVENTS_PER_CPU_TIME_MEASURE events */
+	private void runWithoutUserInteraction()
+	{
+		long start = System.nanoTime();
+		int eventsSinceLastMeasure = 0;
+		while (futureEventList.hasMoreEvents())
+		{
+			double nextEventTime = futureEventList.getNextEventSimulationTime();
+
+			if (isInTransitory)
 			{
-				try
+				if (totalTransitoryTime != -1 && nextEventTime >= totalTransitoryTime)
+				{
+					finishTransitory(totalTransitoryTime);
+				}
+				else if (totalTransitoryEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalTransitoryEvents)
 				{
-					Thread.sleep(1);
+					finishTransitory(futureEventList.getCurrentSimulationTime());
 				}
-				catch (InterruptedException ex)
+			}
+
+			if ((totalSimTime != -1 && nextEventTime >= totalSimTime) || (totalSimEvents != -1 && futureEventList.getNumberOfProcessedEvents() == totalSimEvents))
+			{
+				cpuTime += ((double) (System.nanoTime() - start)) / 1e9;
+				setSimulationState(SimState.STOPPED, new EndSimulationException());
+				return;
+			}
+
+			SimEvent event = futureEventList.getNextEvent();
+			try
+			{
+				if (event == null) throw new RuntimeException("Event is a null object");
+				callback.processEvent(event);
+			}
+			catch (Throwable e)
+			{
+				cpuTime += ((double) (System.nanoTime() - start)) / 1e9;
+				setSimulationState(SimCore.SimState.STOPPED, e);
+				callback.refresh(true);
+				return;
+			}
+
+			if (++eventsSinceLastMeasure == EVENTS_PER_CPU_TIME_MEASURE)
+			{
+				long end = System.nanoTime();
+				cpuTime += ((double) (end - start)) / 1e9;
+				start = end;
+				eventsSinceLastMeasure = 0;
+
+				if (cpuTime - timeSinceLastRefresh >= refreshTimeInSeconds)
 				{
-					setSimulationState(SimState.STOPPED);
-					break;
+					callback.refresh(false);
+					timeSinceLastRefresh = cpuTime;
+					start = System.nanoTime();
 				}
 			}
+
+			if (futureEventList.getNumberOfProcessedEvents() == Long.MAX_VALUE || simulationState != SimState.RUNNING)
+			{
+				cpuTime += ((double) (System.nanoTime() - start)) / 1e9;
+				setSimulationState(SimState.STOPPED);
+				return;
+			}
 		}
+
+		cpuTime += ((double) (System.nanoTime() - start)) / 1e9;
+		callback.refresh(true);
+		timeSinceLastRefresh = cpuTime;
+		setSimulationState(SimState.STOPPED, new EndSimulationException());
 	}
 	
 	private void checkSimulationNotStartedYet()
@@ -317,6 +407,20 @@ public final class SimCore implements Runnable
 		setSimulationState(SimState.NOT_STARTED);
 	}
 	
+	/**
+	 * <p>Sets the implementation of the future event list.</p>
+	 *
+	 * <p><b>Important</b>: This method only can be executed before the simulation starts.</p>
+	 *
+	 * @param eventQueueType Implementation of the queue of pending events
+	 * @since 0.5.3
+	 */
+	public void setFutureEventListType(FutureEventList.EventQueueType eventQueueType)
+	{
+		checkSimulationNotStartedYet();
+		futureEventList.setEventQueueType(eventQueueType);
+	}
+
 	/**
 	 * <p>Sets the time to refresh the simulation log.</p>
 	 *
@@ -430,7 +534,11 @@ public final class SimCore implements Runnable
 
 	private void setSimulationState(SimState simulationState, Throwable reason)
 	{
-		this.simulationState = simulationState;
+		synchronized (stateMonitor)
+		{
+			this.simulationState = simulationState;
+			stateMonitor.notifyAll();
+		}
 		while (processingEvent)
 		{
 			try { Thread.sleep(1); }
@@ -32,6 +32,11 @@ import com.net2plan.utils.Triple;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 /**
  * Core-class for simulators. Users are only responsible to implement their
@@ -179,6 +184,10 @@ public class SimKernel implements IEventCallback
 		if (!simulationParameters.containsKey("simTime")) throw new Net2PlanException("'simTime' parameter is not configured");
 		double simTime = Double.parseDouble(simulationParameters.get("simTime"));
 		simCore.setTotalSimulationTime(simTime);
+
+		/* Optional, for backwards compatibility with callers building the parameter map by hand */
+		String futureEventListType = simulationParameters.get("futureEventList");
+		simCore.setFutureEventListType(futureEventListType == null ? FutureEventList.EventQueueType.BINARY_HEAP : FutureEventList.EventQueueType.fromLabel(futureEventListType));
 		
 		if (!getEventGeneratorClass().isAssignableFrom(eventGenerator.getClass())) throw new RuntimeException("Bad - Event generator is not an instance of " + getEventGeneratorClass().getName());
 		if (!getEventProcessorClass().isAssignableFrom(eventProcessor.getClass())) throw new RuntimeException("Bad - Event processor is not an instance of " + getEventProcessorClass().getName());
@@ -326,6 +335,7 @@ public class SimKernel implements IEventCallback
 		parameters.add(Triple.of("transitoryEvents", "-1", "Number of events for transitory period (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("simTime", "-1", "Total simulation time (in seconds, including transitory period) (-1 means no limit). In case that 'simTime' and 'simEvents' are specified, the transitory period will finish when one of the previous values is reached"));
 		parameters.add(Triple.of("transitoryTime", "-1", "Transitory time (in seconds) (-1 means no transitory period). In case that 'transitoryTime' and 'transitoryEvents' are specified, the transitory period will finish when one of the previous values is reached"));
+		parameters.add(Triple.of("futureEventList", "#select# heap calendar", "Implementation of the future event list: binary heap, or calendar queue (faster in long simulations with many pending events, and events with the same time and priority are processed in scheduling order)"));
 
 		return parameters;
 	}
@@ -423,7 +433,8 @@ public class SimKernel implements IEventCallback
 		((ISimExternal) eventGenerator).initialize(currentNetPlan, eventGeneratorParameters, simulationParameters, net2planParameters);
 		((ISimExternal) eventProcessor).initialize(currentNetPlan, eventProcessorParameters, simulationParameters, net2planParameters);
 		//if (!disableStatistics) stats = new SimStats(initialNetPlan, currentNetPlan.unmodifiableView(), simulationParameters, net2planParameters);
-		if (!disableStatistics) stats = new SimStats(currentNetPlan, simulationParameters, net2planParameters);
+		if (stats != null) stats.detachFromNetState();
+		stats = disableStatistics ? null : new SimStats(currentNetPlan, simulationParameters, net2planParameters);
 	}
 
 	/**
@@ -450,6 +461,7 @@ public class SimKernel implements IEventCallback
 		simCore.reset();
 		initializeNetState();
 		lastReason = null;
+		if (stats != null) stats.detachFromNetState();
 		stats = null;
 	}
 
@@ -518,6 +530,132 @@ public class SimKernel implements IEventCallback
 		return Pair.of(simKernel.getCurrentNetPlan(), simKernel.getSimulationReport());
 	}
 	
+	/**
+	 * <p>Runs independent replications of a simulation, in parallel. Each replication uses its own copy of the network design, its own
+	 * event generator and processor instances, and its own random seed: the 'randomSeed' parameter of the event generator and processor (if they have one,
+	 * and it is not -1) is increased by the replication index. Then, the first replication is identical to a {@link #runSimulation(SimKernel, NetPlan, IExternal, Properties, IExternal, Properties, Properties, Map) single simulation}.</p>
+	 *
+	 * @param netPlan Input network design
+	 * @param eventGeneratorFactory Returns a new event generator instance, for each replication
+	 * @param customEventGeneratorParameters Custom event generator parameters (null means empty)
+	 * @param eventProcessorFactory Returns a new event processor instance, for each replication
+	 * @param customEventProcessorParameters Custom event processor parameters (null means empty)
+	 * @param customSimulatorParameters Custom simulator parameters (null means empty)
+	 * @param net2planParameters Net2Plan parameters
+	 * @param numReplications Number of replications
+	 * @param numThreads Maximum number of replications running at the same time
+	 * @param confidenceLevel Confidence level of the merged results, in range (0, 1)
+	 * @return The simulation report of each replication, and the report with the merged statistics
+	 * @since 0.5.3
+	 */
+	public static Pair<List<String>, String> runReplications(final NetPlan netPlan, final Supplier<IExternal> eventGeneratorFactory, final Properties customEventGeneratorParameters, final Supplier<IExternal> eventProcessorFactory, final Properties customEventProcessorParameters, final Properties customSimulatorParameters, final Map<String, String> net2planParameters, final int numReplications, int numThreads, double confidenceLevel)
+	{
+		if (numReplications < 1) throw new Net2PlanException("The number of replications must be positive");
+		if (numThreads < 1) throw new Net2PlanException("The number of threads must be positive");
+		if (confidenceLevel <= 0 || confidenceLevel >= 1) throw new Net2PlanException("The confidence level must be in range (0, 1)");
+
+		/* Network design copies, and event generator and processor instances, are created one at a time */
+		final Object setupLock = new Object();
+		final long init = System.nanoTime();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, numReplications));
+		try
+		{
+			final List<Future<Pair<Map<String, Double>, String>>> replications = new ArrayList<Future<Pair<Map<String, Double>, String>>>();
+			for (int cont = 0; cont < numReplications; cont++)
+			{
+				final int replication = cont;
+				replications.add(executor.submit(() ->
+				{
+					final SimKernel simKernel = new SimKernel();
+					synchronized (setupLock)
+					{
+						/* Replications do not print their progress */
+						simKernel.setGUIListener(new IGUISimulationListener()
+						{
+							@Override
+							public void refresh(boolean forceRefresh) { }
+
+							@Override
+							public void simulationStateChanged(SimCore.SimState simulationState, Throwable reason) { }
+						});
+						simKernel.setNetPlan(netPlan.copy());
+
+						IExternal eventGenerator = eventGeneratorFactory.get();
+						IExternal eventProcessor = eventProcessorFactory.get();
+						Map<String, String> eventGeneratorParameters = getReplicationParameters(eventGenerator, customEventGeneratorParameters, replication);
+						Map<String, String> eventProcessorParameters = getReplicationParameters(eventProcessor, customEventProcessorParameters, replication);
+						Map<String, String> simulationParameters = CommandLineParser.getParameters(simKernel.getSimulationParameters(), customSimulatorParameters);
+						simKernel.configureSimulation(simulationParameters, net2planParameters, eventGenerator, eventGeneratorParameters, eventProcessor, eventProcessorParameters);
+					}
+
+					simKernel.initialize();
+					simKernel.getSimCore().setSimulationState(SimCore.SimState.RUNNING);
+					simKernel.getSimCore().run();
+					if (simKernel.lastReason != null && !(simKernel.lastReason instanceof EndSimulationException)) throw new RuntimeException(simKernel.lastReason);
+
+					double simTime = simKernel.getSimCore().getFutureEventList().getCurrentSimulationTime();
+					Map<String, Double> statistics = simKernel.stats == null ? new LinkedHashMap<String, Double>() : simKernel.stats.getResultsSummary(simTime);
+					String report = simKernel.getSimulationReport();
+					System.out.println(String.format("Replication %d of %d finished (%s)", replication + 1, numReplications, StringUtils.secondsToYearsDaysHoursMinutesSeconds(simKernel.getSimCore().getCPUTime())));
+					return Pair.of(statistics, report);
+				}));
+			}
+
+			final SimReplicationStats stats = new SimReplicationStats();
+			final List<String> reports = new ArrayList<String>();
+			for (Future<Pair<Map<String, Double>, String>> replication : replications)
+			{
+				Pair<Map<String, Double>, String> result = replication.get();
+				stats.addReplication(result.getFirst());
+				reports.add(result.getSecond());
+			}
+
+			double totalSimTimeInSeconds = (System.nanoTime() - init) / 1.0e9;
+			System.out.println(String.format("%n%n%d replications finished successfully in %s", numReplications, StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalSimTimeInSeconds)));
+
+			StringBuilder info = new StringBuilder();
+			info.append("<html><head><title>Simulation report</title></head>");
+			info.append("<body>");
+			info.append("<h1>General results</h1>");
+			info.append(stats.getResults(confidenceLevel));
+			info.append("</body>");
+			info.append("</html>");
+
+			return Pair.of(reports, info.toString());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new Net2PlanException("The simulation was interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof Net2PlanException) throw (Net2PlanException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/* Parameters of the event generator or processor in the given replication: the random seed, if any, is increased by the replication index */
+	private static Map<String, String> getReplicationParameters(IExternal module, Properties customParameters, int replication)
+	{
+		List<Triple<String, String, String>> defaultParameters = null;
+		try { defaultParameters = module.getParameters(); }
+		catch(UnsupportedOperationException ex) { }
+
+		Map<String, String> parameters = CommandLineParser.getParameters(defaultParameters, customParameters);
+		if (parameters.containsKey("randomSeed"))
+		{
+			long randomSeed = Long.parseLong(parameters.get("randomSeed"));
+			if (randomSeed != -1) parameters.put("randomSeed", Long.toString(randomSeed + replication));
+		}
+
+		return parameters;
+	}
+
 	/**
 	 *
 	 * @param stateListener State listener
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import org.apache.commons.math3.distribution.TDistribution;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the statistics of independent replications of a simulation (see {@link SimStats#getResultsSummary(double) SimStats.getResultsSummary}),
+ * reporting for each statistic the mean among replications, and its confidence interval from the Student's t distribution.
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+public final class SimReplicationStats
+{
+	private final Map<String, List<Double>> valuesPerStatistic;
+	private int numReplications;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @since 0.5.3
+	 */
+	public SimReplicationStats()
+	{
+		valuesPerStatistic = new LinkedHashMap<String, List<Double>>();
+		numReplications = 0;
+	}
+
+	/**
+	 * Adds the statistics of one replication. Statistics missing in some replications (e.g. layers that exist only in some of them) are
+	 * merged among the replications where they appear.
+	 *
+	 * @param statistics Statistic values of the replication
+	 * @since 0.5.3
+	 */
+	public void addReplication(Map<String, Double> statistics)
+	{
+		for (Map.Entry<String, Double> entry : statistics.entrySet())
+		{
+			List<Double> values = valuesPerStatistic.get(entry.getKey());
+			if (values == null) { values = new ArrayList<Double>(); valuesPerStatistic.put(entry.getKey(), values); }
+			values.add(entry.getValue());
+		}
+		numReplications ++;
+	}
+
+	/**
+	 * Returns the number of replications added.
+	 *
+	 * @return Number of replications
+	 * @since 0.5.3
+	 */
+	public int getNumberOfReplications()
+	{
+		return numReplications;
+	}
+
+	/**
+	 * Returns the mean of a statistic among the replications.
+	 *
+	 * @param statistic Statistic name
+	 * @return Mean value (NaN if the statistic was not reported)
+	 * @since 0.5.3
+	 */
+	public double getMean(String statistic)
+	{
+		final List<Double> values = valuesPerStatistic.get(statistic);
+		if (values == null) return Double.NaN;
+		double sum = 0; for (double value : values) sum += value;
+		return sum / values.size();
+	}
+
+	/**
+	 * Returns the half width of the confidence interval of the mean of a statistic among the replications.
+	 *
+	 * @param statistic Statistic name
+	 * @param confidenceLevel Confidence level, in range (0, 1) (e.g. 0.95)
+	 * @return Half width of the confidence interval (NaN if the statistic was reported by less than two replications)
+	 * @since 0.5.3
+	 */
+	public double getConfidenceIntervalHalfWidth(String statistic, double confidenceLevel)
+	{
+		if (confidenceLevel <= 0 || confidenceLevel >= 1) throw new Net2PlanException("The confidence level must be in range (0, 1)");
+		final List<Double> values = valuesPerStatistic.get(statistic);
+		if (values == null || values.size() < 2) return Double.NaN;
+
+		final int n = values.size();
+		final double mean = getMean(statistic);
+		double sumOfSquares = 0; for (double value : values) sumOfSquares += (value - mean) * (value - mean);
+		final double standardDeviation = Math.sqrt(sumOfSquares / (n - 1));
+		final double t = new TDistribution(n - 1).inverseCumulativeProbability(1 - (1 - confidenceLevel) / 2);
+		return t * standardDeviation / Math.sqrt(n);
+	}
+
+	/**
+	 * Returns a HTML table with the mean, the confidence interval, and the minimum and maximum value of each statistic among the replications.
+	 *
+	 * @param confidenceLevel Confidence level, in range (0, 1) (e.g. 0.95)
+	 * @return Statistics in HTML format
+	 * @since 0.5.3
+	 */
+	public String getResults(double confidenceLevel)
+	{
+		if (numReplications == 0) return "<p>No replication was finished</p>";
+		if (valuesPerStatistic.isEmpty()) return "<p>No statistics were collected (no event was processed, or 'disableStatistics' was set to 'true')</p>";
+
+		StringBuilder info = new StringBuilder();
+		info.append(String.format("<p>Results of %d independent replications, with %.1f %% confidence intervals of the mean</p>", numReplications, 100 * confidenceLevel));
+		info.append("<center><table border='1'><tr><th>Statistic</th><th>Mean</th><th>Confidence interval</th><th>Min</th><th>Max</th><th>Replications</th></tr>");
+		for (Map.Entry<String, List<Double>> entry : valuesPerStatistic.entrySet())
+		{
+			final String statistic = entry.getKey();
+			final List<Double> values = entry.getValue();
+			double min = Double.MAX_VALUE; double max = -Double.MAX_VALUE;
+			for (double value : values) { min = Math.min(min, value); max = Math.max(max, value); }
+			final double mean = getMean(statistic);
+			final double halfWidth = getConfidenceIntervalHalfWidth(statistic, confidenceLevel);
+			info.append(String.format("<tr><td>%s</td><td>%.6f</td><td>%s</td><td>%.6f</td><td>%.6f</td><td>%d</td></tr>", statistic, mean, Double.isNaN(halfWidth) ? "-" : String.format("%.6f &plusmn; %.6f", mean, halfWidth), min, max, values.size()));
+		}
+		info.append("</table></center>");
+
+		return info.toString();
+	}
+}
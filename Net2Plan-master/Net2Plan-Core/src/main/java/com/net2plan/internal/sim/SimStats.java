@@ -1,7 +1,7 @@
 /*******************************************************************************
  * Copyright (c) 2017 Pablo Pavon Marino and others.
  * All rights reserved. This program and the accompanying materials
- * are made available under the terms of the 2-clause BSD License 
+ * are made available under the terms of the 2-clause BSD License
  * which accompanies this distribution, and is available at
  * https://opensource.org/licenses/BSD-2-Clause
  *
@@ -11,7 +11,7 @@
 
 
 
- 
+
 
 
 
@@ -19,9 +19,9 @@
 package com.net2plan.internal.sim;
 
 import com.net2plan.interfaces.networkDesign.*;
+import com.net2plan.internal.ErrorHandling;
 import com.net2plan.utils.HTMLUtils;
 import com.net2plan.utils.StringUtils;
-import org.apache.commons.lang3.mutable.MutableDouble;
 import org.codehaus.stax2.XMLOutputFactory2;
 import org.codehaus.stax2.XMLStreamWriter2;
 
@@ -33,57 +33,60 @@ import java.util.*;
 /**
  * Abstract class defining a template for statistics classes for simulations.
  *
+ * <p>Statistics are updated incrementally. The object listens to the changes in the network state, and each call to {@link #computeNextState(double) computeNextState}
+ * only updates the nodes, links and demands changed since the previous call. Each element keeps, in a row of primitive values, its state in the
+ * last update and its time-weighted accumulators: the state of an element is accumulated when it changes, or when the results are requested.
+ * Layer totals are updated with the differences in the updated elements.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  * @since 0.2.3
  */
 public class SimStats
 {
+	/* Columns of the node rows */
+	private static final int NODE_LASTUPDATETIME = 0, NODE_ISUP = 1, NODE_UPTIME = 2, NODE_TOTALTIME = 3;
+	private static final double [] NODE_INITIALROW = { Double.NaN, 0, 0, 0 };
+
+	/* Columns of the node rows, in a given layer. Minimum and maximum columns follow each accumulator column */
+	private static final int NODELAYER_LASTUPDATETIME = 0, NODELAYER_INDEGREE = 1, NODELAYER_OUTDEGREE = 2, NODELAYER_INGRESSTRAFFIC = 3, NODELAYER_EGRESSTRAFFIC = 4;
+	private static final int NODELAYER_ACCUM_INDEGREE = 5, NODELAYER_ACCUM_OUTDEGREE = 8, NODELAYER_ACCUM_INGRESSTRAFFIC = 11, NODELAYER_ACCUM_EGRESSTRAFFIC = 14;
+	private static final double [] NODELAYER_INITIALROW = { Double.NaN, 0, 0, 0, 0, 0, Integer.MAX_VALUE, 0, 0, Integer.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0 };
+
+	/* Columns of the link rows. Minimum and maximum columns follow each accumulator column */
+	private static final int LINK_LASTUPDATETIME = 0, LINK_ISUP = 1, LINK_LENGTHINKM = 2, LINK_CAPACITY = 3, LINK_OCCUPIEDCAPACITY = 4;
+	private static final int LINK_ACCUM_LENGTHINKM = 5, LINK_ACCUM_CAPACITY = 8, LINK_ACCUM_OCCUPIEDCAPACITY = 11, LINK_ACCUM_UTILIZATION = 14, LINK_ACCUM_OVERSUBSCRIBEDCAPACITY = 17;
+	private static final int LINK_OVERSUBSCRIBEDTIME = 20, LINK_UPTIME = 21, LINK_TOTALTIME = 22;
+	private static final double [] LINK_INITIALROW = { Double.NaN, 0, 0, 0, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, 0, 0 };
+
+	/* Columns of the demand rows. Minimum and maximum columns follow each accumulator column */
+	private static final int DEMAND_LASTUPDATETIME = 0, DEMAND_OFFEREDTRAFFIC = 1, DEMAND_CARRIEDTRAFFIC = 2;
+	private static final int DEMAND_ACCUM_OFFEREDTRAFFIC = 3, DEMAND_ACCUM_CARRIEDTRAFFIC = 6, DEMAND_ACCUM_BLOCKEDTRAFFIC = 9, DEMAND_ACCUM_EXCESSCARRIEDTRAFFIC = 12;
+	private static final int DEMAND_AVAILABILITYCLASSIC = 15, DEMAND_AVAILABILITYWEIGHTED = 16, DEMAND_EXCESSCARRIEDTRAFFICTIME = 17, DEMAND_TOTALTIME = 18;
+	private static final double [] DEMAND_INITIALROW = { Double.NaN, 0, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, Double.MAX_VALUE, 0, 0, 0, 0, 0 };
+
 	/* Input and Net2Plan-wide parameters */
 	private final double precisionFactor;
-	
+
 	private final NetPlan netState;
+	private final INetPlanStateListener netStateListener;
 
 	private double lastEventTime, transitoryTime;
-	
-	private Set<Long> previousState_layerIds;
-	private Set<Long> previousState_nodeIds, previousState_nodeDownIds;
-	private Map<Long, Set<Long>> previousState_linkIds, previousState_linkDownIds, previousState_demandIds;
-	
+
 	/* Network information */
 	private double accum_avgNumLayers, accum_avgNumNodes;
 	private int maxNumLayers, maxNumNodes, minNumLayers, minNumNodes;
-	
-	/* Layer information */
-	private Map<Long, MutableDouble> accum_layerTotalTime, accum_avgNumLinks, accum_avgNumDemands, accum_avgTotalOfferedTraffic, maxTotalOfferedTraffic, minTotalOfferedTraffic, accum_avgTotalCarriedTraffic, maxTotalCarriedTraffic, minTotalCarriedTraffic, accum_avgTotalCapacity, maxTotalCapacity, minTotalCapacity, accum_avgCongestion, maxCongestion, minCongestion, accum_availabilityClassic, accum_availabilityWeighted, worstDemandAvailabilityClassic, worstDemandAvailabilityWeighted;
-	private Map<Long, Integer> maxNumLinks, minNumLinks, maxNumDemands, minNumDemands;
-	
-	/* Node information */
-	private Map<Long, MutableDouble> accum_nodeUpTime, accum_nodeTotalTime;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgNodeInDegree, accum_avgNodeOutDegree, accum_avgNodeIngressTraffic, accum_avgNodeEgressTraffic;
-	private Map<Long, Map<Long, Double>> previousState_nodeIngressTraffic, previousState_nodeEgressTraffic, maxNodeIngressTraffic, minNodeIngressTraffic, maxNodeEgressTraffic, minNodeEgressTraffic;
-	private Map<Long, Map<Long, Integer>> previousState_nodeInDegree, previousState_nodeOutDegree, maxNodeInDegree, maxNodeOutDegree, minNodeInDegree, minNodeOutDegree;
-	
-	/* Link information */
-	private Map<Long, Map<Long, Double>> previousState_linkLengthInKm, previousState_linkCapacity, previousState_linkOccupiedCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgLinkLengthInKm, minLinkLengthInKm, maxLinkLengthInKm;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgCapacity, minCapacity, maxCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgLinkOccupiedCapacity, minLinkOccupiedCapacity, maxLinkOccupiedCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgUtilization, minUtilization, maxUtilization;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgOversubscribedCapacity, minOversubscribedCapacity, maxOversubscribedCapacity;
-	private Map<Long, Map<Long, MutableDouble>> accum_linkOversubscribedTime, accum_linkUpTime, accum_linkTotalTime;
-	
-	/* Demand information */
-	private Map<Long, Map<Long, Double>> previousState_demandOfferedTraffic, previousState_demandCarriedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgDemandOfferedTraffic, minDemandOfferedTraffic, maxDemandOfferedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgDemandCarriedTraffic, minDemandCarriedTraffic, maxDemandCarriedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgDemandBlockedTraffic, minDemandBlockedTraffic, maxDemandBlockedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_avgExcessCarriedTraffic, minDemandExcessCarriedTraffic, maxDemandExcessCarriedTraffic;
-	private Map<Long, Map<Long, MutableDouble>> accum_demandAvailabilityClassic, accum_demandAvailabilityWeighted;
-	private Map<Long, Map<Long, MutableDouble>> excessDemandCarriedTrafficTime, demandTotalTime;
-	
+	private int previousState_numLayers, previousState_numNodes;
+
+	/* Node information: one row per node, in the order of the node indexes */
+	private StatsTable nodeStats;
+	private Set<Node> nodesToUpdate;
+
+	/* Layer information: one object per layer, in the order of the layer indexes */
+	private List<LayerStats> layerStats;
+
 	/**
 	 * Default constructor.
-	 * 
+	 *
 	 * @param netState Reference to the current network state
 	 * @param simulationParameters A key-value map with simulation options
 	 * @param net2planParameters A key-value map with {@code Net2Plan}-wide configuration options
@@ -93,172 +96,36 @@ public class SimStats
 	{
 		this.netState = netState;
 		precisionFactor = Double.parseDouble(net2planParameters.get("precisionFactor"));
-		
-		reset(0);
-	}
-	
-	private void checkAndCreateDemand(long layerId, long demandId)
-	{
-		if (!accum_avgDemandOfferedTraffic.get(layerId).containsKey(demandId))
-		{
-			/* Initialize demand information */
-			accum_avgDemandOfferedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandOfferedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandOfferedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_avgDemandCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandCarriedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_avgDemandBlockedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandBlockedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandBlockedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_avgExcessCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			minDemandExcessCarriedTraffic.get(layerId).put(demandId, new MutableDouble(Double.MAX_VALUE));
-			maxDemandExcessCarriedTraffic.get(layerId).put(demandId, new MutableDouble());
-			accum_demandAvailabilityClassic.get(layerId).put(demandId, new MutableDouble());
-			accum_demandAvailabilityWeighted.get(layerId).put(demandId, new MutableDouble());
-			excessDemandCarriedTrafficTime.get(layerId).put(demandId, new MutableDouble());
-			demandTotalTime.get(layerId).put(demandId, new MutableDouble());
-		}
-	}
 
-	private void checkAndCreateLayer(long layerId)
-	{
-		if (!accum_avgLinkLengthInKm.containsKey(layerId))
+		netStateListener = new INetPlanStateListener()
 		{
-			/* Initialize layer information */
-			accum_layerTotalTime.put(layerId, new MutableDouble());
-			accum_avgNumLinks.put(layerId, new MutableDouble());
-			accum_avgNumDemands.put(layerId, new MutableDouble());
-			accum_avgTotalOfferedTraffic.put(layerId, new MutableDouble());
-			maxTotalOfferedTraffic.put(layerId, new MutableDouble());
-			minTotalOfferedTraffic.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_avgTotalCarriedTraffic.put(layerId, new MutableDouble());
-			maxTotalCarriedTraffic.put(layerId, new MutableDouble());
-			minTotalCarriedTraffic.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_avgTotalCapacity.put(layerId, new MutableDouble());
-			maxTotalCapacity.put(layerId, new MutableDouble());
-			minTotalCapacity.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_avgCongestion.put(layerId, new MutableDouble());
-			maxCongestion.put(layerId, new MutableDouble());
-			minCongestion.put(layerId, new MutableDouble(Double.MAX_VALUE));
-			accum_availabilityClassic.put(layerId, new MutableDouble());
-			accum_availabilityWeighted.put(layerId, new MutableDouble());
-			worstDemandAvailabilityClassic.put(layerId, new MutableDouble(1));
-			worstDemandAvailabilityWeighted.put(layerId, new MutableDouble(1));
-			maxNumLinks.put(layerId, 0);
-			minNumLinks.put(layerId, Integer.MAX_VALUE);
-			maxNumDemands.put(layerId, 0);
-			minNumDemands.put(layerId, Integer.MAX_VALUE);
-
-			/* Initialize node information in this layer */
-			accum_avgNodeInDegree.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minNodeInDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			maxNodeInDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			accum_avgNodeOutDegree.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minNodeOutDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			maxNodeOutDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			accum_avgNodeIngressTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxNodeIngressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			minNodeIngressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			accum_avgNodeEgressTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxNodeEgressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			minNodeEgressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-
-			/* Initialize link information in this layer */
-			accum_avgLinkLengthInKm.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minLinkLengthInKm.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxLinkLengthInKm.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgLinkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minLinkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxLinkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgUtilization.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minUtilization.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxUtilization.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgOversubscribedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minOversubscribedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxOversubscribedCapacity.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_linkOversubscribedTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_linkUpTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_linkTotalTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-
-			/* Initialize demand information in this layer */
-			accum_avgDemandOfferedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandOfferedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandOfferedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgDemandCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgDemandBlockedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandBlockedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandBlockedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_avgExcessCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			minDemandExcessCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			maxDemandExcessCarriedTraffic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_demandAvailabilityClassic.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			accum_demandAvailabilityWeighted.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			excessDemandCarriedTrafficTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-			demandTotalTime.put(layerId, new LinkedHashMap<Long, MutableDouble>());
-		}
-	}
+			@Override
+			public void elementAdded(NetworkElement e) { SimStats.this.elementAdded(e); }
 
-	private void checkAndCreateLink(long layerId, long linkId)
-	{
-		if (!accum_avgLinkLengthInKm.get(layerId).containsKey(linkId))
-		{
-			/* Initialize link information */
-			accum_avgLinkLengthInKm.get(layerId).put(linkId, new MutableDouble());
-			minLinkLengthInKm.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxLinkLengthInKm.get(layerId).put(linkId, new MutableDouble());
-			accum_avgCapacity.get(layerId).put(linkId, new MutableDouble());
-			minCapacity.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxCapacity.get(layerId).put(linkId, new MutableDouble());
-			accum_avgLinkOccupiedCapacity.get(layerId).put(linkId, new MutableDouble());
-			minLinkOccupiedCapacity.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxLinkOccupiedCapacity.get(layerId).put(linkId, new MutableDouble());
-			accum_avgUtilization.get(layerId).put(linkId, new MutableDouble());
-			minUtilization.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxUtilization.get(layerId).put(linkId, new MutableDouble());
-			accum_avgOversubscribedCapacity.get(layerId).put(linkId, new MutableDouble());
-			minOversubscribedCapacity.get(layerId).put(linkId, new MutableDouble(Double.MAX_VALUE));
-			maxOversubscribedCapacity.get(layerId).put(linkId, new MutableDouble());
-			accum_linkOversubscribedTime.get(layerId).put(linkId, new MutableDouble());
-			accum_linkUpTime.get(layerId).put(linkId, new MutableDouble());
-			accum_linkTotalTime.get(layerId).put(linkId, new MutableDouble());
-		}
-	}
-	
-	private void checkAndCreateNode(long nodeId)
-	{
-		if (!accum_nodeUpTime.containsKey(nodeId))
-		{
-			/* Initialize node information */
-			accum_nodeUpTime.put(nodeId, new MutableDouble());
-			accum_nodeTotalTime.put(nodeId, new MutableDouble());
-		}
+			@Override
+			public void elementToBeRemoved(NetworkElement e) { SimStats.this.elementToBeRemoved(e); }
+
+			@Override
+			public void elementStateChanged(NetworkElement e) { SimStats.this.elementStateChanged(e); }
+
+			@Override
+			public void allElementsReplaced() { SimStats.this.allElementsReplaced(); }
+		};
+		netState.addStateListener(netStateListener);
+
+		reset(0);
 	}
-	
-	private void checkAndCreateNode(long layerId, long nodeId)
+
+	/**
+	 * Stops listening to the changes in the network state. Statistics are not updated anymore after this call.
+	 *
+	 * @since 0.5.2
+	 */
+	public void detachFromNetState()
 	{
-		if (!accum_avgNodeInDegree.get(layerId).containsKey(nodeId))
-		{
-			accum_avgNodeInDegree.get(layerId).put(nodeId, new MutableDouble());
-			minNodeInDegree.get(layerId).put(nodeId, Integer.MAX_VALUE);
-			maxNodeInDegree.get(layerId).put(nodeId, 0);
-			accum_avgNodeOutDegree.get(layerId).put(nodeId, new MutableDouble());
-			minNodeOutDegree.get(layerId).put(nodeId, Integer.MAX_VALUE);
-			maxNodeOutDegree.get(layerId).put(nodeId, 0);
-			accum_avgNodeIngressTraffic.get(layerId).put(nodeId, new MutableDouble());
-			maxNodeIngressTraffic.get(layerId).put(nodeId, 0.0);
-			minNodeIngressTraffic.get(layerId).put(nodeId, Double.MAX_VALUE);
-			accum_avgNodeEgressTraffic.get(layerId).put(nodeId, new MutableDouble());
-			maxNodeEgressTraffic.get(layerId).put(nodeId, 0.0);
-			minNodeEgressTraffic.get(layerId).put(nodeId, Double.MAX_VALUE);
-		}
+		netState.removeStateListener(netStateListener);
 	}
-	
+
 	/**
 	 * Computes statistics for the current simulation time.
 	 *
@@ -274,410 +141,63 @@ public class SimStats
 			 * Update metrics:
 			 * - Cumulative metrics: accum += previous * timeInterval
 			 * - Max/min metrics: metric = max/min(metric, previous)
+			 * Node, link and demand metrics are updated later, only for the elements that changed
 			 */
 			double timeInterval = simTime - lastEventTime;
 
 			/* Network metrics */
-			int numLayers = previousState_layerIds.size();
-			accum_avgNumLayers += numLayers * timeInterval;
-			minNumLayers = Math.min(numLayers, minNumLayers);
-			maxNumLayers = Math.max(numLayers, maxNumLayers);
-
-			int numNodes = previousState_nodeIds.size();
-			accum_avgNumNodes += numNodes * timeInterval;
-			minNumNodes = Math.min(numNodes, minNumNodes);
-			maxNumNodes = Math.max(numNodes, maxNumNodes);
-			
-			for(long nodeId : previousState_nodeIds)
-			{
-				checkAndCreateNode(nodeId);
-
-				if (netState.getNodeFromId (nodeId) != null)
-				{
-					if (!previousState_nodeDownIds.contains(nodeId)) accum_nodeUpTime.get(nodeId).add(timeInterval);
-					accum_nodeTotalTime.get(nodeId).add(timeInterval);
-				}
-				else
-				{
-					accum_nodeUpTime.remove(nodeId);
-					accum_nodeTotalTime.remove(nodeId);
-				}
-			}
+			accum_avgNumLayers += previousState_numLayers * timeInterval;
+			minNumLayers = Math.min(previousState_numLayers, minNumLayers);
+			maxNumLayers = Math.max(previousState_numLayers, maxNumLayers);
 
-			for(long layerId : previousState_layerIds)
-			{
-				checkAndCreateLayer(layerId);
+			accum_avgNumNodes += previousState_numNodes * timeInterval;
+			minNumNodes = Math.min(previousState_numNodes, minNumNodes);
+			maxNumNodes = Math.max(previousState_numNodes, maxNumNodes);
 
-				if (netState.getNetworkLayerFromId (layerId) != null)
-				{
-					accum_layerTotalTime.get(layerId).add(timeInterval);
-
-					for(long nodeId : previousState_nodeIds)
-					{
-						checkAndCreateNode(layerId, nodeId);
-
-						if (netState.getNodeFromId (nodeId) != null)
-						{
-							int nodeInDegree = previousState_nodeInDegree.get(layerId).get(nodeId);
-							accum_avgNodeInDegree.get(layerId).get(nodeId).add(nodeInDegree * timeInterval);
-							minNodeInDegree.get(layerId).put(nodeId, Math.min(nodeInDegree, minNodeInDegree.get(layerId).get(nodeId)));
-							maxNodeInDegree.get(layerId).put(nodeId, Math.max(nodeInDegree, maxNodeInDegree.get(layerId).get(nodeId)));
-
-							int nodeOutDegree = previousState_nodeOutDegree.get(layerId).get(nodeId);
-							accum_avgNodeOutDegree.get(layerId).get(nodeId).add(nodeOutDegree * timeInterval);
-							minNodeOutDegree.get(layerId).put(nodeId, Math.min(nodeInDegree, minNodeOutDegree.get(layerId).get(nodeId)));
-							maxNodeOutDegree.get(layerId).put(nodeId, Math.max(nodeInDegree, maxNodeOutDegree.get(layerId).get(nodeId)));
-
-							double nodeIngressTraffic = previousState_nodeIngressTraffic.get(layerId).get(nodeId);
-							accum_avgNodeIngressTraffic.get(layerId).get(nodeId).add(nodeIngressTraffic * timeInterval);
-							minNodeIngressTraffic.get(layerId).put(nodeId, Math.min(nodeIngressTraffic, minNodeIngressTraffic.get(layerId).get(nodeId)));
-							maxNodeIngressTraffic.get(layerId).put(nodeId, Math.max(nodeIngressTraffic, maxNodeIngressTraffic.get(layerId).get(nodeId)));
-
-							double nodeEgressTraffic = previousState_nodeEgressTraffic.get(layerId).get(nodeId);
-							accum_avgNodeEgressTraffic.get(layerId).get(nodeId).add(nodeEgressTraffic * timeInterval);
-							minNodeEgressTraffic.get(layerId).put(nodeId, Math.min(nodeEgressTraffic, minNodeEgressTraffic.get(layerId).get(nodeId)));
-							maxNodeEgressTraffic.get(layerId).put(nodeId, Math.max(nodeEgressTraffic, maxNodeEgressTraffic.get(layerId).get(nodeId)));
-
-						}
-						else
-						{
-							accum_avgNodeInDegree.get(layerId).remove(nodeId);
-							minNodeInDegree.get(layerId).remove(nodeId);
-							maxNodeInDegree.get(layerId).remove(nodeId);
-							accum_avgNodeOutDegree.get(layerId).remove(nodeId);
-							minNodeOutDegree.get(layerId).remove(nodeId);
-							maxNodeOutDegree.get(layerId).remove(nodeId);
-							accum_avgNodeIngressTraffic.get(layerId).remove(nodeId);
-							maxNodeIngressTraffic.get(layerId).remove(nodeId);
-							minNodeIngressTraffic.get(layerId).remove(nodeId);
-							accum_avgNodeEgressTraffic.get(layerId).remove(nodeId);
-							maxNodeEgressTraffic.get(layerId).remove(nodeId);
-							minNodeEgressTraffic.get(layerId).remove(nodeId);
-						}
-					}
-					
-					Set<Long> previousState_linkIds_thisLayer = previousState_linkIds.get(layerId);
-					int numLinks = previousState_linkIds_thisLayer.size();
-					accum_avgNumLinks.get(layerId).add(numLinks * timeInterval);
-					maxNumLinks.put(layerId, Math.max(numLinks, maxNumLinks.get(layerId)));
-					minNumLinks.put(layerId, Math.min(numLinks, minNumLinks.get(layerId)));
-					
-					Set<Long> previousState_demandIds_thisLayer = previousState_demandIds.get(layerId);
-					int numDemands = previousState_demandIds_thisLayer.size();
-					accum_avgNumDemands.get(layerId).add(numDemands * timeInterval);
-					maxNumDemands.put(layerId, Math.max(numDemands, maxNumDemands.get(layerId)));
-					minNumDemands.put(layerId, Math.min(numDemands, minNumDemands.get(layerId)));
-
-					double totalCapacityInstalled = 0;
-					double congestion = 0;
-					
-					Set<Long> previousState_linkDownIds_thisLayer = previousState_linkDownIds.get(layerId);
-					Map<Long, Double> previousState_linkCapacity_thisLayer = previousState_linkCapacity.get(layerId);
-					Map<Long, Double> previousState_linkOccupiedCapacity_thisLayer = previousState_linkOccupiedCapacity.get(layerId);
-					Map<Long, Double> previousState_linkLengthInKm_thisLayer = previousState_linkLengthInKm.get(layerId);
-					for(long linkId : previousState_linkIds_thisLayer)
-					{
-						double u_e = previousState_linkCapacity_thisLayer.get(linkId);
-						double y_e = previousState_linkOccupiedCapacity_thisLayer.get(linkId);
-						double rho_e = y_e == 0 ? 0 : Math.max(y_e / u_e, 0);
-						
-						totalCapacityInstalled += u_e;
-						congestion = Math.max(congestion, rho_e);
-						
-						checkAndCreateLink(layerId, linkId);
-
-						if (netState.getLinkFromId (linkId) != null)
-						{
-							double l_e = previousState_linkLengthInKm_thisLayer.get(linkId);
-							double oversubscribedCapacity = y_e - u_e; if (oversubscribedCapacity < precisionFactor) oversubscribedCapacity = 0;
-
-							accum_avgLinkLengthInKm.get(layerId).get(linkId).add(l_e * timeInterval);
-							minLinkLengthInKm.get(layerId).get(linkId).setValue(Math.min(minLinkLengthInKm.get(layerId).get(linkId).doubleValue(), l_e));
-							maxLinkLengthInKm.get(layerId).get(linkId).setValue(Math.max(maxLinkLengthInKm.get(layerId).get(linkId).doubleValue(), l_e));
-							accum_avgCapacity.get(layerId).get(linkId).add(u_e * timeInterval);
-							minCapacity.get(layerId).get(linkId).setValue(Math.min(minCapacity.get(layerId).get(linkId).doubleValue(), u_e));
-							maxCapacity.get(layerId).get(linkId).setValue(Math.max(maxCapacity.get(layerId).get(linkId).doubleValue(), u_e));
-							accum_avgLinkOccupiedCapacity.get(layerId).get(linkId).add(y_e * timeInterval);
-							minLinkOccupiedCapacity.get(layerId).get(linkId).setValue(Math.min(minLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue(), y_e));
-							maxLinkOccupiedCapacity.get(layerId).get(linkId).setValue(Math.max(maxLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue(), y_e));
-							accum_avgUtilization.get(layerId).get(linkId).add(rho_e * timeInterval);
-							minUtilization.get(layerId).get(linkId).setValue(Math.min(minUtilization.get(layerId).get(linkId).doubleValue(), rho_e));
-							maxUtilization.get(layerId).get(linkId).setValue(Math.max(maxUtilization.get(layerId).get(linkId).doubleValue(), rho_e));
-							accum_avgOversubscribedCapacity.get(layerId).get(linkId).add(oversubscribedCapacity * timeInterval);
-							minOversubscribedCapacity.get(layerId).get(linkId).setValue(Math.min(minOversubscribedCapacity.get(layerId).get(linkId).doubleValue(), oversubscribedCapacity));
-							maxOversubscribedCapacity.get(layerId).get(linkId).setValue(Math.max(maxOversubscribedCapacity.get(layerId).get(linkId).doubleValue(), oversubscribedCapacity));
-							if (oversubscribedCapacity > 0) accum_linkOversubscribedTime.get(layerId).get(linkId).add(timeInterval);
-							if (!previousState_linkDownIds_thisLayer.contains(linkId)) accum_linkUpTime.get(layerId).get(linkId).add(timeInterval);
-							accum_linkTotalTime.get(layerId).get(linkId).add(timeInterval);
-						}
-						else
-						{
-							accum_avgLinkLengthInKm.get(layerId).remove(linkId);
-							minLinkLengthInKm.get(layerId).remove(linkId);
-							maxLinkLengthInKm.get(layerId).remove(linkId);
-							accum_avgCapacity.get(layerId).remove(linkId);
-							minCapacity.get(layerId).remove(linkId);
-							maxCapacity.get(layerId).remove(linkId);
-							accum_avgLinkOccupiedCapacity.get(layerId).remove(linkId);
-							minLinkOccupiedCapacity.get(layerId).remove(linkId);
-							maxLinkOccupiedCapacity.get(layerId).remove(linkId);
-							accum_avgUtilization.get(layerId).remove(linkId);
-							minUtilization.get(layerId).remove(linkId);
-							maxUtilization.get(layerId).remove(linkId);
-							accum_avgOversubscribedCapacity.get(layerId).remove(linkId);
-							minOversubscribedCapacity.get(layerId).remove(linkId);
-							maxOversubscribedCapacity.get(layerId).remove(linkId);
-							accum_linkOversubscribedTime.get(layerId).remove(linkId);
-							accum_linkUpTime.get(layerId).remove(linkId);
-							accum_linkTotalTime.get(layerId).remove(linkId);
-						}
-					}
-					
-					accum_avgTotalCapacity.get(layerId).add(totalCapacityInstalled * timeInterval);
-					maxTotalCapacity.get(layerId).setValue(Math.max(totalCapacityInstalled, maxTotalCapacity.get(layerId).doubleValue()));
-					minTotalCapacity.get(layerId).setValue(Math.min(totalCapacityInstalled, minTotalCapacity.get(layerId).doubleValue()));
-					accum_avgCongestion.get(layerId).add(congestion * timeInterval);
-					maxCongestion.get(layerId).setValue(Math.max(congestion, maxCongestion.get(layerId).doubleValue()));
-					minCongestion.get(layerId).setValue(Math.min(congestion, minCongestion.get(layerId).doubleValue()));
-					
-					double totalOfferedTraffic = 0;
-					double totalCarriedTraffic = 0;
-					double totalBlockedTraffic = 0;
-
-					double worstDemandAvailabilityClassic_thisLayer = 1;
-					double worstDemandAvailabilityWeighted_thisLayer = 1;
-
-					Map<Long, Double> previousState_demandOfferedTraffic_thislayer = previousState_demandOfferedTraffic.get(layerId);
-					Map<Long, Double> previousState_demandCarriedTraffic_thisLayer = previousState_demandCarriedTraffic.get(layerId);
-					for(long demandId : previousState_demandIds_thisLayer)
-					{
-						double h_d = previousState_demandOfferedTraffic_thislayer.get(demandId);
-						double r_d = previousState_demandCarriedTraffic_thisLayer.get(demandId);
-						double blockedTraffic_d = h_d - r_d; if (blockedTraffic_d < precisionFactor) blockedTraffic_d = 0;
-						totalOfferedTraffic += h_d;
-						totalCarriedTraffic += r_d;
-						totalBlockedTraffic += blockedTraffic_d;
-						
-						checkAndCreateDemand(layerId, demandId);
-							
-						if (netState.getDemandFromId (demandId) != null)
-						{
-							double excessCarriedTraffic_d = r_d - h_d; if (excessCarriedTraffic_d < precisionFactor) excessCarriedTraffic_d = 0;
-
-							accum_avgDemandOfferedTraffic.get(layerId).get(demandId).add(h_d * timeInterval);
-							minDemandOfferedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandOfferedTraffic.get(layerId).get(demandId).doubleValue(), h_d));
-							maxDemandOfferedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandOfferedTraffic.get(layerId).get(demandId).doubleValue(), h_d));
-							accum_avgDemandCarriedTraffic.get(layerId).get(demandId).add(r_d * timeInterval);
-							minDemandCarriedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandCarriedTraffic.get(layerId).get(demandId).doubleValue(), r_d));
-							maxDemandCarriedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandCarriedTraffic.get(layerId).get(demandId).doubleValue(), r_d));
-							accum_avgDemandBlockedTraffic.get(layerId).get(demandId).add(blockedTraffic_d * timeInterval);
-							minDemandBlockedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandBlockedTraffic.get(layerId).get(demandId).doubleValue(), blockedTraffic_d));
-							maxDemandBlockedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandBlockedTraffic.get(layerId).get(demandId).doubleValue(), blockedTraffic_d));
-							if (blockedTraffic_d == 0) accum_demandAvailabilityClassic.get(layerId).get(demandId).add(timeInterval);
-							accum_demandAvailabilityWeighted.get(layerId).get(demandId).add(h_d > 0 ? (1 - blockedTraffic_d / h_d) * timeInterval : timeInterval);
-							accum_avgExcessCarriedTraffic.get(layerId).get(demandId).add(excessCarriedTraffic_d * timeInterval);
-							minDemandExcessCarriedTraffic.get(layerId).get(demandId).setValue(Math.min(minDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue(), excessCarriedTraffic_d));
-							maxDemandExcessCarriedTraffic.get(layerId).get(demandId).setValue(Math.max(maxDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue(), excessCarriedTraffic_d));
-							if (excessCarriedTraffic_d > 0) excessDemandCarriedTrafficTime.get(layerId).get(demandId).add(timeInterval);
-							demandTotalTime.get(layerId).get(demandId).add(timeInterval);
-						}
-						else
-						{
-							double totalTime_thisDemand = demandTotalTime.get(layerId).get(demandId).doubleValue();
-							if (totalTime_thisDemand > 0)
-							{
-								worstDemandAvailabilityClassic_thisLayer = Math.min(worstDemandAvailabilityClassic_thisLayer, accum_demandAvailabilityClassic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand);
-								worstDemandAvailabilityWeighted_thisLayer = Math.min(worstDemandAvailabilityWeighted_thisLayer, accum_demandAvailabilityWeighted.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand);
-							}
-							
-							accum_avgDemandOfferedTraffic.get(layerId).remove(demandId);
-							minDemandOfferedTraffic.get(layerId).remove(demandId);
-							maxDemandOfferedTraffic.get(layerId).remove(demandId);
-							accum_avgDemandCarriedTraffic.get(layerId).remove(demandId);
-							minDemandCarriedTraffic.get(layerId).remove(demandId);
-							maxDemandCarriedTraffic.get(layerId).remove(demandId);
-							accum_avgDemandBlockedTraffic.get(layerId).remove(demandId);
-							minDemandBlockedTraffic.get(layerId).remove(demandId);
-							maxDemandBlockedTraffic.get(layerId).remove(demandId);
-							accum_demandAvailabilityClassic.get(layerId).remove(demandId);
-							accum_demandAvailabilityWeighted.get(layerId).remove(demandId);
-							accum_avgExcessCarriedTraffic.get(layerId).remove(demandId);
-							minDemandExcessCarriedTraffic.get(layerId).remove(demandId);
-							maxDemandExcessCarriedTraffic.get(layerId).remove(demandId);
-							excessDemandCarriedTrafficTime.get(layerId).remove(demandId);
-							demandTotalTime.get(layerId).remove(demandId);
-						}
-					}
-					
-					accum_avgTotalOfferedTraffic.get(layerId).add(totalOfferedTraffic * timeInterval);
-					maxTotalOfferedTraffic.get(layerId).setValue(Math.max(totalOfferedTraffic, maxTotalOfferedTraffic.get(layerId).doubleValue()));
-					minTotalOfferedTraffic.get(layerId).setValue(Math.min(totalOfferedTraffic, minTotalOfferedTraffic.get(layerId).doubleValue()));
-					accum_avgTotalCarriedTraffic.get(layerId).add(totalCarriedTraffic * timeInterval);
-					maxTotalCarriedTraffic.get(layerId).setValue(Math.max(totalCarriedTraffic, maxTotalCarriedTraffic.get(layerId).doubleValue()));
-					minTotalCarriedTraffic.get(layerId).setValue(Math.min(totalCarriedTraffic, minTotalCarriedTraffic.get(layerId).doubleValue()));
-					if (totalBlockedTraffic < precisionFactor) accum_availabilityClassic.get(layerId).add(timeInterval);
-					accum_availabilityWeighted.get(layerId).add(totalOfferedTraffic > 0 ? Math.min(1, 1 - totalBlockedTraffic / totalOfferedTraffic) * timeInterval : timeInterval);
-					worstDemandAvailabilityClassic.get(layerId).setValue(Math.min(worstDemandAvailabilityClassic_thisLayer, worstDemandAvailabilityClassic.get(layerId).doubleValue()));
-					worstDemandAvailabilityWeighted.get(layerId).setValue(Math.min(worstDemandAvailabilityWeighted_thisLayer, worstDemandAvailabilityWeighted.get(layerId).doubleValue()));
-				}
-				else
-				{
-					/* Remove layer information */
-					accum_layerTotalTime.remove(layerId);
-					accum_avgNumLinks.remove(layerId);
-					accum_avgNumDemands.remove(layerId);
-					accum_avgTotalOfferedTraffic.remove(layerId);
-					maxTotalOfferedTraffic.remove(layerId);
-					minTotalOfferedTraffic.remove(layerId);
-					accum_avgTotalCarriedTraffic.remove(layerId);
-					maxTotalCarriedTraffic.remove(layerId);
-					minTotalCarriedTraffic.remove(layerId);
-					accum_avgTotalCapacity.remove(layerId);
-					maxTotalCapacity.remove(layerId);
-					minTotalCapacity.remove(layerId);
-					accum_avgCongestion.remove(layerId);
-					maxCongestion.remove(layerId);
-					minCongestion.remove(layerId);
-					accum_availabilityClassic.remove(layerId);
-					accum_availabilityWeighted.remove(layerId);
-					worstDemandAvailabilityClassic.remove(layerId);
-					worstDemandAvailabilityWeighted.remove(layerId);
-					maxNumLinks.remove(layerId);
-					minNumLinks.remove(layerId);
-					maxNumDemands.remove(layerId);
-					minNumDemands.remove(layerId);
-
-					/* Remove node information in this layer */
-					accum_avgNodeInDegree.remove(layerId);
-					minNodeInDegree.remove(layerId);
-					maxNodeInDegree.remove(layerId);
-					accum_avgNodeOutDegree.remove(layerId);
-					minNodeOutDegree.remove(layerId);
-					maxNodeOutDegree.remove(layerId);
-					accum_avgNodeIngressTraffic.remove(layerId);
-					maxNodeIngressTraffic.remove(layerId);
-					minNodeIngressTraffic.remove(layerId);
-					accum_avgNodeEgressTraffic.remove(layerId);
-					maxNodeEgressTraffic.remove(layerId);
-					minNodeEgressTraffic.remove(layerId);
-
-					/* Remove link information in this layer */
-					accum_avgLinkLengthInKm.remove(layerId);
-					minLinkLengthInKm.remove(layerId);
-					maxLinkLengthInKm.remove(layerId);
-					accum_avgCapacity.remove(layerId);
-					minCapacity.remove(layerId);
-					maxCapacity.remove(layerId);
-					accum_avgLinkOccupiedCapacity.remove(layerId);
-					minLinkOccupiedCapacity.remove(layerId);
-					maxLinkOccupiedCapacity.remove(layerId);
-					accum_avgUtilization.remove(layerId);
-					minUtilization.remove(layerId);
-					maxUtilization.remove(layerId);
-					accum_avgOversubscribedCapacity.remove(layerId);
-					minOversubscribedCapacity.remove(layerId);
-					maxOversubscribedCapacity.remove(layerId);
-					accum_linkOversubscribedTime.remove(layerId);
-					accum_linkUpTime.remove(layerId);
-					accum_linkTotalTime.remove(layerId);
-
-					/* Remove demand information in this layer */
-					accum_avgDemandOfferedTraffic.remove(layerId);
-					minDemandOfferedTraffic.remove(layerId);
-					maxDemandOfferedTraffic.remove(layerId);
-					accum_avgDemandCarriedTraffic.remove(layerId);
-					minDemandCarriedTraffic.remove(layerId);
-					maxDemandCarriedTraffic.remove(layerId);
-					accum_avgDemandBlockedTraffic.remove(layerId);
-					minDemandBlockedTraffic.remove(layerId);
-					maxDemandBlockedTraffic.remove(layerId);
-					accum_avgExcessCarriedTraffic.remove(layerId);
-					minDemandExcessCarriedTraffic.remove(layerId);
-					maxDemandExcessCarriedTraffic.remove(layerId);
-					accum_demandAvailabilityClassic.remove(layerId);
-					accum_demandAvailabilityWeighted.remove(layerId);
-					excessDemandCarriedTrafficTime.remove(layerId);
-					demandTotalTime.remove(layerId);
-				}
-			}
+			/* Layer metrics (layers created after the previous state have no previous state) */
+			for (LayerStats layer : layerStats)
+				if (layer.hasPreviousState) layer.accumulatePreviousState(timeInterval);
 		}
-		
-		/* Update previous state (previous = current) */
-		previousState_layerIds = new LinkedHashSet<Long>(netState.getNetworkLayerIds());
-		previousState_nodeIds = new LinkedHashSet<Long>(netState.getNodeIds());
-		previousState_nodeDownIds = new LinkedHashSet<Long>(NetPlan.getIds (netState.getNodesDown()));
-		previousState_nodeInDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		previousState_nodeOutDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		previousState_nodeIngressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_nodeEgressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_linkIds = new LinkedHashMap<Long, Set<Long>>();
-		previousState_linkDownIds = new LinkedHashMap<Long, Set<Long>>();
-		previousState_linkLengthInKm = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_linkCapacity = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_linkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_demandIds = new LinkedHashMap<Long, Set<Long>>();
-		previousState_demandOfferedTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		previousState_demandCarriedTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		
-		/* Compute node, link metrics */
-		for(long layerId : previousState_layerIds)
-		{
-			NetworkLayer netStateLayer = netState.getNetworkLayerFromId (layerId);
-			previousState_nodeInDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			previousState_nodeOutDegree.put(layerId, new LinkedHashMap<Long, Integer>());
-			previousState_nodeIngressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_nodeEgressTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			for(long nodeId : previousState_nodeIds)
-			{
-				Node netStateNode = netState.getNodeFromId (nodeId);
-				previousState_nodeInDegree.get(layerId).put(nodeId, netStateNode.getIncomingLinks(netStateLayer).size());
-				previousState_nodeOutDegree.get(layerId).put(nodeId, netStateNode.getOutgoingLinks(netStateLayer).size());
-				previousState_nodeIngressTraffic.get(layerId).put(nodeId, netStateNode.getIngressCarriedTraffic(netStateLayer));
-				previousState_nodeEgressTraffic.get(layerId).put(nodeId, netStateNode.getEgressCarriedTraffic(netStateLayer));
-			}
 
-			previousState_linkIds.put(layerId, new LinkedHashSet<Long>(netState.getLinkIds(netStateLayer)));
-			previousState_linkDownIds.put(layerId, new LinkedHashSet<Long>(NetPlan.getIds (netState.getLinksDown(netStateLayer))));
-			previousState_linkCapacity.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_linkOccupiedCapacity.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_linkLengthInKm.put(layerId, new LinkedHashMap<Long, Double>());
-			for(long linkId : previousState_linkIds.get(layerId))
-			{
-				Link netStateLink = netState.getLinkFromId (linkId);
-				previousState_linkCapacity.get(layerId).put(linkId, netStateLink.getCapacity());
-				previousState_linkOccupiedCapacity.get(layerId).put(linkId, netStateLink.getOccupiedCapacity());
-				previousState_linkLengthInKm.get(layerId).put(linkId, netStateLink.getLengthInKm());
-			}
+		/* The demands removed count in the worst availability only if their layer metrics were updated in this call */
+		for (LayerStats layer : layerStats)
+		{
+			layer.removedDemandsWorstAvailabilityClassic = 1;
+			layer.removedDemandsWorstAvailabilityWeighted = 1;
 		}
-		
-		/* Compute demand metrics */
-		for(long layerId : previousState_layerIds)
+
+		/* Update previous state (previous = current), accumulating first the previous state of the elements that changed */
+		for (Node node : nodesToUpdate)
 		{
-			NetworkLayer netStateLayer = netState.getNetworkLayerFromId (layerId);
-			previousState_demandIds.put(layerId, new LinkedHashSet<Long>(netState.getDemandIds(netStateLayer)));
-			previousState_demandOfferedTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			previousState_demandCarriedTraffic.put(layerId, new LinkedHashMap<Long, Double>());
-			for(long demandId : previousState_demandIds.get(layerId))
-			{
-				Demand netStateDemand = netState.getDemandFromId (demandId);
-				previousState_demandOfferedTraffic.get(layerId).put(demandId, netStateDemand.getOfferedTraffic());
-				previousState_demandCarriedTraffic.get(layerId).put(demandId, netStateDemand.getCarriedTraffic());
-			}
+			final int row = node.getIndex();
+			accumulateNode(row, simTime);
+			final double [] v = nodeStats.values; final int b = row * nodeStats.numColumns;
+			v [b + NODE_ISUP] = node.isUp() ? 1 : 0;
+			v [b + NODE_LASTUPDATETIME] = simTime;
 		}
-		
+		nodesToUpdate.clear();
+
+		for (int layerIndex = 0; layerIndex < layerStats.size(); layerIndex ++)
+			layerStats.get(layerIndex).updatePreviousState(netState.getNetworkLayer(layerIndex), simTime);
+
+		previousState_numLayers = layerStats.size();
+		previousState_numNodes = nodeStats.numRows;
+
 		lastEventTime = simTime;
+
+		if (ErrorHandling.isDebugEnabled()) checkConsistency();
 	}
-	
+
 	/**
 	 * Resets the statistics.
-	 * 
+	 *
 	 * @param simTime Current simulation time
 	 * @since 0.2.3
 	 */
 	public void reset(double simTime)
 	{
 		lastEventTime = simTime;
-		
+
 		/* Network information */
 		accum_avgNumLayers = 0;
 		accum_avgNumNodes = 0;
@@ -686,92 +206,22 @@ public class SimStats
 		minNumLayers = Integer.MAX_VALUE;
 		minNumNodes = Integer.MAX_VALUE;
 
-		/* Layer information */
-		accum_layerTotalTime = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgNumLinks = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgNumDemands = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgTotalOfferedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		maxTotalOfferedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		minTotalOfferedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgTotalCarriedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		maxTotalCarriedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		minTotalCarriedTraffic = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgTotalCapacity = new LinkedHashMap<Long, MutableDouble>();
-		maxTotalCapacity = new LinkedHashMap<Long, MutableDouble>();
-		minTotalCapacity = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgCongestion = new LinkedHashMap<Long, MutableDouble>();
-		maxCongestion = new LinkedHashMap<Long, MutableDouble>();
-		minCongestion = new LinkedHashMap<Long, MutableDouble>();
-		accum_availabilityClassic = new LinkedHashMap<Long, MutableDouble>();
-		accum_availabilityWeighted = new LinkedHashMap<Long, MutableDouble>();
-		worstDemandAvailabilityClassic = new LinkedHashMap<Long, MutableDouble>();
-		worstDemandAvailabilityWeighted = new LinkedHashMap<Long, MutableDouble>();
-		maxNumLinks = new LinkedHashMap<Long, Integer>();
-		minNumLinks = new LinkedHashMap<Long, Integer>();
-		maxNumDemands = new LinkedHashMap<Long, Integer>();
-		minNumDemands = new LinkedHashMap<Long, Integer>();
-	
 		/* Node information */
-		accum_nodeUpTime = new LinkedHashMap<Long, MutableDouble>();
-		accum_nodeTotalTime = new LinkedHashMap<Long, MutableDouble>();
-		accum_avgNodeInDegree = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeInDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		minNodeInDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		accum_avgNodeOutDegree = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeOutDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		minNodeOutDegree = new LinkedHashMap<Long, Map<Long, Integer>>();
-		accum_avgNodeIngressTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeIngressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		minNodeIngressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		accum_avgNodeEgressTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxNodeEgressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		minNodeEgressTraffic = new LinkedHashMap<Long, Map<Long, Double>>();
-		
-		/* Link information */
-		accum_avgLinkLengthInKm = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minLinkLengthInKm = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxLinkLengthInKm = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgLinkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minLinkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxLinkOccupiedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgUtilization = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minUtilization = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxUtilization = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgOversubscribedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minOversubscribedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxOversubscribedCapacity = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_linkOversubscribedTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_linkUpTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_linkTotalTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-
-		/* Demand information */
-		accum_avgDemandOfferedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandOfferedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandOfferedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgDemandCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgDemandBlockedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandBlockedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandBlockedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_avgExcessCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		minDemandExcessCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		maxDemandExcessCarriedTraffic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_demandAvailabilityClassic = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		accum_demandAvailabilityWeighted = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		excessDemandCarriedTrafficTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		demandTotalTime = new LinkedHashMap<Long, Map<Long, MutableDouble>>();
-		
+		nodeStats = new StatsTable(NODE_INITIALROW);
+		nodesToUpdate = new LinkedHashSet<Node>();
+		for (Node node : netState.getNodes()) { nodeStats.addRow(node.getId()); nodesToUpdate.add(node); }
+
+		/* Layer, link and demand information */
+		layerStats = new ArrayList<LayerStats>();
+		for (NetworkLayer layer : netState.getNetworkLayers()) layerStats.add(new LayerStats(layer));
+
 		computeNextState(simTime);
 		transitoryTime = simTime;
 	};
 
 	/**
 	 * Returns a HTML {@code String} with statistics.
-	 * 
+	 *
 	 * @param simTime Current simulation time
 	 * @return Statistics in HTML format
 	 * @since 0.2.3
@@ -779,275 +229,266 @@ public class SimStats
 	public String getResults(double simTime)
 	{
 		if (lastEventTime == 0) return "<p>No event was processed</p>";
-		
+
 		double totalSimulationTime = simTime - transitoryTime;
 		if (totalSimulationTime == 0) return "<p>Simulation time equal to zero. No results</p>";
-		
-//		computeNextState(simTime+0.0000000000001);
+
+		/* Bring the accumulators of the elements that did not change lately up to the last event */
+		for (int row = 0; row < nodeStats.numRows; row ++) accumulateNode(row, lastEventTime);
+		for (LayerStats layer : layerStats) layer.accumulateAllElements(lastEventTime);
+
 		try (ByteArrayOutputStream os = new ByteArrayOutputStream())
 		{
 			XMLOutputFactory2 output = (XMLOutputFactory2) XMLOutputFactory.newFactory();
 			XMLStreamWriter2 writer = (XMLStreamWriter2) output.createXMLStreamWriter(os);
-			
+
 			writer.writeStartDocument("UTF-8", "1.0");
-			
+
 			/* Write network information */
 			writer.writeStartElement("network");
 			writer.writeAttribute("avgNumLayers", String.format("%.3f", totalSimulationTime > 0 ? accum_avgNumLayers / totalSimulationTime : 0));
-			
+
 			int minNumLayers_thisNetwork = minNumLayers;
 			if (minNumLayers_thisNetwork == Integer.MAX_VALUE) minNumLayers_thisNetwork = 0;
 			writer.writeAttribute("minNumLayers", Integer.toString(minNumLayers_thisNetwork));
 			writer.writeAttribute("maxNumLayers", Integer.toString(maxNumLayers));
 			writer.writeAttribute("avgNumNodes", String.format("%.3f", totalSimulationTime > 0 ? accum_avgNumNodes / totalSimulationTime : 0));
-			
+
 			int minNumNodes_thisNetwork = minNumNodes;
 			if (minNumNodes_thisNetwork == Integer.MAX_VALUE) minNumNodes_thisNetwork = 0;
 			writer.writeAttribute("minNumNodes", Integer.toString(minNumNodes_thisNetwork));
 			writer.writeAttribute("maxNumNodes", Integer.toString(maxNumNodes));
-			
+
 			/* Write node information */
-			Collection<Long> nodeIds = netState.getNodeIds();
-			for(long nodeId : nodeIds)
+			final List<Node> nodes = netState.getNodes();
+			final double [] nv = nodeStats.values;
+			for(Node node : nodes)
 			{
-				checkAndCreateNode(nodeId);
-				
-				double upTime_thisNode = accum_nodeUpTime.get(nodeId).doubleValue();
-				double totalTime_thisNode = accum_nodeTotalTime.get(nodeId).doubleValue();
+				final int nb = node.getIndex() * nodeStats.numColumns;
+				double upTime_thisNode = nv [nb + NODE_UPTIME];
+				double totalTime_thisNode = nv [nb + NODE_TOTALTIME];
 				double upTimePercentage_thisNode = totalTime_thisNode > 0 ? 100 * upTime_thisNode / totalTime_thisNode : 0;
-				
+
 				writer.writeStartElement("node");
-				writer.writeAttribute("id", Long.toString(nodeId));
-				writer.writeAttribute("name", netState.getNodeFromId(nodeId).getName ());
+				writer.writeAttribute("id", Long.toString(node.getId()));
+				writer.writeAttribute("name", node.getName ());
 				writer.writeAttribute("upTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(upTime_thisNode));
 				writer.writeAttribute("upTimePercentage", String.format("%.3f", upTimePercentage_thisNode));
 				writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisNode));
-				writer.writeEndElement();	
-			}			
-			
+				writer.writeEndElement();
+			}
+
 			/* Write layer information */
-			for(long layerId : netState.getNetworkLayerIds ())
+			for(NetworkLayer netStateLayer : netState.getNetworkLayers ())
 			{
-				checkAndCreateLayer(layerId);
-				
-				double totalTime_thisLayer = accum_layerTotalTime.get(layerId).doubleValue();
-				
-				NetworkLayer netStateLayer = netState.getNetworkLayerFromId (layerId);
-				
+				final LayerStats layer = layerStats.get(netStateLayer.getIndex());
+
+				double totalTime_thisLayer = layer.accum_layerTotalTime;
+
 				String trafficUnitsName = netState.getDemandTrafficUnitsName(netStateLayer);
 				if (trafficUnitsName.isEmpty()) trafficUnitsName = "none";
 				String capacityUnitsName = netState.getLinkCapacityUnitsName(netStateLayer);
 				if (capacityUnitsName.isEmpty()) capacityUnitsName = "none";
-				
+
 				writer.writeStartElement("layer");
-				writer.writeAttribute("id", Long.toString(layerId));
+				writer.writeAttribute("id", Long.toString(netStateLayer.getId()));
 				writer.writeAttribute("name", netStateLayer.getName ());
-				writer.writeAttribute("avgNumLinks", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgNumLinks.get(layerId).doubleValue() / totalTime_thisLayer : 0));
+				writer.writeAttribute("avgNumLinks", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgNumLinks / totalTime_thisLayer : 0));
 
-				int minNumLinks_thisLayer = minNumLinks.get(layerId);
+				int minNumLinks_thisLayer = layer.minNumLinks;
 				if (minNumLinks_thisLayer == Integer.MAX_VALUE) minNumLinks_thisLayer = 0;
 				writer.writeAttribute("minNumLinks", Integer.toString(minNumLinks_thisLayer));
-				writer.writeAttribute("maxNumLinks", Integer.toString(maxNumLinks.get(layerId)));
-				writer.writeAttribute("avgNumDemands", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgNumDemands.get(layerId).doubleValue() / totalTime_thisLayer : 0));
+				writer.writeAttribute("maxNumLinks", Integer.toString(layer.maxNumLinks));
+				writer.writeAttribute("avgNumDemands", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgNumDemands / totalTime_thisLayer : 0));
 
-				int minNumDemands_thisLayer = minNumDemands.get(layerId);
+				int minNumDemands_thisLayer = layer.minNumDemands;
 				if (minNumDemands_thisLayer == Integer.MAX_VALUE) minNumDemands_thisLayer = 0;
 				writer.writeAttribute("minNumDemands", Integer.toString(minNumDemands_thisLayer));
-				writer.writeAttribute("maxNumDemands", Integer.toString(maxNumDemands.get(layerId)));
+				writer.writeAttribute("maxNumDemands", Integer.toString(layer.maxNumDemands));
 				writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisLayer));
 				writer.writeAttribute("trafficUnitsName", trafficUnitsName);
-				writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgTotalOfferedTraffic.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minTotalOfferedTraffic_thisLayer = minTotalOfferedTraffic.get(layerId).doubleValue();
+				writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgTotalOfferedTraffic / totalTime_thisLayer : 0));
+
+				double minTotalOfferedTraffic_thisLayer = layer.minTotalOfferedTraffic;
 				if (minTotalOfferedTraffic_thisLayer == Double.MAX_VALUE) minTotalOfferedTraffic_thisLayer = 0;
 				writer.writeAttribute("minOfferedTraffic", String.format("%.3f", minTotalOfferedTraffic_thisLayer));
-				writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", maxTotalOfferedTraffic.get(layerId).doubleValue()));
-				writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgTotalCarriedTraffic.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minTotalCarriedTraffic_thisLayer = minTotalCarriedTraffic.get(layerId).doubleValue();
+				writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", layer.maxTotalOfferedTraffic));
+				writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgTotalCarriedTraffic / totalTime_thisLayer : 0));
+
+				double minTotalCarriedTraffic_thisLayer = layer.minTotalCarriedTraffic;
 				if (minTotalCarriedTraffic_thisLayer == Double.MAX_VALUE) minTotalCarriedTraffic_thisLayer = 0;
 				writer.writeAttribute("minCarriedTraffic", String.format("%.3f", minTotalCarriedTraffic_thisLayer));
-				writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", maxTotalCarriedTraffic.get(layerId).doubleValue()));
+				writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", layer.maxTotalCarriedTraffic));
 				writer.writeAttribute("capacityUnitsName", capacityUnitsName);
-				writer.writeAttribute("avgTotalCapacity", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgTotalCapacity.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minTotalCapacity_thisLayer = minTotalCapacity.get(layerId).doubleValue();
+				writer.writeAttribute("avgTotalCapacity", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgTotalCapacity / totalTime_thisLayer : 0));
+
+				double minTotalCapacity_thisLayer = layer.minTotalCapacity;
 				if (minTotalCapacity_thisLayer == Double.MAX_VALUE) minTotalCapacity_thisLayer = 0;
 				writer.writeAttribute("minTotalCapacity", String.format("%.3f", minTotalCapacity_thisLayer));
-				writer.writeAttribute("maxTotalCapacity", String.format("%.3f", maxTotalCapacity.get(layerId).doubleValue()));
-				writer.writeAttribute("avgCongestion", String.format("%.3f", totalTime_thisLayer > 0 ? accum_avgCongestion.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double minCongestion_thisLayer = minCongestion.get(layerId).doubleValue();
+				writer.writeAttribute("maxTotalCapacity", String.format("%.3f", layer.maxTotalCapacity));
+				writer.writeAttribute("avgCongestion", String.format("%.3f", totalTime_thisLayer > 0 ? layer.accum_avgCongestion / totalTime_thisLayer : 0));
+
+				double minCongestion_thisLayer = layer.minCongestion;
 				if (minCongestion_thisLayer == Double.MAX_VALUE) minCongestion_thisLayer = 0;
 				writer.writeAttribute("minCongestion", String.format("%.3f", minCongestion_thisLayer));
-				writer.writeAttribute("maxCongestion", String.format("%.3f", maxCongestion.get(layerId).doubleValue()));
-				writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisLayer > 0 ? accum_availabilityClassic.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisLayer > 0 ? accum_availabilityWeighted.get(layerId).doubleValue() / totalTime_thisLayer : 0));
-				
-				double worstDemandAvailabilityClassic_thisLayer = worstDemandAvailabilityClassic.get(layerId).doubleValue();
-				double worstDemandAvailabilityWeighted_thisLayer = worstDemandAvailabilityWeighted.get(layerId).doubleValue();
+				writer.writeAttribute("maxCongestion", String.format("%.3f", layer.maxCongestion));
+				writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisLayer > 0 ? layer.accum_availabilityClassic / totalTime_thisLayer : 0));
+				writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisLayer > 0 ? layer.accum_availabilityWeighted / totalTime_thisLayer : 0));
+
+				writer.writeAttribute("worstDemandAvailabilityClassic", String.format("%.6f", layer.getWorstDemandAvailability(true)));
+				writer.writeAttribute("worstDemandAvailabilityWeighted", String.format("%.6f", layer.getWorstDemandAvailability(false)));
 
 				/* Write demand information */
-				Collection<Long> demandIds_thisLayer = netState.getDemandIds(netStateLayer);
-				for(long demandId : netState.getDemandIds (netStateLayer))
-				{
-					checkAndCreateDemand(layerId, demandId);
-					
-					double totalTime_thisDemand = demandTotalTime.get(layerId).get(demandId).doubleValue();
-					worstDemandAvailabilityClassic_thisLayer = Math.min(worstDemandAvailabilityClassic_thisLayer, totalTime_thisDemand > 0 ? accum_demandAvailabilityClassic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0);
-					worstDemandAvailabilityWeighted_thisLayer = Math.min(worstDemandAvailabilityWeighted_thisLayer, totalTime_thisDemand > 0 ? accum_demandAvailabilityWeighted.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0);
-				}
+				final List<Demand> demands_thisLayer = netState.getDemands(netStateLayer);
+				final double [] dv = layer.demandStats.values;
+				final int dn = layer.demandStats.numColumns;
 
-				writer.writeAttribute("worstDemandAvailabilityClassic", String.format("%.6f", worstDemandAvailabilityClassic_thisLayer));
-				writer.writeAttribute("worstDemandAvailabilityWeighted", String.format("%.6f", worstDemandAvailabilityWeighted_thisLayer));
-				
 				/* Write node information */
-				for(long nodeId : nodeIds)
+				final double [] lnv = layer.nodeStats.values;
+				final int lnn = layer.nodeStats.numColumns;
+				for(Node node : nodes)
 				{
-					checkAndCreateNode(layerId, nodeId);
-					
-					double totalTime_thisNode_thisLayer = Math.min(accum_nodeTotalTime.get(nodeId).doubleValue(), totalTime_thisLayer);
+					final int nb = node.getIndex() * lnn;
+
+					double totalTime_thisNode_thisLayer = Math.min(nv [node.getIndex() * nodeStats.numColumns + NODE_TOTALTIME], totalTime_thisLayer);
 					writer.writeStartElement("node");
-					writer.writeAttribute("id", Long.toString(nodeId));
-					writer.writeAttribute("name", netState.getNodeFromId(nodeId).getName ());
-					writer.writeAttribute("avgInDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeInDegree.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					int minNodeInDegree_thisNode_thisLayer = minNodeInDegree.get(layerId).get(nodeId);
+					writer.writeAttribute("id", Long.toString(node.getId()));
+					writer.writeAttribute("name", node.getName ());
+					writer.writeAttribute("avgInDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? lnv [nb + NODELAYER_ACCUM_INDEGREE] / totalTime_thisNode_thisLayer : 0));
+
+					int minNodeInDegree_thisNode_thisLayer = (int) lnv [nb + NODELAYER_ACCUM_INDEGREE + 1];
 					if (minNodeInDegree_thisNode_thisLayer == Integer.MAX_VALUE) minNodeInDegree_thisNode_thisLayer = 0;
 					writer.writeAttribute("minInDegree", Integer.toString(minNodeInDegree_thisNode_thisLayer));
-					writer.writeAttribute("maxInDegree", Integer.toString(maxNodeInDegree.get(layerId).get(nodeId)));
-					writer.writeAttribute("avgOutDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeOutDegree.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					int minNodeOutDegree_thisNode_thisLayer = minNodeOutDegree.get(layerId).get(nodeId);
+					writer.writeAttribute("maxInDegree", Integer.toString((int) lnv [nb + NODELAYER_ACCUM_INDEGREE + 2]));
+					writer.writeAttribute("avgOutDegree", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? lnv [nb + NODELAYER_ACCUM_OUTDEGREE] / totalTime_thisNode_thisLayer : 0));
+
+					int minNodeOutDegree_thisNode_thisLayer = (int) lnv [nb + NODELAYER_ACCUM_OUTDEGREE + 1];
 					if (minNodeOutDegree_thisNode_thisLayer == Integer.MAX_VALUE) minNodeOutDegree_thisNode_thisLayer = 0;
 					writer.writeAttribute("minOutDegree", Integer.toString(minNodeOutDegree_thisNode_thisLayer));
-					writer.writeAttribute("maxOutDegree", Integer.toString(maxNodeOutDegree.get(layerId).get(nodeId)));
-					writer.writeAttribute("avgIngressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeIngressTraffic.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					double minNodeIngressTraffic_thisNode_thisLayer = minNodeIngressTraffic.get(layerId).get(nodeId);
-					if (minNodeIngressTraffic_thisNode_thisLayer == Double.MAX_VALUE) minNodeIngressTraffic_thisNode_thisLayer = 0;
-					writer.writeAttribute("minIngressTraffic", String.format("%.3f", minNodeIngressTraffic.get(layerId).get(nodeId)));
-					writer.writeAttribute("maxIngressTraffic", String.format("%.3f", maxNodeIngressTraffic.get(layerId).get(nodeId)));
-					writer.writeAttribute("avgEgressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? accum_avgNodeEgressTraffic.get(layerId).get(nodeId).doubleValue() / totalTime_thisNode_thisLayer : 0));
-					
-					double minNodeEgressTraffic_thisNode_thisLayer = minNodeEgressTraffic.get(layerId).get(nodeId);
+					writer.writeAttribute("maxOutDegree", Integer.toString((int) lnv [nb + NODELAYER_ACCUM_OUTDEGREE + 2]));
+					writer.writeAttribute("avgIngressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? lnv [nb + NODELAYER_ACCUM_INGRESSTRAFFIC] / totalTime_thisNode_thisLayer : 0));
+					writer.writeAttribute("minIngressTraffic", String.format("%.3f", lnv [nb + NODELAYER_ACCUM_INGRESSTRAFFIC + 1]));
+					writer.writeAttribute("maxIngressTraffic", String.format("%.3f", lnv [nb + NODELAYER_ACCUM_INGRESSTRAFFIC + 2]));
+					writer.writeAttribute("avgEgressTraffic", String.format("%.3f", totalTime_thisNode_thisLayer > 0 ? lnv [nb + NODELAYER_ACCUM_EGRESSTRAFFIC] / totalTime_thisNode_thisLayer : 0));
+
+					double minNodeEgressTraffic_thisNode_thisLayer = lnv [nb + NODELAYER_ACCUM_EGRESSTRAFFIC + 1];
 					if (minNodeEgressTraffic_thisNode_thisLayer == Double.MAX_VALUE) minNodeEgressTraffic_thisNode_thisLayer = 0;
 					writer.writeAttribute("minEgressTraffic", String.format("%.3f", minNodeEgressTraffic_thisNode_thisLayer));
-					writer.writeAttribute("maxEgressTraffic", String.format("%.3f", maxNodeEgressTraffic.get(layerId).get(nodeId)));
-					
-					writer.writeEndElement();	
-				}			
-				
+					writer.writeAttribute("maxEgressTraffic", String.format("%.3f", lnv [nb + NODELAYER_ACCUM_EGRESSTRAFFIC + 2]));
+
+					writer.writeEndElement();
+				}
+
 				/* Write link information */
-				Collection<Long> linkIds_thisLayer = netState.getLinkIds(netState.getNetworkLayerFromId (layerId));
-				for(long linkId : linkIds_thisLayer)
+				final double [] ev = layer.linkStats.values;
+				final int en = layer.linkStats.numColumns;
+				for(Link netStateLink : netState.getLinks(netStateLayer))
 				{
-					checkAndCreateLink(layerId, linkId);
-					Link netStateLink = netState.getLinkFromId (linkId);
+					final int eb = netStateLink.getIndex() * en;
 					long originNodeId_thisLink = netStateLink.getOriginNode().getId ();
 					long destinationNodeId_thisLink = netStateLink.getDestinationNode().getId ();
 					String originNodeName = netStateLink.getOriginNode().getName ();
 					String destinationNodeName = netStateLink.getDestinationNode().getName ();
-					double upTime_thisLink = accum_linkUpTime.get(layerId).get(linkId).doubleValue();
-					double totalTime_thisLink = accum_linkTotalTime.get(layerId).get(linkId).doubleValue();
+					double upTime_thisLink = ev [eb + LINK_UPTIME];
+					double totalTime_thisLink = ev [eb + LINK_TOTALTIME];
 					double upTimePercentage_thisLink = totalTime_thisLink > 0 ? 100 * upTime_thisLink / totalTime_thisLink : 0;
-					double oversubscribedTime_thisLink = accum_linkOversubscribedTime.get(layerId).get(linkId).doubleValue();
+					double oversubscribedTime_thisLink = ev [eb + LINK_OVERSUBSCRIBEDTIME];
 					double oversubscribedTimePercentage_thisLink = totalTime_thisLink > 0 ? 100 * oversubscribedTime_thisLink / totalTime_thisLink : 0;
-					
+
 					writer.writeStartElement("link");
-					writer.writeAttribute("id", Long.toString(linkId));
+					writer.writeAttribute("id", Long.toString(netStateLink.getId()));
 					writer.writeAttribute("originNode", originNodeName.isEmpty() ? Long.toString(originNodeId_thisLink) : String.format("%d (%s)", originNodeId_thisLink, originNodeName));
 					writer.writeAttribute("destinationNode", destinationNodeName.isEmpty() ? Long.toString(destinationNodeId_thisLink) : String.format("%d (%s)", destinationNodeId_thisLink, destinationNodeName));
-					writer.writeAttribute("avgLengthInKm", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgLinkLengthInKm.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minLinkLengthInKm_thisLink = minLinkLengthInKm.get(layerId).get(linkId).doubleValue();
+					writer.writeAttribute("avgLengthInKm", String.format("%.3f", totalTime_thisLink > 0 ? ev [eb + LINK_ACCUM_LENGTHINKM] / totalTime_thisLink : 0));
+
+					double minLinkLengthInKm_thisLink = ev [eb + LINK_ACCUM_LENGTHINKM + 1];
 					if (minLinkLengthInKm_thisLink == Double.MAX_VALUE) minLinkLengthInKm_thisLink = 0;
 					writer.writeAttribute("minLengthInKm", String.format("%.3f", minLinkLengthInKm_thisLink));
-					writer.writeAttribute("maxLengthInKm", String.format("%.3f", maxLinkLengthInKm.get(layerId).get(linkId).doubleValue()));
-					writer.writeAttribute("avgCapacity", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgCapacity.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minCapacity_thisLayer = minCapacity.get(layerId).get(linkId).doubleValue();
+					writer.writeAttribute("maxLengthInKm", String.format("%.3f", ev [eb + LINK_ACCUM_LENGTHINKM + 2]));
+					writer.writeAttribute("avgCapacity", String.format("%.3f", totalTime_thisLink > 0 ? ev [eb + LINK_ACCUM_CAPACITY] / totalTime_thisLink : 0));
+
+					double minCapacity_thisLayer = ev [eb + LINK_ACCUM_CAPACITY + 1];
 					if (minCapacity_thisLayer == Double.MAX_VALUE) minCapacity_thisLayer = 0;
 					writer.writeAttribute("minCapacity", String.format("%.3f", minCapacity_thisLayer));
-					writer.writeAttribute("maxCapacity", String.format("%.3f", maxCapacity.get(layerId).get(linkId).doubleValue()));
-					writer.writeAttribute("avgOccupiedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minCarriedTraffic_thisLink = minLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue();
+					writer.writeAttribute("maxCapacity", String.format("%.3f", ev [eb + LINK_ACCUM_CAPACITY + 2]));
+					writer.writeAttribute("avgOccupiedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? ev [eb + LINK_ACCUM_OCCUPIEDCAPACITY] / totalTime_thisLink : 0));
+
+					double minCarriedTraffic_thisLink = ev [eb + LINK_ACCUM_OCCUPIEDCAPACITY + 1];
 					if (minCarriedTraffic_thisLink == Double.MAX_VALUE) minCarriedTraffic_thisLink = 0;
 					writer.writeAttribute("minOccupiedCapacity", String.format("%.3f", minCarriedTraffic_thisLink));
-					writer.writeAttribute("maxOccupiedCapacity", String.format("%.3f", maxLinkOccupiedCapacity.get(layerId).get(linkId).doubleValue()));
-					
-					writer.writeAttribute("avgUtilization", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgUtilization.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minUtilization_thisLink = minUtilization.get(layerId).get(linkId).doubleValue();
+					writer.writeAttribute("maxOccupiedCapacity", String.format("%.3f", ev [eb + LINK_ACCUM_OCCUPIEDCAPACITY + 2]));
+
+					writer.writeAttribute("avgUtilization", String.format("%.3f", totalTime_thisLink > 0 ? ev [eb + LINK_ACCUM_UTILIZATION] / totalTime_thisLink : 0));
+
+					double minUtilization_thisLink = ev [eb + LINK_ACCUM_UTILIZATION + 1];
 					if (minUtilization_thisLink == Double.MAX_VALUE) minUtilization_thisLink = 0;
 					writer.writeAttribute("minUtilization", String.format("%.3f", minUtilization_thisLink));
-					writer.writeAttribute("maxUtilization", String.format("%.3f", maxUtilization.get(layerId).get(linkId).doubleValue()));
-					
-					writer.writeAttribute("avgOversubscribedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? accum_avgOversubscribedCapacity.get(layerId).get(linkId).doubleValue() / totalTime_thisLink : 0));
-					
-					double minOversubscribedCapacity_thisLink = minOversubscribedCapacity.get(layerId).get(linkId).doubleValue();
+					writer.writeAttribute("maxUtilization", String.format("%.3f", ev [eb + LINK_ACCUM_UTILIZATION + 2]));
+
+					writer.writeAttribute("avgOversubscribedCapacity", String.format("%.3f", totalTime_thisLink > 0 ? ev [eb + LINK_ACCUM_OVERSUBSCRIBEDCAPACITY] / totalTime_thisLink : 0));
+
+					double minOversubscribedCapacity_thisLink = ev [eb + LINK_ACCUM_OVERSUBSCRIBEDCAPACITY + 1];
 					if (minOversubscribedCapacity_thisLink == Double.MAX_VALUE) minOversubscribedCapacity_thisLink = 0;
 					writer.writeAttribute("minOversubscribedCapacity", String.format("%.3f", minOversubscribedCapacity_thisLink));
-					writer.writeAttribute("maxOversubscribedCapacity", String.format("%.3f", maxOversubscribedCapacity.get(layerId).get(linkId).doubleValue()));
+					writer.writeAttribute("maxOversubscribedCapacity", String.format("%.3f", ev [eb + LINK_ACCUM_OVERSUBSCRIBEDCAPACITY + 2]));
 					writer.writeAttribute("oversubscribedTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(oversubscribedTime_thisLink));
 					writer.writeAttribute("oversubscribedTimePercentage", String.format("%.3f", oversubscribedTimePercentage_thisLink));
 					writer.writeAttribute("upTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(upTime_thisLink));
 					writer.writeAttribute("upTimePercentage", String.format("%.3f", upTimePercentage_thisLink));
 					writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisLink));
-					writer.writeEndElement();	
+					writer.writeEndElement();
 				}
-				
+
 				/* Write demand information */
-				for(long demandId : demandIds_thisLayer)
+				for(Demand netStateDemand : demands_thisLayer)
 				{
-					Demand netStateDemand = netState.getDemandFromId (demandId);
+					final int db = netStateDemand.getIndex() * dn;
 					long ingressNodeId_thisDemand = netStateDemand.getIngressNode().getId ();
 					long egressNodeId_thisDemand = netStateDemand.getEgressNode().getId ();
 					String ingressNodeName = netStateDemand.getIngressNode().getName ();
 					String egressNodeName = netStateDemand.getEgressNode().getName ();
-					double totalTime_thisDemand = demandTotalTime.get(layerId).get(demandId).doubleValue();
-					double excessCarriedTrafficTime_thisDemand = excessDemandCarriedTrafficTime.get(layerId).get(demandId).doubleValue();
+					double totalTime_thisDemand = dv [db + DEMAND_TOTALTIME];
+					double excessCarriedTrafficTime_thisDemand = dv [db + DEMAND_EXCESSCARRIEDTRAFFICTIME];
 					double excessCarriedTrafficTimePercentage_thisDemand = totalTime_thisDemand > 0 ? 100 * excessCarriedTrafficTime_thisDemand / totalTime_thisDemand : 0;
 
 					writer.writeStartElement("demand");
-					writer.writeAttribute("id", Long.toString(demandId));
+					writer.writeAttribute("id", Long.toString(netStateDemand.getId()));
 					writer.writeAttribute("ingressNode", ingressNodeName.isEmpty() ? Long.toString(ingressNodeId_thisDemand) : String.format("%d (%s)", ingressNodeId_thisDemand, ingressNodeName));
 					writer.writeAttribute("egressNode", egressNodeName.isEmpty() ? Long.toString(egressNodeId_thisDemand) : String.format("%d (%s)", egressNodeId_thisDemand, egressNodeName));
-					writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgDemandOfferedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minOfferedTraffic_thisDemand = minDemandOfferedTraffic.get(layerId).get(demandId).doubleValue();
+					writer.writeAttribute("avgOfferedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? dv [db + DEMAND_ACCUM_OFFEREDTRAFFIC] / totalTime_thisDemand : 0));
+
+					double minOfferedTraffic_thisDemand = dv [db + DEMAND_ACCUM_OFFEREDTRAFFIC + 1];
 					if (minOfferedTraffic_thisDemand == Double.MAX_VALUE) minOfferedTraffic_thisDemand = 0;
 					writer.writeAttribute("minOfferedTraffic", String.format("%.3f", minOfferedTraffic_thisDemand));
-					writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", maxDemandOfferedTraffic.get(layerId).get(demandId).doubleValue()));
-					writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgDemandCarriedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minCarriedTraffic_thisDemand = minDemandCarriedTraffic.get(layerId).get(demandId).doubleValue();
+					writer.writeAttribute("maxOfferedTraffic", String.format("%.3f", dv [db + DEMAND_ACCUM_OFFEREDTRAFFIC + 2]));
+					writer.writeAttribute("avgCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? dv [db + DEMAND_ACCUM_CARRIEDTRAFFIC] / totalTime_thisDemand : 0));
+
+					double minCarriedTraffic_thisDemand = dv [db + DEMAND_ACCUM_CARRIEDTRAFFIC + 1];
 					if (minCarriedTraffic_thisDemand == Double.MAX_VALUE) minCarriedTraffic_thisDemand = 0;
 					writer.writeAttribute("minCarriedTraffic", String.format("%.3f", minCarriedTraffic_thisDemand));
-					writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", maxDemandCarriedTraffic.get(layerId).get(demandId).doubleValue()));
-					writer.writeAttribute("avgBlockedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgDemandBlockedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minBlockedTraffic_thisDemand = minDemandBlockedTraffic.get(layerId).get(demandId).doubleValue();
+					writer.writeAttribute("maxCarriedTraffic", String.format("%.3f", dv [db + DEMAND_ACCUM_CARRIEDTRAFFIC + 2]));
+					writer.writeAttribute("avgBlockedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? dv [db + DEMAND_ACCUM_BLOCKEDTRAFFIC] / totalTime_thisDemand : 0));
+
+					double minBlockedTraffic_thisDemand = dv [db + DEMAND_ACCUM_BLOCKEDTRAFFIC + 1];
 					if (minBlockedTraffic_thisDemand == Double.MAX_VALUE) minBlockedTraffic_thisDemand = 0;
 					writer.writeAttribute("minBlockedTraffic", String.format("%.3f", minBlockedTraffic_thisDemand));
-					writer.writeAttribute("maxBlockedTraffic", String.format("%.3f", maxDemandBlockedTraffic.get(layerId).get(demandId).doubleValue()));
-					writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisDemand > 0 ? accum_demandAvailabilityClassic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisDemand > 0 ? accum_demandAvailabilityWeighted.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					writer.writeAttribute("avgExcessCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? accum_avgExcessCarriedTraffic.get(layerId).get(demandId).doubleValue() / totalTime_thisDemand : 0));
-					
-					double minExcessCarriedTraffic_thisDemand = minDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue();
+					writer.writeAttribute("maxBlockedTraffic", String.format("%.3f", dv [db + DEMAND_ACCUM_BLOCKEDTRAFFIC + 2]));
+					writer.writeAttribute("availabilityClassic", String.format("%.6f", totalTime_thisDemand > 0 ? dv [db + DEMAND_AVAILABILITYCLASSIC] / totalTime_thisDemand : 0));
+					writer.writeAttribute("availabilityWeighted", String.format("%.6f", totalTime_thisDemand > 0 ? dv [db + DEMAND_AVAILABILITYWEIGHTED] / totalTime_thisDemand : 0));
+					writer.writeAttribute("avgExcessCarriedTraffic", String.format("%.3f", totalTime_thisDemand > 0 ? dv [db + DEMAND_ACCUM_EXCESSCARRIEDTRAFFIC] / totalTime_thisDemand : 0));
+
+					double minExcessCarriedTraffic_thisDemand = dv [db + DEMAND_ACCUM_EXCESSCARRIEDTRAFFIC + 1];
 					if (minExcessCarriedTraffic_thisDemand == Double.MAX_VALUE) minExcessCarriedTraffic_thisDemand = 0;
 					writer.writeAttribute("minExcessCarriedTraffic", String.format("%.3f", minExcessCarriedTraffic_thisDemand));
-					writer.writeAttribute("maxExcessCarriedTraffic", String.format("%.3f", maxDemandExcessCarriedTraffic.get(layerId).get(demandId).doubleValue()));
+					writer.writeAttribute("maxExcessCarriedTraffic", String.format("%.3f", dv [db + DEMAND_ACCUM_EXCESSCARRIEDTRAFFIC + 2]));
 					writer.writeAttribute("excessCarriedTrafficTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(excessCarriedTrafficTime_thisDemand));
 					writer.writeAttribute("excessCarriedTrafficTimePercentage", String.format("%.3f", excessCarriedTrafficTimePercentage_thisDemand));
 					writer.writeAttribute("totalTime", StringUtils.secondsToYearsDaysHoursMinutesSeconds(totalTime_thisDemand));
-					writer.writeEndElement();	
+					writer.writeEndElement();
 				}
-				
-				writer.writeEndElement();	
-			}			
+
+				writer.writeEndElement();
+			}
 
 			writer.writeEndElement();
 			writer.writeEndDocument();
@@ -1062,4 +503,608 @@ public class SimStats
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Returns the main network-wide and per-layer statistics as name-value pairs, in the same units as in the
+	 * {@link #getResults(double) HTML report}. It is used to merge the results of independent replications.
+	 *
+	 * @param simTime Current simulation time
+	 * @return Statistic values (empty if no event was processed, or the simulation time is zero)
+	 * @since 0.5.3
+	 */
+	public Map<String, Double> getResultsSummary(double simTime)
+	{
+		final Map<String, Double> res = new LinkedHashMap<String, Double>();
+		double totalSimulationTime = simTime - transitoryTime;
+		if (lastEventTime == 0 || totalSimulationTime == 0) return res;
+
+		for (int row = 0; row < nodeStats.numRows; row ++) accumulateNode(row, lastEventTime);
+		for (LayerStats layer : layerStats) layer.accumulateAllElements(lastEventTime);
+
+		res.put("Average number of layers", totalSimulationTime > 0 ? accum_avgNumLayers / totalSimulationTime : 0);
+		res.put("Average number of nodes", totalSimulationTime > 0 ? accum_avgNumNodes / totalSimulationTime : 0);
+		for(NetworkLayer netStateLayer : netState.getNetworkLayers ())
+		{
+			final LayerStats layer = layerStats.get(netStateLayer.getIndex());
+			final double totalTime_thisLayer = layer.accum_layerTotalTime;
+			final String prefix = "Layer " + netStateLayer.getId() + (netStateLayer.getName().isEmpty() ? "" : " (" + netStateLayer.getName() + ")") + ": ";
+			res.put(prefix + "average number of links", totalTime_thisLayer > 0 ? layer.accum_avgNumLinks / totalTime_thisLayer : 0);
+			res.put(prefix + "average number of demands", totalTime_thisLayer > 0 ? layer.accum_avgNumDemands / totalTime_thisLayer : 0);
+			res.put(prefix + "average offered traffic", totalTime_thisLayer > 0 ? layer.accum_avgTotalOfferedTraffic / totalTime_thisLayer : 0);
+			res.put(prefix + "average carried traffic", totalTime_thisLayer > 0 ? layer.accum_avgTotalCarriedTraffic / totalTime_thisLayer : 0);
+			res.put(prefix + "average total capacity", totalTime_thisLayer > 0 ? layer.accum_avgTotalCapacity / totalTime_thisLayer : 0);
+			res.put(prefix + "average congestion", totalTime_thisLayer > 0 ? layer.accum_avgCongestion / totalTime_thisLayer : 0);
+			res.put(prefix + "availability (classic)", totalTime_thisLayer > 0 ? layer.accum_availabilityClassic / totalTime_thisLayer : 0);
+			res.put(prefix + "availability (weighted)", totalTime_thisLayer > 0 ? layer.accum_availabilityWeighted / totalTime_thisLayer : 0);
+			res.put(prefix + "worst demand availability (classic)", layer.getWorstDemandAvailability(true));
+			res.put(prefix + "worst demand availability (weighted)", layer.getWorstDemandAvailability(false));
+		}
+
+		return res;
+	}
+
+	/* Accumulates the previous state of the node, from its last update up to the given time */
+	private void accumulateNode(int row, double simTime)
+	{
+		final double [] v = nodeStats.values; final int b = row * nodeStats.numColumns;
+		final double timeInterval = simTime - v [b + NODE_LASTUPDATETIME];
+		if (!(timeInterval > 0)) return; // also if the node was never updated
+		if (v [b + NODE_ISUP] == 1) v [b + NODE_UPTIME] += timeInterval;
+		v [b + NODE_TOTALTIME] += timeInterval;
+		v [b + NODE_LASTUPDATETIME] = simTime;
+	}
+
+	private static void accumulate(double [] v, int accumColumn, double value, double timeInterval)
+	{
+		v [accumColumn] += value * timeInterval;
+		v [accumColumn + 1] = Math.min(value, v [accumColumn + 1]);
+		v [accumColumn + 2] = Math.max(value, v [accumColumn + 2]);
+	}
+
+	private static double getUtilization(double u_e, double y_e)
+	{
+		return y_e == 0 ? 0 : Math.max(y_e / u_e, 0);
+	}
+
+	private double getOversubscribedCapacity(double u_e, double y_e)
+	{
+		double oversubscribedCapacity = y_e - u_e; if (oversubscribedCapacity < precisionFactor) oversubscribedCapacity = 0;
+		return oversubscribedCapacity;
+	}
+
+	private double getBlockedTraffic(double h_d, double r_d)
+	{
+		double blockedTraffic_d = h_d - r_d; if (blockedTraffic_d < precisionFactor) blockedTraffic_d = 0;
+		return blockedTraffic_d;
+	}
+
+	private void elementAdded(NetworkElement e)
+	{
+		if (e instanceof Node)
+		{
+			final Node node = (Node) e;
+			nodeStats.addRow(node.getId());
+			nodesToUpdate.add(node);
+			for (LayerStats layer : layerStats) { layer.nodeStats.addRow(node.getId()); layer.nodesToUpdate.add(node); }
+		}
+		else if (e instanceof NetworkLayer)
+		{
+			layerStats.add(e.getIndex(), new LayerStats((NetworkLayer) e));
+		}
+		else if (e instanceof Link)
+		{
+			final Link link = (Link) e;
+			final LayerStats layer = layerStats.get(link.getLayer().getIndex());
+			layer.linkStats.addRow(link.getId());
+			layer.linkAdded(link);
+		}
+		else if (e instanceof Demand)
+		{
+			final Demand demand = (Demand) e;
+			final LayerStats layer = layerStats.get(demand.getLayer().getIndex());
+			layer.demandStats.addRow(demand.getId());
+			layer.demandChanged(demand);
+		}
+	}
+
+	private void elementToBeRemoved(NetworkElement e)
+	{
+		if (e instanceof Node)
+		{
+			final Node node = (Node) e;
+			nodeStats.removeRow(node.getIndex());
+			nodesToUpdate.remove(node);
+			for (LayerStats layer : layerStats) { layer.nodeStats.removeRow(node.getIndex()); layer.nodesToUpdate.remove(node); }
+		}
+		else if (e instanceof NetworkLayer)
+		{
+			layerStats.remove(e.getIndex());
+		}
+		else if (e instanceof Link)
+		{
+			layerStats.get(((Link) e).getLayer().getIndex()).linkRemoved((Link) e);
+		}
+		else if (e instanceof Demand)
+		{
+			layerStats.get(((Demand) e).getLayer().getIndex()).demandRemoved((Demand) e);
+		}
+	}
+
+	private void elementStateChanged(NetworkElement e)
+	{
+		if (e instanceof Node)
+			nodesToUpdate.add((Node) e);
+		else if (e instanceof Link)
+			layerStats.get(((Link) e).getLayer().getIndex()).linksToUpdate.add((Link) e);
+		else if (e instanceof Demand)
+			layerStats.get(((Demand) e).getLayer().getIndex()).demandChanged((Demand) e);
+	}
+
+	/* The whole design was replaced: elements are matched by identifier with the previous ones, the new ones have no previous state */
+	private void allElementsReplaced()
+	{
+		nodeStats = nodeStats.rebuild(netState.getNodes());
+		nodesToUpdate.clear();
+		nodesToUpdate.addAll(netState.getNodes());
+
+		final Map<Long, LayerStats> previousLayerStats = new HashMap<Long, LayerStats>();
+		for (LayerStats layer : layerStats) previousLayerStats.put(layer.layerId, layer);
+		layerStats = new ArrayList<LayerStats>();
+		for (NetworkLayer netStateLayer : netState.getNetworkLayers())
+		{
+			final LayerStats layer = previousLayerStats.get(netStateLayer.getId());
+			if (layer == null) { layerStats.add(new LayerStats(netStateLayer)); continue; }
+			layer.rebuild(netStateLayer);
+			layerStats.add(layer);
+		}
+	}
+
+	private void checkConsistency()
+	{
+		if (layerStats.size() != netState.getNumberOfLayers()) throw new RuntimeException("Bad");
+		nodeStats.checkIds(netState.getNodes());
+		for (Node node : netState.getNodes())
+			if (nodeStats.values [node.getIndex() * nodeStats.numColumns + NODE_ISUP] != (node.isUp() ? 1 : 0)) throw new RuntimeException("Bad");
+		for (NetworkLayer netStateLayer : netState.getNetworkLayers())
+			layerStats.get(netStateLayer.getIndex()).checkConsistency(netStateLayer);
+	}
+
+	/* The statistics of a layer, and of its nodes, links and demands */
+	private final class LayerStats
+	{
+		private final long layerId;
+
+		/* One row per node, link and demand, in the order of their indexes */
+		private StatsTable nodeStats, linkStats, demandStats;
+		private final Set<Node> nodesToUpdate;
+		private final Set<Link> linksToUpdate;
+		private final Set<Demand> demandsToUpdate;
+
+		/* Layer totals of the state stored in the rows */
+		private double current_totalCapacity, current_congestion, current_totalOfferedTraffic, current_totalCarriedTraffic, current_totalBlockedTraffic;
+		private boolean current_congestionMayHaveDecreased;
+		private int numTotalsUpdatesSinceRecomputation;
+
+		/* Layer state in the previous call to computeNextState (a new layer has no previous state) */
+		private boolean hasPreviousState;
+		private int previousState_numLinks, previousState_numDemands;
+		private double previousState_totalCapacity, previousState_congestion, previousState_totalOfferedTraffic, previousState_totalCarriedTraffic, previousState_totalBlockedTraffic;
+
+		/* Worst availability of the demands removed since the previous call to computeNextState */
+		private double removedDemandsWorstAvailabilityClassic = 1, removedDemandsWorstAvailabilityWeighted = 1;
+
+		private double accum_layerTotalTime, accum_avgNumLinks, accum_avgNumDemands;
+		private double accum_avgTotalOfferedTraffic, maxTotalOfferedTraffic, minTotalOfferedTraffic = Double.MAX_VALUE;
+		private double accum_avgTotalCarriedTraffic, maxTotalCarriedTraffic, minTotalCarriedTraffic = Double.MAX_VALUE;
+		private double accum_avgTotalCapacity, maxTotalCapacity, minTotalCapacity = Double.MAX_VALUE;
+		private double accum_avgCongestion, maxCongestion, minCongestion = Double.MAX_VALUE;
+		private double accum_availabilityClassic, accum_availabilityWeighted, worstDemandAvailabilityClassic = 1, worstDemandAvailabilityWeighted = 1;
+		private int maxNumLinks, minNumLinks = Integer.MAX_VALUE, maxNumDemands, minNumDemands = Integer.MAX_VALUE;
+
+		private LayerStats(NetworkLayer netStateLayer)
+		{
+			this.layerId = netStateLayer.getId();
+			this.nodeStats = new StatsTable(NODELAYER_INITIALROW);
+			this.linkStats = new StatsTable(LINK_INITIALROW);
+			this.demandStats = new StatsTable(DEMAND_INITIALROW);
+			this.nodesToUpdate = new LinkedHashSet<Node>();
+			this.linksToUpdate = new LinkedHashSet<Link>();
+			this.demandsToUpdate = new LinkedHashSet<Demand>();
+			for (Node node : netState.getNodes()) { nodeStats.addRow(node.getId()); nodesToUpdate.add(node); }
+			for (Link link : netState.getLinks(netStateLayer)) { linkStats.addRow(link.getId()); linksToUpdate.add(link); }
+			for (Demand demand : netState.getDemands(netStateLayer)) { demandStats.addRow(demand.getId()); demandsToUpdate.add(demand); }
+		}
+
+		private void linkAdded(Link link)
+		{
+			linksToUpdate.add(link);
+			nodesToUpdate.add(link.getOriginNode());
+			nodesToUpdate.add(link.getDestinationNode());
+		}
+
+		private void demandChanged(Demand demand)
+		{
+			demandsToUpdate.add(demand);
+			nodesToUpdate.add(demand.getIngressNode());
+			nodesToUpdate.add(demand.getEgressNode());
+			final Link coupledLink = demand.getCoupledLink();
+			if (coupledLink != null) layerStats.get(coupledLink.getLayer().getIndex()).linksToUpdate.add(coupledLink);
+		}
+
+		private void linkRemoved(Link link)
+		{
+			final int row = link.getIndex();
+			final double [] v = linkStats.values; final int b = row * linkStats.numColumns;
+			current_totalCapacity -= v [b + LINK_CAPACITY];
+			if (getUtilization(v [b + LINK_CAPACITY], v [b + LINK_OCCUPIEDCAPACITY]) >= current_congestion) current_congestionMayHaveDecreased = true;
+			numTotalsUpdatesSinceRecomputation ++;
+			linkStats.removeRow(row);
+			linksToUpdate.remove(link);
+			nodesToUpdate.add(link.getOriginNode());
+			nodesToUpdate.add(link.getDestinationNode());
+		}
+
+		private void demandRemoved(Demand demand)
+		{
+			final int row = demand.getIndex();
+
+			/* The worst availability accounts for the demand up to the previous call to computeNextState */
+			accumulateDemand(row, lastEventTime);
+			final double [] v = demandStats.values; final int b = row * demandStats.numColumns;
+			final double totalTime_thisDemand = v [b + DEMAND_TOTALTIME];
+			if (totalTime_thisDemand > 0)
+			{
+				removedDemandsWorstAvailabilityClassic = Math.min(removedDemandsWorstAvailabilityClassic, v [b + DEMAND_AVAILABILITYCLASSIC] / totalTime_thisDemand);
+				removedDemandsWorstAvailabilityWeighted = Math.min(removedDemandsWorstAvailabilityWeighted, v [b + DEMAND_AVAILABILITYWEIGHTED] / totalTime_thisDemand);
+			}
+
+			final double h_d = v [b + DEMAND_OFFEREDTRAFFIC];
+			final double r_d = v [b + DEMAND_CARRIEDTRAFFIC];
+			current_totalOfferedTraffic -= h_d;
+			current_totalCarriedTraffic -= r_d;
+			current_totalBlockedTraffic -= getBlockedTraffic(h_d, r_d);
+			numTotalsUpdatesSinceRecomputation ++;
+			demandStats.removeRow(row);
+			demandsToUpdate.remove(demand);
+			nodesToUpdate.add(demand.getIngressNode());
+			nodesToUpdate.add(demand.getEgressNode());
+		}
+
+		private void accumulatePreviousState(double timeInterval)
+		{
+			accum_layerTotalTime += timeInterval;
+
+			accum_avgNumLinks += previousState_numLinks * timeInterval;
+			maxNumLinks = Math.max(previousState_numLinks, maxNumLinks);
+			minNumLinks = Math.min(previousState_numLinks, minNumLinks);
+
+			accum_avgNumDemands += previousState_numDemands * timeInterval;
+			maxNumDemands = Math.max(previousState_numDemands, maxNumDemands);
+			minNumDemands = Math.min(previousState_numDemands, minNumDemands);
+
+			accum_avgTotalCapacity += previousState_totalCapacity * timeInterval;
+			maxTotalCapacity = Math.max(previousState_totalCapacity, maxTotalCapacity);
+			minTotalCapacity = Math.min(previousState_totalCapacity, minTotalCapacity);
+			accum_avgCongestion += previousState_congestion * timeInterval;
+			maxCongestion = Math.max(previousState_congestion, maxCongestion);
+			minCongestion = Math.min(previousState_congestion, minCongestion);
+
+			accum_avgTotalOfferedTraffic += previousState_totalOfferedTraffic * timeInterval;
+			maxTotalOfferedTraffic = Math.max(previousState_totalOfferedTraffic, maxTotalOfferedTraffic);
+			minTotalOfferedTraffic = Math.min(previousState_totalOfferedTraffic, minTotalOfferedTraffic);
+			accum_avgTotalCarriedTraffic += previousState_totalCarriedTraffic * timeInterval;
+			maxTotalCarriedTraffic = Math.max(previousState_totalCarriedTraffic, maxTotalCarriedTraffic);
+			minTotalCarriedTraffic = Math.min(previousState_totalCarriedTraffic, minTotalCarriedTraffic);
+			if (previousState_totalBlockedTraffic < precisionFactor) accum_availabilityClassic += timeInterval;
+			accum_availabilityWeighted += previousState_totalOfferedTraffic > 0 ? Math.min(1, 1 - previousState_totalBlockedTraffic / previousState_totalOfferedTraffic) * timeInterval : timeInterval;
+			worstDemandAvailabilityClassic = Math.min(removedDemandsWorstAvailabilityClassic, worstDemandAvailabilityClassic);
+			worstDemandAvailabilityWeighted = Math.min(removedDemandsWorstAvailabilityWeighted, worstDemandAvailabilityWeighted);
+		}
+
+		private void updatePreviousState(NetworkLayer netStateLayer, double simTime)
+		{
+			for (Node node : nodesToUpdate)
+			{
+				final int row = node.getIndex();
+				accumulateNode(row, simTime);
+				final double [] v = nodeStats.values; final int b = row * nodeStats.numColumns;
+				v [b + NODELAYER_INDEGREE] = node.getIncomingLinks(netStateLayer).size();
+				v [b + NODELAYER_OUTDEGREE] = node.getOutgoingLinks(netStateLayer).size();
+				v [b + NODELAYER_INGRESSTRAFFIC] = node.getIngressCarriedTraffic(netStateLayer);
+				v [b + NODELAYER_EGRESSTRAFFIC] = node.getEgressCarriedTraffic(netStateLayer);
+				v [b + NODELAYER_LASTUPDATETIME] = simTime;
+			}
+			nodesToUpdate.clear();
+
+			for (Link link : linksToUpdate)
+			{
+				final int row = link.getIndex();
+				accumulateLink(row, simTime);
+				final double [] v = linkStats.values; final int b = row * linkStats.numColumns;
+				final double previous_u_e = v [b + LINK_CAPACITY];
+				final double previous_rho_e = getUtilization(previous_u_e, v [b + LINK_OCCUPIEDCAPACITY]);
+				final double u_e = link.getCapacity();
+				final double y_e = link.getOccupiedCapacity();
+				final double rho_e = getUtilization(u_e, y_e);
+				v [b + LINK_ISUP] = link.isUp() ? 1 : 0;
+				v [b + LINK_LENGTHINKM] = link.getLengthInKm();
+				v [b + LINK_CAPACITY] = u_e;
+				v [b + LINK_OCCUPIEDCAPACITY] = y_e;
+				v [b + LINK_LASTUPDATETIME] = simTime;
+
+				if (u_e != previous_u_e) { current_totalCapacity += u_e - previous_u_e; numTotalsUpdatesSinceRecomputation ++; }
+				if (rho_e >= current_congestion) current_congestion = rho_e;
+				else if (previous_rho_e >= current_congestion) current_congestionMayHaveDecreased = true;
+			}
+			linksToUpdate.clear();
+
+			for (Demand demand : demandsToUpdate)
+			{
+				final int row = demand.getIndex();
+				accumulateDemand(row, simTime);
+				final double [] v = demandStats.values; final int b = row * demandStats.numColumns;
+				final double previous_h_d = v [b + DEMAND_OFFEREDTRAFFIC];
+				final double previous_r_d = v [b + DEMAND_CARRIEDTRAFFIC];
+				final double h_d = demand.getOfferedTraffic();
+				final double r_d = demand.getCarriedTraffic();
+				v [b + DEMAND_OFFEREDTRAFFIC] = h_d;
+				v [b + DEMAND_CARRIEDTRAFFIC] = r_d;
+				v [b + DEMAND_LASTUPDATETIME] = simTime;
+
+				if ((h_d != previous_h_d) || (r_d != previous_r_d))
+				{
+					current_totalOfferedTraffic += h_d - previous_h_d;
+					current_totalCarriedTraffic += r_d - previous_r_d;
+					current_totalBlockedTraffic += getBlockedTraffic(h_d, r_d) - getBlockedTraffic(previous_h_d, previous_r_d);
+					numTotalsUpdatesSinceRecomputation ++;
+				}
+			}
+			demandsToUpdate.clear();
+
+			/* Totals are recomputed from scratch when the maximum utilization may have decreased, and periodically to avoid the accumulation of rounding errors */
+			if (numTotalsUpdatesSinceRecomputation > linkStats.numRows + demandStats.numRows)
+				recomputeTotals();
+			else if (current_congestionMayHaveDecreased)
+				recomputeCongestion();
+
+			hasPreviousState = true;
+			previousState_numLinks = linkStats.numRows;
+			previousState_numDemands = demandStats.numRows;
+			previousState_totalCapacity = current_totalCapacity;
+			previousState_congestion = current_congestion;
+			previousState_totalOfferedTraffic = current_totalOfferedTraffic;
+			previousState_totalCarriedTraffic = current_totalCarriedTraffic;
+			previousState_totalBlockedTraffic = current_totalBlockedTraffic;
+		}
+
+		private void recomputeCongestion()
+		{
+			final double [] v = linkStats.values; final int n = linkStats.numColumns;
+			double congestion = 0;
+			for (int row = 0; row < linkStats.numRows; row ++)
+				congestion = Math.max(congestion, getUtilization(v [row * n + LINK_CAPACITY], v [row * n + LINK_OCCUPIEDCAPACITY]));
+			current_congestion = congestion;
+			current_congestionMayHaveDecreased = false;
+		}
+
+		private void recomputeTotals()
+		{
+			recomputeCongestion();
+			final double [] ev = linkStats.values; final int en = linkStats.numColumns;
+			double totalCapacityInstalled = 0;
+			for (int row = 0; row < linkStats.numRows; row ++) totalCapacityInstalled += ev [row * en + LINK_CAPACITY];
+			final double [] dv = demandStats.values; final int dn = demandStats.numColumns;
+			double totalOfferedTraffic = 0;
+			double totalCarriedTraffic = 0;
+			double totalBlockedTraffic = 0;
+			for (int row = 0; row < demandStats.numRows; row ++)
+			{
+				final double h_d = dv [row * dn + DEMAND_OFFEREDTRAFFIC];
+				final double r_d = dv [row * dn + DEMAND_CARRIEDTRAFFIC];
+				totalOfferedTraffic += h_d;
+				totalCarriedTraffic += r_d;
+				totalBlockedTraffic += getBlockedTraffic(h_d, r_d);
+			}
+			current_totalCapacity = totalCapacityInstalled;
+			current_totalOfferedTraffic = totalOfferedTraffic;
+			current_totalCarriedTraffic = totalCarriedTraffic;
+			current_totalBlockedTraffic = totalBlockedTraffic;
+			numTotalsUpdatesSinceRecomputation = 0;
+		}
+
+		private void accumulateLink(int row, double simTime)
+		{
+			final double [] v = linkStats.values; final int b = row * linkStats.numColumns;
+			final double timeInterval = simTime - v [b + LINK_LASTUPDATETIME];
+			if (!(timeInterval > 0)) return; // also if the link was never updated
+			final double l_e = v [b + LINK_LENGTHINKM];
+			final double u_e = v [b + LINK_CAPACITY];
+			final double y_e = v [b + LINK_OCCUPIEDCAPACITY];
+			final double rho_e = getUtilization(u_e, y_e);
+			final double oversubscribedCapacity = getOversubscribedCapacity(u_e, y_e);
+			accumulate(v, b + LINK_ACCUM_LENGTHINKM, l_e, timeInterval);
+			accumulate(v, b + LINK_ACCUM_CAPACITY, u_e, timeInterval);
+			accumulate(v, b + LINK_ACCUM_OCCUPIEDCAPACITY, y_e, timeInterval);
+			accumulate(v, b + LINK_ACCUM_UTILIZATION, rho_e, timeInterval);
+			accumulate(v, b + LINK_ACCUM_OVERSUBSCRIBEDCAPACITY, oversubscribedCapacity, timeInterval);
+			if (oversubscribedCapacity > 0) v [b + LINK_OVERSUBSCRIBEDTIME] += timeInterval;
+			if (v [b + LINK_ISUP] == 1) v [b + LINK_UPTIME] += timeInterval;
+			v [b + LINK_TOTALTIME] += timeInterval;
+			v [b + LINK_LASTUPDATETIME] = simTime;
+		}
+
+		private void accumulateDemand(int row, double simTime)
+		{
+			final double [] v = demandStats.values; final int b = row * demandStats.numColumns;
+			final double timeInterval = simTime - v [b + DEMAND_LASTUPDATETIME];
+			if (!(timeInterval > 0)) return; // also if the demand was never updated
+			final double h_d = v [b + DEMAND_OFFEREDTRAFFIC];
+			final double r_d = v [b + DEMAND_CARRIEDTRAFFIC];
+			final double blockedTraffic_d = getBlockedTraffic(h_d, r_d);
+			double excessCarriedTraffic_d = r_d - h_d; if (excessCarriedTraffic_d < precisionFactor) excessCarriedTraffic_d = 0;
+			accumulate(v, b + DEMAND_ACCUM_OFFEREDTRAFFIC, h_d, timeInterval);
+			accumulate(v, b + DEMAND_ACCUM_CARRIEDTRAFFIC, r_d, timeInterval);
+			accumulate(v, b + DEMAND_ACCUM_BLOCKEDTRAFFIC, blockedTraffic_d, timeInterval);
+			if (blockedTraffic_d == 0) v [b + DEMAND_AVAILABILITYCLASSIC] += timeInterval;
+			v [b + DEMAND_AVAILABILITYWEIGHTED] += h_d > 0 ? (1 - blockedTraffic_d / h_d) * timeInterval : timeInterval;
+			accumulate(v, b + DEMAND_ACCUM_EXCESSCARRIEDTRAFFIC, excessCarriedTraffic_d, timeInterval);
+			if (excessCarriedTraffic_d > 0) v [b + DEMAND_EXCESSCARRIEDTRAFFICTIME] += timeInterval;
+			v [b + DEMAND_TOTALTIME] += timeInterval;
+			v [b + DEMAND_LASTUPDATETIME] = simTime;
+		}
+
+		private void accumulateNode(int row, double simTime)
+		{
+			final double [] v = nodeStats.values; final int b = row * nodeStats.numColumns;
+			final double timeInterval = simTime - v [b + NODELAYER_LASTUPDATETIME];
+			if (!(timeInterval > 0)) return; // also if the node was never updated
+			final double nodeInDegree = v [b + NODELAYER_INDEGREE];
+			final double nodeOutDegree = v [b + NODELAYER_OUTDEGREE];
+			accumulate(v, b + NODELAYER_ACCUM_INDEGREE, nodeInDegree, timeInterval);
+			v [b + NODELAYER_ACCUM_OUTDEGREE] += nodeOutDegree * timeInterval;
+			v [b + NODELAYER_ACCUM_OUTDEGREE + 1] = Math.min(nodeInDegree, v [b + NODELAYER_ACCUM_OUTDEGREE + 1]);
+			v [b + NODELAYER_ACCUM_OUTDEGREE + 2] = Math.max(nodeInDegree, v [b + NODELAYER_ACCUM_OUTDEGREE + 2]);
+			accumulate(v, b + NODELAYER_ACCUM_INGRESSTRAFFIC, v [b + NODELAYER_INGRESSTRAFFIC], timeInterval);
+			accumulate(v, b + NODELAYER_ACCUM_EGRESSTRAFFIC, v [b + NODELAYER_EGRESSTRAFFIC], timeInterval);
+			v [b + NODELAYER_LASTUPDATETIME] = simTime;
+		}
+
+		/* Worst availability among the removed demands, and the current ones up to their last update */
+		private double getWorstDemandAvailability(boolean classic)
+		{
+			double worstDemandAvailability = classic ? worstDemandAvailabilityClassic : worstDemandAvailabilityWeighted;
+			final double [] v = demandStats.values; final int n = demandStats.numColumns;
+			for (int row = 0; row < demandStats.numRows; row ++)
+			{
+				final double totalTime_thisDemand = v [row * n + DEMAND_TOTALTIME];
+				worstDemandAvailability = Math.min(worstDemandAvailability, totalTime_thisDemand > 0 ? v [row * n + (classic ? DEMAND_AVAILABILITYCLASSIC : DEMAND_AVAILABILITYWEIGHTED)] / totalTime_thisDemand : 0);
+			}
+			return worstDemandAvailability;
+		}
+
+		private void accumulateAllElements(double simTime)
+		{
+			for (int row = 0; row < nodeStats.numRows; row ++) accumulateNode(row, simTime);
+			for (int row = 0; row < linkStats.numRows; row ++) accumulateLink(row, simTime);
+			for (int row = 0; row < demandStats.numRows; row ++) accumulateDemand(row, simTime);
+		}
+
+		private void rebuild(NetworkLayer netStateLayer)
+		{
+			final Set<Long> demandIds = new HashSet<Long>(NetPlan.getIds(netState.getDemands(netStateLayer)));
+			for (int row = 0; row < demandStats.numRows; row ++)
+				if (!demandIds.contains(demandStats.ids [row]))
+				{
+					accumulateDemand(row, lastEventTime);
+					final double totalTime_thisDemand = demandStats.values [row * demandStats.numColumns + DEMAND_TOTALTIME];
+					if (totalTime_thisDemand > 0)
+					{
+						removedDemandsWorstAvailabilityClassic = Math.min(removedDemandsWorstAvailabilityClassic, demandStats.values [row * demandStats.numColumns + DEMAND_AVAILABILITYCLASSIC] / totalTime_thisDemand);
+						removedDemandsWorstAvailabilityWeighted = Math.min(removedDemandsWorstAvailabilityWeighted, demandStats.values [row * demandStats.numColumns + DEMAND_AVAILABILITYWEIGHTED] / totalTime_thisDemand);
+					}
+				}
+			nodeStats = nodeStats.rebuild(netState.getNodes());
+			linkStats = linkStats.rebuild(netState.getLinks(netStateLayer));
+			demandStats = demandStats.rebuild(netState.getDemands(netStateLayer));
+			nodesToUpdate.clear(); nodesToUpdate.addAll(netState.getNodes());
+			linksToUpdate.clear(); linksToUpdate.addAll(netState.getLinks(netStateLayer));
+			demandsToUpdate.clear(); demandsToUpdate.addAll(netState.getDemands(netStateLayer));
+			recomputeTotals();
+		}
+
+		private void checkConsistency(NetworkLayer netStateLayer)
+		{
+			nodeStats.checkIds(netState.getNodes());
+			linkStats.checkIds(netState.getLinks(netStateLayer));
+			demandStats.checkIds(netState.getDemands(netStateLayer));
+			for (Link link : netState.getLinks(netStateLayer))
+			{
+				final int b = link.getIndex() * linkStats.numColumns;
+				if (linkStats.values [b + LINK_CAPACITY] != link.getCapacity()) throw new RuntimeException("Bad");
+				if (linkStats.values [b + LINK_OCCUPIEDCAPACITY] != link.getOccupiedCapacity()) throw new RuntimeException("Bad");
+				if (linkStats.values [b + LINK_LENGTHINKM] != link.getLengthInKm()) throw new RuntimeException("Bad");
+				if (linkStats.values [b + LINK_ISUP] != (link.isUp() ? 1 : 0)) throw new RuntimeException("Bad");
+			}
+			for (Demand demand : netState.getDemands(netStateLayer))
+			{
+				final int b = demand.getIndex() * demandStats.numColumns;
+				if (demandStats.values [b + DEMAND_OFFEREDTRAFFIC] != demand.getOfferedTraffic()) throw new RuntimeException("Bad");
+				if (demandStats.values [b + DEMAND_CARRIEDTRAFFIC] != demand.getCarriedTraffic()) throw new RuntimeException("Bad");
+			}
+			for (Node node : netState.getNodes())
+			{
+				final int b = node.getIndex() * nodeStats.numColumns;
+				if (nodeStats.values [b + NODELAYER_INDEGREE] != node.getIncomingLinks(netStateLayer).size()) throw new RuntimeException("Bad");
+				if (nodeStats.values [b + NODELAYER_OUTDEGREE] != node.getOutgoingLinks(netStateLayer).size()) throw new RuntimeException("Bad");
+				if (nodeStats.values [b + NODELAYER_INGRESSTRAFFIC] != node.getIngressCarriedTraffic(netStateLayer)) throw new RuntimeException("Bad");
+				if (nodeStats.values [b + NODELAYER_EGRESSTRAFFIC] != node.getEgressCarriedTraffic(netStateLayer)) throw new RuntimeException("Bad");
+			}
+			final double totalsTolerance = 1e-6 * (1 + Math.abs(current_totalOfferedTraffic) + Math.abs(current_totalCapacity));
+			double totalCapacityInstalled = 0, congestion = 0, totalOfferedTraffic = 0;
+			for (Link link : netState.getLinks(netStateLayer)) { totalCapacityInstalled += link.getCapacity(); congestion = Math.max(congestion, getUtilization(link.getCapacity(), link.getOccupiedCapacity())); }
+			for (Demand demand : netState.getDemands(netStateLayer)) totalOfferedTraffic += demand.getOfferedTraffic();
+			if (Math.abs(totalCapacityInstalled - current_totalCapacity) > totalsTolerance) throw new RuntimeException("Bad");
+			if (Math.abs(totalOfferedTraffic - current_totalOfferedTraffic) > totalsTolerance) throw new RuntimeException("Bad");
+			if (congestion != current_congestion) throw new RuntimeException("Bad");
+		}
+	}
+
+	/* Rows of primitive values, one per network element, in the order of the element indexes. Removing a row shifts the following ones, as the element indexes do */
+	private static final class StatsTable
+	{
+		private final double [] initialRow;
+		private final int numColumns;
+		private double [] values;
+		private long [] ids;
+		private int numRows;
+
+		private StatsTable(double [] initialRow)
+		{
+			this.initialRow = initialRow;
+			this.numColumns = initialRow.length;
+			this.values = new double [16 * numColumns];
+			this.ids = new long [16];
+			this.numRows = 0;
+		}
+
+		private int addRow(long id)
+		{
+			if (numRows == ids.length)
+			{
+				ids = Arrays.copyOf(ids, 2 * numRows);
+				values = Arrays.copyOf(values, 2 * numRows * numColumns);
+			}
+			System.arraycopy(initialRow, 0, values, numRows * numColumns, numColumns);
+			ids [numRows] = id;
+			return numRows ++;
+		}
+
+		private void removeRow(int row)
+		{
+			System.arraycopy(values, (row + 1) * numColumns, values, row * numColumns, (numRows - row - 1) * numColumns);
+			System.arraycopy(ids, row + 1, ids, row, numRows - row - 1);
+			numRows --;
+		}
+
+		/* Returns a table with one row per element, keeping the rows of the elements with the same identifier */
+		private StatsTable rebuild(List<? extends NetworkElement> elements)
+		{
+			final Map<Long, Integer> rowsById = new HashMap<Long, Integer>();
+			for (int row = 0; row < numRows; row ++) rowsById.put(ids [row], row);
+			final StatsTable res = new StatsTable(initialRow);
+			for (NetworkElement e : elements)
+			{
+				final int newRow = res.addRow(e.getId());
+				final Integer row = rowsById.get(e.getId());
+				if (row != null) System.arraycopy(values, row * numColumns, res.values, newRow * numColumns, numColumns);
+			}
+			return res;
+		}
+
+		private void checkIds(List<? extends NetworkElement> elements)
+		{
+			if (elements.size() != numRows) throw new RuntimeException("Bad");
+			for (NetworkElement e : elements) if (ids [e.getIndex()] != e.getId()) throw new RuntimeException("Bad");
+		}
+	}
 }
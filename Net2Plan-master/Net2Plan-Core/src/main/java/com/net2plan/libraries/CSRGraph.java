@@ -0,0 +1,469 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * <p>Snapshot of a directed graph (nodes, links and link costs) in compressed sparse row format, with integer node and link indexes and primitive
+ * arrays for the link costs, lengths and propagation delays. It is used to run repeatedly shortest path (Dijkstra) and k-shortest path (Yen) computations
+ * on the same topology, without building a graph object and weight transformers per computation, as the {@link GraphUtils GraphUtils}
+ * methods based on JUNG do. The search structures are allocated once, and reused among computations.</p>
+ *
+ * <p>Links with cost {@code Double.MAX_VALUE} are not included in the snapshot. Changes in the network design after the snapshot
+ * is created are not reflected in it.</p>
+ *
+ * <p><b>Important</b>: Objects of this class are not thread-safe, since the search structures are shared among the computations.
+ * Each thread should use its own snapshot.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+public final class CSRGraph
+{
+	private static final double PRECISION_FACTOR = 1E-10;
+
+	private final Node [] nodes;
+	private final Link [] links;
+	private final Map<Node, Integer> nodeIndexes;
+	private final int [] originNode_e;
+	private final int [] destinationNode_e;
+	private final double [] cost_e;
+	private final double [] lengthInKm_e;
+	private final double [] propagationDelayInMs_e;
+	private final int [] outLinksStart_n;
+	private final int [] outLinks;
+	private final int [] inLinksStart_n;
+	private final int [] inLinks;
+
+	/* Search structures: a node (link) is reached (blocked) if its stamp equals the current one, so they are not cleared between searches */
+	private final PrimitiveHeap heap;
+	private final double [] distance_n;
+	private final int [] predecessorLink_n;
+	private final int [] reachedStamp_n;
+	private final int [] blockedStamp_n;
+	private final int [] blockedStamp_e;
+	private int reachedStamp;
+	private int blockedStamp;
+
+	/**
+	 * Creates the snapshot of the links of a layer, with the given costs.
+	 *
+	 * @param netPlan Network design
+	 * @param linkCosts Cost per link (in the order of the link indexes in the layer). If {@code null}, all the links have cost one. Links with cost {@code Double.MAX_VALUE} are not considered
+	 * @param optionalLayer Network layer (optional)
+	 * @since 0.5.3
+	 */
+	public CSRGraph(NetPlan netPlan, DoubleMatrix1D linkCosts, NetworkLayer ... optionalLayer)
+	{
+		this(netPlan.getNodes(), netPlan.getLinks(netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer)), linkCosts == null ? null : toLinkCostMap(netPlan.getLinks(netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer)), linkCosts));
+	}
+
+	/**
+	 * Creates the snapshot of the given nodes and links.
+	 *
+	 * @param nodes Collection of nodes
+	 * @param links Collection of links. The end nodes of the links must be in the collection of nodes
+	 * @param linkCostMap Cost per link. If {@code null}, all the links have cost one. Links with cost {@code Double.MAX_VALUE} are not considered
+	 * @since 0.5.3
+	 */
+	public CSRGraph(Collection<Node> nodes, Collection<Link> links, Map<Link, Double> linkCostMap)
+	{
+		this.nodes = nodes.toArray(new Node [nodes.size()]);
+		final int N = this.nodes.length;
+		this.nodeIndexes = new HashMap<Node, Integer>();
+		for (int n = 0; n < N; n++) nodeIndexes.put(this.nodes [n], n);
+
+		final List<Link> validLinks = new ArrayList<Link>(links.size());
+		for (Link e : links)
+		{
+			final double cost = linkCostMap == null ? 1.0 : linkCostMap.get(e);
+			if (cost == Double.MAX_VALUE) continue;
+			if (cost < 0) throw new Net2PlanException("Link costs must be non-negative");
+			validLinks.add(e);
+		}
+		final int E = validLinks.size();
+		this.links = new Link [E];
+		this.originNode_e = new int [E];
+		this.destinationNode_e = new int [E];
+		this.cost_e = new double [E];
+		this.lengthInKm_e = new double [E];
+		this.propagationDelayInMs_e = new double [E];
+		this.outLinksStart_n = new int [N + 1];
+		this.outLinks = new int [E];
+		this.inLinksStart_n = new int [N + 1];
+		this.inLinks = new int [E];
+		for (int e = 0; e < E; e++)
+		{
+			final Link link = validLinks.get(e);
+			final Integer a_e = nodeIndexes.get(link.getOriginNode());
+			final Integer b_e = nodeIndexes.get(link.getDestinationNode());
+			if (a_e == null || b_e == null) throw new Net2PlanException("The end nodes of link " + link + " are not in the collection of nodes");
+			this.links [e] = link;
+			originNode_e [e] = a_e;
+			destinationNode_e [e] = b_e;
+			cost_e [e] = linkCostMap == null ? 1.0 : linkCostMap.get(link);
+			lengthInKm_e [e] = link.getLengthInKm();
+			propagationDelayInMs_e [e] = link.getPropagationDelayInMs();
+			outLinksStart_n [a_e + 1] ++;
+			inLinksStart_n [b_e + 1] ++;
+		}
+		for (int n = 0; n < N; n++) { outLinksStart_n [n + 1] += outLinksStart_n [n]; inLinksStart_n [n + 1] += inLinksStart_n [n]; }
+		final int [] outPosition = Arrays.copyOf(outLinksStart_n, N);
+		final int [] inPosition = Arrays.copyOf(inLinksStart_n, N);
+		for (int e = 0; e < E; e++) { outLinks [outPosition [originNode_e [e]] ++] = e; inLinks [inPosition [destinationNode_e [e]] ++] = e; }
+
+		this.heap = new PrimitiveHeap(Math.max(N, 1));
+		this.distance_n = new double [N];
+		this.predecessorLink_n = new int [N];
+		this.reachedStamp_n = new int [N];
+		this.blockedStamp_n = new int [N];
+		this.blockedStamp_e = new int [E];
+		this.reachedStamp = 0;
+		this.blockedStamp = 0;
+	}
+
+	/**
+	 * Returns the number of nodes in the snapshot.
+	 *
+	 * @return Number of nodes
+	 * @since 0.5.3
+	 */
+	public int getNumberOfNodes()
+	{
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the number of links in the snapshot (links with cost {@code Double.MAX_VALUE} are not included).
+	 *
+	 * @return Number of links
+	 * @since 0.5.3
+	 */
+	public int getNumberOfLinks()
+	{
+		return links.length;
+	}
+
+	/**
+	 * Returns the shortest path between two nodes, using Dijkstra's algorithm.
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @return Sequence of links in the shortest path (empty, if the destination is not reachable from the origin, or any of the nodes is not in the snapshot)
+	 * @since 0.5.3
+	 */
+	public List<Link> getShortestPath(Node originNode, Node destinationNode)
+	{
+		final Integer origin = nodeIndexes.get(originNode);
+		final Integer destination = nodeIndexes.get(destinationNode);
+		final LinkedList<Link> path = new LinkedList<Link>();
+		if (origin == null || destination == null || origin.equals(destination)) return path;
+		nextBlockedStamp();
+		if (!computeShortestPath(origin, destination)) return path;
+		for (int n = destination; n != origin; n = originNode_e [predecessorLink_n [n]])
+			path.addFirst(links [predecessorLink_n [n]]);
+		return path;
+	}
+
+	/**
+	 * Returns the K-loopless shortest paths between two nodes (Yen's algorithm), satisfying some user-defined constraints. If only <i>n</i> shortest paths are found (n&lt;K), those are returned.
+	 * The semantics of the parameters are those of {@link GraphUtils#getKLooplessShortestPaths(List, List, Node, Node, Map, int, double, int, double, double, double, double) GraphUtils.getKLooplessShortestPaths}.
+	 * The paths returned are the K cheapest among those satisfying the length, number of hops and propagation delay limits: the paths that do not
+	 * satisfy them are not returned, but are still used to derive other paths from them. The cost limits are relative to the shortest path, with or without these limits.
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @param K Desired number of paths
+	 * @param maxLengthInKm Maximum length of the path. If non-positive, no maximum limit is assumed
+	 * @param maxNumHops Maximum number of hops. If non-positive, no maximum limit is assumed
+	 * @param maxPropDelayInMs Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCost Maximum route cost. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostRespectToShortestPath Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @return K-shortest paths
+	 * @since 0.5.3
+	 */
+	public List<List<Link>> getKLooplessShortestPaths(Node originNode, Node destinationNode, int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
+	{
+		if (maxLengthInKm <= 0) maxLengthInKm = Double.MAX_VALUE;
+		if (maxNumHops <= 0) maxNumHops = Integer.MAX_VALUE;
+		if (maxPropDelayInMs <= 0) maxPropDelayInMs = Double.MAX_VALUE;
+		if (maxRouteCost <= 0) maxRouteCost = Double.MAX_VALUE;
+		if (maxRouteCostFactorRespectToShortestPath <= 0) maxRouteCostFactorRespectToShortestPath = Double.MAX_VALUE;
+		if (maxRouteCostRespectToShortestPath <= 0) maxRouteCostRespectToShortestPath = Double.MAX_VALUE;
+		return toLinkPaths(computeKShortestPaths(originNode, destinationNode, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath, false));
+	}
+
+	/**
+	 * Returns all the loopless shortest paths between two nodes. All these paths have the same total cost.
+	 *
+	 * @param originNode Origin node
+	 * @param destinationNode Destination node
+	 * @return All loopless shortest paths
+	 * @since 0.5.3
+	 */
+	public List<List<Link>> getAllLooplessShortestPaths(Node originNode, Node destinationNode)
+	{
+		return toLinkPaths(computeKShortestPaths(originNode, destinationNode, Integer.MAX_VALUE, Double.MAX_VALUE, Integer.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, true));
+	}
+
+	private static Map<Link, Double> toLinkCostMap(List<Link> links, DoubleMatrix1D linkCosts)
+	{
+		if (linkCosts.size() != links.size()) throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
+		final Map<Link, Double> linkCostMap = new HashMap<Link, Double>();
+		for (Link e : links) linkCostMap.put(e, linkCosts.get(e.getIndex()));
+		return linkCostMap;
+	}
+
+	private List<List<Link>> toLinkPaths(List<int []> paths)
+	{
+		final List<List<Link>> res = new ArrayList<List<Link>>(paths.size());
+		for (int [] path : paths)
+		{
+			final List<Link> seqLinks = new ArrayList<Link>(path.length);
+			for (int e : path) seqLinks.add(links [e]);
+			res.add(seqLinks);
+		}
+		return res;
+	}
+
+	/* Yen's algorithm, with the same candidate ordering as GraphUtils.YenAlgorithm. The paths not satisfying the length, hops or delay limits are
+	 * explored as any other (other paths are derived from them) but not returned: discarding them, as GraphUtils.YenAlgorithm does, loses the
+	 * feasible paths that are only found as deviations from them. The deviations whose head cannot be completed into a feasible path are not computed */
+	private List<int []> computeKShortestPaths(Node originNode, Node destinationNode, int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, boolean onlyShortestPaths)
+	{
+		final List<int []> paths = new ArrayList<int []>();
+		final Integer originObject = nodeIndexes.get(originNode);
+		final Integer destinationObject = nodeIndexes.get(destinationNode);
+		if (originObject == null || destinationObject == null || originObject.equals(destinationObject)) return paths;
+		final int origin = originObject;
+		final int destination = destinationObject;
+
+		nextBlockedStamp();
+		if (!computeShortestPath(origin, destination)) return paths;
+		final CandidatePath shortestPath = new CandidatePath(getComputedPath(origin, destination, null, 0));
+
+		/* Lower bounds of the length, hops and delay from each node to the destination, to discard the heads that cannot be completed */
+		final boolean withLengthLimit = maxLengthInKm != Double.MAX_VALUE;
+		final boolean withHopsLimit = maxNumHops != Integer.MAX_VALUE;
+		final boolean withDelayLimit = maxPropDelayInMs != Double.MAX_VALUE;
+		final double [] minLengthInKmToDestination_n = withLengthLimit ? computeDistancesToDestination(destination, lengthInKm_e) : null;
+		final double [] minNumHopsToDestination_n = withHopsLimit ? computeDistancesToDestination(destination, null) : null;
+		final double [] minPropDelayInMsToDestination_n = withDelayLimit ? computeDistancesToDestination(destination, propagationDelayInMs_e) : null;
+
+		final List<int []> exploredPaths = new ArrayList<int []>();
+		final PriorityQueue<CandidatePath> candidates = new PriorityQueue<CandidatePath>();
+		final Set<CandidatePath> candidatesSet = new HashSet<CandidatePath>();
+		int [] currentPath = shortestPath.path;
+		while (true)
+		{
+			if (acceptPath(currentPath, maxLengthInKm, maxNumHops, maxPropDelayInMs))
+			{
+				paths.add(currentPath);
+				if (paths.size() >= K) break;
+			}
+			exploredPaths.add(currentPath);
+
+			double headLengthInKm = 0;
+			double headPropDelayInMs = 0;
+			for (int deviationId = 0; deviationId < currentPath.length; deviationId++)
+			{
+				if (deviationId > 0) { headLengthInKm += lengthInKm_e [currentPath [deviationId - 1]]; headPropDelayInMs += propagationDelayInMs_e [currentPath [deviationId - 1]]; }
+				final int deviationNode = deviationId == 0 ? origin : destinationNode_e [currentPath [deviationId - 1]];
+
+				/* No path with this head satisfies the limits, and neither with the longer heads of the next deviations */
+				if (withHopsLimit && deviationId + minNumHopsToDestination_n [deviationNode] > maxNumHops) break;
+				if (withLengthLimit && headLengthInKm + minLengthInKmToDestination_n [deviationNode] > maxLengthInKm * (1 + PRECISION_FACTOR)) break;
+				if (withDelayLimit && headPropDelayInMs + minPropDelayInMsToDestination_n [deviationNode] > maxPropDelayInMs * (1 + PRECISION_FACTOR)) break;
+
+				/* Nodes in the head are blocked, as well as the links out of the deviation node used by the paths explored with the same head */
+				nextBlockedStamp();
+				for (int cont = 0; cont < deviationId; cont++) blockedStamp_n [originNode_e [currentPath [cont]]] = blockedStamp;
+				for (int [] path : exploredPaths)
+					if (path.length > deviationId && isSamePrefix(path, currentPath, deviationId))
+						blockedStamp_e [path [deviationId]] = blockedStamp;
+
+				if (!computeShortestPath(deviationNode, destination)) continue;
+
+				final CandidatePath candidate = new CandidatePath(getComputedPath(deviationNode, destination, currentPath, deviationId));
+				if (candidatesSet.contains(candidate)) continue;
+
+				/* The candidates come out in non-decreasing cost, then those exceeding a cost limit (and the ones derived from them) can be discarded */
+				if (onlyShortestPaths)
+				{
+					if (Math.abs(candidate.cost - shortestPath.cost) >= PRECISION_FACTOR) continue;
+				}
+				else
+				{
+					if (maxRouteCost != Double.MAX_VALUE && candidate.cost > maxRouteCost) continue;
+					if (maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE && candidate.cost > shortestPath.cost * maxRouteCostFactorRespectToShortestPath) continue;
+					if (maxRouteCostRespectToShortestPath != Double.MAX_VALUE && candidate.cost > shortestPath.cost + maxRouteCostRespectToShortestPath) continue;
+				}
+				candidates.add(candidate);
+				candidatesSet.add(candidate);
+			}
+
+			if (candidates.isEmpty()) break; /* No more candidate paths */
+			currentPath = candidates.poll().path;
+		}
+		return paths;
+	}
+
+	private boolean acceptPath(int [] path, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs)
+	{
+		if (maxNumHops != Integer.MAX_VALUE && path.length > maxNumHops) return false;
+		if (maxLengthInKm == Double.MAX_VALUE && maxPropDelayInMs == Double.MAX_VALUE) return true;
+		double pathLengthInKm = 0;
+		double pathPropDelayInMs = 0;
+		for (int e : path) { pathLengthInKm += lengthInKm_e [e]; pathPropDelayInMs += propagationDelayInMs_e [e]; }
+		return pathLengthInKm <= maxLengthInKm && pathPropDelayInMs <= maxPropDelayInMs;
+	}
+
+	/* Dijkstra from the destination on the reversed links, with the given link weights (one per link if null), and without blocked elements.
+	 * The nodes not connected to the destination get an infinite distance */
+	private double [] computeDistancesToDestination(int destination, double [] weight_e)
+	{
+		final double [] res = new double [nodes.length];
+		Arrays.fill(res, Double.POSITIVE_INFINITY);
+		heap.clear();
+		res [destination] = 0;
+		heap.add(destination, 0);
+		while (!heap.isEmpty())
+		{
+			final double distV = heap.peekKey();
+			final int v = heap.poll();
+			if (distV > res [v]) continue;
+			for (int cont = inLinksStart_n [v]; cont < inLinksStart_n [v + 1]; cont++)
+			{
+				final int e = inLinks [cont];
+				final int u = originNode_e [e];
+				final double candidate = distV + (weight_e == null ? 1.0 : weight_e [e]);
+				if (candidate < res [u]) { res [u] = candidate; heap.add(u, candidate); }
+			}
+		}
+		return res;
+	}
+
+	private static boolean isSamePrefix(int [] path1, int [] path2, int prefixLength)
+	{
+		for (int cont = 0; cont < prefixLength; cont++)
+			if (path1 [cont] != path2 [cont]) return false;
+		return true;
+	}
+
+	/* The head (first headLength links of the given path) followed by the path found in the last search, from its origin to the destination */
+	private int [] getComputedPath(int origin, int destination, int [] headPath, int headLength)
+	{
+		int numHops = 0;
+		for (int n = destination; n != origin; n = originNode_e [predecessorLink_n [n]]) numHops ++;
+		final int [] path = new int [headLength + numHops];
+		if (headLength > 0) System.arraycopy(headPath, 0, path, 0, headLength);
+		int position = path.length;
+		for (int n = destination; n != origin; n = originNode_e [predecessorLink_n [n]]) path [-- position] = predecessorLink_n [n];
+		return path;
+	}
+
+	private void nextBlockedStamp()
+	{
+		if (blockedStamp == Integer.MAX_VALUE) { Arrays.fill(blockedStamp_n, 0); Arrays.fill(blockedStamp_e, 0); blockedStamp = 0; }
+		blockedStamp ++;
+	}
+
+	/* Dijkstra from the origin, avoiding the blocked nodes and links, until the destination is reached. Returns false if it is not reachable */
+	private boolean computeShortestPath(int origin, int destination)
+	{
+		if (reachedStamp == Integer.MAX_VALUE) { Arrays.fill(reachedStamp_n, 0); reachedStamp = 0; }
+		reachedStamp ++;
+		heap.clear();
+		distance_n [origin] = 0;
+		predecessorLink_n [origin] = -1;
+		reachedStamp_n [origin] = reachedStamp;
+		heap.add(origin, 0);
+		while (!heap.isEmpty())
+		{
+			final double distU = heap.peekKey();
+			final int u = heap.poll();
+			if (distU > distance_n [u]) continue;
+			if (u == destination) return true;
+			for (int cont = outLinksStart_n [u]; cont < outLinksStart_n [u + 1]; cont++)
+			{
+				final int e = outLinks [cont];
+				if (blockedStamp_e [e] == blockedStamp) continue;
+				final int v = destinationNode_e [e];
+				if (blockedStamp_n [v] == blockedStamp) continue;
+				final double candidate = distU + cost_e [e];
+				if (reachedStamp_n [v] != reachedStamp || candidate < distance_n [v])
+				{
+					reachedStamp_n [v] = reachedStamp;
+					distance_n [v] = candidate;
+					predecessorLink_n [v] = e;
+					heap.add(v, candidate);
+				}
+			}
+		}
+		return false;
+	}
+
+	/* Candidate path in Yen's algorithm. Ordered by cost, and then by number of hops (the longest first), as GraphUtils.GraphPath */
+	private final class CandidatePath implements Comparable<CandidatePath>
+	{
+		private final int [] path;
+		private final double cost;
+
+		private CandidatePath(int [] path)
+		{
+			this.path = path;
+			double pathCost = 0;
+			for (int e : path) pathCost += cost_e [e];
+			this.cost = pathCost;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (o == this) return true;
+			if (!(o instanceof CandidatePath)) return false;
+			return Arrays.equals(path, ((CandidatePath) o).path);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode(path);
+		}
+
+		@Override
+		public int compareTo(CandidatePath o)
+		{
+			if (cost < o.cost) return -1;
+			if (cost > o.cost) return 1;
+			return path.length == o.path.length ? 0 : (path.length > o.path.length ? -1 : 1);
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Pair;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Cache of candidate path lists, as computed by {@link NetPlan#computeUnicastCandidatePathList(DoubleMatrix1D, int, double, int, double, double, double, double, Set, NetworkLayer...) computeUnicastCandidatePathList}.
+ * The cache is content-addressed: the key of a candidate path list is a fingerprint (a SHA-256 hash) of the layer topology (number of nodes, and end nodes,
+ * length and propagation delay of each link), the link costs, the number of paths K, the path constraints and the node pairs. Then, a candidate path list
+ * computed for a topology is reused in any later computation (also in other network designs, or in other executions) with the same fingerprint, and
+ * it is never reused if any of them changes.</p>
+ *
+ * <p>The cache has two tiers: an in-memory tier with a limited number of candidate path lists, discarding the least recently used, and an optional on-disk tier
+ * with one file per candidate path list, also limited in the number of files, discarding the least recently used. Both tiers store the paths as arrays of link
+ * indexes, which are mapped back to the links of the layer when they are read. The on-disk tier is only used if a folder is given when the cache is created
+ * (e.g. {@link #getUserCacheDirectory()}): the {@link #getDefault() default cache} only keeps the candidate path lists in memory.</p>
+ *
+ * <p>The fingerprint includes a version of the candidate path list computation, so the lists stored on disk by a version of Net2Plan computing different
+ * paths are not reused.</p>
+ *
+ * <p>Objects of this class are thread-safe.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+public final class CandidatePathListCache
+{
+	private static final int FILE_FORMAT_VERSION = 1;
+	/* Increased each time the paths returned by computeUnicastCandidatePathList for the same inputs change (2: the K cheapest paths within the limits are returned) */
+	private static final int CANDIDATE_PATH_LIST_ALGORITHM_VERSION = 2;
+	private static final String FILE_EXTENSION = ".cpl";
+	private static final int DEFAULT_MAX_NUMBER_OF_ENTRIES_IN_MEMORY = 16;
+	private static final int DEFAULT_MAX_NUMBER_OF_ENTRIES_ON_DISK = 256;
+	private static CandidatePathListCache defaultCache = null;
+
+	private final int maxNumberOfEntriesInMemory;
+	private final File directory;
+	private final int maxNumberOfEntriesOnDisk;
+	private final LinkedHashMap<String, CachedCandidatePathList> memoryCache;
+	private long numberOfMemoryHits, numberOfDiskHits, numberOfMisses;
+
+	/* Compact form of a candidate path list: node pairs as node indexes, and paths as link indexes */
+	private static final class CachedCandidatePathList
+	{
+		private final int [] originNode_p;
+		private final int [] destinationNode_p;
+		private final int [][][] paths_p;
+
+		private CachedCandidatePathList(int [] originNode_p, int [] destinationNode_p, int [][][] paths_p)
+		{
+			this.originNode_p = originNode_p;
+			this.destinationNode_p = destinationNode_p;
+			this.paths_p = paths_p;
+		}
+	}
+
+	/**
+	 * Creates a cache, with up to 256 candidate path lists on disk.
+	 *
+	 * @param maxNumberOfEntriesInMemory Maximum number of candidate path lists kept in memory (the least recently used is discarded first)
+	 * @param directory Folder for the on-disk tier (created if it does not exist). If {@code null}, the candidate path lists are only kept in memory
+	 * @since 0.5.3
+	 */
+	public CandidatePathListCache(int maxNumberOfEntriesInMemory, File directory)
+	{
+		this(maxNumberOfEntriesInMemory, directory, DEFAULT_MAX_NUMBER_OF_ENTRIES_ON_DISK);
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxNumberOfEntriesInMemory Maximum number of candidate path lists kept in memory (the least recently used is discarded first)
+	 * @param directory Folder for the on-disk tier (created if it does not exist). If {@code null}, the candidate path lists are only kept in memory
+	 * @param maxNumberOfEntriesOnDisk Maximum number of candidate path lists kept in the folder (the least recently used is discarded first)
+	 * @since 0.5.3
+	 */
+	public CandidatePathListCache(int maxNumberOfEntriesInMemory, File directory, int maxNumberOfEntriesOnDisk)
+	{
+		if (maxNumberOfEntriesInMemory < 0) throw new Net2PlanException("The maximum number of entries in memory cannot be negative");
+		if (maxNumberOfEntriesOnDisk < 1) throw new Net2PlanException("The maximum number of entries on disk must be positive");
+		this.maxNumberOfEntriesInMemory = maxNumberOfEntriesInMemory;
+		this.directory = directory;
+		this.maxNumberOfEntriesOnDisk = maxNumberOfEntriesOnDisk;
+		this.memoryCache = new LinkedHashMap<String, CachedCandidatePathList>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedCandidatePathList> eldest)
+			{
+				return size() > CandidatePathListCache.this.maxNumberOfEntriesInMemory;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache shared by all the algorithms, which keeps the candidate path lists only in memory.
+	 *
+	 * @return The default cache
+	 * @since 0.5.3
+	 */
+	public static synchronized CandidatePathListCache getDefault()
+	{
+		if (defaultCache == null)
+			defaultCache = new CandidatePathListCache(DEFAULT_MAX_NUMBER_OF_ENTRIES_IN_MEMORY, null);
+		return defaultCache;
+	}
+
+	/**
+	 * Returns a folder for an on-disk tier kept among executions: {@code .net2plan/cache/cpl} in the user home directory.
+	 *
+	 * @return The folder
+	 * @since 0.5.3
+	 */
+	public static File getUserCacheDirectory()
+	{
+		return new File(new File(new File(System.getProperty("user.home"), ".net2plan"), "cache"), "cpl");
+	}
+
+	/**
+	 * <p>Returns the candidate path list for the given parameters, which are the same as in {@link NetPlan#computeUnicastCandidatePathList(DoubleMatrix1D, int, double, int, double, double, double, double, Set, NetworkLayer...) computeUnicastCandidatePathList}.
+	 * If a candidate path list with the same fingerprint is in the cache, it is returned (with the links of this design). If not, it is computed, and stored in the cache.</p>
+	 *
+	 * @param netPlan Network design
+	 * @param linkCosts the cost of each link (if null, all links have cost one), all numbers must be strictly positive
+	 * @param K Desired nummber of paths (a lower number of paths may be returned if there are less than {@code K} loop-less paths admissible)
+	 * @param maxLengthInKm Maximum length of the path. If non-positive, no maximum limit is assumed
+	 * @param maxNumHops Maximum number of hops. If non-positive, no maximum limit is assumed
+	 * @param maxPropDelayInMs Maximum propagation delay of the path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCost Maximum route cost. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostFactorRespectToShortestPath Maximum route cost factor respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param maxRouteCostRespectToShortestPath Maximum route cost respect to the shortest path. If non-positive, no maximum limit is assumed
+	 * @param nodePairs if this parameter is not null, the paths are computed only for this node pairs
+	 * @param optionalLayerParameter the layer (optional)
+	 * @return Map with all the computed paths (values) per node pairs (keys)
+	 * @since 0.5.3
+	 */
+	public Map<Pair<Node, Node>, List<List<Link>>> computeUnicastCandidatePathList(NetPlan netPlan, DoubleMatrix1D linkCosts,
+			int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost,
+			double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, Set<Pair<Node, Node>> nodePairs, NetworkLayer... optionalLayerParameter)
+	{
+		final NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+		final List<Link> links = netPlan.getLinks(layer);
+		if (linkCosts != null) if (linkCosts.size() != links.size()) throw new Net2PlanException("The array of costs must have the same length as the number of links in the layer");
+		final String fingerprint = getFingerprint(netPlan, links, linkCosts, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath, nodePairs);
+
+		CachedCandidatePathList cached = getFromMemory(fingerprint);
+		if (cached == null)
+		{
+			cached = readFromDisk(fingerprint);
+			synchronized (this)
+			{
+				if (cached != null) { numberOfDiskHits++; memoryCache.put(fingerprint, cached); }
+			}
+		}
+		if (cached != null) return toCandidatePathList(netPlan, layer, cached);
+
+		final Map<Pair<Node, Node>, List<List<Link>>> cpl = netPlan.computeUnicastCandidatePathList(linkCosts, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath, nodePairs, layer);
+		cached = toCachedCandidatePathList(cpl);
+		synchronized (this)
+		{
+			numberOfMisses++;
+			memoryCache.put(fingerprint, cached);
+		}
+		writeToDisk(fingerprint, cached);
+		return cpl;
+	}
+
+	/**
+	 * Removes all the candidate path lists from the cache, in memory and on disk.
+	 *
+	 * @since 0.5.3
+	 */
+	public synchronized void clear()
+	{
+		memoryCache.clear();
+		if (directory == null) return;
+		final File [] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (files != null) for (File file : files) file.delete();
+	}
+
+	/**
+	 * Returns the number of times a candidate path list was found in the memory tier, found in the disk tier, and not found (so it was computed).
+	 *
+	 * @return The number of memory hits, disk hits and misses
+	 * @since 0.5.3
+	 */
+	public synchronized long [] getStatistics()
+	{
+		return new long [] { numberOfMemoryHits, numberOfDiskHits, numberOfMisses };
+	}
+
+	private synchronized CachedCandidatePathList getFromMemory(String fingerprint)
+	{
+		final CachedCandidatePathList cached = memoryCache.get(fingerprint);
+		if (cached != null) numberOfMemoryHits++;
+		return cached;
+	}
+
+	private static String getFingerprint(NetPlan netPlan, List<Link> links, DoubleMatrix1D linkCosts,
+			int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost,
+			double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath, Set<Pair<Node, Node>> nodePairs)
+	{
+		final MessageDigest digest;
+		try { digest = MessageDigest.getInstance("SHA-256"); } catch (NoSuchAlgorithmException e) { throw new RuntimeException(e); }
+		final ByteBuffer buffer = ByteBuffer.allocate(64);
+
+		buffer.putInt(FILE_FORMAT_VERSION).putInt(CANDIDATE_PATH_LIST_ALGORITHM_VERSION).putInt(netPlan.getNumberOfNodes()).putInt(links.size());
+		update(digest, buffer);
+		for (Link e : links)
+		{
+			buffer.putInt(e.getOriginNode().getIndex()).putInt(e.getDestinationNode().getIndex());
+			buffer.putDouble(e.getLengthInKm()).putDouble(e.getPropagationDelayInMs()).putDouble(linkCosts == null ? 1.0 : linkCosts.get(e.getIndex()));
+			update(digest, buffer);
+		}
+		buffer.putInt(K).putDouble(maxLengthInKm).putInt(maxNumHops).putDouble(maxPropDelayInMs).putDouble(maxRouteCost);
+		buffer.putDouble(maxRouteCostFactorRespectToShortestPath).putDouble(maxRouteCostRespectToShortestPath);
+		update(digest, buffer);
+		if (nodePairs == null) buffer.putInt(-1);
+		else
+		{
+			buffer.putInt(nodePairs.size());
+			update(digest, buffer);
+			final List<Pair<Node, Node>> orderedNodePairs = new ArrayList<Pair<Node, Node>>(nodePairs);
+			orderedNodePairs.sort(Comparator.comparingInt((Pair<Node, Node> p) -> p.getFirst().getIndex()).thenComparingInt(p -> p.getSecond().getIndex()));
+			for (Pair<Node, Node> pair : orderedNodePairs)
+			{
+				buffer.putInt(pair.getFirst().getIndex()).putInt(pair.getSecond().getIndex());
+				update(digest, buffer);
+			}
+		}
+		update(digest, buffer);
+
+		final StringBuilder st = new StringBuilder();
+		for (byte b : digest.digest()) st.append(String.format("%02x", b));
+		return st.toString();
+	}
+
+	private static void update(MessageDigest digest, ByteBuffer buffer)
+	{
+		buffer.flip();
+		digest.update(buffer);
+		buffer.clear();
+	}
+
+	private static CachedCandidatePathList toCachedCandidatePathList(Map<Pair<Node, Node>, List<List<Link>>> cpl)
+	{
+		final int P = cpl.size();
+		final int [] originNode_p = new int [P];
+		final int [] destinationNode_p = new int [P];
+		final int [][][] paths_p = new int [P][][];
+		int p = 0;
+		for (Map.Entry<Pair<Node, Node>, List<List<Link>>> entry : cpl.entrySet())
+		{
+			originNode_p [p] = entry.getKey().getFirst().getIndex();
+			destinationNode_p [p] = entry.getKey().getSecond().getIndex();
+			paths_p [p] = new int [entry.getValue().size()][];
+			int k = 0;
+			for (List<Link> path : entry.getValue())
+			{
+				final int [] linkIndexes = new int [path.size()];
+				int cont = 0;
+				for (Link e : path) linkIndexes [cont++] = e.getIndex();
+				paths_p [p][k++] = linkIndexes;
+			}
+			p++;
+		}
+		return new CachedCandidatePathList(originNode_p, destinationNode_p, paths_p);
+	}
+
+	private static Map<Pair<Node, Node>, List<List<Link>>> toCandidatePathList(NetPlan netPlan, NetworkLayer layer, CachedCandidatePathList cached)
+	{
+		final List<Node> nodes = netPlan.getNodes();
+		final List<Link> links = netPlan.getLinks(layer);
+		final Map<Pair<Node, Node>, List<List<Link>>> cpl = new LinkedHashMap<Pair<Node, Node>, List<List<Link>>>();
+		for (int p = 0; p < cached.originNode_p.length; p++)
+		{
+			final List<List<Link>> paths = new ArrayList<List<Link>>(cached.paths_p [p].length);
+			for (int [] linkIndexes : cached.paths_p [p])
+			{
+				final List<Link> path = new ArrayList<Link>(linkIndexes.length);
+				for (int e : linkIndexes) path.add(links.get(e));
+				paths.add(path);
+			}
+			cpl.put(Pair.of(nodes.get(cached.originNode_p [p]), nodes.get(cached.destinationNode_p [p])), paths);
+		}
+		return cpl;
+	}
+
+	/* A file that cannot be read (e.g. written by another version, or truncated) is a miss, it is overwritten when the candidate path list is computed */
+	private CachedCandidatePathList readFromDisk(String fingerprint)
+	{
+		if (directory == null) return null;
+		final File file = new File(directory, fingerprint + FILE_EXTENSION);
+		if (!file.isFile()) return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != FILE_FORMAT_VERSION) return null;
+			final int P = in.readInt();
+			final int [] originNode_p = new int [P];
+			final int [] destinationNode_p = new int [P];
+			final int [][][] paths_p = new int [P][][];
+			for (int p = 0; p < P; p++)
+			{
+				originNode_p [p] = in.readInt();
+				destinationNode_p [p] = in.readInt();
+				paths_p [p] = new int [in.readInt()][];
+				for (int k = 0; k < paths_p [p].length; k++)
+				{
+					paths_p [p][k] = new int [in.readInt()];
+					for (int cont = 0; cont < paths_p [p][k].length; cont++) paths_p [p][k][cont] = in.readInt();
+				}
+			}
+			file.setLastModified(System.currentTimeMillis());
+			return new CachedCandidatePathList(originNode_p, destinationNode_p, paths_p);
+		} catch (IOException | RuntimeException e)
+		{
+			return null;
+		}
+	}
+
+	/* Written first in a temporary file, and then renamed, so other threads or processes never read a partially written file. A failure to write is not an error, just the candidate path list is not stored on disk */
+	private void writeToDisk(String fingerprint, CachedCandidatePathList cached)
+	{
+		if (directory == null) return;
+		if (!directory.isDirectory() && !directory.mkdirs()) return;
+		File temporaryFile = null;
+		try
+		{
+			temporaryFile = File.createTempFile(fingerprint, ".tmp", directory);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile))))
+			{
+				out.writeInt(FILE_FORMAT_VERSION);
+				out.writeInt(cached.originNode_p.length);
+				for (int p = 0; p < cached.originNode_p.length; p++)
+				{
+					out.writeInt(cached.originNode_p [p]);
+					out.writeInt(cached.destinationNode_p [p]);
+					out.writeInt(cached.paths_p [p].length);
+					for (int [] linkIndexes : cached.paths_p [p])
+					{
+						out.writeInt(linkIndexes.length);
+						for (int e : linkIndexes) out.writeInt(e);
+					}
+				}
+			}
+			final File file = new File(directory, fingerprint + FILE_EXTENSION);
+			Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			removeLeastRecentlyUsedFromDisk(file);
+		} catch (IOException e)
+		{
+			if (temporaryFile != null) temporaryFile.delete();
+		}
+	}
+
+	/* The last modification time of a file is the last time it was written or read. The file just written is never removed, even if others have the same time */
+	private void removeLeastRecentlyUsedFromDisk(File fileJustWritten)
+	{
+		final File [] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION) && !name.equals(fileJustWritten.getName()));
+		if (files == null || files.length < maxNumberOfEntriesOnDisk) return;
+		final long [] lastModified_f = new long [files.length];
+		final Integer [] order = new Integer [files.length];
+		for (int f = 0; f < files.length; f++) { lastModified_f [f] = files [f].lastModified(); order [f] = f; }
+		Arrays.sort(order, Comparator.comparingLong(f -> lastModified_f [f]));
+		for (int cont = 0; cont <= files.length - maxNumberOfEntriesOnDisk; cont++) files [order [cont]].delete();
+	}
+}
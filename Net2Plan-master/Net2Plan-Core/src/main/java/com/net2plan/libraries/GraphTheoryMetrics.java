@@ -18,27 +18,36 @@ import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebra;
 import cern.colt.matrix.tdouble.algo.decomposition.DenseDoubleEigenvalueDecomposition;
 import cern.jet.math.tdouble.DoubleFunctions;
+import com.net2plan.interfaces.networkDesign.Configuration;
 import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.Node;
 import com.net2plan.libraries.GraphUtils.JGraphTUtils;
 import com.net2plan.libraries.GraphUtils.JUNGUtils;
 import com.net2plan.utils.CollectionUtils;
 import com.net2plan.utils.Constants;
 import com.net2plan.utils.DoubleUtils;
-import edu.uci.ics.jung.algorithms.scoring.BetweennessCentrality;
 import edu.uci.ics.jung.graph.Graph;
-import org.apache.commons.collections15.Transformer;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.alg.EdmondsKarpMaximumFlow;
 import org.jgrapht.alg.StrongConnectivityInspector;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
 /**
  * <p>Class to deal with graph-theory metrics computation.</p>
  *
  * <p><b>Important</b>: Internal computations (like shortest-paths) are cached in order to improve efficiency.</p>
  *
+ * <p>The shortest path metrics (average shortest path distance, diameter, heterogeneity and betweeness centralities) are computed together,
+ * running a shortest path search from each node in parallel, and are cached until the link costs are changed with {@link #configureLinkCostMap(Map) configureLinkCostMap}.
+ * Links with cost {@code Double.MAX_VALUE} are not considered in these metrics.</p>
+ *
  * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza
  */
 @SuppressWarnings("unchecked")
@@ -57,7 +66,7 @@ public class GraphTheoryMetrics
 	private DoubleMatrix2D incidenceMatrix;
 	private DoubleMatrix2D laplacianMatrix;
 	private double[] laplacianMatrixEigenvalues;
-	private Transformer<Link, Double> nev;
+	private final int numThreads;
 	
 	private DoubleMatrix1D linkBetweenessCentrality;
 	private DoubleMatrix1D nodeBetweenessCentrality;
@@ -71,7 +80,22 @@ public class GraphTheoryMetrics
 	 */
 	public GraphTheoryMetrics(List<Node> nodes, List<Link> links, Map<Link, Double> linkCostMap)
 	{
+		this(nodes, links, linkCostMap, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor setting the number of threads for the shortest path metrics
+	 * @param nodes List of odes
+	 * @param links List of links
+	 * @param linkCostMap Cost per link, where the key is the link identifier and the value is the cost of traversing the link. No special iteration-order (i.e. ascending) is required
+	 * @param numThreads Number of threads used to compute the shortest path metrics (one means a sequential computation)
+	 * @since 0.5.3
+	 */
+	public GraphTheoryMetrics(List<Node> nodes, List<Link> links, Map<Link, Double> linkCostMap, int numThreads)
+	{
+		if (numThreads < 1) throw new Net2PlanException("The number of threads must be positive");
 		this.nodes = nodes;
+		this.numThreads = numThreads;
 		this.linkMap = links;
 		this.N = nodes.size();
 		this.E = links.size();
@@ -84,107 +108,216 @@ public class GraphTheoryMetrics
 		laplacianMatrix = null;
 		laplacianMatrixEigenvalues = null;
 		linkBetweenessCentrality = null;
-		nev = null;
 		nodeBetweenessCentrality = null;
 		outNodeDegree = null;
 
 		configureLinkCostMap(linkCostMap);
 	}
 
-	private void computeBetweenessCentrality()
+	/* Computes in one pass the shortest path distance metrics and the betweeness centrality: a Dijkstra from each source node (run in parallel),
+	 * followed by the Brandes' accumulation of dependencies. The per-source results are accumulated in per-thread aggregates, so the memory
+	 * is proportional to the number of threads times the number of nodes plus links, and not to the number of node pairs. Thread t processes
+	 * the sources t, t + numThreads, t + 2 numThreads..., and the aggregates are merged in thread order, so that the results do not depend on
+	 * the thread scheduling */
+	private void computeAllPairsShortestPathMetrics()
 	{
-		Graph<Node, Link> aux_graph = getGraph_JUNG();
-		BetweennessCentrality bc = new BetweennessCentrality(aux_graph, getCostTransformer());			
+		final AllPairsShortestPathGraph graph = new AllPairsShortestPathGraph();
+		final int numThreadsToUse = Math.max(1, Math.min(numThreads, N));
+		final List<AllPairsShortestPathAggregates> aggregatesPerThread = new ArrayList<AllPairsShortestPathAggregates>(numThreadsToUse);
+		for (int thread = 0; thread < numThreadsToUse; thread++) aggregatesPerThread.add(new AllPairsShortestPathAggregates(graph));
+		final IntFunction<Runnable> worker = thread -> () ->
+		{
+			final AllPairsShortestPathAggregates aggregates = aggregatesPerThread.get(thread);
+			for (int source = thread; source < N; source += numThreadsToUse) aggregates.addSource(source);
+		};
+
+		if (numThreadsToUse == 1) worker.apply(0).run();
+		else
+		{
+			final ExecutorService executor = Executors.newFixedThreadPool(numThreadsToUse);
+			try
+			{
+				final List<Future<?>> workers = new ArrayList<Future<?>>();
+				for (int thread = 0; thread < numThreadsToUse; thread++) workers.add(executor.submit(worker.apply(thread)));
+				for (Future<?> future : workers) future.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new Net2PlanException("The computation of the shortest path metrics was interrupted");
+			}
+			catch (ExecutionException e)
+			{
+				if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+			finally
+			{
+				executor.shutdownNow();
+			}
+		}
 
-		nodeBetweenessCentrality = DoubleFactory1D.dense.make (N);
-		for (Node node : this.nodes) nodeBetweenessCentrality.set(node.getIndex () , bc.getVertexScore(node));
+		/* Merge the aggregates of the threads (the mean and the sum of squared deviations are merged with the formula of Chan et al.) */
+		long numPaths = 0;
+		double sum = 0, M = 0, S = 0;
+		diameter = 0;
+		nodeBetweenessCentrality = DoubleFactory1D.dense.make(N);
+		linkBetweenessCentrality = DoubleFactory1D.dense.make(E);
+		for (AllPairsShortestPathAggregates aggregates : aggregatesPerThread)
+		{
+			if (aggregates.numPaths > 0)
+			{
+				final long mergedNumPaths = numPaths + aggregates.numPaths;
+				final double delta = aggregates.M - M;
+				M += delta * aggregates.numPaths / mergedNumPaths;
+				S += aggregates.S + delta * delta * ((double) numPaths * aggregates.numPaths / mergedNumPaths);
+				numPaths = mergedNumPaths;
+				sum += aggregates.sum;
+				diameter = Math.max(diameter, aggregates.diameter);
+			}
+			for (int n = 0; n < N; n++) nodeBetweenessCentrality.set(graph.nodes[n].getIndex(), nodeBetweenessCentrality.get(graph.nodes[n].getIndex()) + aggregates.dependency_n[n]);
+			for (int e = 0; e < graph.links.length; e++) linkBetweenessCentrality.set(graph.links[e].getIndex(), linkBetweenessCentrality.get(graph.links[e].getIndex()) + aggregates.dependency_e[e]);
+		}
 
-		linkBetweenessCentrality = DoubleFactory1D.dense.make (E);
-		for (Link link : linkMap) linkBetweenessCentrality.set(link.getIndex (), bc.getEdgeScore(link));
+		averageSPLength = numPaths == 0 ? 0 : sum / numPaths;
+		heterogeneity = averageSPLength == 0 ? 0 : Math.sqrt(S / numPaths) / averageSPLength;
 	}
-	
-	private void computeSPDistanceMetrics()
-	{
-		diameter = 0;
-		averageSPLength = 0;
-		heterogeneity = 0;
-		
-		Graph<Node, Link> aux_graph = getGraph_JUNG();
-		Transformer<Link, Double> aux_nev = getCostTransformer();
 
-		/* Compute network diameter using naïve Floyd-Warshall algorithm */
-		double[][] costMatrix = new double[N][N];
-		for(int n = 0; n < N; n++)
+	/* Snapshot of the graph in compressed sparse row format (outgoing and incoming links per node), with the nodes numbered by their position in the list of nodes.
+	 * Two path costs are considered equal if they differ in less than the precision factor */
+	private class AllPairsShortestPathGraph
+	{
+		private final Node[] nodes;
+		private final Link[] links;
+		private final int[] originNode_e, destinationNode_e;
+		private final double[] cost_e;
+		private final double precisionFactor;
+		private final int[] outLinksStart_n, outLinks, inLinksStart_n, inLinks;
+
+		private AllPairsShortestPathGraph()
 		{
-			Arrays.fill(costMatrix[n], Double.MAX_VALUE);
-			costMatrix[n][n] = 0;
+			this.nodes = GraphTheoryMetrics.this.nodes.toArray(new Node[N]);
+			this.precisionFactor = Configuration.precisionFactor;
+			final Map<Node, Integer> position = new HashMap<Node, Integer>();
+			for (int n = 0; n < N; n++) position.put(nodes[n], n);
+			final List<Link> validLinks = new ArrayList<Link>(E);
+			for (Link link : linkMap)
+			{
+				if (link.getOriginNode() == link.getDestinationNode()) continue;
+				if (costMap != null && costMap.get(link) == Double.MAX_VALUE) continue;
+				validLinks.add(link);
+			}
+			final int numLinks = validLinks.size();
+			this.links = validLinks.toArray(new Link[numLinks]);
+			this.originNode_e = new int[numLinks];
+			this.destinationNode_e = new int[numLinks];
+			this.cost_e = new double[numLinks];
+			this.outLinksStart_n = new int[N + 1];
+			this.inLinksStart_n = new int[N + 1];
+			for (int e = 0; e < numLinks; e++)
+			{
+				originNode_e[e] = position.get(links[e].getOriginNode());
+				destinationNode_e[e] = position.get(links[e].getDestinationNode());
+				cost_e[e] = costMap == null ? 1.0 : costMap.get(links[e]);
+				outLinksStart_n[originNode_e[e] + 1]++;
+				inLinksStart_n[destinationNode_e[e] + 1]++;
+			}
+			for (int n = 0; n < N; n++) { outLinksStart_n[n + 1] += outLinksStart_n[n]; inLinksStart_n[n + 1] += inLinksStart_n[n]; }
+			this.outLinks = new int[numLinks];
+			this.inLinks = new int[numLinks];
+			final int[] nextOut = Arrays.copyOf(outLinksStart_n, N);
+			final int[] nextIn = Arrays.copyOf(inLinksStart_n, N);
+			for (int e = 0; e < numLinks; e++) { outLinks[nextOut[originNode_e[e]]++] = e; inLinks[nextIn[destinationNode_e[e]]++] = e; }
 		}
-		
-		for(Link edge : aux_graph.getEdges())
+	}
+
+	/* Search structures of one thread, and the aggregates of the sources processed by it */
+	private static class AllPairsShortestPathAggregates
+	{
+		private final AllPairsShortestPathGraph graph;
+		private final PrimitiveHeap heap;
+		private final double[] distance_n, numShortestPaths_n, nodeDependency_n;
+		private final boolean[] settled_n;
+		private final int[] settledOrder;
+		private final double[] dependency_n, dependency_e;
+		private long numPaths;
+		private double sum, M, S, diameter;
+
+		private AllPairsShortestPathAggregates(AllPairsShortestPathGraph graph)
 		{
-			int a_e = edge.getOriginNode().getIndex ();
-			int b_e = edge.getDestinationNode().getIndex ();
-			double newCost = aux_nev.transform(edge);
-			if (newCost < costMatrix[a_e][b_e]) costMatrix[a_e][b_e] = newCost;
+			final int N = graph.nodes.length;
+			this.graph = graph;
+			this.heap = new PrimitiveHeap(Math.max(N, 1));
+			this.distance_n = new double[N];
+			this.numShortestPaths_n = new double[N];
+			this.nodeDependency_n = new double[N];
+			this.settled_n = new boolean[N];
+			this.settledOrder = new int[N];
+			this.dependency_n = new double[N];
+			this.dependency_e = new double[graph.links.length];
 		}
-		
-		for(int k = 0; k < N; k++)
+
+		private void addSource(int source)
 		{
-			for(int i = 0; i < N; i++)
+			Arrays.fill(distance_n, Double.MAX_VALUE);
+			Arrays.fill(numShortestPaths_n, 0);
+			Arrays.fill(nodeDependency_n, 0);
+			Arrays.fill(settled_n, false);
+			int numSettled = 0;
+			distance_n[source] = 0;
+			numShortestPaths_n[source] = 1;
+			heap.clear();
+			heap.add(source, 0);
+			while (!heap.isEmpty())
 			{
-				if (i == k) continue;
-				
-				for(int j = 0; j < N; j++)
+				final int w = heap.poll();
+				if (settled_n[w]) continue;
+				settled_n[w] = true;
+				settledOrder[numSettled++] = w;
+				for (int cont = graph.outLinksStart_n[w]; cont < graph.outLinksStart_n[w + 1]; cont++)
 				{
-					if (j == k || j == i) continue;
-					
-					double newValue = costMatrix[i][k] + costMatrix[k][j];
-					if (newValue < costMatrix[i][j]) costMatrix[i][j] = newValue;
+					final int e = graph.outLinks[cont];
+					final int x = graph.destinationNode_e[e];
+					final double newDistance = distance_n[w] + graph.cost_e[e];
+					if (newDistance < distance_n[x] - graph.precisionFactor)
+					{
+						distance_n[x] = newDistance;
+						numShortestPaths_n[x] = numShortestPaths_n[w];
+						heap.add(x, newDistance);
+					}
+					else if (newDistance <= distance_n[x] + graph.precisionFactor) numShortestPaths_n[x] += numShortestPaths_n[w];
 				}
 			}
-		}
-		
-		int numPaths = 0;
-		double sum = 0;
-		double M = 0.0;
-		double S = 0.0;
 
-		for(int i = 0; i < N; i++)
-		{
-			for(int j = i + 1; j < N; j++)
+			/* Shortest path distances to the other nodes */
+			for (int cont = 1; cont < numSettled; cont++)
 			{
-				double dist_ij = costMatrix[i][j];
-				if (dist_ij < Double.MAX_VALUE)
-				{
-					sum += dist_ij;
-					numPaths++;
-
-					double tmpM = M;
-					M += (dist_ij - tmpM) / numPaths;
-					S += (dist_ij - tmpM) * (dist_ij - M);
+				final double dist = distance_n[settledOrder[cont]];
+				numPaths++;
+				sum += dist;
+				final double previousM = M;
+				M += (dist - previousM) / numPaths;
+				S += (dist - previousM) * (dist - M);
+				if (dist > diameter) diameter = dist;
+			}
 
-					if (dist_ij > diameter) diameter = dist_ij;
-				}
-				
-				double dist_ji = costMatrix[j][i];
-				if (dist_ji < Double.MAX_VALUE)
+			/* Brandes' accumulation, in the reverse order in which the nodes were settled. The links in a shortest path to x are the incoming links
+			 * from settled nodes w with distance(w) + cost = distance(x), up to the precision factor */
+			for (int cont = numSettled - 1; cont > 0; cont--)
+			{
+				final int x = settledOrder[cont];
+				for (int contIn = graph.inLinksStart_n[x]; contIn < graph.inLinksStart_n[x + 1]; contIn++)
 				{
-					sum += dist_ji;
-					numPaths++;
-
-					double tmpM = M;
-					M += (dist_ji - tmpM) / numPaths;
-					S += (dist_ji - tmpM) * (dist_ji - M);
-					
-					if (dist_ji > diameter) diameter = dist_ji;
+					final int e = graph.inLinks[contIn];
+					final int w = graph.originNode_e[e];
+					if (!settled_n[w] || Math.abs(distance_n[w] + graph.cost_e[e] - distance_n[x]) > graph.precisionFactor) continue;
+					final double partialDependency = numShortestPaths_n[w] / numShortestPaths_n[x] * (1.0 + nodeDependency_n[x]);
+					nodeDependency_n[w] += partialDependency;
+					dependency_e[e] += partialDependency;
 				}
+				dependency_n[x] += nodeDependency_n[x];
 			}
 		}
-		
-		if (numPaths == 0) return;
-		
-		averageSPLength = numPaths == 0 ? 0 : sum / numPaths;
-		heterogeneity = averageSPLength == 0 ? 0 : Math.sqrt(S / numPaths) / averageSPLength;
 	}
 
 	/**
@@ -200,7 +333,8 @@ public class GraphTheoryMetrics
 		averageSPLength = -1;
 		diameter = -1;
 		heterogeneity = -1;
-		nev = null;
+		linkBetweenessCentrality = null;
+		nodeBetweenessCentrality = null;
 	}
 
 	/**
@@ -354,7 +488,7 @@ public class GraphTheoryMetrics
 	 */
 	public double getAverageShortestPathDistance()
 	{
-		if (averageSPLength == -1) computeSPDistanceMetrics();
+		if (averageSPLength == -1) computeAllPairsShortestPathMetrics();
 		return averageSPLength;
 	}
 
@@ -430,13 +564,6 @@ public class GraphTheoryMetrics
 		return DoubleUtils.average(clusteringCoefficient);
 	}
 
-	private Transformer<Link, Double> getCostTransformer()
-	{
-		if (nev == null) nev = JUNGUtils.getEdgeWeightTransformer(costMap);
-
-		return nev;
-	}
-
 	/**
 	 * Returns the density of the network. The density represents the ratio
 	 * between the number of links in the network and the number of links needed
@@ -460,7 +587,7 @@ public class GraphTheoryMetrics
 	 */
 	public double getDiameter()
 	{
-		if (diameter == -1) computeSPDistanceMetrics();
+		if (diameter == -1) computeAllPairsShortestPathMetrics();
 		return diameter;
 	}
 
@@ -486,7 +613,7 @@ public class GraphTheoryMetrics
 	 */
 	public double getHeterogeneity()
 	{
-		if (heterogeneity == -1) computeSPDistanceMetrics();
+		if (heterogeneity == -1) computeAllPairsShortestPathMetrics();
 		return heterogeneity;
 	}
 
@@ -566,7 +693,7 @@ public class GraphTheoryMetrics
 	 */
 	public DoubleMatrix1D getLinkBetweenessCentrality()
 	{
-		if (linkBetweenessCentrality == null) computeBetweenessCentrality();
+		if (linkBetweenessCentrality == null) computeAllPairsShortestPathMetrics();
 
 		return linkBetweenessCentrality;
 	}
@@ -626,7 +753,7 @@ public class GraphTheoryMetrics
 	 */
 	public DoubleMatrix1D getNodeBetweenessCentrality()
 	{
-		if (nodeBetweenessCentrality == null) computeBetweenessCentrality();
+		if (nodeBetweenessCentrality == null) computeAllPairsShortestPathMetrics();
 
 		return nodeBetweenessCentrality;
 	}
@@ -85,8 +85,6 @@ import cern.colt.matrix.tdouble.DoubleFactory2D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebra;
-import cern.colt.matrix.tdouble.algo.SparseDoubleAlgebra;
-import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
 import cern.jet.math.tdouble.DoubleFunctions;
 import cern.jet.math.tdouble.DoublePlusMultFirst;
 import edu.uci.ics.jung.algorithms.filters.EdgePredicateFilter;
@@ -850,21 +848,7 @@ public class GraphUtils
 	 * @return All loopless shortest paths */
 	public static List<List<Link>> getAllLooplessShortestPaths(List<Node> nodes, List<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final List<Link> filteredLinks = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		Graph<Node, Link> g = JUNGUtils.getGraphFromLinkMap(nodes, filteredLinks);
-		Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-
-		YenAlgorithm<Node, Link> paths = new YenAlgorithm<Node, Link>(g, nev)
-		{
-			@Override
-			public boolean compareCandidateToShortestPath(GraphPath<Link> candidate, GraphPath<Link> shortestPath)
-			{
-				return Math.abs(candidate.getPathWeight() - shortestPath.getPathWeight()) < 1E-10;
-			}
-		};
-
-		List<List<Link>> pathList = paths.getPaths(originNode, destinationNode, Integer.MAX_VALUE);
-		return pathList;
+		return new CSRGraph(nodes, links, linkCostMap).getAllLooplessShortestPaths(originNode, destinationNode);
 	}
 
 	/** @param nodes List of nodes
@@ -884,17 +868,13 @@ public class GraphUtils
 				linkSpareCapacityMap.put(e, Math.max(0, e.getCapacity() - e.getOccupiedCapacity()));
 		}
 		final Map<Link,Double> auxMapLinkCost = linkSpareCapacityMap;
-		final List<Link> validLinks = linkCostMap == null? links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal).collect(Collectors.toList()) : 
-			links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal && linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, validLinks);
-		if (!graph.containsVertex(originNode)) return new LinkedList<Link>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<Link>();
-		Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		return JUNGUtils.getShortestPath(graph, nev, originNode, destinationNode);
+		final List<Link> validLinks = links.stream().filter(e->auxMapLinkCost.get(e) >= capacityGoal).collect(Collectors.toList());
+		return new CSRGraph(nodes, validLinks, linkCostMap).getShortestPath(originNode, destinationNode);
 	}
 
 	
 	/** Returns the K-loopless shortest paths between two nodes, satisfying some user-defined constraints. If only <i>n</i> shortest path are found (n&lt;K), those are returned.
+	 * The paths returned are the K of minimum cost among those satisfying the length, number of hops and propagation delay limits.
 	 * @param nodes List of nodes
 	 * @param links List of links
 	 * @param originNode Origin node
@@ -910,49 +890,7 @@ public class GraphUtils
 	 * @return K-shortest paths */
 	public static List<List<Link>> getKLooplessShortestPaths(List<Node> nodes, List<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap, int K, double maxLengthInKm, int maxNumHops, double maxPropDelayInMs, double maxRouteCost, double maxRouteCostFactorRespectToShortestPath, double maxRouteCostRespectToShortestPath)
 	{
-		if (maxLengthInKm <= 0) maxLengthInKm = Double.MAX_VALUE;
-		if (maxNumHops <= 0) maxNumHops = Integer.MAX_VALUE;
-		if (maxPropDelayInMs <= 0) maxPropDelayInMs = Double.MAX_VALUE;
-		if (maxRouteCost <= 0) maxRouteCost = Double.MAX_VALUE;
-		if (maxRouteCostFactorRespectToShortestPath <= 0) maxRouteCostFactorRespectToShortestPath = Double.MAX_VALUE;
-		if (maxRouteCostRespectToShortestPath <= 0) maxRouteCostRespectToShortestPath = Double.MAX_VALUE;
-
-		final List<Link> filteredListLinks = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> g = JUNGUtils.getGraphFromLinkMap(nodes, filteredListLinks);
-		YenAlgorithm<Node, Link> paths = new YenAlgorithm<Node, Link>(g, 
-				(Transformer<Link, Double>) JUNGUtils.getEdgeWeightTransformer(linkCostMap), 
-				K, maxNumHops, maxLengthInKm, maxPropDelayInMs, maxRouteCost, 
-				maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath)
-		{
-			@Override
-			public boolean acceptPath(GraphPath<Link> candidate)
-			{
-				if (maxNumHops != Integer.MAX_VALUE && candidate.getPathLength() > maxNumHops) return false;
-
-				if (maxLengthInKm == Double.MAX_VALUE && maxPropDelayInMs == Double.MAX_VALUE) return true;
-
-				double pathLengthInKm = 0;
-				double pathPropDelayInMs = 0;
-				for (Link link : candidate.getPath())
-				{
-					pathLengthInKm += link.getLengthInKm();
-					pathPropDelayInMs += link.getPropagationDelayInMs();
-				}
-
-				return pathLengthInKm <= maxLengthInKm && pathPropDelayInMs <= maxPropDelayInMs;
-			}
-
-			@Override
-			public boolean compareCandidateToShortestPath(GraphPath<Link> candidate, GraphPath<Link> shortestPath)
-			{
-				if (maxRouteCost != Double.MAX_VALUE && candidate.getPathWeight() > maxRouteCost) { return false; }
-
-				if (maxRouteCostFactorRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() * maxRouteCostFactorRespectToShortestPath) { return false; }
-
-				return !(maxRouteCostRespectToShortestPath != Double.MAX_VALUE && candidate.getPathWeight() > shortestPath.getPathWeight() + maxRouteCostRespectToShortestPath);
-			}
-		};
-		return paths.getPaths(originNode, destinationNode, K);
+		return new CSRGraph(nodes, links, linkCostMap).getKLooplessShortestPaths(originNode, destinationNode, K, maxLengthInKm, maxNumHops, maxPropDelayInMs, maxRouteCost, maxRouteCostFactorRespectToShortestPath, maxRouteCostRespectToShortestPath);
 	}
 
 	/** Returns the K minimum cost service chains between two nodes (summing costs of links and resources traversed), traversing a given set of resource types, satisfying some user-defined constraints.
@@ -1001,7 +939,7 @@ public class GraphUtils
 		List<Set<Node>> nodesPerPhase = new ArrayList<Set<Node>> ();
 		for (String resourceType : sequenceOfResourceTypesToTraverse)
 		{
-			Set<Resource> resourcesNotInfiniteCostThisType = netPlan.getResources(resourceType);
+			Set<Resource> resourcesNotInfiniteCostThisType = new HashSet<Resource> (netPlan.getResources(resourceType)); // a copy: the returned set is the one cached in the design
 			if (resourceCost != null) resourcesNotInfiniteCostThisType.removeIf(e-> resourceCost.get(e) == Double.MAX_VALUE); 
 			if (resourcesNotInfiniteCostThisType.isEmpty()) return new LinkedList<Pair<List<NetworkElement>,Double>> ();
 			final Set<Node> nodesWithResourcesNotInfiniteCostThisType = resourcesNotInfiniteCostThisType.stream().map(e -> e.getHostNode()).
@@ -1012,6 +950,7 @@ public class GraphUtils
 
 		/* initialize the path lists. This includes (n,n) pairs with one path of empty seq links and zero cost */
 		if (cacheSubpathLists == null) cacheSubpathLists = new HashMap<Pair<Node,Node>,List<Pair<List<Link>,Double>>> ();
+		CSRGraph graph = null; // built only if some subpath list is not in the cache
 		for (int contPhase = 0; contPhase < nodesPerPhase.size() ; contPhase ++)
 		{
 			final Set<Node> outputNodes = nodesPerPhase.get(contPhase);
@@ -1021,7 +960,8 @@ public class GraphUtils
 					if (!cacheSubpathLists.containsKey(Pair.of(nIn, nOut)))
 						if (nIn != nOut)
 						{
-							List<List<Link>> kPaths = getKLooplessShortestPaths(netPlan.getNodes(), links , nIn, nOut, linkCostMap, K, maxLengthInKmPerSubpath, maxNumHopsPerSubpath, maxPropDelayInMsPerSubpath, -1, -1, -1);
+							if (graph == null) graph = new CSRGraph(netPlan.getNodes(), links, linkCostMap);
+							List<List<Link>> kPaths = graph.getKLooplessShortestPaths(nIn, nOut, K, maxLengthInKmPerSubpath, maxNumHopsPerSubpath, maxPropDelayInMsPerSubpath, -1, -1, -1);
 							List<Pair<List<Link> , Double>> pathsInfo = new ArrayList<Pair<List<Link> , Double>> ();
 							double previousCost = 0;
 							for (List<Link> path : kPaths)
@@ -1358,33 +1298,12 @@ public class GraphUtils
 	 * @param ingressNode the ingress node
 	 * @param egressNode the egress node
 	 * @return See description above
+	 * @see RoutingFundamentalVectorSolver
 	 */
 	public static Quintuple<DoubleMatrix1D, RoutingCycleType,  Double , Double , Double> computeRoutingFundamentalVector(Map<Link,Double> frs , Map<Node,Set<Link>> outFrs , Node ingressNode , Node egressNode)
 	{
-//		System.out.println("---------------------");
 		final int N = ingressNode.getNetPlan ().getNumberOfNodes();
-		DoubleMatrix2D eyeMinusQ_nn = new SparseCCDoubleMatrix2D (N,N);
-		for (Entry<Link,Double> frInfo : frs.entrySet())
-		{
-			final int n1 = frInfo.getKey().getOriginNode().getIndex ();
-			final int n2 = frInfo.getKey().getDestinationNode().getIndex ();
-			final double splitFactor = frInfo.getValue();
-			eyeMinusQ_nn.setQuick(n2, n1 , eyeMinusQ_nn.getQuick(n2,n1) - splitFactor);
-		}
-		final double s_n = egressNode == null? -1 : 1 + eyeMinusQ_nn.viewColumn(egressNode.getIndex ()).zSum();
-		for (int n = 0; n < N ; n ++) eyeMinusQ_nn.setQuick(n, n, 1+eyeMinusQ_nn.getQuick(n,n));
-		DoubleMatrix1D Mv;
-		try 
-		{
-			DoubleMatrix1D e_k = DoubleFactory1D.sparse.make(N); e_k.set(ingressNode.getIndex (), 1.0);
-//			System.out.println(eyeMinusQ_nn);
-			Mv = new SparseDoubleAlgebra().solve(eyeMinusQ_nn, e_k);
-		}
-		catch(IllegalArgumentException e) { return Quintuple.of (null , RoutingCycleType.CLOSED_CYCLES , s_n , Double.MAX_VALUE , Double.MAX_VALUE) ; }
-		
-		Pair<Double,Double> wcPropAndLength = computeWorstCasePropagationDelayAndLengthInKmMsForLoopLess(frs, outFrs, ingressNode, egressNode);
-		final RoutingCycleType routingCycleType = wcPropAndLength.getFirst() == Double.MAX_VALUE? RoutingCycleType.OPEN_CYCLES : RoutingCycleType.LOOPLESS;
-		return Quintuple.of(Mv, routingCycleType , s_n , wcPropAndLength.getFirst() , wcPropAndLength.getSecond());
+		return new RoutingFundamentalVectorSolver(frs, N).computeRoutingFundamentalVector(frs, outFrs, ingressNode, egressNode);
 		
 //		final NetPlan netPlan = ingressNode.getNetPlan();
 //		final NetworkLayer layer = frs.keySet().iterator().next().getLayer();
@@ -1477,14 +1396,7 @@ public class GraphUtils
 	 * @return Sequence of links in the shortest path (empty, if destination not reachable from origin) */
 	public static List<Link> getShortestPath(Collection<Node> nodes, Collection<Link> links, Node originNode, Node destinationNode, Map<Link, Double> linkCostMap)
 	{
-		final Collection<Link> linksToUse = linkCostMap == null? links : links.stream().filter(e->linkCostMap.get(e) != Double.MAX_VALUE).collect(Collectors.toList());
-		final Graph<Node, Link> graph = JUNGUtils.getGraphFromLinkMap(nodes, linksToUse);
-		if (!graph.containsVertex(originNode)) return new LinkedList<>();
-		if (!graph.containsVertex(destinationNode)) return new LinkedList<>();
-		final Transformer<Link, Double> nev = JUNGUtils.getEdgeWeightTransformer(linkCostMap);
-		final DijkstraShortestPath<Node, Link> dsp = new DijkstraShortestPath<Node, Link>(graph, nev);
-		final List<Link> path = dsp.getPath(originNode, destinationNode);
-		return path;
+		return new CSRGraph(nodes, links, linkCostMap).getShortestPath(originNode, destinationNode);
 	}
 
 	
@@ -1825,7 +1737,7 @@ public class GraphUtils
 	 * 
 	 * @param <E> Edge type
 	 * @author Pablo Pavon-Marino, Jose-Luis Izquierdo-Zaragoza */
-	private static class GraphPath<E> implements Comparable<GraphPath>
+	static class GraphPath<E> implements Comparable<GraphPath>
 	{
 		private final List<E> path;
 		private final double pathWeight;
@@ -3088,6 +3000,10 @@ public class GraphUtils
 	 * 
 	 * <p>Reference: {@code J.Y. Yen, "Finding the K Shortest Loopless Paths in a Network," <i>Management Science</i>, vol. 17, no. 11, pp. 712-716, Jul. 1971}</p>
 	 * 
+	 * <p>The public methods of this class use the implementation in {@link CSRGraph CSRGraph}. This one, on JUNG graphs, is kept as a reference for it. Both
+	 * return the same path costs without path limits. With them, this one discards the candidate paths not accepted, and with them the feasible paths
+	 * only reachable as deviations from those, so it may return fewer or more costly paths than {@code CSRGraph}.</p>
+	 * 
 	 * @param <V> Vertex type
 	 * @param <E> Edge type */
 	static class YenAlgorithm<V, E>
@@ -3146,7 +3062,7 @@ public class GraphUtils
 		 * @param endVertex Target vertex of the calculated paths
 		 * @param k Number of paths to be computed
 		 * @return List of paths in increasing order of weight */
-		private List<List<E>> getPaths(V startVertex, V endVertex, int k)
+		List<List<E>> getPaths(V startVertex, V endVertex, int k)
 		{
 
 			LinkedList<List<E>> paths = new LinkedList<List<E>>();
@@ -0,0 +1,570 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetworkLayer;
+import com.net2plan.interfaces.networkDesign.Node;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Computes the traffic carried by the links and demands when the traffic is routed with OSPF/ECMP for a given link weight setting
+ * (the same as {@link IPUtils#computeCarriedTrafficFromIGPWeights(NetPlan, DoubleMatrix1D, NetworkLayer...) IPUtils.computeCarriedTrafficFromIGPWeights}),
+ * and updates it incrementally when the weight of a link changes. This is the typical operation in the local search of IGP weight optimization
+ * heuristics, where each neighbor solution differs from the current one in the weight of one link.</p>
+ *
+ * <p>For each destination node with traffic, the engine keeps the distances of the nodes to it, and the shortest path directed acyclic graph (DAG)
+ * towards it, with the traffic carried by its links. When a link weight changes, only the nodes whose distance to a destination changes are recomputed
+ * (dynamic shortest path tree algorithm restricted to the affected nodes), and the traffic changes are propagated downstream in the DAG,
+ * just from the nodes whose input traffic or set of next hops changed. Destinations whose DAG is not affected by the change are not visited.
+ * The graph and the state are kept in primitive arrays (adjacency lists in compressed sparse row format).</p>
+ *
+ * <p>The network topology and the offered traffic are taken when the object is created: the engine is not updated if the design changes later.
+ * Links with weight {@code Double.MAX_VALUE} are not considered. Traffic of demands whose egress node is not reachable from the ingress node is
+ * not carried. Traffic is aggregated per destination node, so that, differently from {@code IPUtils}, amounts of traffic of one demand in a link below
+ * the precision factor are not rounded to zero. Then, the traffic carried by a link may differ from the one computed by {@code IPUtils} in up to the
+ * precision factor (the {@code precisionFactor} option, 1E-3 by default) per demand traversing it. The carried traffic per demand is the same.</p>
+ *
+ * <p>The values updated incrementally are the ones of a computation from scratch, up to the floating point errors of the additions and subtractions
+ * made by the updates. The state is fully recomputed after a large number of incremental updates, so that these errors do not accumulate.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+public final class IncrementalECMPEngine
+{
+	private static final double PRECISION_FACTOR = 1E-10;
+	private static final int NUMBER_OF_UPDATES_BETWEEN_FULL_RECOMPUTATIONS = 100000;
+
+	private final int N;
+	private final int E;
+	private final int D;
+	private final int [] originNode_e;
+	private final int [] destinationNode_e;
+	private final int [] outLinksStart_n;
+	private final int [] outLinks;
+	private final int [] inLinksStart_n;
+	private final int [] inLinks;
+	private final double [] weight_e;
+	private final int [] ingressNode_d;
+	private final int [] egressNode_d;
+	private final double [] offeredTraffic_d;
+
+	/* Per destination node with traffic ("p" is the position of the destination in this array) */
+	private final int [] destinationNode_p;
+	private final int [] destinationPosition_n;
+	private final double [][] offeredTraffic_pn;
+	private final double [][] distance_pn;
+	private final boolean [][] isInDAG_pe;
+	private final int [][] numberOfNextHops_pn;
+	private final double [][] throughput_pn;
+	private final double [][] carriedTraffic_pe;
+
+	private final double [] carriedTraffic_e;
+	private final int [] numberOfDestinationsWithTraffic_e;
+	private int numberOfIncrementalUpdates;
+
+	/* Scratch structures, reused among updates */
+	private final PrimitiveHeap heap;
+	private final int [] changedNodes;
+	private final boolean [] isChangedNode;
+	private final int [] updatedNodes;
+	private final boolean [] isUpdatedNode;
+	private final int [] pendingNextHops_n;
+	private final boolean [] isPendingNextHopsInitialized;
+
+	/**
+	 * Creates the engine for the nodes, links and demands of the given layer.
+	 *
+	 * @param netPlan Network design
+	 * @param linkWeightVector Weight per link (in the order of the links of the layer). If {@code null}, the current IGP weights are used (see {@link IPUtils#getLinkWeightVector(NetPlan, NetworkLayer...) IPUtils.getLinkWeightVector})
+	 * @param optionalLayer Network layer (optional)
+	 * @since 0.5.3
+	 */
+	public IncrementalECMPEngine(NetPlan netPlan, DoubleMatrix1D linkWeightVector, NetworkLayer ... optionalLayer)
+	{
+		this(netPlan.getNodes(), netPlan.getLinks(netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer)), netPlan.getDemands(netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer)),
+				linkWeightVector == null ? IPUtils.getLinkWeightVector(netPlan, netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayer)) : linkWeightVector);
+	}
+
+	/**
+	 * Creates the engine for the given nodes, links and demands. Link and demand indexes in this object are the positions in the given lists.
+	 *
+	 * @param nodes List of nodes
+	 * @param links List of links
+	 * @param demands List of demands. Demands whose end nodes are not in the list of nodes are not allowed
+	 * @param linkWeightVector Weight per link (in the order of the list of links)
+	 * @since 0.5.3
+	 */
+	public IncrementalECMPEngine(List<Node> nodes, List<Link> links, List<Demand> demands, DoubleMatrix1D linkWeightVector)
+	{
+		this.N = nodes.size();
+		this.E = links.size();
+		this.D = demands.size();
+		if (linkWeightVector.size() != E) throw new Net2PlanException("The number of link weights does not match the number of links");
+
+		final Map<Node, Integer> nodePosition = new HashMap<Node, Integer>();
+		for (int n = 0; n < N; n++) nodePosition.put(nodes.get(n), n);
+
+		this.originNode_e = new int [E];
+		this.destinationNode_e = new int [E];
+		this.weight_e = new double [E];
+		for (int e = 0; e < E; e++)
+		{
+			final Link link = links.get(e);
+			final Integer a_e = nodePosition.get(link.getOriginNode());
+			final Integer b_e = nodePosition.get(link.getDestinationNode());
+			if (a_e == null || b_e == null) throw new Net2PlanException("The end nodes of link " + link + " are not in the list of nodes");
+			originNode_e [e] = a_e;
+			destinationNode_e [e] = b_e;
+			weight_e [e] = toInternalWeight(linkWeightVector.get(e));
+		}
+
+		/* Adjacency lists in compressed sparse row format */
+		this.outLinksStart_n = new int [N + 1];
+		this.inLinksStart_n = new int [N + 1];
+		for (int e = 0; e < E; e++) { outLinksStart_n [originNode_e [e] + 1] ++; inLinksStart_n [destinationNode_e [e] + 1] ++; }
+		for (int n = 0; n < N; n++) { outLinksStart_n [n + 1] += outLinksStart_n [n]; inLinksStart_n [n + 1] += inLinksStart_n [n]; }
+		this.outLinks = new int [E];
+		this.inLinks = new int [E];
+		final int [] outPosition = Arrays.copyOf(outLinksStart_n, N);
+		final int [] inPosition = Arrays.copyOf(inLinksStart_n, N);
+		for (int e = 0; e < E; e++) { outLinks [outPosition [originNode_e [e]] ++] = e; inLinks [inPosition [destinationNode_e [e]] ++] = e; }
+
+		/* Traffic per destination node */
+		this.ingressNode_d = new int [D];
+		this.egressNode_d = new int [D];
+		this.offeredTraffic_d = new double [D];
+		this.destinationPosition_n = new int [N];
+		Arrays.fill(destinationPosition_n, -1);
+		int numDestinations = 0;
+		for (int d = 0; d < D; d++)
+		{
+			final Demand demand = demands.get(d);
+			final Integer ingress = nodePosition.get(demand.getIngressNode());
+			final Integer egress = nodePosition.get(demand.getEgressNode());
+			if (ingress == null || egress == null) throw new Net2PlanException("The end nodes of demand " + demand + " are not in the list of nodes");
+			ingressNode_d [d] = ingress;
+			egressNode_d [d] = egress;
+			offeredTraffic_d [d] = demand.getOfferedTraffic();
+			if (offeredTraffic_d [d] > 0 && destinationPosition_n [egress] == -1) destinationPosition_n [egress] = numDestinations ++;
+		}
+		this.destinationNode_p = new int [numDestinations];
+		for (int n = 0; n < N; n++) if (destinationPosition_n [n] != -1) destinationNode_p [destinationPosition_n [n]] = n;
+		this.offeredTraffic_pn = new double [numDestinations][N];
+		for (int d = 0; d < D; d++)
+			if (offeredTraffic_d [d] > 0) offeredTraffic_pn [destinationPosition_n [egressNode_d [d]]][ingressNode_d [d]] += offeredTraffic_d [d];
+
+		this.distance_pn = new double [numDestinations][N];
+		this.isInDAG_pe = new boolean [numDestinations][E];
+		this.numberOfNextHops_pn = new int [numDestinations][N];
+		this.throughput_pn = new double [numDestinations][N];
+		this.carriedTraffic_pe = new double [numDestinations][E];
+		this.carriedTraffic_e = new double [E];
+		this.numberOfDestinationsWithTraffic_e = new int [E];
+
+		this.heap = new PrimitiveHeap(Math.max(N, 1));
+		this.changedNodes = new int [N];
+		this.isChangedNode = new boolean [N];
+		this.updatedNodes = new int [N];
+		this.isUpdatedNode = new boolean [N];
+		this.pendingNextHops_n = new int [N];
+		this.isPendingNextHopsInitialized = new boolean [N];
+
+		recomputeAll();
+	}
+
+	/**
+	 * Returns the traffic carried by each demand (the offered traffic if the egress node is reachable from the ingress node, zero otherwise).
+	 *
+	 * @return Carried traffic per demand
+	 * @since 0.5.3
+	 */
+	public DoubleMatrix1D getVectorDemandCarriedTraffic()
+	{
+		final double [] r_d = new double [D];
+		for (int d = 0; d < D; d++)
+		{
+			final int p = destinationPosition_n [egressNode_d [d]];
+			if (p != -1 && distance_pn [p][ingressNode_d [d]] < Double.POSITIVE_INFINITY) r_d [d] = offeredTraffic_d [d];
+		}
+		return DoubleFactory1D.dense.make(r_d);
+	}
+
+	/**
+	 * Returns the traffic carried by a link.
+	 *
+	 * @param linkIndex Link index (position in the list of links of this object)
+	 * @return Carried traffic
+	 * @since 0.5.3
+	 */
+	public double getLinkCarriedTraffic(int linkIndex)
+	{
+		return carriedTraffic_e [linkIndex];
+	}
+
+	/**
+	 * Returns the traffic carried by each link. The returned vector is a copy, not modified by later weight changes.
+	 *
+	 * @return Carried traffic per link
+	 * @since 0.5.3
+	 */
+	public DoubleMatrix1D getVectorLinkCarriedTraffic()
+	{
+		return DoubleFactory1D.dense.make(carriedTraffic_e);
+	}
+
+	/**
+	 * Returns the current weight of a link.
+	 *
+	 * @param linkIndex Link index (position in the list of links of this object)
+	 * @return Link weight ({@code Double.MAX_VALUE} if the link is not considered)
+	 * @since 0.5.3
+	 */
+	public double getLinkWeight(int linkIndex)
+	{
+		return weight_e [linkIndex] == Double.POSITIVE_INFINITY ? Double.MAX_VALUE : weight_e [linkIndex];
+	}
+
+	/**
+	 * Changes the weight of one link, updating incrementally the routing and the carried traffic.
+	 *
+	 * @param linkIndex Link index (position in the list of links of this object)
+	 * @param linkWeight New link weight (strictly positive). {@code Double.MAX_VALUE} means that the link is not considered
+	 * @since 0.5.3
+	 */
+	public void setLinkWeight(int linkIndex, double linkWeight)
+	{
+		final double newWeight = toInternalWeight(linkWeight);
+		final double oldWeight = weight_e [linkIndex];
+		if (newWeight == oldWeight) return;
+		weight_e [linkIndex] = newWeight;
+
+		/* Floating point errors accumulated by the incremental updates are cleaned from time to time */
+		if (++ numberOfIncrementalUpdates >= NUMBER_OF_UPDATES_BETWEEN_FULL_RECOMPUTATIONS) { recomputeAll(); return; }
+
+		for (int p = 0; p < destinationNode_p.length; p++)
+			updateDestination(p, linkIndex, oldWeight, newWeight);
+	}
+
+	/**
+	 * Changes the weights of the links. If only a few weights change, the routing is updated incrementally, and if not, it is fully recomputed.
+	 *
+	 * @param linkWeightVector Weight per link (in the order of the list of links of this object)
+	 * @since 0.5.3
+	 */
+	public void setLinkWeights(DoubleMatrix1D linkWeightVector)
+	{
+		if (linkWeightVector.size() != E) throw new Net2PlanException("The number of link weights does not match the number of links");
+		int numChanges = 0;
+		for (int e = 0; e < E; e++)
+			if (toInternalWeight(linkWeightVector.get(e)) != weight_e [e]) numChanges ++;
+		if (numChanges == 0) return;
+		if (numChanges > Math.max(1, E / 10))
+		{
+			for (int e = 0; e < E; e++) weight_e [e] = toInternalWeight(linkWeightVector.get(e));
+			recomputeAll();
+			return;
+		}
+		for (int e = 0; e < E; e++)
+			setLinkWeight(e, linkWeightVector.get(e));
+	}
+
+	private static double toInternalWeight(double linkWeight)
+	{
+		if (!(linkWeight > 0)) throw new Net2PlanException("Link weights must be strictly positive");
+		return linkWeight == Double.MAX_VALUE ? Double.POSITIVE_INFINITY : linkWeight;
+	}
+
+	private void recomputeAll()
+	{
+		numberOfIncrementalUpdates = 0;
+		Arrays.fill(carriedTraffic_e, 0);
+		Arrays.fill(numberOfDestinationsWithTraffic_e, 0);
+		for (int p = 0; p < destinationNode_p.length; p++)
+			computeDestination(p);
+	}
+
+	/* Builds from scratch the distances, the DAG and the carried traffic towards a destination */
+	private void computeDestination(int p)
+	{
+		final int t = destinationNode_p [p];
+		final double [] dist = distance_pn [p];
+		final boolean [] isInDAG = isInDAG_pe [p];
+		final int [] numNextHops = numberOfNextHops_pn [p];
+		final double [] throughput = throughput_pn [p];
+		final double [] x_e = carriedTraffic_pe [p];
+
+		/* Reverse Dijkstra from the destination */
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		dist [t] = 0;
+		heap.clear();
+		heap.add(t, 0);
+		while (!heap.isEmpty())
+		{
+			final double distU = heap.peekKey();
+			final int u = heap.poll();
+			if (distU > dist [u]) continue;
+			for (int cont = inLinksStart_n [u]; cont < inLinksStart_n [u + 1]; cont++)
+			{
+				final int e = inLinks [cont];
+				final int v = originNode_e [e];
+				final double candidate = distU + weight_e [e];
+				if (candidate < dist [v]) { dist [v] = candidate; heap.add(v, candidate); }
+			}
+		}
+
+		/* DAG, and traffic pushed from the farthest nodes */
+		for (int n = 0; n < N; n++) updateNextHops(p, n);
+		System.arraycopy(offeredTraffic_pn [p], 0, throughput, 0, N);
+		Arrays.fill(x_e, 0);
+		heap.clear();
+		for (int n = 0; n < N; n++) if (dist [n] < Double.POSITIVE_INFINITY && n != t) heap.add(n, -dist [n]);
+		while (!heap.isEmpty())
+		{
+			final int u = heap.poll();
+			if (numNextHops [u] == 0) continue;
+			final double share = throughput [u] / numNextHops [u];
+			for (int cont = outLinksStart_n [u]; cont < outLinksStart_n [u + 1]; cont++)
+			{
+				final int e = outLinks [cont];
+				if (!isInDAG [e]) continue;
+				x_e [e] = share;
+				throughput [destinationNode_e [e]] += share;
+				if (share != 0) { carriedTraffic_e [e] += share; numberOfDestinationsWithTraffic_e [e] ++; }
+			}
+		}
+	}
+
+	/* Updates the distances, the DAG and the carried traffic towards a destination, after the weight of link e changed */
+	private void updateDestination(int p, int e, double oldWeight, double newWeight)
+	{
+		final int t = destinationNode_p [p];
+		final int a = originNode_e [e];
+		final int b = destinationNode_e [e];
+		if (a == t) return; // links out of the destination are not used to reach it
+		final double [] dist = distance_pn [p];
+		int numChangedNodes = 0;
+
+		if (newWeight > oldWeight)
+		{
+			if (!isInDAG_pe [p][e]) return; // the link was not in a shortest path: nothing changes
+			if (numberOfNextHops_pn [p][a] == 1) numChangedNodes = increaseDistances(p, a);
+		}
+		else
+		{
+			final double candidate = newWeight + dist [b];
+			if (Math.abs(candidate - dist [a]) >= PRECISION_FACTOR)
+			{
+				if (candidate >= dist [a]) return; // the link is still not in a shortest path: nothing changes
+				numChangedNodes = decreaseDistances(p, a, candidate);
+			}
+		}
+
+		/* Nodes whose set of next hops may change: the origin of the link, the nodes whose distance changed, and their upstream neighbors */
+		int numUpdatedNodes = 0;
+		updatedNodes [numUpdatedNodes ++] = a; isUpdatedNode [a] = true;
+		for (int cont = 0; cont < numChangedNodes; cont++)
+		{
+			final int v = changedNodes [cont];
+			isChangedNode [v] = false;
+			if (!isUpdatedNode [v]) { updatedNodes [numUpdatedNodes ++] = v; isUpdatedNode [v] = true; }
+			for (int cont2 = inLinksStart_n [v]; cont2 < inLinksStart_n [v + 1]; cont2++)
+			{
+				final int u = originNode_e [inLinks [cont2]];
+				if (!isUpdatedNode [u]) { updatedNodes [numUpdatedNodes ++] = u; isUpdatedNode [u] = true; }
+			}
+		}
+
+		/* The traffic is propagated from these nodes, and the downstream nodes of the links that left or entered the DAG, from the farthest to the nearest */
+		heap.clear();
+		for (int cont = 0; cont < numUpdatedNodes; cont++)
+		{
+			final int u = updatedNodes [cont];
+			isUpdatedNode [u] = false;
+			final boolean [] wasInDAG = isInDAG_pe [p];
+			for (int cont2 = outLinksStart_n [u]; cont2 < outLinksStart_n [u + 1]; cont2++)
+			{
+				final int e2 = outLinks [cont2];
+				final boolean before = wasInDAG [e2];
+				final boolean after = isLinkInDAG(p, e2);
+				if (before == after) continue;
+				final int v = destinationNode_e [e2];
+				if (!isChangedNode [v]) { isChangedNode [v] = true; heap.add(v, -dist [v]); }
+			}
+			updateNextHops(p, u);
+			if (!isChangedNode [u]) { isChangedNode [u] = true; heap.add(u, -dist [u]); }
+		}
+		propagateTraffic(p);
+	}
+
+	/* Nodes whose all shortest paths traverse the link out of a, that is now longer: their distances are recomputed (Ramalingam-Reps). Returns the number of changed nodes */
+	private int increaseDistances(int p, int a)
+	{
+		final double [] dist = distance_pn [p];
+		final boolean [] isInDAG = isInDAG_pe [p];
+		final int [] numNextHops = numberOfNextHops_pn [p];
+
+		/* Affected nodes: all their next hops in the DAG are affected */
+		int numChangedNodes = 0;
+		changedNodes [numChangedNodes ++] = a; isChangedNode [a] = true;
+		for (int index = 0; index < numChangedNodes; index++)
+		{
+			final int v = changedNodes [index];
+			for (int cont = inLinksStart_n [v]; cont < inLinksStart_n [v + 1]; cont++)
+			{
+				final int e = inLinks [cont];
+				if (!isInDAG [e]) continue;
+				final int u = originNode_e [e];
+				if (isChangedNode [u]) continue;
+				if (!isPendingNextHopsInitialized [u]) { isPendingNextHopsInitialized [u] = true; pendingNextHops_n [u] = numNextHops [u]; }
+				if (-- pendingNextHops_n [u] == 0) { changedNodes [numChangedNodes ++] = u; isChangedNode [u] = true; }
+			}
+		}
+		for (int index = 0; index < numChangedNodes; index++)
+		{
+			final int v = changedNodes [index];
+			for (int cont = inLinksStart_n [v]; cont < inLinksStart_n [v + 1]; cont++)
+				isPendingNextHopsInitialized [originNode_e [inLinks [cont]]] = false;
+		}
+
+		/* Dijkstra among the affected nodes, starting from their best distance through non-affected next hops */
+		heap.clear();
+		for (int index = 0; index < numChangedNodes; index++)
+		{
+			final int u = changedNodes [index];
+			double best = Double.POSITIVE_INFINITY;
+			for (int cont = outLinksStart_n [u]; cont < outLinksStart_n [u + 1]; cont++)
+			{
+				final int e = outLinks [cont];
+				final int v = destinationNode_e [e];
+				if (isChangedNode [v]) continue;
+				best = Math.min(best, weight_e [e] + dist [v]);
+			}
+			dist [u] = best;
+			if (best < Double.POSITIVE_INFINITY) heap.add(u, best);
+		}
+		while (!heap.isEmpty())
+		{
+			final double distU = heap.peekKey();
+			final int u = heap.poll();
+			if (distU > dist [u]) continue;
+			for (int cont = inLinksStart_n [u]; cont < inLinksStart_n [u + 1]; cont++)
+			{
+				final int e = inLinks [cont];
+				final int v = originNode_e [e];
+				if (!isChangedNode [v]) continue;
+				final double candidate = distU + weight_e [e];
+				if (candidate < dist [v]) { dist [v] = candidate; heap.add(v, candidate); }
+			}
+		}
+		return numChangedNodes;
+	}
+
+	/* The origin node a of the link gets a shorter distance, propagated upstream with a Dijkstra. Returns the number of changed nodes */
+	private int decreaseDistances(int p, int a, double newDistance)
+	{
+		final double [] dist = distance_pn [p];
+		int numChangedNodes = 0;
+		changedNodes [numChangedNodes ++] = a; isChangedNode [a] = true;
+		dist [a] = newDistance;
+		heap.clear();
+		heap.add(a, newDistance);
+		while (!heap.isEmpty())
+		{
+			final double distU = heap.peekKey();
+			final int u = heap.poll();
+			if (distU > dist [u]) continue;
+			for (int cont = inLinksStart_n [u]; cont < inLinksStart_n [u + 1]; cont++)
+			{
+				final int e = inLinks [cont];
+				final int v = originNode_e [e];
+				final double candidate = distU + weight_e [e];
+				if (candidate < dist [v])
+				{
+					dist [v] = candidate;
+					heap.add(v, candidate);
+					if (!isChangedNode [v]) { changedNodes [numChangedNodes ++] = v; isChangedNode [v] = true; }
+				}
+			}
+		}
+		return numChangedNodes;
+	}
+
+	/* Traffic propagation from the nodes in the heap (flagged in isChangedNode), in decreasing distance order. A node throughput depends only on its upstream nodes in the new DAG, that are farther */
+	private void propagateTraffic(int p)
+	{
+		final boolean [] isInDAG = isInDAG_pe [p];
+		final int [] numNextHops = numberOfNextHops_pn [p];
+		final double [] throughput = throughput_pn [p];
+		final double [] x_e = carriedTraffic_pe [p];
+		final double [] h_n = offeredTraffic_pn [p];
+		while (!heap.isEmpty())
+		{
+			final int u = heap.poll();
+			isChangedNode [u] = false;
+			double throughputU = h_n [u];
+			for (int cont = inLinksStart_n [u]; cont < inLinksStart_n [u + 1]; cont++)
+			{
+				final int e = inLinks [cont];
+				if (isInDAG [e]) throughputU += x_e [e];
+			}
+			throughput [u] = throughputU;
+			final double share = numNextHops [u] == 0 ? 0 : throughputU / numNextHops [u];
+			for (int cont = outLinksStart_n [u]; cont < outLinksStart_n [u + 1]; cont++)
+			{
+				final int e = outLinks [cont];
+				final double newX = isInDAG [e] ? share : 0;
+				final double oldX = x_e [e];
+				if (newX == oldX) continue;
+				x_e [e] = newX;
+				if (oldX == 0) numberOfDestinationsWithTraffic_e [e] ++;
+				if (newX == 0) numberOfDestinationsWithTraffic_e [e] --;
+				carriedTraffic_e [e] = numberOfDestinationsWithTraffic_e [e] == 0 ? 0 : carriedTraffic_e [e] + newX - oldX;
+				final int v = destinationNode_e [e];
+				if (isInDAG [e] && !isChangedNode [v]) { isChangedNode [v] = true; heap.add(v, -distance_pn [p][v]); }
+			}
+		}
+	}
+
+	private void updateNextHops(int p, int u)
+	{
+		final boolean [] isInDAG = isInDAG_pe [p];
+		int numNextHops = 0;
+		for (int cont = outLinksStart_n [u]; cont < outLinksStart_n [u + 1]; cont++)
+		{
+			final int e = outLinks [cont];
+			isInDAG [e] = isLinkInDAG(p, e);
+			if (isInDAG [e]) numNextHops ++;
+		}
+		numberOfNextHops_pn [p][u] = numNextHops;
+	}
+
+	/* Same criterion as IPUtils.computeECMPRoutingTableMatrix_fte */
+	private boolean isLinkInDAG(int p, int e)
+	{
+		final int a = originNode_e [e];
+		if (a == destinationNode_p [p]) return false;
+		final double [] dist = distance_pn [p];
+		if (dist [a] == Double.POSITIVE_INFINITY) return false;
+		return Math.abs(weight_e [e] + dist [destinationNode_e [e]] - dist [a]) < PRECISION_FACTOR;
+	}
+}
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.MulticastDemand;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Generator of candidate multicast trees, that does not need to solve any ILP (as {@link GraphUtils#getKMinimumCostMulticastTrees GraphUtils.getKMinimumCostMulticastTrees} does).
+ * For each multicast demand, the k-shortest paths from the origin node to each destination node are computed (satisfying the end-to-end length, number of hops and propagation delay limits).
+ * Then, the combinations of one path per destination are explored in increasing order of the sum of the path costs. A combination is a valid tree if no node receives
+ * more than one link of it (and the origin node none), and no node has more output links than the maximum copy capability. The trees are kept as bitsets of the link indexes, and
+ * the same tree obtained from different combinations is discarded by hashing these bitsets. The exploration stops when {@code K} different trees are found,
+ * or when the time or the number of combinations allowed per demand are exhausted: then, the trees found so far are returned.</p>
+ *
+ * <p>This is a heuristic: the trees returned are sorted by cost, but they are not necessarily the {@code K} minimum cost trees.</p>
+ *
+ * <p>Objects of this class are immutable, and then thread-safe. The multicast demands can be processed in parallel, each thread with its own
+ * snapshot of the graph (see {@link CSRGraph}).</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+public final class MulticastCandidateTreeGenerator
+{
+	private final List<Node> nodes;
+	private final List<Link> links;
+	private final Map<Link, Integer> linkIndexes;
+	private final Map<Link, Double> linkCostMap;
+	private final Map<Node, Integer> nodeIndexes;
+	private final int [] originNode_e;
+	private final int [] destinationNode_e;
+	private final double [] cost_e;
+	private final int K;
+	private final int numPathsPerDestination;
+	private final int maxCopyCapability;
+	private final double maxE2ELengthInKm;
+	private final int maxE2ENumHops;
+	private final double maxE2EPropDelayInMs;
+	private final double maxTreeCost;
+	private final double maxTreeCostFactorRespectToMinimumCostTree;
+	private final double maxTreeCostRespectToMinimumCostTree;
+	private final double maxTimeInSecondsPerDemand;
+	private final int maxNumCombinationsPerDemand;
+
+	/**
+	 * Creates the generator. Non-positive values of the limits mean that the limit does not exist.
+	 *
+	 * @param nodes the network nodes. The end nodes of the links must be in this list
+	 * @param links the network links (e.g. the links of a layer)
+	 * @param linkCost the cost of each link, in the order of the {@code links} list. If {@code null}, all the links have cost one. Links with cost {@code Double.MAX_VALUE} are not used
+	 * @param K Desired number of trees per demand
+	 * @param numPathsPerDestination Number of shortest paths computed from the origin node to each destination node, that are combined to form the trees. If non-positive, {@code K} is used
+	 * @param maxCopyCapability the maximum number of copies of an input traffic a node can make. Then, a node can have at most this number of ouput links carrying traffic of a multicast tree
+	 * @param maxE2ELengthInKm Maximum path length measured in kilometers allowed for any tree, from the origin node, to any destination node
+	 * @param maxE2ENumHops Maximum number of hops allowed for any tree, from the origin node, to any destination node
+	 * @param maxE2EPropDelayInMs Maximum propagation delay in miliseconds allowed in a path, for any tree, from the origin node, to any destination node
+	 * @param maxTreeCost Maximum tree weight allowed, summing the weights of the links
+	 * @param maxTreeCostFactorRespectToMinimumCostTree Trees with higher weight (cost) than the cost of the minimum cost tree found, multiplied by this factor, are not returned
+	 * @param maxTreeCostRespectToMinimumCostTree Trees with higher weight (cost) than the cost of the minimum cost tree found, plus this factor, are not returned
+	 * @param maxTimeInSecondsPerDemand Maximum time for the exploration of the trees of a demand. When exhausted, the trees found so far are returned
+	 * @param maxNumCombinationsPerDemand Maximum number of combinations of paths explored for a demand. When exhausted, the trees found so far are returned
+	 */
+	public MulticastCandidateTreeGenerator(List<Node> nodes, List<Link> links, DoubleMatrix1D linkCost, int K, int numPathsPerDestination, int maxCopyCapability, double maxE2ELengthInKm, int maxE2ENumHops, double maxE2EPropDelayInMs, double maxTreeCost, double maxTreeCostFactorRespectToMinimumCostTree, double maxTreeCostRespectToMinimumCostTree, double maxTimeInSecondsPerDemand, int maxNumCombinationsPerDemand)
+	{
+		if (K <= 0) throw new Net2PlanException("'K' parameter must be greater than zero");
+		if ((linkCost != null) && (linkCost.size() != links.size())) throw new Net2PlanException("The array of costs must have the same length as the number of links");
+		this.nodes = new ArrayList<Node>(nodes);
+		this.links = new ArrayList<Link>(links);
+		this.linkIndexes = new HashMap<Link, Integer>();
+		this.linkCostMap = new HashMap<Link, Double>();
+		this.nodeIndexes = new HashMap<Node, Integer>();
+		for (int n = 0; n < nodes.size(); n++) nodeIndexes.put(nodes.get(n), n);
+		this.originNode_e = new int [links.size()];
+		this.destinationNode_e = new int [links.size()];
+		this.cost_e = new double [links.size()];
+		for (int e = 0; e < links.size(); e++)
+		{
+			final Integer a_e = nodeIndexes.get(links.get(e).getOriginNode());
+			final Integer b_e = nodeIndexes.get(links.get(e).getDestinationNode());
+			if (a_e == null || b_e == null) throw new Net2PlanException("The end nodes of link " + links.get(e) + " are not in the list of nodes");
+			originNode_e [e] = a_e;
+			destinationNode_e [e] = b_e;
+			linkIndexes.put(links.get(e), e);
+			cost_e [e] = linkCost == null ? 1.0 : linkCost.get(e);
+			linkCostMap.put(links.get(e), cost_e [e]);
+		}
+		this.K = K;
+		this.numPathsPerDestination = numPathsPerDestination <= 0 ? K : numPathsPerDestination;
+		this.maxCopyCapability = maxCopyCapability <= 0 ? Integer.MAX_VALUE : maxCopyCapability;
+		this.maxE2ELengthInKm = maxE2ELengthInKm;
+		this.maxE2ENumHops = maxE2ENumHops;
+		this.maxE2EPropDelayInMs = maxE2EPropDelayInMs;
+		this.maxTreeCost = maxTreeCost <= 0 ? Double.MAX_VALUE : maxTreeCost;
+		this.maxTreeCostFactorRespectToMinimumCostTree = maxTreeCostFactorRespectToMinimumCostTree <= 0 ? Double.MAX_VALUE : maxTreeCostFactorRespectToMinimumCostTree;
+		this.maxTreeCostRespectToMinimumCostTree = maxTreeCostRespectToMinimumCostTree <= 0 ? Double.MAX_VALUE : maxTreeCostRespectToMinimumCostTree;
+		this.maxTimeInSecondsPerDemand = maxTimeInSecondsPerDemand;
+		this.maxNumCombinationsPerDemand = maxNumCombinationsPerDemand <= 0 ? Integer.MAX_VALUE : maxNumCombinationsPerDemand;
+	}
+
+	/**
+	 * Returns the candidate trees of the given multicast demands, computed in parallel. The demands are distributed among the threads as they become idle.
+	 *
+	 * @param demands the multicast demands. Their nodes must be in the network nodes of the generator
+	 * @param numThreads Number of threads
+	 * @return Map with the list of trees (a tree is a set of links) per multicast demand, in the same order as the input demands. The trees of each demand are sorted by cost
+	 */
+	public Map<MulticastDemand, List<Set<Link>>> computeCandidateTrees(final List<MulticastDemand> demands, int numThreads)
+	{
+		if (numThreads < 1) throw new Net2PlanException("The number of threads must be positive");
+		final Map<MulticastDemand, List<Set<Link>>> res = new LinkedHashMap<MulticastDemand, List<Set<Link>>>();
+		if (demands.isEmpty()) return res;
+
+		/* Each worker sets the positions of its demands, and the lists are read after all of them finish */
+		final List<List<Set<Link>>> trees_d = new ArrayList<List<Set<Link>>>(Collections.<List<Set<Link>>> nCopies(demands.size(), null));
+		final AtomicInteger nextDemand = new AtomicInteger(0);
+		final int numWorkers = Math.min(numThreads, demands.size());
+		final ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
+		try
+		{
+			final List<Future<?>> workers = new ArrayList<Future<?>>();
+			for (int cont = 0; cont < numWorkers; cont++)
+				workers.add(executor.submit(() ->
+				{
+					final CSRGraph graph = new CSRGraph(nodes, links, linkCostMap);
+					while (true)
+					{
+						final int d = nextDemand.getAndIncrement();
+						if (d >= demands.size()) break;
+						trees_d.set(d, computeCandidateTrees(graph, demands.get(d).getIngressNode(), demands.get(d).getEgressNodes()).getFirst());
+					}
+					return null;
+				}));
+			for (Future<?> worker : workers) worker.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new Net2PlanException("The computation of the candidate multicast trees was interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof Net2PlanException) throw (Net2PlanException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		for (int d = 0; d < demands.size(); d++) res.put(demands.get(d), trees_d.get(d));
+		return res;
+	}
+
+	/**
+	 * Returns the candidate trees from the origin node to the set of destination nodes.
+	 *
+	 * @param originNode the origin node of all the multicast trees
+	 * @param destinationNodes the set of destination nodes of all the multicast trees
+	 * @return The list of trees (a tree is a set of links) sorted by cost, and {@code true} if the time or the number of combinations allowed were exhausted before the exploration finished
+	 * (then, the trees are the ones found so far)
+	 */
+	public Pair<List<Set<Link>>, Boolean> computeCandidateTrees(Node originNode, Set<Node> destinationNodes)
+	{
+		return computeCandidateTrees(new CSRGraph(nodes, links, linkCostMap), originNode, destinationNodes);
+	}
+
+	private Pair<List<Set<Link>>, Boolean> computeCandidateTrees(CSRGraph graph, Node originNode, Set<Node> destinationNodes)
+	{
+		final long startTime = System.nanoTime();
+		final int E = links.size();
+		final int T = destinationNodes.size();
+		final Integer originNodeIndex = nodeIndexes.get(originNode);
+		if (originNodeIndex == null) throw new Net2PlanException("The origin node " + originNode + " is not in the list of nodes");
+		final int numWords = (E + 63) >>> 6;
+
+		/* The paths to each destination, as arrays of link indexes, bitsets, and costs */
+		final int [][][] paths_t = new int [T][][];
+		final long [][][] pathBitsets_t = new long [T][][];
+		final double [][] pathCosts_t = new double [T][];
+		int t = 0;
+		for (Node destination : destinationNodes)
+		{
+			final List<List<Link>> paths = graph.getKLooplessShortestPaths(originNode, destination, numPathsPerDestination, maxE2ELengthInKm, maxE2ENumHops, maxE2EPropDelayInMs, -1, -1, -1);
+			if (paths.isEmpty()) return Pair.of(Collections.<Set<Link>> emptyList(), false);
+			paths_t [t] = new int [paths.size()][];
+			pathBitsets_t [t] = new long [paths.size()][numWords];
+			pathCosts_t [t] = new double [paths.size()];
+			for (int p = 0; p < paths.size(); p++)
+			{
+				paths_t [t][p] = new int [paths.get(p).size()];
+				for (int cont = 0; cont < paths.get(p).size(); cont++)
+				{
+					final int e = linkIndexes.get(paths.get(p).get(cont));
+					paths_t [t][p][cont] = e;
+					pathBitsets_t [t][p][e >>> 6] |= 1L << e;
+					pathCosts_t [t][p] += cost_e [e];
+				}
+			}
+			t ++;
+		}
+
+		/* Best-first exploration of the combinations of one path per destination, by the sum of the path costs */
+		final Map<TreeBitset, Double> trees = new LinkedHashMap<TreeBitset, Double>();
+		final Set<TreeBitset> discardedTrees = new HashSet<TreeBitset>();
+		final PriorityQueue<PathCombination> queue = new PriorityQueue<PathCombination>();
+		final Set<PathCombination> visitedCombinations = new HashSet<PathCombination>();
+		final PathCombination firstCombination = new PathCombination(new int [T], pathCosts_t);
+		queue.add(firstCombination);
+		visitedCombinations.add(firstCombination);
+		final int [] numInLinks_n = new int [nodes.size()];
+		final int [] numOutLinks_n = new int [nodes.size()];
+		int numCombinations = 0;
+		boolean budgetExhausted = false;
+		while (!queue.isEmpty() && (trees.size() < K))
+		{
+			if ((numCombinations >= maxNumCombinationsPerDemand) || ((maxTimeInSecondsPerDemand > 0) && (System.nanoTime() - startTime > maxTimeInSecondsPerDemand * 1e9)))
+			{
+				budgetExhausted = true;
+				break;
+			}
+			numCombinations ++;
+			final PathCombination combination = queue.poll();
+			for (int tt = 0; tt < T; tt++)
+				if (combination.pathIndex_t [tt] + 1 < paths_t [tt].length)
+				{
+					final int [] successor = combination.pathIndex_t.clone();
+					successor [tt] ++;
+					final PathCombination successorCombination = new PathCombination(successor, pathCosts_t);
+					if (visitedCombinations.add(successorCombination)) queue.add(successorCombination);
+				}
+
+			final long [] tree = new long [numWords];
+			for (int tt = 0; tt < T; tt++)
+			{
+				final long [] pathBitset = pathBitsets_t [tt][combination.pathIndex_t [tt]];
+				for (int w = 0; w < numWords; w++) tree [w] |= pathBitset [w];
+			}
+			final TreeBitset treeBitset = new TreeBitset(tree);
+			if (trees.containsKey(treeBitset) || discardedTrees.contains(treeBitset)) continue;
+			final double treeCost = getTreeCostIfValid(tree, originNodeIndex, numInLinks_n, numOutLinks_n);
+			if ((treeCost < 0) || (treeCost > maxTreeCost)) { discardedTrees.add(treeBitset); continue; }
+			trees.put(treeBitset, treeCost);
+		}
+
+		/* Sort by cost, and apply the limits respect to the minimum cost tree found */
+		final List<Map.Entry<TreeBitset, Double>> sortedTrees = new ArrayList<Map.Entry<TreeBitset, Double>>(trees.entrySet());
+		Collections.sort(sortedTrees, (t1, t2) -> Double.compare(t1.getValue(), t2.getValue()));
+		final List<Set<Link>> res = new ArrayList<Set<Link>>(sortedTrees.size());
+		if (sortedTrees.isEmpty()) return Pair.of(res, budgetExhausted);
+		final double minimumTreeCost = sortedTrees.get(0).getValue();
+		final double maximumAllowedTreeCost = Math.min(minimumTreeCost * maxTreeCostFactorRespectToMinimumCostTree, minimumTreeCost + maxTreeCostRespectToMinimumCostTree);
+		for (Map.Entry<TreeBitset, Double> entry : sortedTrees)
+		{
+			if (entry.getValue() > maximumAllowedTreeCost) break;
+			final Set<Link> linkSet = new LinkedHashSet<Link>();
+			final long [] tree = entry.getKey().words;
+			for (int w = 0; w < numWords; w++)
+				for (long word = tree [w]; word != 0; word &= word - 1)
+					linkSet.add(links.get((w << 6) + Long.numberOfTrailingZeros(word)));
+			res.add(linkSet);
+		}
+		return Pair.of(res, budgetExhausted);
+	}
+
+	/* Returns the tree cost, or -1 if a node receives more than one link (or the origin node any), or has more output links than the copy capability */
+	private double getTreeCostIfValid(long [] tree, int originNodeIndex, int [] numInLinks_n, int [] numOutLinks_n)
+	{
+		double treeCost = 0;
+		boolean valid = true;
+		for (int w = 0; w < tree.length; w++)
+			for (long word = tree [w]; word != 0; word &= word - 1)
+			{
+				final int e = (w << 6) + Long.numberOfTrailingZeros(word);
+				treeCost += cost_e [e];
+				if ((++ numInLinks_n [destinationNode_e [e]] > 1) || (destinationNode_e [e] == originNodeIndex)) valid = false;
+				if (++ numOutLinks_n [originNode_e [e]] > maxCopyCapability) valid = false;
+			}
+		for (int w = 0; w < tree.length; w++)
+			for (long word = tree [w]; word != 0; word &= word - 1)
+			{
+				final int e = (w << 6) + Long.numberOfTrailingZeros(word);
+				numInLinks_n [destinationNode_e [e]] = 0;
+				numOutLinks_n [originNode_e [e]] = 0;
+			}
+		return valid ? treeCost : -1;
+	}
+
+	/* A tree as a bitset of the link indexes, with its hash computed once */
+	private static final class TreeBitset
+	{
+		private final long [] words;
+		private final int hash;
+
+		private TreeBitset(long [] words) { this.words = words; this.hash = Arrays.hashCode(words); }
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object o) { return (o instanceof TreeBitset) && (((TreeBitset) o).hash == hash) && Arrays.equals(((TreeBitset) o).words, words); }
+	}
+
+	/* The index of the path chosen for each destination, ordered by the sum of the path costs (ties are broken by the path indexes, so the exploration is deterministic) */
+	private static final class PathCombination implements Comparable<PathCombination>
+	{
+		private final int [] pathIndex_t;
+		private final double sumPathCosts;
+		private final int hash;
+
+		private PathCombination(int [] pathIndex_t, double [][] pathCosts_t)
+		{
+			this.pathIndex_t = pathIndex_t;
+			double sum = 0;
+			for (int t = 0; t < pathIndex_t.length; t++) sum += pathCosts_t [t][pathIndex_t [t]];
+			this.sumPathCosts = sum;
+			this.hash = Arrays.hashCode(pathIndex_t);
+		}
+
+		@Override
+		public int compareTo(PathCombination o)
+		{
+			final int compareCosts = Double.compare(sumPathCosts, o.sumPathCosts);
+			if (compareCosts != 0) return compareCosts;
+			for (int t = 0; t < pathIndex_t.length; t++)
+				if (pathIndex_t [t] != o.pathIndex_t [t]) return Integer.compare(pathIndex_t [t], o.pathIndex_t [t]);
+			return 0;
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object o) { return (o instanceof PathCombination) && Arrays.equals(((PathCombination) o).pathIndex_t, pathIndex_t); }
+	}
+}
@@ -0,0 +1,391 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+package com.net2plan.libraries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Maps;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import com.net2plan.utils.DoubleUtils;
+import com.net2plan.utils.Quadruple;
+import com.net2plan.utils.Triple;
+
+/**
+ * <p>Evaluates the impairments of optical lightpaths with the GN model, as {@link OpticalImpairmentUtils#computeImpairments(List, Map, Map, double, double, double, double, double, double, double, double[], double, double, double) OpticalImpairmentUtils.computeImpairments},
+ * keeping the fiber parameters and the contribution of each fiber span between calls.</p>
+ * <p>The NLI noise added in a span and its attenuation only depend on the fiber type, the span length and the spectrum at the span input. Each different span is computed once, and reused
+ * in all the lightpaths traversing it. Then, evaluating a lightpath (e.g. a candidate lightpath before adding it to the design) is linear in the number of elements traversed and channels. The spans
+ * of a set of lightpaths can be computed in parallel in advance with {@link #computeSpanContributions(Collection, Map, int) computeSpanContributions}.</p>
+ * <p>The objects of this class can be used by several threads at the same time.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+public final class OpticalImpairmentEvaluator
+{
+	private final Map<String, double[]> fiberParameters_t;
+	private final double oadm_perChannelOutputPower_W;
+	private final double fiber_PMD_ps_per_sqroot_km;
+	private final double edfa_PMD;
+	private final double pc_PMD;
+	private final double oadm_muxDemuxPMD_ps;
+	private final double oadm_preAmplifierPMD_ps;
+	private final double oadm_boosterPMD_ps;
+	private final double[] frequenciesPerChannel_THz;
+	private final double centralFrequency_THz;
+	private final double tp_inputPowerSensitivityMin_dBm;
+	private final double tp_inputPowerSensitivityMax_dBm;
+	private final Map<SpanKey, SpanContribution> spanContributions = new ConcurrentHashMap<SpanKey, SpanContribution>();
+
+	/**
+	 * Creates the evaluator. The parameters are the ones of {@link OpticalImpairmentUtils#computeImpairments(List, Map, Map, double, double, double, double, double, double, double, double[], double, double, double) OpticalImpairmentUtils.computeImpairments}
+	 * that do not depend on the lightpath
+	 *
+	 * @param fibersParameters Map with key fiberType, and value a Map of (stFiber_XXX, paramValue)
+	 * @param oadm_perChannelOutputPower_W output power for all OADMs (per channel)
+	 * @param fiber_PMD_ps_per_sqroot_km PMD fiber coefficient
+	 * @param edfa_PMD edfa PMD coefficient
+	 * @param pc_PMD PC PMD coefficient
+	 * @param oadm_muxDemuxPMD_ps mux OADM PMD coefficient
+	 * @param oadm_preAmplifierPMD_ps pre-amplifier OADM PMD coefficient
+	 * @param oadm_boosterPMD_ps booster OAMD PMD coefficient
+	 * @param frequenciesPerChannel_THz array with the frequencies of each channel
+	 * @param centralFrequency_THz the central frequency of the used spectrum
+	 * @param tp_inputPowerSensitivityMin_dBm minimum input power of the final transponder
+	 * @param tp_inputPowerSensitivityMax_dBm maximum input power of the final transponder
+	 */
+	public OpticalImpairmentEvaluator(Map<String, Map<String, Double>> fibersParameters, double oadm_perChannelOutputPower_W, double fiber_PMD_ps_per_sqroot_km, double edfa_PMD, double pc_PMD,
+			double oadm_muxDemuxPMD_ps, double oadm_preAmplifierPMD_ps, double oadm_boosterPMD_ps, double[] frequenciesPerChannel_THz, double centralFrequency_THz,
+			double tp_inputPowerSensitivityMin_dBm, double tp_inputPowerSensitivityMax_dBm)
+	{
+		this.fiberParameters_t = new HashMap<String, double[]>();
+		for (Map.Entry<String, Map<String, Double>> fiberType : fibersParameters.entrySet())
+		{
+			final Map<String, Double> fiberParameters = fiberType.getValue();
+			this.fiberParameters_t.put(fiberType.getKey(), new double[] { fiberParameters.get(OpticalImpairmentUtils.stFiber_alpha_dB_per_km), fiberParameters.get(OpticalImpairmentUtils.stFiber_alpha1st_dB_per_km_per_THz),
+					fiberParameters.get(OpticalImpairmentUtils.stFiber_beta2_ps2_per_km), fiberParameters.get(OpticalImpairmentUtils.stFiber_n2Coeff_m2_per_W),
+					fiberParameters.get(OpticalImpairmentUtils.stFiber_effectiveArea_um2) });
+		}
+		this.oadm_perChannelOutputPower_W = oadm_perChannelOutputPower_W;
+		this.fiber_PMD_ps_per_sqroot_km = fiber_PMD_ps_per_sqroot_km;
+		this.edfa_PMD = edfa_PMD;
+		this.pc_PMD = pc_PMD;
+		this.oadm_muxDemuxPMD_ps = oadm_muxDemuxPMD_ps;
+		this.oadm_preAmplifierPMD_ps = oadm_preAmplifierPMD_ps;
+		this.oadm_boosterPMD_ps = oadm_boosterPMD_ps;
+		this.frequenciesPerChannel_THz = Arrays.copyOf(frequenciesPerChannel_THz, frequenciesPerChannel_THz.length);
+		this.centralFrequency_THz = centralFrequency_THz;
+		this.tp_inputPowerSensitivityMin_dBm = tp_inputPowerSensitivityMin_dBm;
+		this.tp_inputPowerSensitivityMax_dBm = tp_inputPowerSensitivityMax_dBm;
+	}
+
+	/**
+	 * Computes OSNRs and power per channel with the GN formula and PMD according to Net2Plan calculations, as {@link OpticalImpairmentUtils#computeImpairments(List, Map, Map, double, double, double, double, double, double, double, double[], double, double, double) OpticalImpairmentUtils.computeImpairments}.
+	 * The contributions of the spans not evaluated before are computed and kept
+	 *
+	 * @param linkElements List of Quadruples where 1st: position (km); 2nd: Type; 3rd: data; 4th: auxData
+	 * @param spectrumParameters Map with keys stSpectrum_XX. At the end, it contains the spectrum after the last element
+	 * @return a list of elements with a Quadruple:
+	 *         1st element is the power per channel before the element,
+	 *         2nd, the PMD^2 Net2Plan result before the element,
+	 *         3rd, the GN-model spectrum parameters after the element,
+	 *         4th, the PMD^2 Net2Plan result after the element,
+	 */
+	public List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> computeImpairments(List<Quadruple<Double, String, Double, String>> linkElements, Map<String, double[]> spectrumParameters)
+	{
+		final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> res = new LinkedList<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>();
+		evaluate(linkElements, spectrumParameters, res, null);
+		return res;
+	}
+
+	/**
+	 * Computes the OSNR at the end of the given sequence of elements (e.g. of a candidate lightpath), without modifying the input spectrum. The contributions of the spans not evaluated before are computed and kept
+	 *
+	 * @param linkElements List of Quadruples where 1st: position (km); 2nd: Type; 3rd: data; 4th: auxData
+	 * @param spectrumParameters Map with keys stSpectrum_XX, with the spectrum at the transmitter
+	 * @return see {@link OpticalImpairmentUtils#getOSNR(Map) OpticalImpairmentUtils.getOSNR}
+	 */
+	public Triple<double[], double[], double[]> computeOSNR(List<Quadruple<Double, String, Double, String>> linkElements, Map<String, double[]> spectrumParameters)
+	{
+		final Map<String, double[]> spectrum = Maps.newHashMap(spectrumParameters);
+		evaluate(linkElements, spectrum, null, null);
+		return OpticalImpairmentUtils.getOSNR(spectrum);
+	}
+
+	/**
+	 * Computes in parallel the contributions of all the spans traversed by the given sequences of elements (e.g. all the lightpaths in the network) not evaluated before. Then,
+	 * evaluating these sequences of elements does not compute any span
+	 *
+	 * @param linkElementsList the sequences of elements, as in {@link #computeImpairments(List, Map) computeImpairments}
+	 * @param spectrumParameters Map with keys stSpectrum_XX, with the spectrum at the transmitter. It is not modified
+	 * @param numThreads Number of threads
+	 * @return Number of spans computed
+	 */
+	public int computeSpanContributions(Collection<? extends List<Quadruple<Double, String, Double, String>>> linkElementsList, Map<String, double[]> spectrumParameters, int numThreads)
+	{
+		if (numThreads < 1) throw new Net2PlanException("The number of threads must be positive");
+
+		/* The power at the input of the spans does not depend on the noise: the elements are traversed without computing any span */
+		final Set<SpanKey> pendingSpans = new LinkedHashSet<SpanKey>();
+		for (List<Quadruple<Double, String, Double, String>> linkElements : linkElementsList)
+			evaluate(linkElements, Maps.newHashMap(spectrumParameters), null, pendingSpans);
+		pendingSpans.removeAll(spanContributions.keySet());
+		if (pendingSpans.isEmpty()) return 0;
+
+		final List<SpanKey> spans = new ArrayList<SpanKey>(pendingSpans);
+		final AtomicInteger nextSpan = new AtomicInteger(0);
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, spans.size()));
+		try
+		{
+			final List<Future<?>> workers = new ArrayList<Future<?>>();
+			for (int cont = 0; cont < Math.min(numThreads, spans.size()); cont++)
+				workers.add(executor.submit(() ->
+				{
+					while (true)
+					{
+						final int spanIndex = nextSpan.getAndIncrement();
+						if (spanIndex >= spans.size()) break;
+						final SpanKey span = spans.get(spanIndex);
+						spanContributions.put(span, computeSpanContribution(span));
+					}
+					return null;
+				}));
+			for (Future<?> worker : workers) worker.get();
+			return spans.size();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new Net2PlanException("The computation of the span contributions was interrupted");
+		} catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof Net2PlanException) throw (Net2PlanException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the number of different spans which contribution is kept
+	 *
+	 * @return see above
+	 */
+	public int getNumberOfSpansComputed()
+	{
+		return spanContributions.size();
+	}
+
+	/**
+	 * Removes the contributions of the spans kept, e.g. if the memory is needed
+	 */
+	public void clearSpanContributions()
+	{
+		spanContributions.clear();
+	}
+
+	/* Traverses the elements updating the spectrum. If res is not null, the spectrum and PMD before and after each element is added. If pendingSpans is not null, the spans are not computed
+	 * (their NLI noise and attenuation are taken as zero and one) but added to the set */
+	private void evaluate(List<Quadruple<Double, String, Double, String>> linkElements, Map<String, double[]> spectrumParameters,
+			List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> res, Set<SpanKey> pendingSpans)
+	{
+		final int numChannels = spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W).length;
+
+		/* In the transmitter */
+		double current_PMDSquared_ps2 = 0;
+
+		for (Quadruple<Double, String, Double, String> element : linkElements)
+		{
+			final String name = element.getSecond();
+			final double elementData = element.getThird();
+			final String elementInfo = element.getFourth();
+
+			final Map<String, double[]> prevSpectrum = res == null ? null : Maps.newHashMap(spectrumParameters);
+			final double prevPMDSquared_ps2 = current_PMDSquared_ps2;
+
+			if (name.equalsIgnoreCase("OADM-ADD") || name.equalsIgnoreCase("OADM-EXPRESS") || name.equalsIgnoreCase("OADM-DROP"))
+			{
+				final double noiseFigure_dB = Double.parseDouble(elementInfo);
+				final double targetOutputPower_W = name.equalsIgnoreCase("OADM-DROP") ? OpticalImpairmentUtils.dB2linear((tp_inputPowerSensitivityMin_dBm + tp_inputPowerSensitivityMax_dBm) / 2) * 1e-3
+						: oadm_perChannelOutputPower_W;
+
+				final Triple<double[], double[], double[]> outputPowers = OpticalImpairmentUtils.getSpectrumAfterOADM(targetOutputPower_W, spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W),
+						spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W), spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W), noiseFigure_dB, centralFrequency_THz,
+						frequenciesPerChannel_THz, spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_bandwidthPerChannel_THz));
+
+				/* Update spectrum */
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W, outputPowers.getFirst());
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W, outputPowers.getSecond());
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W, outputPowers.getThird());
+
+				/* Net2Plan calculations */
+				if (name.equalsIgnoreCase("OADM-ADD"))
+					current_PMDSquared_ps2 = Math.pow(oadm_muxDemuxPMD_ps, 2) + Math.pow(oadm_boosterPMD_ps, 2);
+				else if (name.equalsIgnoreCase("OADM-EXPRESS"))
+					current_PMDSquared_ps2 += Math.pow(oadm_preAmplifierPMD_ps, 2) + Math.pow(oadm_boosterPMD_ps, 2);
+				else
+					current_PMDSquared_ps2 += Math.pow(oadm_preAmplifierPMD_ps, 2);
+
+			} else if (name.equalsIgnoreCase("SPAN"))
+			{
+				final double spanLength_km = elementData;
+				final SpanKey span = new SpanKey(elementInfo, spanLength_km, spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_bandwidthPerChannel_THz),
+						spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W));
+				final SpanContribution contribution;
+				if (pendingSpans != null)
+				{
+					pendingSpans.add(span);
+					contribution = new SpanContribution(getAttenuation(span), new double[numChannels]);
+				} else
+					contribution = spanContributions.computeIfAbsent(span, this::computeSpanContribution);
+
+				/* GN calculations */
+				final double[] powerPerChannel_W = DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W), contribution.attenuation_linear);
+				final double[] nliNoisePower_W = DoubleUtils.sum(DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W), contribution.attenuation_linear),
+						contribution.nliNoisePowerThisSpan_W);
+				final double[] aseNoisePower_W = DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W), contribution.attenuation_linear);
+
+				/* Update spectrum */
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W, powerPerChannel_W);
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W, nliNoisePower_W);
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W, aseNoisePower_W);
+
+				/* Net2Plan calculations */
+				current_PMDSquared_ps2 += spanLength_km * Math.pow(fiber_PMD_ps_per_sqroot_km, 2);
+
+			} else if (name.equalsIgnoreCase("EDFA"))
+			{
+				final double edfaGain_dB = elementData;
+				final double noiseFigure_dB = Double.parseDouble(elementInfo);
+
+				final double[] eqBandwidthPerChannel_THz = spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_bandwidthPerChannel_THz);
+
+				/* GN calculations */
+				final double aux = (OpticalImpairmentUtils.dB2linear(edfaGain_dB) - 1) * OpticalImpairmentUtils.dB2linear(noiseFigure_dB) * OpticalImpairmentUtils.constant_h * 1e24;
+				final double[] aseNoisePowerAdded_W = new double[numChannels];
+				for (int n = 0; n < numChannels; n++)
+					aseNoisePowerAdded_W[n] = (frequenciesPerChannel_THz[n] + centralFrequency_THz) * aux * eqBandwidthPerChannel_THz[n];
+
+				final double[] powerPerChannel_W = DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W), OpticalImpairmentUtils.dB2linear(edfaGain_dB));
+				final double[] nliNoisePower_W = DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W), OpticalImpairmentUtils.dB2linear(edfaGain_dB));
+				final double[] aseNoisePowerAmplified_W = DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W), OpticalImpairmentUtils.dB2linear(edfaGain_dB));
+				final double[] aseNoisePower_W = DoubleUtils.sum(aseNoisePowerAmplified_W, aseNoisePowerAdded_W);
+
+				/* Update spectrum */
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W, powerPerChannel_W);
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W, nliNoisePower_W);
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W, aseNoisePower_W);
+
+				/* Net2Plan calculations */
+				current_PMDSquared_ps2 += Math.pow(edfa_PMD, 2);
+			} else if (name.equalsIgnoreCase("PC"))
+			{
+				final double pcLoss_dB = elementData;
+
+				/* GN calculations */
+				final double lin_att = 1 / OpticalImpairmentUtils.dB2linear(pcLoss_dB);
+
+				/* Update spectrum */
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W, DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W), lin_att));
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W, DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W), lin_att));
+				spectrumParameters.put(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W, DoubleUtils.mult(spectrumParameters.get(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W), lin_att));
+
+				/* Net2Plan calculations */
+				current_PMDSquared_ps2 += Math.pow(pc_PMD, 2);
+
+			} else
+			{
+				throw new RuntimeException("Unknown element type");
+			}
+
+			if (res != null) res.add(Quadruple.of(prevSpectrum, prevPMDSquared_ps2, Maps.newHashMap(spectrumParameters), current_PMDSquared_ps2));
+		}
+	}
+
+	private double[] getFiberParameters(String fiberType)
+	{
+		final double[] fiberParameters = fiberParameters_t.get(fiberType);
+		if (fiberParameters == null) throw new Net2PlanException("Unknown fiber type: " + fiberType);
+		return fiberParameters;
+	}
+
+	private double[] getAttenuation(SpanKey span)
+	{
+		final double[] fiberParameters = getFiberParameters(span.fiberType);
+		return OpticalImpairmentUtils.getAttenuationCompLinear(fiberParameters[0], fiberParameters[1], span.spanLength_km, frequenciesPerChannel_THz);
+	}
+
+	private SpanContribution computeSpanContribution(SpanKey span)
+	{
+		final double[] fiberParameters = getFiberParameters(span.fiberType);
+		final double[] nliNoisePowerThisSpan_W = OpticalImpairmentUtils.computeNLIfiber(fiberParameters[2], fiberParameters[0], fiberParameters[1], fiberParameters[3], fiberParameters[4],
+				span.spanLength_km, span.bandwidthPerChannel_THz, span.inputPowerPerChannel_W, centralFrequency_THz, frequenciesPerChannel_THz);
+		return new SpanContribution(getAttenuation(span), nliNoisePowerThisSpan_W);
+	}
+
+	/* A fiber span, identified by the fiber type, the length and the spectrum at its input */
+	private static final class SpanKey
+	{
+		private final String fiberType;
+		private final double spanLength_km;
+		private final double[] bandwidthPerChannel_THz;
+		private final double[] inputPowerPerChannel_W;
+		private final int hash;
+
+		private SpanKey(String fiberType, double spanLength_km, double[] bandwidthPerChannel_THz, double[] inputPowerPerChannel_W)
+		{
+			this.fiberType = fiberType;
+			this.spanLength_km = spanLength_km;
+			this.bandwidthPerChannel_THz = Arrays.copyOf(bandwidthPerChannel_THz, bandwidthPerChannel_THz.length);
+			this.inputPowerPerChannel_W = Arrays.copyOf(inputPowerPerChannel_W, inputPowerPerChannel_W.length);
+			this.hash = 31 * (31 * (31 * String.valueOf(fiberType).hashCode() + Double.hashCode(spanLength_km)) + Arrays.hashCode(bandwidthPerChannel_THz)) + Arrays.hashCode(inputPowerPerChannel_W);
+		}
+
+		@Override
+		public int hashCode() { return hash; }
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof SpanKey)) return false;
+			final SpanKey other = (SpanKey) o;
+			return other.hash == hash && String.valueOf(other.fiberType).equals(String.valueOf(fiberType)) && other.spanLength_km == spanLength_km
+					&& Arrays.equals(other.bandwidthPerChannel_THz, bandwidthPerChannel_THz) && Arrays.equals(other.inputPowerPerChannel_W, inputPowerPerChannel_W);
+		}
+	}
+
+	/* The linear attenuation of a span, and the NLI noise power it adds at its output */
+	private static final class SpanContribution
+	{
+		private final double[] attenuation_linear;
+		private final double[] nliNoisePowerThisSpan_W;
+
+		private SpanContribution(double[] attenuation_linear, double[] nliNoisePowerThisSpan_W)
+		{
+			this.attenuation_linear = attenuation_linear;
+			this.nliNoisePowerThisSpan_W = nliNoisePowerThisSpan_W;
+		}
+	}
+}
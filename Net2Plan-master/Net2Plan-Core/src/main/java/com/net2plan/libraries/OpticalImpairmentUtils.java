@@ -1,11 +1,9 @@
 package com.net2plan.libraries;
 
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import com.google.common.collect.Maps;
 import com.net2plan.utils.DoubleUtils;
 import com.net2plan.utils.Quadruple;
 import com.net2plan.utils.Triple;
@@ -78,7 +76,7 @@ public class OpticalImpairmentUtils
 	 * @param powerPerChannel_W the power per channel [W]
 	 * @return power spectral density of NLI in this span [W/THz]
 	 */
-	private static double[] computeNLIfiber(double fiberBeta2_ps2_per_km, double fiberAlpha_dB_per_km, double fiberAlpha1st_dB_per_km_per_THz, double fiberN2_m2_per_W, double fiberEffectiveArea_um2,
+	static double[] computeNLIfiber(double fiberBeta2_ps2_per_km, double fiberAlpha_dB_per_km, double fiberAlpha1st_dB_per_km_per_THz, double fiberN2_m2_per_W, double fiberEffectiveArea_um2,
 			double spanLength_km, double[] bandwidthPerChannel_THz, double[] powerPerChannel_W, double centralFrequency_THz, double[] frequenciesPerChannel_THz)
 	{
 
@@ -128,7 +126,7 @@ public class OpticalImpairmentUtils
 	 * @param frequenciesPerChannel_THz the frequency per channel [THz]
 	 * @return attenuation per channel [linear]
 	 */
-	private static double[] getAttenuationCompLinear(double fiberAlpha_dB_per_km, double fiberAlpha1st_dB_per_km_per_THz, double spanLength_km, double[] frequenciesPerChannel_THz)
+	static double[] getAttenuationCompLinear(double fiberAlpha_dB_per_km, double fiberAlpha1st_dB_per_km_per_THz, double spanLength_km, double[] frequenciesPerChannel_THz)
 	{
 		double[] att = new double[frequenciesPerChannel_THz.length];
 
@@ -163,170 +161,16 @@ public class OpticalImpairmentUtils
 	 *         2nd, the PMD^2 Net2Plan result before the element,
 	 *         3rd, the GN-model spectrum parameters after the element,
 	 *         4th, the PMD^2 Net2Plan result after the element,
+	 * @see OpticalImpairmentEvaluator
 	 */
 	public static List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> computeImpairments(List<Quadruple<Double, String, Double, String>> linkElements,
 			Map<String, double[]> spectrumParameters, Map<String, Map<String, Double>> fibersParameters, double oadm_perChannelOutputPower_W, double fiber_PMD_ps_per_sqroot_km, double edfa_PMD,
 			double pc_PMD, double oadm_muxDemuxPMD_ps, double oadm_preAmplifierPMD_ps, double oadm_boosterPMD_ps, double[] frequenciesPerChannel_THz, double centralFrequency_THz,
 			double tp_inputPowerSensitivityMin_dBm, double tp_inputPowerSensitivityMax_dBm)
 	{
-		final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> res = new LinkedList<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>();
-		final int numChannels = spectrumParameters.get(stSpectrum_powerPerChannel_W).length;
-
-		/* In the transmitter */
-		double current_PMDSquared_ps2 = 0;
-
-		for (Quadruple<Double, String, Double, String> element : linkElements)
-		{
-			final String name = element.getSecond();
-			final double elementData = element.getThird();
-			final String elementInfo = element.getFourth();
-
-			final Map<String, double[]> prevSpectrum = Maps.newHashMap(spectrumParameters);
-			final double prevPMDSquared_ps2 = current_PMDSquared_ps2;
-
-			if (name.equalsIgnoreCase("OADM-ADD"))
-			{
-				final double noiseFigure_dB = Double.parseDouble(elementInfo);
-				
-				final Triple<double[], double[], double[]> outputPowers = getSpectrumAfterOADM(oadm_perChannelOutputPower_W, spectrumParameters.get(stSpectrum_powerPerChannel_W),
-						spectrumParameters.get(stSpectrum_nliNoisePowerg_W), spectrumParameters.get(stSpectrum_aseNoisePower_W), noiseFigure_dB, centralFrequency_THz,
-						frequenciesPerChannel_THz, spectrumParameters.get(stSpectrum_bandwidthPerChannel_THz));
-
-				/* Update spectrum */
-				spectrumParameters.put(stSpectrum_powerPerChannel_W, outputPowers.getFirst());
-				spectrumParameters.put(stSpectrum_nliNoisePowerg_W, outputPowers.getSecond());
-				spectrumParameters.put(stSpectrum_aseNoisePower_W, outputPowers.getThird());
-
-				/* Net2Plan calculations */
-				current_PMDSquared_ps2 = Math.pow(oadm_muxDemuxPMD_ps, 2) + Math.pow(oadm_boosterPMD_ps, 2);
-
-			} else if (name.equalsIgnoreCase("OADM-EXPRESS"))
-			{
-
-				final double noiseFigure_dB = Double.parseDouble(elementInfo);
-				
-				final Triple<double[], double[], double[]> outputPowers = getSpectrumAfterOADM(oadm_perChannelOutputPower_W, spectrumParameters.get(stSpectrum_powerPerChannel_W),
-						spectrumParameters.get(stSpectrum_nliNoisePowerg_W), spectrumParameters.get(stSpectrum_aseNoisePower_W), noiseFigure_dB, centralFrequency_THz,
-						frequenciesPerChannel_THz, spectrumParameters.get(stSpectrum_bandwidthPerChannel_THz));
-
-				/* Update spectrum */
-				spectrumParameters.put(stSpectrum_powerPerChannel_W, outputPowers.getFirst());
-				spectrumParameters.put(stSpectrum_nliNoisePowerg_W, outputPowers.getSecond());
-				spectrumParameters.put(stSpectrum_aseNoisePower_W, outputPowers.getThird());
-
-				/* Net2Plan calculations */
-				current_PMDSquared_ps2 += Math.pow(oadm_preAmplifierPMD_ps, 2) + Math.pow(oadm_boosterPMD_ps, 2);
-
-			} else if (name.equalsIgnoreCase("OADM-DROP"))
-			{
-				final double noiseFigure_dB = Double.parseDouble(elementInfo);
-				final double targetOutputPower_W = dB2linear((tp_inputPowerSensitivityMin_dBm + tp_inputPowerSensitivityMax_dBm) / 2) * 1e-3;
-				
-				final Triple<double[], double[], double[]> outputPowers = getSpectrumAfterOADM(targetOutputPower_W, spectrumParameters.get(stSpectrum_powerPerChannel_W),
-						spectrumParameters.get(stSpectrum_nliNoisePowerg_W), spectrumParameters.get(stSpectrum_aseNoisePower_W), noiseFigure_dB, centralFrequency_THz,
-						frequenciesPerChannel_THz, spectrumParameters.get(stSpectrum_bandwidthPerChannel_THz));
-
-				/* Update spectrum */
-				spectrumParameters.put(stSpectrum_powerPerChannel_W, outputPowers.getFirst());
-				spectrumParameters.put(stSpectrum_nliNoisePowerg_W, outputPowers.getSecond());
-				spectrumParameters.put(stSpectrum_aseNoisePower_W, outputPowers.getThird());
-
-				/* Net2Plan calculations */
-				current_PMDSquared_ps2 += Math.pow(oadm_preAmplifierPMD_ps, 2);
-
-			} else if (name.equalsIgnoreCase("SPAN"))
-			{
-				final double spanLength_km = elementData;
-				final String fiberType = elementInfo;
-				final Map<String, Double> fiberParameters = fibersParameters.get(fiberType);
-
-				final double this_alpha = fiberParameters.get(stFiber_alpha_dB_per_km);
-				final double this_alpha1st = fiberParameters.get(stFiber_alpha1st_dB_per_km_per_THz);
-				final double this_beta2 = fiberParameters.get(stFiber_beta2_ps2_per_km);
-				final double this_n2 = fiberParameters.get(stFiber_n2Coeff_m2_per_W);
-				final double this_aeff = fiberParameters.get(stFiber_effectiveArea_um2);
-				double[] powerPerChannel_W = spectrumParameters.get(stSpectrum_powerPerChannel_W);
-				double[] nliNoisePower_W = spectrumParameters.get(stSpectrum_nliNoisePowerg_W);
-				double[] aseNoisePower_W = spectrumParameters.get(stSpectrum_aseNoisePower_W);
-
-				/* GN calculations */
-				final double[] lin_att = getAttenuationCompLinear(this_alpha, this_alpha1st, spanLength_km, frequenciesPerChannel_THz);
-
-				powerPerChannel_W = DoubleUtils.mult(powerPerChannel_W, lin_att);
-				nliNoisePower_W = DoubleUtils.mult(nliNoisePower_W, lin_att);
-				aseNoisePower_W = DoubleUtils.mult(aseNoisePower_W, lin_att);
-
-				final double[] nliNoisePowerThisSpan_W = computeNLIfiber(this_beta2, this_alpha, this_alpha1st, this_n2, this_aeff, spanLength_km,
-						spectrumParameters.get(stSpectrum_bandwidthPerChannel_THz), spectrumParameters.get(stSpectrum_powerPerChannel_W), this_aeff, nliNoisePower_W);
-				nliNoisePower_W = DoubleUtils.sum(nliNoisePower_W, nliNoisePowerThisSpan_W);
-
-				/* Update spectrum */
-				spectrumParameters.put(stSpectrum_powerPerChannel_W, powerPerChannel_W);
-				spectrumParameters.put(stSpectrum_nliNoisePowerg_W, nliNoisePower_W);
-				spectrumParameters.put(stSpectrum_aseNoisePower_W, aseNoisePower_W);
-
-				/* Net2Plan calculations */
-				current_PMDSquared_ps2 += spanLength_km * Math.pow(fiber_PMD_ps_per_sqroot_km, 2);
-
-			} else if (name.equalsIgnoreCase("EDFA"))
-			{
-				final double edfaGain_dB = elementData;
-				final double noiseFigure_dB = Double.parseDouble(elementInfo);
-
-				final double[] eqBandwidthPerChannel_THz = spectrumParameters.get(stSpectrum_bandwidthPerChannel_THz);
-				double[] powerPerChannel_W = spectrumParameters.get(stSpectrum_powerPerChannel_W);
-				double[] nliNoisePower_W = spectrumParameters.get(stSpectrum_nliNoisePowerg_W);
-				double[] aseNoisePower_W = spectrumParameters.get(stSpectrum_aseNoisePower_W);
-
-				/* GN calculations */
-				final double aux = (dB2linear(edfaGain_dB) - 1) * dB2linear(noiseFigure_dB) * constant_h * 1e24;
-				final double[] centralFrequency_array_THz = new double[numChannels];
-				Arrays.fill(centralFrequency_array_THz, centralFrequency_THz);
-				final double[] aseNoisePowerAdded_W = DoubleUtils.mult(DoubleUtils.mult(DoubleUtils.sum(frequenciesPerChannel_THz, centralFrequency_array_THz), aux), eqBandwidthPerChannel_THz);
-
-				powerPerChannel_W = DoubleUtils.mult(powerPerChannel_W, dB2linear(edfaGain_dB));
-				nliNoisePower_W = DoubleUtils.mult(nliNoisePower_W, dB2linear(edfaGain_dB));
-				final double[] aseNoisePowerAmplified_W = DoubleUtils.mult(aseNoisePower_W, dB2linear(edfaGain_dB));
-				aseNoisePower_W = DoubleUtils.sum(aseNoisePowerAmplified_W, aseNoisePowerAdded_W);
-
-				/* Update spectrum */
-				spectrumParameters.put(stSpectrum_powerPerChannel_W, powerPerChannel_W);
-				spectrumParameters.put(stSpectrum_nliNoisePowerg_W, nliNoisePower_W);
-				spectrumParameters.put(stSpectrum_aseNoisePower_W, aseNoisePower_W);
-
-				/* Net2Plan calculations */
-				current_PMDSquared_ps2 += Math.pow(edfa_PMD, 2);
-			} else if (name.equalsIgnoreCase("PC"))
-			{
-				final double pcLoss_dB = elementData;
-
-				double[] powerPerChannel_W = spectrumParameters.get(stSpectrum_powerPerChannel_W);
-				double[] nliNoisePower_W = spectrumParameters.get(stSpectrum_nliNoisePowerg_W);
-				double[] aseNoisePower_W = spectrumParameters.get(stSpectrum_aseNoisePower_W);
-
-				/* GN calculations */
-				final double lin_att = 1 / dB2linear(pcLoss_dB);
-
-				powerPerChannel_W = DoubleUtils.mult(powerPerChannel_W, lin_att);
-				nliNoisePower_W = DoubleUtils.mult(nliNoisePower_W, lin_att);
-				aseNoisePower_W = DoubleUtils.mult(aseNoisePower_W, lin_att);
-
-				/* Update spectrum */
-				spectrumParameters.put(stSpectrum_powerPerChannel_W, powerPerChannel_W);
-				spectrumParameters.put(stSpectrum_nliNoisePowerg_W, nliNoisePower_W);
-				spectrumParameters.put(stSpectrum_aseNoisePower_W, aseNoisePower_W);
-
-				/* Net2Plan calculations */
-				current_PMDSquared_ps2 += Math.pow(pc_PMD, 2);
-
-			} else
-			{
-				throw new RuntimeException("Unknown element type");
-			}
-
-			res.add(Quadruple.of(prevSpectrum, prevPMDSquared_ps2, Maps.newHashMap(spectrumParameters), current_PMDSquared_ps2));
-		}
-		return res;
+		final OpticalImpairmentEvaluator evaluator = new OpticalImpairmentEvaluator(fibersParameters, oadm_perChannelOutputPower_W, fiber_PMD_ps_per_sqroot_km, edfa_PMD, pc_PMD, oadm_muxDemuxPMD_ps,
+				oadm_preAmplifierPMD_ps, oadm_boosterPMD_ps, frequenciesPerChannel_THz, centralFrequency_THz, tp_inputPowerSensitivityMin_dBm, tp_inputPowerSensitivityMax_dBm);
+		return evaluator.computeImpairments(linkElements, spectrumParameters);
 	}
 
 	/**
@@ -342,7 +186,7 @@ public class OpticalImpairmentUtils
 	 * @param eqBandwidthPerChannel_THz equivalent bandwidth per channel in THz
 	 * @return spectrum after OADM (power [W], NLI noise power [W], ASE noise power[W])
 	 */
-	private static Triple<double[], double[], double[]> getSpectrumAfterOADM(double oadm_outputPowerPerChannel_W, double[] inputPowerPerChannel_W, double[] nliNoisePower_W, double[] aseNoisePower_W,
+	static Triple<double[], double[], double[]> getSpectrumAfterOADM(double oadm_outputPowerPerChannel_W, double[] inputPowerPerChannel_W, double[] nliNoisePower_W, double[] aseNoisePower_W,
 			double noiseFigure_dB, double centralFrequency_THz, double[] frequenciesPerChannel_THz, double eqBandwidthPerChannel_THz[])
 	{
 		final int numChannels = frequenciesPerChannel_THz.length;
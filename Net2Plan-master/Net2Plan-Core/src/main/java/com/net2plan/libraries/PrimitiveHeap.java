@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (node index, key) pairs on primitive arrays, for the graph algorithms of this package. The same node can be added several
+ * times: the callers skip the outdated entries (lazy deletion).
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+final class PrimitiveHeap
+{
+	private int [] nodes;
+	private double [] keys;
+	private int size;
+
+	PrimitiveHeap(int initialCapacity)
+	{
+		this.nodes = new int [initialCapacity];
+		this.keys = new double [initialCapacity];
+	}
+
+	void clear() { size = 0; }
+
+	boolean isEmpty() { return size == 0; }
+
+	double peekKey() { return keys [0]; }
+
+	void add(int node, double key)
+	{
+		if (size == nodes.length) { nodes = Arrays.copyOf(nodes, 2 * size); keys = Arrays.copyOf(keys, 2 * size); }
+		int position = size ++;
+		while (position > 0)
+		{
+			final int parent = (position - 1) / 2;
+			if (keys [parent] <= key) break;
+			nodes [position] = nodes [parent]; keys [position] = keys [parent];
+			position = parent;
+		}
+		nodes [position] = node; keys [position] = key;
+	}
+
+	int poll()
+	{
+		final int result = nodes [0];
+		final int lastNode = nodes [-- size];
+		final double lastKey = keys [size];
+		int position = 0;
+		while (true)
+		{
+			int child = 2 * position + 1;
+			if (child >= size) break;
+			if (child + 1 < size && keys [child + 1] < keys [child]) child ++;
+			if (keys [child] >= lastKey) break;
+			nodes [position] = nodes [child]; keys [position] = keys [child];
+			position = child;
+		}
+		nodes [position] = lastNode; keys [position] = lastKey;
+		return result;
+	}
+}
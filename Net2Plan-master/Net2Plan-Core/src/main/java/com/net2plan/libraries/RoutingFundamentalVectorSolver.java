@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.SparseDoubleAlgebra;
+import cern.colt.matrix.tdouble.algo.decomposition.SparseDoubleLUDecomposition;
+import cern.colt.matrix.tdouble.impl.SparseCCDoubleMatrix2D;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.RoutingCycleType;
+import com.net2plan.utils.Pair;
+import com.net2plan.utils.Quintuple;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * <p>Solver of the fundamental vectors of the absorbing Markov chain defined by a set of forwarding rules (see
+ * {@link GraphUtils#computeRoutingFundamentalVector(Map, Map, Node, Node) computeRoutingFundamentalVector}), that is built once per
+ * set of forwarding rules, and reused for any ingress and egress node. This is the case of destination-based routing, where all the
+ * demands with the same egress node have the same forwarding rules.</p>
+ *
+ * <p>If the forwarding rules have no cycles, the fundamental vectors are obtained propagating the traffic from the ingress node in topological order,
+ * and no linear system is solved. If not, the matrix (I - Q) is factorized when the solver is created, and the factorization is reused for each ingress node.</p>
+ *
+ * <p>The solver keeps the node indexes of the forwarding rules links when it was created. Changes in the network design after that are not reflected in it.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+public final class RoutingFundamentalVectorSolver
+{
+	private final int N;
+	private final int [] outFrsStart_n;
+	private final int [] outFrsDestinationNode;
+	private final double [] outFrsSplitFactor;
+	private final int [] topologicalOrder; // null if the forwarding rules have cycles
+	private final int [] topologicalPosition_n;
+	private final SparseDoubleLUDecomposition eyeMinusQ_lu; // null if the forwarding rules have no cycles, or the matrix is singular (closed cycles)
+
+	/**
+	 * Creates the solver for the given forwarding rules.
+	 * @param frs the forwarding rules (links and splitting factors, all in the same layer)
+	 * @param numberOfNodes the number of nodes in the network
+	 */
+	public RoutingFundamentalVectorSolver (Map<Link,Double> frs , int numberOfNodes)
+	{
+		this.N = numberOfNodes;
+		this.outFrsStart_n = new int [N + 1];
+		this.outFrsDestinationNode = new int [frs.size()];
+		this.outFrsSplitFactor = new double [frs.size()];
+		for (Link e : frs.keySet()) outFrsStart_n [e.getOriginNode().getIndex() + 1] ++;
+		for (int n = 0; n < N ; n ++) outFrsStart_n [n + 1] += outFrsStart_n [n];
+		final int [] nextPosition_n = new int [N];
+		final int [] numInFrs_n = new int [N];
+		boolean selfLoops = false;
+		for (Entry<Link,Double> fr : frs.entrySet())
+		{
+			final int a = fr.getKey().getOriginNode().getIndex();
+			final int b = fr.getKey().getDestinationNode().getIndex();
+			final int pos = outFrsStart_n [a] + nextPosition_n [a] ++;
+			outFrsDestinationNode [pos] = b;
+			outFrsSplitFactor [pos] = fr.getValue();
+			numInFrs_n [b] ++;
+			if (a == b) selfLoops = true;
+		}
+
+		/* Kahn algorithm: if all the nodes can be sorted, there are no cycles */
+		final int [] order = new int [N];
+		int numSorted = 0;
+		for (int n = 0; n < N ; n ++) if (numInFrs_n [n] == 0) order [numSorted ++] = n;
+		for (int cont = 0; cont < numSorted ; cont ++)
+		{
+			final int a = order [cont];
+			for (int pos = outFrsStart_n [a] ; pos < outFrsStart_n [a + 1] ; pos ++)
+				if (-- numInFrs_n [outFrsDestinationNode [pos]] == 0) order [numSorted ++] = outFrsDestinationNode [pos];
+		}
+		if (!selfLoops && (numSorted == N))
+		{
+			this.topologicalOrder = order;
+			this.topologicalPosition_n = new int [N];
+			for (int pos = 0; pos < N ; pos ++) topologicalPosition_n [order [pos]] = pos;
+			this.eyeMinusQ_lu = null;
+			return;
+		}
+		this.topologicalOrder = null;
+		this.topologicalPosition_n = null;
+
+		DoubleMatrix2D eyeMinusQ_nn = new SparseCCDoubleMatrix2D (N,N);
+		for (int a = 0; a < N ; a ++)
+			for (int pos = outFrsStart_n [a] ; pos < outFrsStart_n [a + 1] ; pos ++)
+				eyeMinusQ_nn.setQuick(outFrsDestinationNode [pos], a , eyeMinusQ_nn.getQuick(outFrsDestinationNode [pos], a) - outFrsSplitFactor [pos]);
+		for (int n = 0; n < N ; n ++) eyeMinusQ_nn.setQuick(n, n, 1+eyeMinusQ_nn.getQuick(n,n));
+		SparseDoubleLUDecomposition lu;
+		try
+		{
+			lu = new SparseDoubleAlgebra().lu(eyeMinusQ_nn, 0);
+			if (!lu.isNonsingular()) lu = null;
+		}
+		catch (IllegalArgumentException e) { lu = null; }
+		this.eyeMinusQ_lu = lu;
+	}
+
+	/**
+	 * Returns the number of nodes of the network when the solver was created
+	 * @return see above
+	 */
+	public int getNumberOfNodes () { return N; }
+
+	/**
+	 * Indicates if the forwarding rules have no cycles, so the fundamental vectors are computed with no linear system solved
+	 * @return see above
+	 */
+	public boolean isAcyclic () { return topologicalOrder != null; }
+
+	/**
+	 * <p>Computes the row of the fundamental matrix for the given ingress node, with the same output as
+	 * {@link GraphUtils#computeRoutingFundamentalVector(Map, Map, Node, Node) computeRoutingFundamentalVector}.</p>
+	 * @param frs the forwarding rules applicable, the same as when the solver was created
+	 * @param outFrs output forwarding rule
+	 * @param ingressNode the ingress node
+	 * @param egressNode the egress node
+	 * @return See description above
+	 */
+	public Quintuple<DoubleMatrix1D, RoutingCycleType,  Double , Double , Double> computeRoutingFundamentalVector (Map<Link,Double> frs , Map<Node,Set<Link>> outFrs , Node ingressNode , Node egressNode)
+	{
+		double s_n = -1;
+		if (egressNode != null)
+		{
+			s_n = 1;
+			for (int pos = outFrsStart_n [egressNode.getIndex()] ; pos < outFrsStart_n [egressNode.getIndex() + 1] ; pos ++) s_n -= outFrsSplitFactor [pos];
+		}
+		final DoubleMatrix1D Mv = DoubleFactory1D.dense.make(N);
+		if (topologicalOrder != null)
+		{
+			final double [] M_n = new double [N];
+			M_n [ingressNode.getIndex()] = 1.0;
+			for (int cont = topologicalPosition_n [ingressNode.getIndex()] ; cont < N ; cont ++)
+			{
+				final int a = topologicalOrder [cont];
+				if (M_n [a] == 0) continue;
+				for (int pos = outFrsStart_n [a] ; pos < outFrsStart_n [a + 1] ; pos ++)
+					M_n [outFrsDestinationNode [pos]] += M_n [a] * outFrsSplitFactor [pos];
+			}
+			Mv.assign(M_n);
+		}
+		else
+		{
+			if (eyeMinusQ_lu == null) return Quintuple.of (null , RoutingCycleType.CLOSED_CYCLES , s_n , Double.MAX_VALUE , Double.MAX_VALUE);
+			Mv.set(ingressNode.getIndex(), 1.0);
+			try { eyeMinusQ_lu.solve(Mv); }
+			catch(IllegalArgumentException e) { return Quintuple.of (null , RoutingCycleType.CLOSED_CYCLES , s_n , Double.MAX_VALUE , Double.MAX_VALUE) ; }
+		}
+
+		Pair<Double,Double> wcPropAndLength = GraphUtils.computeWorstCasePropagationDelayAndLengthInKmMsForLoopLess(frs, outFrs, ingressNode, egressNode);
+		final RoutingCycleType routingCycleType = wcPropAndLength.getFirst() == Double.MAX_VALUE? RoutingCycleType.OPEN_CYCLES : RoutingCycleType.LOOPLESS;
+		return Quintuple.of(Mv, routingCycleType , s_n , wcPropAndLength.getFirst() , wcPropAndLength.getSecond());
+	}
+}
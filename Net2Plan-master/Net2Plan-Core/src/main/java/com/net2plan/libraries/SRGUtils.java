@@ -21,6 +21,13 @@ import com.net2plan.utils.CollectionUtils;
 import com.net2plan.utils.Pair;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +38,96 @@ import java.util.stream.Collectors;
 @SuppressWarnings("unchecked")
 public class SRGUtils
 {
+	/**
+	 * Network state in a failure state at a given layer, as produced by {@link SRGUtils#evaluateFailureStates(NetPlan, NetworkLayer, List, int, double, Predicate) evaluateFailureStates}.
+	 * The arrays are indexed by the element index, and are not copied in the getters.
+	 *
+	 * @since 0.5.3
+	 */
+	public static final class FailureStateEvaluation
+	{
+		private final int failureStateIndex;
+		private final Collection<SharedRiskGroup> failingSRGs;
+		private final double probability;
+		private final double [] demandBlockedTraffic;
+		private final double [] multicastDemandBlockedTraffic;
+		private final double [] linkUtilization;
+		private final double [] linkOversubscribedTraffic;
+
+		private FailureStateEvaluation (int failureStateIndex , Collection<SharedRiskGroup> failingSRGs , double probability , NetworkLayer layer)
+		{
+			final NetPlan np = layer.getNetPlan();
+			this.failureStateIndex = failureStateIndex;
+			this.failingSRGs = failingSRGs;
+			this.probability = probability;
+			this.demandBlockedTraffic = new double [np.getNumberOfDemands(layer)];
+			for (Demand d : np.getDemands(layer)) demandBlockedTraffic [d.getIndex()] = d.getBlockedTraffic();
+			this.multicastDemandBlockedTraffic = new double [np.getNumberOfMulticastDemands(layer)];
+			for (MulticastDemand d : np.getMulticastDemands(layer)) multicastDemandBlockedTraffic [d.getIndex()] = d.getBlockedTraffic();
+			this.linkUtilization = new double [np.getNumberOfLinks(layer)];
+			this.linkOversubscribedTraffic = new double [np.getNumberOfLinks(layer)];
+			for (Link e : np.getLinks(layer))
+			{
+				linkUtilization [e.getIndex()] = e.getUtilization();
+				linkOversubscribedTraffic [e.getIndex()] = Math.max(0 , e.getOccupiedCapacity() - e.getCapacity());
+			}
+		}
+
+		/**
+		 * Returns the index of the failure state in the list of evaluated failure states.
+		 * @return see above
+		 */
+		public int getFailureStateIndex () { return failureStateIndex; }
+
+		/**
+		 * Returns the failing SRGs in this failure state (from the original design).
+		 * @return see above
+		 */
+		public Collection<SharedRiskGroup> getFailingSRGs () { return failingSRGs; }
+
+		/**
+		 * Returns the probability of the failure state: the failing SRGs are down, and the rest of the SRGs are up.
+		 * @return see above
+		 */
+		public double getProbability () { return probability; }
+
+		/**
+		 * Returns the blocked traffic per unicast demand.
+		 * @return see above
+		 */
+		public double [] getDemandBlockedTraffic () { return demandBlockedTraffic; }
+
+		/**
+		 * Returns the blocked traffic per multicast demand.
+		 * @return see above
+		 */
+		public double [] getMulticastDemandBlockedTraffic () { return multicastDemandBlockedTraffic; }
+
+		/**
+		 * Returns the utilization per link (see {@link Link#getUtilization()}).
+		 * @return see above
+		 */
+		public double [] getLinkUtilization () { return linkUtilization; }
+
+		/**
+		 * Returns the oversubscribed traffic per link: the occupied capacity exceeding the link capacity.
+		 * @return see above
+		 */
+		public double [] getLinkOversubscribedTraffic () { return linkOversubscribedTraffic; }
+
+		/**
+		 * Returns the total blocked traffic, summing unicast and multicast demands.
+		 * @return see above
+		 */
+		public double getTotalBlockedTraffic ()
+		{
+			double res = 0;
+			for (double val : demandBlockedTraffic) res += val;
+			for (double val : multicastDemandBlockedTraffic) res += val;
+			return res;
+		}
+	}
+
 	private SRGUtils() { }
 	
 	/**
@@ -532,6 +629,112 @@ public class SRGUtils
 		return Sets.intersection(srgs1 , srgs2).isEmpty();
 	}
 	
+	/**
+	 * <p>Evaluates the network state at the given layer in each of the given failure states, in parallel. Each thread works on its own copy of the design,
+	 * where initially all the nodes and links are up. Then, for each failure state, the SRGs failing in the previous state evaluated by the thread are repaired, the SRGs
+	 * of this state are set as down, and the routes, multicast trees and hop-by-hop routing are updated accordingly (see
+	 * {@link NetPlan#setLinksAndNodesFailureState(Collection, Collection, Collection, Collection) setLinksAndNodesFailureState}). No reaction to the failure
+	 * (e.g. restoration, or the use of backup routes) is applied. The input design is not modified.</p>
+	 * <p>The evaluation of each failure state is passed to the given consumer as soon as it is computed, so the evaluations are not kept in memory.
+	 * The consumer is never called concurrently, but the failure states are not necessarily passed in the order of the list.
+	 * The consumer can stop the sweep returning {@code false}. The sweep also stops when the total probability of the failure states not
+	 * evaluated (including the failure states not in the list) is equal or lower than the given bound, e.g. when the availability of the network is
+	 * already known with enough precision. Failure states being evaluated at that moment are discarded.</p>
+	 *
+	 * @param netPlan Network design
+	 * @param layer Network layer where the network state is evaluated
+	 * @param failureStates List of failure states, each one given by the set of failing SRGs (e.g. from {@link #enumerateFailureStates(Collection, boolean, boolean) enumerateFailureStates})
+	 * @param numThreads Number of threads (each one keeps a copy of the design)
+	 * @param maxProbabilityOfNonEvaluatedStates The sweep stops when the probability of the non-evaluated failure states is equal or lower than this value. Use a negative value to evaluate all the failure states
+	 * @param consumer Receives the evaluation of each failure state. Returns {@code false} to stop the sweep
+	 * @return Number of failure states passed to the consumer
+	 * @since 0.5.3
+	 */
+	public static int evaluateFailureStates (final NetPlan netPlan , final NetworkLayer layer , final List<? extends Collection<SharedRiskGroup>> failureStates , int numThreads , final double maxProbabilityOfNonEvaluatedStates , final Predicate<FailureStateEvaluation> consumer)
+	{
+		if (layer.getNetPlan() != netPlan) throw new Net2PlanException ("The input layer does not belong to the input NetPlan");
+		if (numThreads < 1) throw new Net2PlanException ("The number of threads must be positive");
+		final double [] srgAvailability = new double [netPlan.getNumberOfSRGs()];
+		for (SharedRiskGroup srg : netPlan.getSRGs()) srgAvailability [srg.getIndex()] = srg.getAvailability();
+		for (Collection<SharedRiskGroup> failureState : failureStates)
+			for (SharedRiskGroup srg : failureState)
+				if (srg.getNetPlan() != netPlan) throw new Net2PlanException ("The SRG " + srg + " does not belong to the input NetPlan");
+		if (failureStates.isEmpty()) return 0;
+
+		/* Design copies are created one at a time. The consumer is called with the same lock */
+		final Object lock = new Object ();
+		final AtomicInteger nextFailureState = new AtomicInteger (0);
+		final AtomicBoolean stop = new AtomicBoolean (false);
+		final int [] numEvaluatedStates = new int [1];
+		final double [] probabilityEvaluatedStates = new double [1];
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads , failureStates.size()));
+		try
+		{
+			final List<Future<?>> workers = new ArrayList<Future<?>> ();
+			for (int cont = 0 ; cont < Math.min(numThreads , failureStates.size()) ; cont ++)
+				workers.add(executor.submit(() ->
+				{
+					final NetPlan np;
+					synchronized (lock) { np = netPlan.copy(); }
+					np.setAllNodesFailureState(true);
+					for (NetworkLayer thisLayer : np.getNetworkLayers()) np.setAllLinksFailureState(true , thisLayer);
+					final NetworkLayer npLayer = np.getNetworkLayer(layer.getIndex());
+
+					List<SharedRiskGroup> previousFailingSRGs = Collections.emptyList();
+					while (!stop.get())
+					{
+						final int stateIndex = nextFailureState.getAndIncrement();
+						if (stateIndex >= failureStates.size()) break;
+						final Collection<SharedRiskGroup> failingSRGs = failureStates.get(stateIndex);
+						final List<SharedRiskGroup> npFailingSRGs = new ArrayList<SharedRiskGroup> (failingSRGs.size());
+						for (SharedRiskGroup srg : failingSRGs) npFailingSRGs.add(np.getSRG(srg.getIndex()));
+
+						/* Repairing the previous failure state and producing this one updates the routing once */
+						np.startFailureStateBatch();
+						for (SharedRiskGroup srg : previousFailingSRGs) srg.setAsUp();
+						for (SharedRiskGroup srg : npFailingSRGs) srg.setAsDown();
+						np.commitFailureStateBatch();
+						previousFailingSRGs = npFailingSRGs;
+
+						double probability = 1;
+						final Set<Integer> failingSRGIndexes = new HashSet<Integer> ();
+						for (SharedRiskGroup srg : failingSRGs) failingSRGIndexes.add(srg.getIndex());
+						for (int srgIndex = 0 ; srgIndex < srgAvailability.length ; srgIndex ++)
+							probability *= failingSRGIndexes.contains(srgIndex)? 1 - srgAvailability [srgIndex] : srgAvailability [srgIndex];
+
+						final FailureStateEvaluation evaluation = new FailureStateEvaluation(stateIndex , failingSRGs , probability , npLayer);
+						synchronized (lock)
+						{
+							if (stop.get()) break;
+							numEvaluatedStates [0] ++;
+							probabilityEvaluatedStates [0] += probability;
+							if (!consumer.test(evaluation)) stop.set(true);
+							if (1 - probabilityEvaluatedStates [0] <= maxProbabilityOfNonEvaluatedStates) stop.set(true);
+						}
+					}
+					return null;
+				}));
+
+			for (Future<?> worker : workers) worker.get();
+			return numEvaluatedStates [0];
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new Net2PlanException ("The evaluation of the failure states was interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			stop.set(true);
+			if (e.getCause() instanceof Net2PlanException) throw (Net2PlanException) e.getCause();
+			throw new RuntimeException (e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
 	/** Returns true if the given design is tolerant to single SRG failures at the given layer: that is, no traffic of any 
 	 * unicast not multicast demand is blocked when such SRG fails
 	 * @param np the design 
@@ -545,14 +748,20 @@ public class SRGUtils
 		np.setLinksAndNodesFailureState(originalNpFailingLinks , null , originalNpFailingNodes , null);
 		final double precFactor = Configuration.precisionFactor;
 		if (failureTolerantLayer.getNetPlan() != np) throw new Net2PlanException ("The input layer does not belong to the input NetPlan");
+		SharedRiskGroup previousSrg = null;
 		for (SharedRiskGroup srg : np.getSRGs())
 		{
+			/* the repair of the previous SRG and the failure of this one update the routing once */
+			np.startFailureStateBatch();
+			if (previousSrg != null) previousSrg.setAsUp();
 			srg.setAsDown();
+			np.commitFailureStateBatch();
 			if (np.getVectorDemandBlockedTraffic(failureTolerantLayer).zSum() > precFactor) return false;
 			if (np.getVectorMulticastDemandBlockedTraffic(failureTolerantLayer).zSum() > precFactor) return false;
 			if (np.getVectorLinkOversubscribedTraffic(failureTolerantLayer).zSum() > precFactor) return false;
-			srg.setAsUp();
+			previousSrg = srg;
 		}
+		if (previousSrg != null) previousSrg.setAsUp();
 		np.setLinksAndNodesFailureState(null, originalNpFailingLinks , null , originalNpFailingNodes);
 		return true;
 	}
@@ -505,6 +505,196 @@ public class WDMUtils
 		}
 	}
 	
+	/**
+	 * <p>This class represents the frequency slot occupancy in the fibers of a WDM network, as an alternative to the slot-fiber occupancy matrices
+	 * (slots in rows, fibers in columns) used in other methods of this library. The occupancy of each fiber is stored as a bitset (an array of
+	 * {@code long}, each one with the occupancy of 64 consecutive slots). Then, the slots free in all the fibers of a path are computed 64 slots at a time,
+	 * and the first-fit spectrum assignment methods receiving an object of this class take a time proportional to the number of
+	 * traversed fibers times the number of slots divided by 64. The occupancy is updated incrementally with the
+	 * {@link WDMUtils#allocateResources(RSA, SpectrumOccupancy, DoubleMatrix1D) allocateResources} and
+	 * {@link WDMUtils#releaseResources(RSA, SpectrumOccupancy, DoubleMatrix1D) releaseResources} methods.</p>
+	 *
+	 * <p>As in the occupancy matrices, the fibers are identified by their index in the layer, and all the fibers have the same number of slots:
+	 * the slots above the capacity of a fiber appear as occupied.</p>
+	 * @since 0.5.3
+	 */
+	public static class SpectrumOccupancy
+	{
+		private final int numSlots;
+		private final int numWords;
+		private final long [][] occupied_e;
+
+		/** Creates an occupancy object where all the slots are free
+		 * @param numSlots number of frequency slots
+		 * @param numFibers number of fibers
+		 */
+		public SpectrumOccupancy (int numSlots , int numFibers)
+		{
+			if (numSlots < 0 || numFibers < 0) throw new WDMException ("The number of slots and fibers cannot be negative");
+			this.numSlots = numSlots;
+			this.numWords = (numSlots + 63) >>> 6;
+			this.occupied_e = new long [numFibers][numWords];
+		}
+
+		/** Creates an occupancy object from a slot-fiber occupancy matrix (a slot is occupied if its matrix value is not zero)
+		 * @param frequencySlot2FiberOccupancy_se slot-fiber occupancy matrix
+		 */
+		public SpectrumOccupancy (DoubleMatrix2D frequencySlot2FiberOccupancy_se)
+		{
+			this (frequencySlot2FiberOccupancy_se.rows() , frequencySlot2FiberOccupancy_se.columns());
+			for (int e = 0; e < occupied_e.length ; e ++)
+				for (int s = 0; s < numSlots ; s ++)
+					if (frequencySlot2FiberOccupancy_se.get(s,e) != 0) occupied_e [e][s >>> 6] |= 1L << s;
+		}
+
+		/** Returns the number of frequency slots
+		 * @return see above
+		 */
+		public int getNumSlots () { return numSlots; }
+
+		/** Returns the number of fibers
+		 * @return see above
+		 */
+		public int getNumFibers () { return occupied_e.length; }
+
+		/** Returns true if the given slot is occupied in the given fiber
+		 * @param slotId the slot identifier
+		 * @param fiber the fiber
+		 * @return see above
+		 */
+		public boolean isOccupied (int slotId , Link fiber) { return isOccupied (slotId , fiber.getIndex()); }
+
+		/** Returns true if the given slot is occupied in the fiber of the given index
+		 * @param slotId the slot identifier
+		 * @param fiberIndex the fiber index
+		 * @return see above
+		 */
+		public boolean isOccupied (int slotId , int fiberIndex)
+		{
+			return (occupied_e [fiberIndex][slotId >>> 6] & (1L << slotId)) != 0;
+		}
+
+		/** Returns the number of occupied slots in the given fiber (including the slots above the fiber capacity, if any)
+		 * @param fiber the fiber
+		 * @return see above
+		 */
+		public int getNumOccupiedSlots (Link fiber)
+		{
+			int accum = 0; for (long word : occupied_e [fiber.getIndex()]) accum += Long.bitCount(word);
+			return accum;
+		}
+
+		/** Returns a copy of this object
+		 * @return the copy
+		 */
+		public SpectrumOccupancy copy ()
+		{
+			final SpectrumOccupancy res = new SpectrumOccupancy (numSlots , occupied_e.length);
+			for (int e = 0; e < occupied_e.length ; e ++) System.arraycopy(occupied_e [e], 0, res.occupied_e [e], 0, numWords);
+			return res;
+		}
+
+		/** Returns the slot-fiber occupancy matrix (slots in rows, fibers in columns) equivalent to this object, with a 1 in the occupied slots
+		 * @return see above
+		 */
+		public DoubleMatrix2D toMatrix ()
+		{
+			final DoubleMatrix2D res = DoubleFactory2D.dense.make (numSlots , occupied_e.length);
+			for (int e = 0; e < occupied_e.length ; e ++)
+				for (int s = nextSetBit(occupied_e [e] , 0) ; s >= 0 ; s = nextSetBit(occupied_e [e] , s + 1))
+					res.set(s , e , 1.0);
+			return res;
+		}
+
+		@Override
+		public boolean equals (Object o)
+		{
+			if (this == o) return true;
+			if (!(o instanceof SpectrumOccupancy)) return false;
+			final SpectrumOccupancy other = (SpectrumOccupancy) o;
+			return numSlots == other.numSlots && Arrays.deepEquals(occupied_e , other.occupied_e);
+		}
+
+		@Override
+		public int hashCode ()
+		{
+			return 31 * numSlots + Arrays.deepHashCode(occupied_e);
+		}
+
+		@Override
+		public String toString ()
+		{
+			final StringBuilder st = new StringBuilder ();
+			for (int e = 0; e < occupied_e.length ; e ++)
+			{
+				st.append("Fiber index " + e + ": ");
+				for (int s = nextSetBit(occupied_e [e] , 0) ; s >= 0 ; s = nextSetBit(occupied_e [e] , s + 1)) st.append(s + " ");
+				st.append("\n");
+			}
+			return st.toString();
+		}
+
+		void setOccupied (int slotId , int fiberIndex , boolean occupied)
+		{
+			if (occupied) occupied_e [fiberIndex][slotId >>> 6] |= 1L << slotId; else occupied_e [fiberIndex][slotId >>> 6] &= ~(1L << slotId);
+		}
+
+		/* Returns a bitset with a one in the slots that are free in all the given fibers. The bits above the number of slots are zero */
+		long [] getFreeSlots (List<Link> seqFibers)
+		{
+			final long [] res = new long [numWords];
+			for (int w = 0; w < numWords ; w ++)
+			{
+				long occupiedInAny = 0;
+				for (Link fiber : seqFibers) occupiedInAny |= occupied_e [fiber.getIndex()][w];
+				res [w] = ~occupiedInAny;
+			}
+			if ((numSlots & 63) != 0) res [numWords - 1] &= (1L << numSlots) - 1;
+			return res;
+		}
+
+		/* Returns the lowest slot, not lower than fromSlot, starting a block of numContiguousSlots ones in the bitset, or -1 if none. The time is
+		 * proportional to the number of words, plus the number of blocks of ones shorter than numContiguousSlots */
+		static int firstFreeBlock (long [] freeSlots , int fromSlot , int numContiguousSlots)
+		{
+			int start = nextSetBit (freeSlots , fromSlot);
+			while (start >= 0)
+			{
+				final int end = nextClearBit (freeSlots , start);
+				if (end - start >= numContiguousSlots) return start;
+				start = nextSetBit (freeSlots , end);
+			}
+			return -1;
+		}
+
+		private static int nextSetBit (long [] bits , int fromIndex)
+		{
+			int w = fromIndex >>> 6;
+			if (w >= bits.length) return -1;
+			long word = bits [w] & (-1L << fromIndex);
+			while (true)
+			{
+				if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+				if (++w == bits.length) return -1;
+				word = bits [w];
+			}
+		}
+
+		/* The bits after the last word are assumed to be zero */
+		static int nextClearBit (long [] bits , int fromIndex)
+		{
+			int w = fromIndex >>> 6;
+			if (w >= bits.length) return fromIndex;
+			long word = ~bits [w] & (-1L << fromIndex);
+			while (true)
+			{
+				if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+				if (++w == bits.length) return bits.length << 6;
+				word = ~bits [w];
+			}
+		}
+	}
+
 	/**
 	 * This class represents the request to add a new lightpath. It is used in online algorithms related to WDM networks, inside {@code SimEvent} objects.
 	 */
@@ -866,6 +1056,35 @@ public class WDMUtils
 		return true;
 	}
 
+	/**
+	 * Returns {@code true} if all the RSAs are allocatable (the needed frequency slots are free in the given sequence of links), {@code false} otherwise. 
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @param rsas one or more RSAs to check. We start allocating them in order (never releasing the resources of the previous ones). Then, {@code true} is returned if it is possible to allocate all of them simultaneously. In other words, if two RSAs in {@code rsas} require the same frequency slot in the same link, they are not allocatable. 
+	 * @return See description above
+	 * @since 0.5.3
+	 */
+	public static boolean isAllocatableRSASet (SpectrumOccupancy spectrumOccupancy , RSA ... rsas)
+	{
+		final SpectrumOccupancy checkOccupancy = new SpectrumOccupancy (spectrumOccupancy.getNumSlots() , spectrumOccupancy.getNumFibers());
+		for (RSA rsa : rsas)
+		{
+			int orderTravLink = 0; 
+			for (Link e : rsa.seqLinks)
+			{
+				for (int s = 0; s < rsa.seqFrequencySlots_se.rows() ; s ++)
+				{
+					final int slotIndex = rsa.seqFrequencySlots_se.get(s,orderTravLink);
+					if (slotIndex >= spectrumOccupancy.getNumSlots()) return false;
+					if (spectrumOccupancy.isOccupied (slotIndex , e)) return false; 
+					if (checkOccupancy.isOccupied (slotIndex , e)) return false; 
+					checkOccupancy.setOccupied (slotIndex , e.getIndex() , true);
+				}
+				orderTravLink ++;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Returns the fiber occupied (columns) in each wavelength (rows), and an array with the number of occupied regenerators in each node.
 	 * The lightpaths with occupied capacity equal to zero (as Route objects) are not counted. 
@@ -899,6 +1118,38 @@ public class WDMUtils
 		return Pair.of(frequencySlot2FiberOccupancy_se,nodeRegeneratorOccupancy);
 	}
 
+	/**
+	 * Returns the frequency slot occupancy in the fibers, as a {@link SpectrumOccupancy SpectrumOccupancy} object. The number of slots is the maximum 
+	 * number of slots among the fibers, and in each fiber the slots above its number of slots are set as occupied. 
+	 * The lightpaths with occupied capacity equal to zero (as Route objects) are not counted. 
+	 * An exception is raised if a slot is allocated to more than one lightpath, or a slot with an id higher than the link capacity is occupied
+	 * @param netPlan Current design
+	 * @param countFailedLightpaths Include paths (current, primary or backup) that are down
+	 * @param optionalLayerParameter WDM network layer. If not present, the default layer is assumed
+	 * @return Frequency slot occupancy in the fibers
+	 * @since 0.5.3
+	 */
+	public static SpectrumOccupancy getNetworkSpectrumOccupancy(NetPlan netPlan, boolean countFailedLightpaths , NetworkLayer ... optionalLayerParameter)
+	{
+		NetworkLayer layer = netPlan.checkInThisNetPlanOptionalLayerParameter(optionalLayerParameter);
+		final int E = netPlan.getNumberOfLinks (layer);
+		DoubleMatrix1D w_f = getVectorFiberNumFrequencySlots (netPlan, layer);
+		final int W = w_f.size () == 0? 0 : (int) w_f.getMaxLocation() [0];
+		final SpectrumOccupancy spectrumOccupancy = new SpectrumOccupancy (W , E);
+	
+		/* The wavelengths above the maximum number of wavelengths of a fiber, are set as occupied */
+		for (int e = 0 ; e < E ; e ++) for (int w = (int) w_f.get(e) ; w < W ; w ++) spectrumOccupancy.setOccupied (w , e , true);
+		
+		/* Wavlengths occupied by the lightpaths as routes */
+		for (Route lpRoute : netPlan.getRoutes(layer))
+		{
+			final RSA rsa = new RSA (lpRoute , false);
+			if (!countFailedLightpaths && rsa.isDown()) continue;
+			allocateResources(rsa , spectrumOccupancy , null);
+		}
+		return spectrumOccupancy;
+	}
+
 	/**
 	 * Returns two maps, showing the frequency slots in the links and signal regenerator in the nodes occupancies. 
 	 * The slot occupancy is a map where the keys are the pairs (fiber,slot) occupied by at least one lightpath, and the 
@@ -963,7 +1214,7 @@ public class WDMUtils
 			final Link fiber = fiberIt.next();
 			for (int s = 0; s < S ; s ++)
 			{
-				final int slotId = (int) rsa.seqFrequencySlots_se.get(s,hopId);
+				final int slotId = rsa.seqFrequencySlots_se.get(s,hopId);
 				final boolean wasOccupied = frequencySlot2FiberOccupancy_se.get(slotId, fiber.getIndex ()) != 0;
 				if (!wasOccupied) throw new WDMException("Wavelength " + slotId + " was unused in fiber " + fiber.getId ());
 				frequencySlot2FiberOccupancy_se.set(slotId, fiber.getIndex () , 0.0);
@@ -976,6 +1227,37 @@ public class WDMUtils
 				}
 		}
 	}
+
+	/**
+	 * Updates {@code spectrumOccupancy} to consider that a lightpath is releasing
+	 * used frequency slots, and {@code nodeRegeneratorOccupancy} to consider that the lightpath releases the occupied regenerators
+	 * @param rsa The RSA to release
+	 * @param spectrumOccupancy Current slot-fiber occupancy (updated inside the method)
+	 * @param nodeRegeneratorOccupancy Current node regenerator occupancy (updated inside the method). If {@code null} regenerator information is not updated
+	 * @since 0.5.3
+	 */
+	public static void releaseResources(RSA rsa , SpectrumOccupancy spectrumOccupancy, DoubleMatrix1D nodeRegeneratorOccupancy)
+	{
+		final int S = rsa.getNumSlots();
+		ListIterator<Link> fiberIt = rsa.seqLinks.listIterator();
+		while(fiberIt.hasNext())
+		{
+			final int hopId = fiberIt.nextIndex();
+			final Link fiber = fiberIt.next();
+			for (int s = 0; s < S ; s ++)
+			{
+				final int slotId = rsa.seqFrequencySlots_se.get(s,hopId);
+				if (slotId >= spectrumOccupancy.getNumSlots() || !spectrumOccupancy.isOccupied(slotId, fiber)) throw new WDMException("Wavelength " + slotId + " was unused in fiber " + fiber.getId ());
+				spectrumOccupancy.setOccupied(slotId, fiber.getIndex () , false);
+			}
+			if ((nodeRegeneratorOccupancy != null) && (rsa.seqRegeneratorsOccupancy_e != null))
+				if (rsa.seqRegeneratorsOccupancy_e[hopId] == 1)
+				{
+					Node node = fiber.getOriginNode();
+					nodeRegeneratorOccupancy.set(node.getIndex (), nodeRegeneratorOccupancy.get(node.getIndex()) - 1);
+				}
+		}
+	}
 	
 	/**
 	 * Sets the number of frequency slots available on the given fiber.
@@ -1068,6 +1350,25 @@ public class WDMUtils
 		return -1;
 	}
 
+	/**
+	 * <p>Frequency slot assignment algorithm based on a first-fit fashion. It tries to find a set of contiguous slots that are available 
+	 * in all the traversed links, and gets the one which starts in the lowest slot id (the initial slot id of the block is returned).
+	 * The slots free in all the links are computed 64 slots at a time.</p>
+	 * <p><b>Important</b>: {@code spectrumOccupancy} is not updated by this method
+	 *
+	 * @param seqFibers Sequence of traversed fibers
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @param numContiguousSlotsRequired Number of slots of the block (in fixed-grid WDM, this is 1)
+	 * @return The id of the initial slot of the contiguous block, or -1 if there is no such block of contigous slots with free resources in all the links
+	 * @since 0.5.3
+	 */
+	public static int spectrumAssignment_firstFit(List<Link> seqFibers, SpectrumOccupancy spectrumOccupancy , int numContiguousSlotsRequired)
+	{
+		GraphUtils.checkRouteContinuity(seqFibers, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
+		if (numContiguousSlotsRequired <= 0) return 0;
+		return SpectrumOccupancy.firstFreeBlock(spectrumOccupancy.getFreeSlots(seqFibers) , 0 , numContiguousSlotsRequired);
+	}
+
 	/**
 	 * <p>Frequency slot assignment algorithm based on a first-fit fashion for two different paths. 
 	 * It tries to find the lowest {@code (s1,s2)} pair, so that a contiguous block of the needed slots, starting in s1, are free in the first path,
@@ -1116,6 +1417,44 @@ public class WDMUtils
 		return null;
 	}
 
+	/**
+	 * <p>Frequency slot assignment algorithm based on a first-fit fashion for two different paths. 
+	 * It tries to find the lowest {@code (s1,s2)} pair, so that a contiguous block of the needed slots, starting in s1, are free in the first path,
+	 * and starting in {@code s2} are free in the second path (assuming the occupied slots in the first path are not available now). 
+	 * Among all the feasible {@code (s1,s2)} pairs, the returned is the one with lowest {@code s1}, and if more than one, with the lowest {@code s2}. 
+	 * If no {@code (s1,s2)} pair exists with the required idle frequency slots, the method returns {@code null}. 
+	 * The slots free in all the links of each path are computed 64 slots at a time.</p>
+	 *
+	 * <p><b>Important</b>: {@code spectrumOccupancy} is not updated by this method
+	 *
+	 * @param seqFibers_1 First sequence of traversed fibers
+	 * @param seqFibers_2 Second sequence of traversed fibers
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @param numContiguousSlotsRequired Number of slots of the block (in fixed-grid WDM, this is 1)
+	 * @return Pair of sequences of wavelengths traversed by each lightpath
+	 * @since 0.5.3
+	 */
+	public static Pair<Integer,Integer> spectrumAssignment_firstFitTwoRoutes(List<Link> seqFibers_1, List<Link> seqFibers_2 , SpectrumOccupancy spectrumOccupancy , int numContiguousSlotsRequired)
+	{
+		GraphUtils.checkRouteContinuity(seqFibers_1, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
+		GraphUtils.checkRouteContinuity(seqFibers_2, Constants.CheckRoutingCycleType.NO_REPEAT_LINK);
+		final int numSlots = Math.max(numContiguousSlotsRequired , 1);
+		final boolean haveLinksInCommon = !Sets.intersection(new HashSet<>(seqFibers_1)  , new HashSet<>(seqFibers_2)).isEmpty();
+		final long [] freeSlots_1 = spectrumOccupancy.getFreeSlots(seqFibers_1);
+		final long [] freeSlots_2 = spectrumOccupancy.getFreeSlots(seqFibers_2);
+		final int lowestInitialSlot_2 = SpectrumOccupancy.firstFreeBlock(freeSlots_2 , 0 , numSlots);
+		if (lowestInitialSlot_2 == -1) return null;
+		for (int initialSlot_1 = SpectrumOccupancy.firstFreeBlock(freeSlots_1 , 0 , numSlots) ; initialSlot_1 != -1 ; initialSlot_1 = SpectrumOccupancy.firstFreeBlock(freeSlots_1 , initialSlot_1 + 1 , numSlots))
+		{
+			if (!haveLinksInCommon || lowestInitialSlot_2 <= initialSlot_1 - numContiguousSlotsRequired || lowestInitialSlot_2 >= initialSlot_1 + numContiguousSlotsRequired) 
+				return Pair.of(initialSlot_1, lowestInitialSlot_2);
+			/* The lowest block in the second path overlaps the one in the first path: take the next one not overlapping */
+			final int initialSlot_2 = SpectrumOccupancy.firstFreeBlock(freeSlots_2 , initialSlot_1 + numContiguousSlotsRequired , numSlots);
+			if (initialSlot_2 != -1) return Pair.of(initialSlot_1, initialSlot_2);
+		}
+		return null;
+	}
+
 	/**
 	 * <p>Wavelength assignment algorithm based on a first-fit fashion assuming
 	 * full wavelength conversion and regeneration capabilities. This algorithm is targeted for fixed-frid WDM networks, where all 
@@ -1269,7 +1608,7 @@ public class WDMUtils
 			IntMatrix1D slotIds = rsa.seqFrequencySlots_se.viewColumn(hopId);
 			for (int cont = 0 ; cont < slotIds.size() ; cont ++)
 			{
-				final int slotId = (int) slotIds.get(cont);
+				final int slotId = slotIds.get(cont);
 				if (slotId >= W) throw new WDMException ("The slot id is higher than the number of slots available");
 				if (frequencySlot2FiberOccupancy_se.get(slotId , fiber.getIndex ()) != 0) throw new WDMException ("Frequency slot clashing: slot " + slotIds.get(cont) + ", fiber: " + fiber.getId ());
 				frequencySlot2FiberOccupancy_se.set(slotId , fiber.getIndex () , 1.0);
@@ -1284,6 +1623,41 @@ public class WDMUtils
 		}
 	}
 
+	/**
+	 * Updates {@code spectrumOccupancy} and {@code nodeRegeneratorOccupancy} to consider that a new lightpath is occupying 
+	 * the resources given by {@code rsa}.
+	 * 
+	 * @param rsa The rsa
+	 * @param spectrumOccupancy Current slot-fiber occupancy (updated inside the method)
+	 * @param nodeRegeneratorOccupancy Current number of regenerators occupied per node. If {@code null} regenerator information is not updated
+	 * @since 0.5.3
+	 */
+	public static void allocateResources(RSA rsa, SpectrumOccupancy spectrumOccupancy, DoubleMatrix1D nodeRegeneratorOccupancy)
+	{
+		final int W = spectrumOccupancy.getNumSlots();
+		ListIterator<Link> fiberIt = rsa.seqLinks.listIterator();
+		while(fiberIt.hasNext())
+		{
+			final int hopId = fiberIt.nextIndex();
+			final Link fiber = fiberIt.next();
+			IntMatrix1D slotIds = rsa.seqFrequencySlots_se.viewColumn(hopId);
+			for (int cont = 0 ; cont < slotIds.size() ; cont ++)
+			{
+				final int slotId = slotIds.get(cont);
+				if (slotId >= W) throw new WDMException ("The slot id is higher than the number of slots available");
+				if (spectrumOccupancy.isOccupied(slotId , fiber)) throw new WDMException ("Frequency slot clashing: slot " + slotIds.get(cont) + ", fiber: " + fiber.getId ());
+				spectrumOccupancy.setOccupied(slotId , fiber.getIndex () , true);
+			}
+
+			if ((nodeRegeneratorOccupancy != null) && (rsa.seqRegeneratorsOccupancy_e != null))
+				if (rsa.seqRegeneratorsOccupancy_e[hopId] == 1)
+				{
+					Node node = fiber.getOriginNode();
+					nodeRegeneratorOccupancy.set (node.getIndex (), nodeRegeneratorOccupancy.get(node.getIndex ()) + 1);
+				}
+		}
+	}
+
 	/**
 	 * <p>Computes the list of spectral voids (list of available contiguous slots) 
 	 * from a slot availability vector (of a fiber or of a path).</p>
@@ -1315,6 +1689,27 @@ public class WDMUtils
 		
 		return out;
 	}
+
+	/**
+	 * <p>Computes the list of spectral voids (list of contiguous slots available in all the given fibers).</p>
+	 * 
+	 * @param seqFibers Sequence of fibers
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @return List of spectrum voids, each one with a pair indicating both the initial slot id and the number of consecutive slots within the void. If no spectrum void is found, it returns an empty list
+	 * @since 0.5.3
+	 */
+	public static List<Pair<Integer, Integer>> computeAvailableSpectrumVoids(List<Link> seqFibers, SpectrumOccupancy spectrumOccupancy)
+	{
+		List<Pair<Integer, Integer>> out = new LinkedList<Pair<Integer, Integer>>();
+		final long [] freeSlots = spectrumOccupancy.getFreeSlots(seqFibers);
+		for (int initialSlot = SpectrumOccupancy.firstFreeBlock(freeSlots , 0 , 1) ; initialSlot != -1 ; )
+		{
+			final int numSlots_thisVoid = SpectrumOccupancy.nextClearBit(freeSlots , initialSlot) - initialSlot;
+			out.add(Pair.of(initialSlot, numSlots_thisVoid));
+			initialSlot = SpectrumOccupancy.firstFreeBlock(freeSlots , initialSlot + numSlots_thisVoid , 1);
+		}
+		return out;
+	}
 	
 	/**
 	 * Computes the maximum number of requests (each one of the same given number of frequency slots) which 
@@ -1440,6 +1835,23 @@ public class WDMUtils
 		return out;
 	}
 
+	/**
+	 * <p>Returns the set of frequency slots occupied in at least one of the given fibers.</p>
+	 * 
+	 * @param seqFibers Sequence of fibers
+	 * @param spectrumOccupancy Current slot-fiber occupancy 
+	 * @return Set of slots occupied in at least one of the fibers
+	 * @since 0.5.3
+	 */
+	public static TreeSet<Integer> computePathSlotOccupancy(List<Link> seqFibers, SpectrumOccupancy spectrumOccupancy)
+	{
+		final long [] freeSlots = spectrumOccupancy.getFreeSlots(seqFibers);
+		TreeSet<Integer> out = new TreeSet<Integer>();
+		for (int s = 0; s < spectrumOccupancy.getNumSlots() ; s ++)
+			if ((freeSlots [s >>> 6] & (1L << s)) == 0) out.add (s);
+		return out;
+	}
+
 	
 	/** Returns true if the {@code Route} object is a well formed lightpath, according to the {@code WDMUtils} requirements. This means that 
 	 * the attributes stating the assigned frequency slots, occupied signal regenerators are correct, and lp occupied link 
@@ -303,6 +303,29 @@ public class DemandTest
 		assertEquals (d13.getForwardingRules() , frs);
 	}
 
+	@Test
+	public void testHopByHopRoutingSolverSharedByDemandsWithSameForwardingRules() 
+	{
+		scd123.remove();
+		np.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , lowerLayer);
+		final Demand d23 = np.addDemand(n2 , n3 , 5 , null , lowerLayer);
+		d13.removeAllForwardingRules();
+		lowerLayer.cacheHbH_routingSolvers.clear();
+		np.setForwardingRules(Arrays.asList(d13 , d13 , d23 , d23) , Arrays.asList(link12 , link23 , link12 , link23) , Arrays.asList(1.0 , 1.0 , 1.0 , 1.0) , false);
+		assertEquals (lowerLayer.cacheHbH_routingSolvers.size() , 1);
+		assertEquals (d13.getCarriedTraffic() , 3 , 1e-9);
+		assertEquals (d23.getCarriedTraffic() , 5 , 1e-9);
+		assertEquals (link23.getCarriedTraffic() , 8 , 1e-9);
+		d23.setOfferedTraffic(1);
+		assertEquals (lowerLayer.cacheHbH_routingSolvers.size() , 1);
+		assertEquals (link23.getCarriedTraffic() , 4 , 1e-9);
+
+		/* the node indexes change: the solvers are not reused */
+		np.addNode(0 , 0 , "node4" , null).remove();
+		n2.remove();
+		assertTrue (lowerLayer.cacheHbH_routingSolvers.isEmpty());
+	}
+
 	@Test
 	public void testGetCarriedTraffic() 
 	{
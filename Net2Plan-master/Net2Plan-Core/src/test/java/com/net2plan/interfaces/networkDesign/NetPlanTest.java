@@ -232,6 +232,78 @@ public class NetPlanTest
 		assertTrue (np2.isDeepCopy(np1));
 	}
 
+	@Test
+	public void testNetPlanFileManyRoutes() throws IOException
+	{
+		/* More routes than processed in each parallel task when the route caches are built, some of them with a current path different to
+		 * the initial one, or down (traffics are exact in binary, so that the link traffics do not depend on the order of the sum) */
+		for (int cont = 0; cont < 2500 ; cont ++)
+		{
+			final Route r = cont % 2 == 0? np.addRoute(d13 , 0.5 , 0.25 , path13 , null) : np.addRoute(d12 , 0.5 , 0.25 , Collections.singletonList(link12) , null);
+			if (cont % 6 == 0) r.setSeqLinks(Collections.singletonList(link13));
+		}
+		sc123.setPath(50 , Arrays.asList(link12 , res2backup , link23) , Arrays.asList(100.0 , 20.0 , 101.0));
+		link23.setFailureState(false);
+		File f = temporaryFolder.newFile("temp.n2p");
+		np.saveToFile(f);
+		NetPlan readNp = new NetPlan (f);
+		readNp.checkCachesConsistency();
+		assertTrue(readNp.isDeepCopy(np));
+		assertTrue(np.isDeepCopy(readNp));
+
+		/* The forwarding rules are read per demand */
+		scd123.remove();
+		np.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , lowerLayer);
+		np.saveToFile(f);
+		readNp = new NetPlan (f);
+		readNp.checkCachesConsistency();
+		for (Demand d : np.getDemands(lowerLayer)) assertTrue(d.isDeepCopy(readNp.getDemandFromId(d.getId())));
+		for (Link e : np.getLinks(lowerLayer)) assertTrue(e.isDeepCopy(readNp.getLinkFromId(e.getId())));
+	}
+
+	@Test
+	public void testNetPlanBinaryFile() throws IOException
+	{
+		File f = temporaryFolder.newFile("temp.n2pb");
+		this.np.saveToBinaryFile(f);
+		NetPlan readNp = NetPlan.loadFromBinaryFile(f);
+		readNp.checkCachesConsistency();
+		assertTrue(readNp.isDeepCopy(np));
+		assertTrue(np.isDeepCopy(readNp));
+
+		NetPlan np1 = new NetPlan (new File ("src/main/resources/data/networkTopologies/example7nodes_ipOverWDM.n2p"));
+		np1.saveToBinaryFile(f);
+		NetPlan np2 = NetPlan.loadFromBinaryFile(f);
+		np2.checkCachesConsistency();
+		assertTrue (np1.isDeepCopy(np2));
+		assertTrue (np2.isDeepCopy(np1));
+
+		np1.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , np1.getNetworkLayerDefault());
+		np1.saveToBinaryFile(f);
+		np2 = NetPlan.loadFromBinaryFile(f);
+		np2.checkCachesConsistency();
+		assertTrue (np1.isDeepCopy(np2));
+		assertTrue (np2.isDeepCopy(np1));
+	}
+
+	@Test
+	public void testNetPlanSnapshot()
+	{
+		final NetPlan npBefore = np.copy();
+		final NetPlanSnapshot s1 = new NetPlanSnapshot(np);
+		assertTrue(s1.getNetPlan().isDeepCopy(np));
+		assertTrue(s1.getNetPlan() != s1.getNetPlan());
+
+		upperLayer.setDescription("new description");
+		final NetPlanSnapshot s2 = new NetPlanSnapshot(np , s1);
+		assertTrue(s2.getNetPlan().isDeepCopy(np));
+		assertTrue(np.isDeepCopy(s2.getNetPlan()));
+		assertTrue(s1.getNetPlan().isDeepCopy(npBefore));
+		assertEquals(s2.getSizeInBytes() , s2.getSizeInBytesNotSharedWith(new NetPlanSnapshot(np)));
+		assertTrue(s2.getSizeInBytesNotSharedWith(s1) > 0);
+		assertTrue(s2.getSizeInBytesNotSharedWith(s1) < s2.getSizeInBytes() / 2);
+	}
+
 	@Test
 	public void testGetIds()
 	{
@@ -469,6 +541,36 @@ public class NetPlanTest
 			assertEquals(cpl.get(Pair.of(d.getIngressNode(),d.getEgressNode())) , Arrays.asList(Arrays.asList(netTriangle.getNodePairLinks(d.getIngressNode() , d.getEgressNode() , false).iterator().next())));
 	}
 
+	@Test
+	public void testComputeUnicastCandidatePathListInParallel()
+	{
+		final NetPlan np = new NetPlan();
+		final java.util.Random rng = new java.util.Random(1L);
+		for (int n = 0; n < 20; n++) np.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null);
+		for (Node n1 : np.getNodes())
+			for (int cont = 0; cont < 3; cont++)
+			{
+				final Node n2 = np.getNode(rng.nextInt(20));
+				if (n1 != n2) np.addLinkBidirectional(n1, n2, 10, 100 * rng.nextDouble(), 200000, null);
+			}
+		final Map<Pair<Node,Node>,List<List<Link>>> sequential = np.computeUnicastCandidatePathList(null, 4, -1, -1, -1, -1, -1, -1, null, 1);
+		final Map<Pair<Node,Node>,List<List<Link>>> parallel = np.computeUnicastCandidatePathList(null, 4, -1, -1, -1, -1, -1, -1, null, 4);
+		assertEquals(20 * 19, parallel.size());
+		assertEquals(new LinkedList<>(sequential.entrySet()), new LinkedList<>(parallel.entrySet()));
+		assertEquals(NetPlan.computeUnicastCandidate11PathList(sequential, 2, 1), NetPlan.computeUnicastCandidate11PathList(sequential, 2, 4));
+
+		/* Streamed node pairs arrive in increasing order of origin and destination indexes */
+		final List<Pair<Node,Node>> streamedPairs = new LinkedList<>();
+		np.computeUnicastCandidatePathList(null, 4, -1, -1, -1, -1, -1, -1, null, 3, (pair, paths) -> { streamedPairs.add(pair); assertEquals(sequential.get(pair), paths); });
+		assertEquals(new LinkedList<>(sequential.keySet()), streamedPairs);
+		for (int cont = 1; cont < streamedPairs.size(); cont++)
+		{
+			final Pair<Node,Node> previous = streamedPairs.get(cont - 1);
+			final Pair<Node,Node> current = streamedPairs.get(cont);
+			assertTrue(previous.getFirst().getIndex() < current.getFirst().getIndex() || (previous.getFirst() == current.getFirst() && previous.getSecond().getIndex() < current.getSecond().getIndex()));
+		}
+	}
+
 	@Test
 	public void testComputeUnicastCandidate11PathList()
 	{
@@ -705,6 +807,42 @@ public class NetPlanTest
 		assertEquals (NetPlan.getNetworkElementsByAttribute(Arrays.asList(n1,n2,n3) , "att" , "2") , Arrays.asList(n2,n3));
 	}
 
+	@Test
+	public void testGetNetworkElementsByAttributeWithIndex()
+	{
+		n1.setAttribute("tenant" , "a");
+		link12.setAttribute("tenant" , "a");
+		assertEquals (np.getNetworkElementsByAttribute("tenant" , "a") , Sets.newHashSet(n1 , link12));
+		np.addAttributeIndex("tenant");
+		assertEquals (np.getAttributeIndexes() , Sets.newHashSet("tenant"));
+		assertEquals (np.getNetworkElementsByAttribute("tenant" , "a") , Sets.newHashSet(n1 , link12));
+
+		/* The index follows the changes in the attributes and the elements */
+		n2.setAttribute("tenant" , "a");
+		link12.setAttribute("tenant" , "b");
+		d13.setAttributeMap(Collections.singletonMap("tenant" , "b"));
+		np.setAttribute("tenant" , "a");
+		final Node n4 = np.addNode(0 , 0 , "n4" , Collections.singletonMap("tenant" , "a"));
+		assertEquals (np.getNetworkElementsByAttribute("tenant" , "a") , Sets.newHashSet(n1 , n2 , n4 , np));
+		assertEquals (np.getNetworkElementsByAttribute("tenant" , "b") , Sets.newHashSet(link12 , d13));
+		n1.removeAttribute("tenant");
+		link12.remove();
+		d13.removeAllAttributes();
+		assertEquals (np.getNetworkElementsByAttribute("tenant" , "a") , Sets.newHashSet(n2 , n4 , np));
+		assertTrue (np.getNetworkElementsByAttribute("tenant" , "b").isEmpty());
+		np.checkCachesConsistency();
+
+		/* The copies have the same indexes */
+		final NetPlan copy = np.copy();
+		assertEquals (copy.getAttributeIndexes() , Sets.newHashSet("tenant"));
+		assertEquals (copy.getNetworkElementsByAttribute("tenant" , "a") , Sets.newHashSet(copy.getNodeFromId(n2.getId()) , copy.getNodeFromId(n4.getId()) , copy));
+		copy.checkCachesConsistency();
+
+		np.removeAttributeIndex("tenant");
+		assertTrue (np.getAttributeIndexes().isEmpty());
+		assertEquals (np.getNetworkElementsByAttribute("tenant" , "a") , Sets.newHashSet(n2 , n4 , np));
+	}
+
 	@Test
 	public void testGetNetworkName()
 	{
@@ -929,6 +1067,62 @@ public class NetPlanTest
 		assertTrue (upperLink12.isUp());
 	}
 
+	@Test
+	public void testFailureStateBatch()
+	{
+		final NetworkLayer hbhLayer = np.addLayer("hbh" , "description" , "Mbps" , "Mbps" , null , null);
+		final Link hbh12 = np.addLink(n1,n2,100,100,1,null,hbhLayer);
+		final Link hbh23 = np.addLink(n2,n3,100,100,1,null,hbhLayer);
+		final Link hbh13 = np.addLink(n1,n3,100,100,1,null,hbhLayer);
+		final Demand hbhD13 = np.addDemand(n1 , n3 , 10 , null , hbhLayer);
+		np.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , hbhLayer);
+		np.setForwardingRule(hbhD13 , hbh12 , 0.4);
+		np.setForwardingRule(hbhD13 , hbh13 , 0.6);
+		np.setForwardingRule(hbhD13 , hbh23 , 1);
+		np.addSRG(1,2,null).addLink(link12);
+		np.addSRG(1,2,null).addNode(n2);
+		np.addSRG(1,2,null).addLink(hbh13);
+		np.addSRG(1,2,null).addLink(link23);
+
+		try { np.commitFailureStateBatch(); fail (); } catch (Net2PlanException e) {}
+		np.startFailureStateBatch();
+		try { np.startFailureStateBatch(); fail (); } catch (Net2PlanException e) {}
+		link12.setFailureState(false);
+		assertTrue (link12.isDown());
+		assertEquals (r12.getCarriedTraffic() , 1 , 0); // not updated until the batch is committed
+		np.commitFailureStateBatch();
+		assertTrue (!np.isFailureStateBatchStarted());
+		assertEquals (r12.getCarriedTraffic() , 0 , 0);
+		link12.setFailureState(true);
+
+		/* A per-SRG sweep, failing each SRG and repairing it, and the same sweep repairing the previous SRG and failing the next in a batch */
+		final NetPlan npBatch = np.copy();
+		SharedRiskGroup previousSrg = null;
+		for (int srgIndex = 0 ; srgIndex < np.getNumberOfSRGs() ; srgIndex ++)
+		{
+			np.getSRG(srgIndex).setAsDown();
+			npBatch.startFailureStateBatch();
+			if (previousSrg != null) previousSrg.setAsUp();
+			npBatch.getSRG(srgIndex).setAsDown();
+			npBatch.commitFailureStateBatch();
+			npBatch.checkCachesConsistency();
+			for (NetworkLayer layer : np.getNetworkLayers())
+			{
+				final NetworkLayer layerBatch = npBatch.getNetworkLayer(layer.getIndex());
+				assertEquals (np.getVectorDemandCarriedTraffic(layer) , npBatch.getVectorDemandCarriedTraffic(layerBatch));
+				assertEquals (np.getVectorLinkCarriedTraffic(layer) , npBatch.getVectorLinkCarriedTraffic(layerBatch));
+				assertEquals (np.getVectorLinkOccupiedCapacity(layer) , npBatch.getVectorLinkOccupiedCapacity(layerBatch));
+				assertEquals (np.getVectorMulticastTreeCarriedTraffic(layer) , npBatch.getVectorMulticastTreeCarriedTraffic(layerBatch));
+			}
+			np.getSRG(srgIndex).setAsUp();
+			previousSrg = npBatch.getSRG(srgIndex);
+		}
+		previousSrg.setAsUp();
+		assertEquals (hbhD13.getCarriedTraffic() , 10 , 1e-8);
+		assertEquals (npBatch.getDemandFromId(hbhD13.getId()).getCarriedTraffic() , 10 , 1e-8);
+		assertEquals (npBatch.getLinkFromId(hbh13.getId()).getCarriedTraffic() , 6 , 1e-8);
+	}
+
 	@Test
 	public void testSetDemandTrafficUnitsName()
 	{
@@ -973,6 +1167,37 @@ public class NetPlanTest
 		assertEquals(np.getForwardingRuleSplittingFactor(d12,   link12) , 0.7 , 0);
 	}
 
+	@Test
+	public void testSetForwardingRulesIndexesInBatch()
+	{
+		sc123.remove();
+		scd123.setServiceChainSequenceOfTraversedResourceTypes(null);
+		np.setRoutingType(RoutingType.HOP_BY_HOP_ROUTING , lowerLayer);
+		final NetPlan npSequential = np.copy();
+		final NetworkLayer lowerLayerSequential = npSequential.getNetworkLayer(lowerLayer.getIndex());
+		for (Demand d : npSequential.getDemands(lowerLayerSequential)) d.removeAllForwardingRules();
+		npSequential.setForwardingRule(npSequential.getDemand(d12.getIndex() , lowerLayerSequential) , npSequential.getLink(link12.getIndex() , lowerLayerSequential) , 0.7);
+		npSequential.setForwardingRule(npSequential.getDemand(d12.getIndex() , lowerLayerSequential) , npSequential.getLink(link13.getIndex() , lowerLayerSequential) , 0.2);
+		npSequential.setForwardingRule(npSequential.getDemand(d13.getIndex() , lowerLayerSequential) , npSequential.getLink(link13.getIndex() , lowerLayerSequential) , 1.0);
+
+		np.setForwardingRules(new int [] { d12.getIndex() , d12.getIndex() , d13.getIndex() , scd123.getIndex() } , new int [] { link12.getIndex() , link13.getIndex() , link13.getIndex() , link13.getIndex() } , new double [] { 0.7 , 0.2 , 1.0 , 0 } , true , lowerLayer);
+		for (Link e : np.getLinks(lowerLayer))
+		{
+			assertEquals(npSequential.getLink(e.getIndex() , lowerLayerSequential).getCarriedTraffic() , e.getCarriedTraffic() , 1e-9);
+			assertEquals(npSequential.getLink(e.getIndex() , lowerLayerSequential).getOccupiedCapacity() , e.getOccupiedCapacity() , 1e-9);
+		}
+		for (Demand d : np.getDemands(lowerLayer))
+			assertEquals(npSequential.getDemand(d.getIndex() , lowerLayerSequential).getCarriedTraffic() , d.getCarriedTraffic() , 1e-9);
+		assertEquals(np.getForwardingRuleSplittingFactor(d12 , link13) , 0.2 , 0);
+
+		/* keeping the previous rules of the demand */
+		np.setForwardingRules(new int [] { d12.getIndex() } , new int [] { link13.getIndex() } , new double [] { 0.3 } , false , lowerLayer);
+		assertEquals(np.getForwardingRuleSplittingFactor(d12 , link12) , 0.7 , 0);
+		assertEquals(np.getForwardingRuleSplittingFactor(d12 , link13) , 0.3 , 0);
+		try { np.setForwardingRules(new int [] { d12.getIndex() } , new int [] { link13.getIndex() } , new double [] { 0.5 } , false , lowerLayer); fail (); } catch (Net2PlanException e) {}
+		assertEquals(np.getForwardingRuleSplittingFactor(d12 , link13) , 0.3 , 0);
+	}
+
 	@Test
 	public void testSetLinkCapacityUnitsName()
 	{
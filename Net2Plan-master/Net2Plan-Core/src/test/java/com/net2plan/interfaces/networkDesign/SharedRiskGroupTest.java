@@ -15,9 +15,11 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.After;
@@ -26,6 +28,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.net2plan.libraries.SRGUtils;
+
 public class SharedRiskGroupTest 
 {
 	private NetPlan np = null;
@@ -286,6 +290,34 @@ public class SharedRiskGroupTest
 		assertEquals(np.getSRGs() , Arrays.asList(srgN1L23));
 	}
 
+	@Test
+	public void testEvaluateFailureStates() 
+	{
+		final List<Set<SharedRiskGroup>> states = SRGUtils.enumerateFailureStates(np.getSRGs() , true , true);
+		final Map<Integer,SRGUtils.FailureStateEvaluation> evaluations = new HashMap<> ();
+		final int numEvaluated = SRGUtils.evaluateFailureStates(np , lowerLayer , states , 2 , -1 , e -> { evaluations.put(e.getFailureStateIndex() , e); return true; });
+		assertEquals(numEvaluated , 4);
+		assertTrue(link13.isUp() && n1.isUp()); // the input design is not modified
+		double totalProbability = 0;
+		for (int stateIndex = 0 ; stateIndex < states.size() ; stateIndex ++)
+		{
+			final SRGUtils.FailureStateEvaluation e = evaluations.get(stateIndex);
+			for (SharedRiskGroup srg : states.get(stateIndex)) srg.setAsDown();
+			assertTrue(Arrays.equals(e.getDemandBlockedTraffic() , np.getVectorDemandBlockedTraffic(lowerLayer).toArray()));
+			assertTrue(Arrays.equals(e.getMulticastDemandBlockedTraffic() , np.getVectorMulticastDemandBlockedTraffic(lowerLayer).toArray()));
+			assertTrue(Arrays.equals(e.getLinkOversubscribedTraffic() , np.getVectorLinkOversubscribedTraffic(lowerLayer).toArray()));
+			assertTrue(Arrays.equals(e.getLinkUtilization() , np.getVectorLinkUtilization(lowerLayer).toArray()));
+			for (SharedRiskGroup srg : states.get(stateIndex)) srg.setAsUp();
+			totalProbability += e.getProbability();
+		}
+		assertEquals(evaluations.get(0).getProbability() , 1.0/9 , 1e-8);
+		assertEquals(totalProbability , 1 , 1e-8);
+
+		/* Early termination, when the probability of the failure states not evaluated is low enough, or by the consumer */
+		assertEquals(SRGUtils.evaluateFailureStates(np , lowerLayer , states , 1 , 0.5 , e -> true) , 3);
+		assertEquals(SRGUtils.evaluateFailureStates(np , lowerLayer , states , 1 , -1 , e -> false) , 1);
+	}
+
 	@Test
 	public void testAddLink() 
 	{
@@ -0,0 +1,62 @@
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the future event list implementations, using the classic hold model: each operation takes the
+ * first event and schedules a new one at an exponentially distributed time later, as connection arrivals and
+ * departures do in the online simulations. It is not a unit test, run it with the main method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FutureEventListBenchmark
+{
+	@Param({"heap", "calendar"})
+	public String futureEventList;
+
+	@Param({"100", "10000", "1000000"})
+	public int numberOfPendingEvents;
+
+	private FutureEventList fel;
+	private Random rng;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		rng = new Random(1L);
+		fel = new FutureEventList(FutureEventList.EventQueueType.fromLabel(futureEventList));
+		for (int cont = 0; cont < numberOfPendingEvents; cont++)
+			fel.addEvent(new SimEvent(nextInterArrivalTime(), SimEvent.DestinationModule.EVENT_PROCESSOR, -1, null));
+	}
+
+	@Benchmark
+	public SimEvent hold()
+	{
+		final SimEvent event = fel.getNextEvent();
+		fel.addEvent(new SimEvent(event.getEventTime() + nextInterArrivalTime(), SimEvent.DestinationModule.EVENT_PROCESSOR, -1, null));
+		return event;
+	}
+
+	private double nextInterArrivalTime()
+	{
+		return -Math.log(1 - rng.nextDouble()) * numberOfPendingEvents;
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		Options options = new OptionsBuilder().include(FutureEventListBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,100 @@
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.simulation.SimEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FutureEventListTest
+{
+	private static SimEvent event(double time, int priority, int type)
+	{
+		return new SimEvent(time, SimEvent.DestinationModule.EVENT_PROCESSOR, type, priority, null);
+	}
+
+	/**
+	 * Both implementations return the events in the same (time, priority) order, in a hold model with random removals
+	 */
+	@Test
+	public void testCalendarQueueOrder()
+	{
+		final Random rng = new Random(1L);
+		final FutureEventList heap = new FutureEventList(FutureEventList.EventQueueType.BINARY_HEAP);
+		final FutureEventList calendar = new FutureEventList(FutureEventList.EventQueueType.CALENDAR_QUEUE);
+		final List<SimEvent> removable = new ArrayList<SimEvent>();
+		for (int cont = 0; cont < 1000; cont++)
+		{
+			final SimEvent e = event(rng.nextInt(50) * 0.5, rng.nextInt(3), cont);
+			heap.addEvent(e);
+			calendar.addEvent(e);
+		}
+		for (int cont = 0; cont < 20000; cont++)
+		{
+			final SimEvent e1 = heap.getNextEvent();
+			final SimEvent e2 = calendar.getNextEvent();
+			assertEquals(e1.getEventTime(), e2.getEventTime(), 0);
+			assertEquals(e1.getEventPriority(), e2.getEventPriority());
+			assertEquals(heap.getNumberOfPendingEvents(), calendar.getNumberOfPendingEvents());
+
+			/* Bursts of arrivals and departures make the calendar grow and shrink */
+			final int numNewEvents = (cont / 2000) % 2 == 0 ? 2 : rng.nextInt(2);
+			for (int n = 0; n < numNewEvents; n++)
+			{
+				final boolean sameTime = rng.nextBoolean();
+				final SimEvent e = event(e1.getEventTime() + (sameTime ? 0 : -Math.log(rng.nextDouble()) * 10), rng.nextInt(3), cont);
+				heap.addEvent(e);
+				calendar.addEvent(e);
+				if (!sameTime && rng.nextInt(10) == 0) removable.add(e); // ties are returned in different order by each implementation
+			}
+			if (!removable.isEmpty() && rng.nextInt(5) == 0)
+			{
+				final SimEvent e = removable.remove(rng.nextInt(removable.size()));
+				heap.remove(e);
+				calendar.remove(e);
+			}
+			if (!heap.hasMoreEvents()) break;
+		}
+		assertEquals(heap.getNumberOfPendingEvents(), calendar.getNumberOfPendingEvents());
+	}
+
+	/**
+	 * In the calendar queue, events with the same time and priority are returned in insertion order
+	 */
+	@Test
+	public void testCalendarQueueInsertionOrder()
+	{
+		final FutureEventList calendar = new FutureEventList(FutureEventList.EventQueueType.CALENDAR_QUEUE);
+		for (int cont = 0; cont < 100; cont++)
+			calendar.addEvent(event(cont % 2, 0, cont));
+		calendar.addEvent(event(1, 1, 100));
+
+		for (int cont = 0; cont < 100; cont += 2)
+			assertEquals(cont, calendar.getNextEvent().getEventType());
+		assertEquals(100, calendar.getNextEvent().getEventType());
+		for (int cont = 1; cont < 100; cont += 2)
+			assertEquals(cont, calendar.getNextEvent().getEventType());
+		assertFalse(calendar.hasMoreEvents());
+	}
+
+	/**
+	 * Pending events are kept when the implementation is changed
+	 */
+	@Test
+	public void testSetEventQueueType()
+	{
+		final FutureEventList fel = new FutureEventList();
+		fel.addEvent(event(2, 0, 0));
+		fel.addEvent(event(1, 0, 1));
+		fel.setEventQueueType(FutureEventList.EventQueueType.CALENDAR_QUEUE);
+		assertEquals(FutureEventList.EventQueueType.CALENDAR_QUEUE, fel.getEventQueueType());
+		assertEquals(2, fel.getPendingEvents().size());
+		assertEquals(1, fel.getNextEvent().getEventType());
+		assertEquals(1, fel.getCurrentSimulationTime(), 0);
+		assertEquals(0, fel.getNextEvent().getEventType());
+		assertNull(fel.getNextEvent());
+	}
+}
@@ -0,0 +1,88 @@
+package com.net2plan.internal.sim;
+
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.simulation.IEventGenerator;
+import com.net2plan.interfaces.simulation.IEventProcessor;
+import com.net2plan.interfaces.simulation.SimEvent;
+import com.net2plan.utils.Pair;
+import com.net2plan.utils.Triple;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SimKernelTest
+{
+	/* Each second, sets the offered traffic of the first demand to a random value */
+	public static class RandomTrafficGenerator extends IEventGenerator
+	{
+		private Random rng;
+
+		@Override
+		public String getDescription() { return ""; }
+
+		@Override
+		public List<Triple<String, String, String>> getParameters()
+		{
+			return Collections.singletonList(Triple.of("randomSeed", "1", "Seed for the random generator"));
+		}
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters)
+		{
+			rng = new Random(Long.parseLong(algorithmParameters.get("randomSeed")));
+			scheduleEvent(new SimEvent(0, SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		}
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event)
+		{
+			currentNetPlan.getDemand(0).setOfferedTraffic(10 * rng.nextDouble());
+			scheduleEvent(new SimEvent(event.getEventTime() + 1, SimEvent.DestinationModule.EVENT_GENERATOR, -1, null));
+		}
+	}
+
+	public static class EmptyProcessor extends IEventProcessor
+	{
+		@Override
+		public String getDescription() { return ""; }
+
+		@Override
+		public List<Triple<String, String, String>> getParameters() { return new LinkedList<Triple<String, String, String>>(); }
+
+		@Override
+		public void initialize(NetPlan initialNetPlan, Map<String, String> algorithmParameters, Map<String, String> simulationParameters, Map<String, String> net2planParameters) { }
+
+		@Override
+		public void processEvent(NetPlan currentNetPlan, SimEvent event) { }
+	}
+
+	/**
+	 * Replications use different seeds, and their statistics are merged
+	 */
+	@Test
+	public void testRunReplications()
+	{
+		final NetPlan np = new NetPlan();
+		final Node n1 = np.addNode(0, 0, "n1", null);
+		final Node n2 = np.addNode(1, 1, "n2", null);
+		final Demand d = np.addDemand(n1, n2, 0, null);
+
+		final Properties simulationParameters = new Properties();
+		simulationParameters.setProperty("simTime", "100");
+		simulationParameters.setProperty("futureEventList", "calendar");
+		final Map<String, String> net2planParameters = new HashMap<String, String>();
+		net2planParameters.put("precisionFactor", "1e-3");
+
+		final Pair<List<String>, String> res = SimKernel.runReplications(np, RandomTrafficGenerator::new, null, EmptyProcessor::new, null, simulationParameters, net2planParameters, 4, 2, 0.95);
+
+		assertThat(res.getFirst()).hasSize(4);
+		assertThat(res.getFirst().get(0)).isNotEqualTo(res.getFirst().get(1));
+		assertThat(res.getSecond()).contains("Results of 4 independent replications");
+		assertThat(res.getSecond()).contains("average offered traffic");
+		assertThat(d.getOfferedTraffic()).isEqualTo(0); // the input design is not modified
+	}
+}
@@ -1,10 +1,17 @@
 package com.net2plan.internal.sim;
 
+import com.net2plan.interfaces.networkDesign.Demand;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
 import com.net2plan.utils.HTMLUtils;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -21,4 +28,35 @@ public class SimStatsTest
 
 		assertThat(xlsFile).isNotNull();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The changes made in the design between events are reflected in the statistics
+	 */
+	@Test
+	public void testIncrementalUpdate()
+	{
+		final NetPlan np = new NetPlan();
+		final Node n1 = np.addNode(0, 0, "n1", null);
+		final Node n2 = np.addNode(1, 1, "n2", null);
+		final Link e = np.addLink(n1, n2, 10, 100, 200000, null);
+		final Demand d = np.addDemand(n1, n2, 5, null);
+		np.addRoute(d, 5, 5, Collections.singletonList(e), null);
+		final Demand d2 = np.addDemand(n2, n1, 3, null);
+
+		final Map<String, String> net2planParameters = new HashMap<String, String>();
+		net2planParameters.put("precisionFactor", "1e-3");
+		final SimStats stats = new SimStats(np, new HashMap<String, String>(), net2planParameters);
+		stats.computeNextState(1);
+		d.setOfferedTraffic(7);
+		d2.remove();
+		stats.computeNextState(2);
+		e.setCapacity(20);
+		stats.computeNextState(4);
+		stats.computeNextState(5);
+
+		final String results = stats.getResults(5);
+		assertThat(results).contains("6.200 / 5.000 / 7.000"); // offered traffic of d
+		assertThat(results).contains("12.000 / 10.000 / 20.000"); // capacity of e
+		stats.detachFromNetState();
+	}
+}
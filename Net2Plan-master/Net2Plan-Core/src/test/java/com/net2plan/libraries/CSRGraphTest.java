@@ -0,0 +1,166 @@
+package com.net2plan.libraries;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import edu.uci.ics.jung.graph.Graph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CSRGraphTest
+{
+	private static final int NUMBER_OF_NODES = 9;
+
+	/**
+	 * Without path limits, the k-shortest paths have the costs of the ones of the JUNG based Yen implementation, in random topologies
+	 */
+	@Test
+	public void testKShortestPathsEqualJUNGWithoutLimits()
+	{
+		for (long seed = 1; seed <= 5; seed++)
+		{
+			final Random rng = new Random(seed);
+			final NetPlan np = createRandomTopology(rng);
+			final Map<Link, Double> linkCostMap = createRandomCosts(np, rng);
+			final GraphUtils.YenAlgorithm<Node, Link> baseline = createBaseline(np, linkCostMap, -1, -1);
+			for (int cont = 0; cont < 20; cont++)
+			{
+				final Node origin = np.getNode(rng.nextInt(NUMBER_OF_NODES));
+				final Node destination = np.getNode(rng.nextInt(NUMBER_OF_NODES));
+				final int K = 1 + rng.nextInt(6);
+				final List<List<Link>> paths = GraphUtils.getKLooplessShortestPaths(np.getNodes(), np.getLinks(), origin, destination, linkCostMap, K, -1, -1, -1, -1, -1, -1);
+				assertEqualCosts(getCosts(baseline.getPaths(origin, destination, K), linkCostMap), getCosts(paths, linkCostMap));
+				for (List<Link> path : paths) assertValidPath(path, origin, destination);
+			}
+		}
+	}
+
+	/**
+	 * With hop and length limits, the k-shortest paths are the K cheapest paths satisfying them: the ones of enumerating all the paths with the JUNG
+	 * based Yen implementation, and then discarding those not satisfying them. They are never fewer or more costly than the ones of the JUNG based
+	 * implementation with the limits, which discards the candidate paths as it finds them
+	 */
+	@Test
+	public void testKShortestPathsWithLimitsEqualFilteredJUNG()
+	{
+		for (long seed = 1; seed <= 5; seed++)
+		{
+			final Random rng = new Random(seed);
+			final NetPlan np = createRandomTopology(rng);
+			final Map<Link, Double> linkCostMap = createRandomCosts(np, rng);
+			final GraphUtils.YenAlgorithm<Node, Link> baselineWithoutLimits = createBaseline(np, linkCostMap, -1, -1);
+			for (int cont = 0; cont < 20; cont++)
+			{
+				final Node origin = np.getNode(rng.nextInt(NUMBER_OF_NODES));
+				final Node destination = np.getNode(rng.nextInt(NUMBER_OF_NODES));
+				final int K = 1 + rng.nextInt(6);
+				final boolean withHopsLimit = rng.nextBoolean();
+				final boolean withLengthLimit = !withHopsLimit || rng.nextBoolean();
+				final int maxNumHops = withHopsLimit ? 1 + rng.nextInt(5) : -1;
+				final double maxLengthInKm = withLengthLimit ? 50 + rng.nextInt(250) : -1;
+
+				final List<List<Link>> paths = GraphUtils.getKLooplessShortestPaths(np.getNodes(), np.getLinks(), origin, destination, linkCostMap, K, maxLengthInKm, maxNumHops, -1, -1, -1, -1);
+				for (List<Link> path : paths)
+				{
+					assertValidPath(path, origin, destination);
+					assertTrue(isWithinLimits(path, maxLengthInKm, maxNumHops));
+				}
+
+				final List<List<Link>> expectedPaths = new ArrayList<List<Link>>();
+				for (List<Link> path : baselineWithoutLimits.getPaths(origin, destination, Integer.MAX_VALUE))
+					if (expectedPaths.size() < K && isWithinLimits(path, maxLengthInKm, maxNumHops)) expectedPaths.add(path);
+				final List<Double> costs = getCosts(paths, linkCostMap);
+				assertEqualCosts(getCosts(expectedPaths, linkCostMap), costs);
+
+				final List<Double> baselineCosts = getCosts(createBaseline(np, linkCostMap, maxLengthInKm, maxNumHops).getPaths(origin, destination, K), linkCostMap);
+				assertTrue(costs.size() >= baselineCosts.size());
+				for (int p = 0; p < baselineCosts.size(); p++) assertTrue(costs.get(p) <= baselineCosts.get(p) + 1e-9);
+			}
+		}
+	}
+
+	private static NetPlan createRandomTopology(Random rng)
+	{
+		final NetPlan np = new NetPlan();
+		for (int n = 0; n < NUMBER_OF_NODES; n++) np.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null);
+		for (Node n1 : np.getNodes())
+			for (int cont = 0; cont < 2; cont++)
+			{
+				final Node n2 = np.getNode(rng.nextInt(NUMBER_OF_NODES));
+				if (n1 != n2) np.addLinkBidirectional(n1, n2, 10, 1 + rng.nextInt(100), 200000, null);
+			}
+		return np;
+	}
+
+	/* Integer costs, so that the path costs are exact whatever the order of the sum, and there are ties among paths */
+	private static Map<Link, Double> createRandomCosts(NetPlan np, Random rng)
+	{
+		final Map<Link, Double> linkCostMap = new HashMap<Link, Double>();
+		for (Link e : np.getLinks()) linkCostMap.put(e, (double) (1 + rng.nextInt(10)));
+		return linkCostMap;
+	}
+
+	/* The limits are named differently from the fields of YenAlgorithm, which would hide them in the anonymous class */
+	private static GraphUtils.YenAlgorithm<Node, Link> createBaseline(NetPlan np, Map<Link, Double> linkCostMap, final double pathMaxLengthInKm, final int pathMaxNumHops)
+	{
+		final Graph<Node, Link> graph = GraphUtils.JUNGUtils.getGraphFromLinkMap(np.getNodes(), np.getLinks());
+		return new GraphUtils.YenAlgorithm<Node, Link>(graph, GraphUtils.JUNGUtils.getEdgeWeightTransformer(linkCostMap))
+		{
+			@Override
+			public boolean acceptPath(GraphUtils.GraphPath<Link> candidate)
+			{
+				return isWithinLimits(candidate.getPath(), pathMaxLengthInKm, pathMaxNumHops);
+			}
+		};
+	}
+
+	private static boolean isWithinLimits(List<Link> path, double maxLengthInKm, int maxNumHops)
+	{
+		if (maxNumHops > 0 && path.size() > maxNumHops) return false;
+		double lengthInKm = 0;
+		for (Link e : path) lengthInKm += e.getLengthInKm();
+		return maxLengthInKm <= 0 || lengthInKm <= maxLengthInKm;
+	}
+
+	private static List<Double> getCosts(List<List<Link>> paths, Map<Link, Double> linkCostMap)
+	{
+		final List<Double> res = new ArrayList<Double>();
+		for (List<Link> path : paths)
+		{
+			double cost = 0;
+			for (Link e : path) cost += linkCostMap.get(e);
+			res.add(cost);
+		}
+		return res;
+	}
+
+	private static void assertEqualCosts(List<Double> expected, List<Double> actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		for (int p = 0; p < expected.size(); p++) assertEquals(expected.get(p), actual.get(p), 1e-9);
+	}
+
+	private static void assertValidPath(List<Link> path, Node origin, Node destination)
+	{
+		assertTrue(!path.isEmpty());
+		assertEquals(origin, path.get(0).getOriginNode());
+		assertEquals(destination, path.get(path.size() - 1).getDestinationNode());
+		final Set<Node> visitedNodes = new HashSet<Node>();
+		visitedNodes.add(origin);
+		for (int cont = 0; cont < path.size(); cont++)
+		{
+			if (cont > 0) assertEquals(path.get(cont - 1).getDestinationNode(), path.get(cont).getOriginNode());
+			assertTrue(visitedNodes.add(path.get(cont).getDestinationNode()));
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.net2plan.libraries;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Pair;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CandidatePathListCacheTest
+{
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private NetPlan np;
+
+	@Before
+	public void setUp()
+	{
+		np = new NetPlan();
+		final Random rng = new Random(1L);
+		for (int n = 0; n < 10; n++) np.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null);
+		for (Node n1 : np.getNodes())
+			for (int cont = 0; cont < 3; cont++)
+			{
+				final Node n2 = np.getNode(rng.nextInt(10));
+				if (n1 != n2) np.addLinkBidirectional(n1, n2, 10, 100 * rng.nextDouble(), 200000, null);
+			}
+	}
+
+	@Test
+	public void testMemoryAndDiskTiers()
+	{
+		final File directory = temporaryFolder.getRoot();
+		final CandidatePathListCache cache = new CandidatePathListCache(2, directory);
+		final Map<Pair<Node, Node>, List<List<Link>>> expected = np.computeUnicastCandidatePathList(np.getVectorLinkLengthInKm(), 3, -1, -1, -1, -1, -1, -1, null);
+
+		assertEquals(expected, cache.computeUnicastCandidatePathList(np, np.getVectorLinkLengthInKm(), 3, -1, -1, -1, -1, -1, -1, null));
+		assertEquals(expected, cache.computeUnicastCandidatePathList(np, np.getVectorLinkLengthInKm(), 3, -1, -1, -1, -1, -1, -1, null));
+		assertArrayEquals(new long [] { 1, 0, 1 }, cache.getStatistics());
+		assertEquals(1, directory.listFiles().length);
+
+		/* Another cache on the same folder, and a copy of the design: the paths are read from disk, with the links of the copy */
+		final NetPlan npCopy = np.copy();
+		final CandidatePathListCache otherCache = new CandidatePathListCache(2, directory);
+		final Map<Pair<Node, Node>, List<List<Link>>> cplCopy = otherCache.computeUnicastCandidatePathList(npCopy, npCopy.getVectorLinkLengthInKm(), 3, -1, -1, -1, -1, -1, -1, null);
+		assertArrayEquals(new long [] { 0, 1, 0 }, otherCache.getStatistics());
+		assertEquals(expected.size(), cplCopy.size());
+		for (Map.Entry<Pair<Node, Node>, List<List<Link>>> entry : cplCopy.entrySet())
+		{
+			assertSame(npCopy, entry.getKey().getFirst().getNetPlan());
+			final List<List<Link>> expectedPaths = expected.get(Pair.of(np.getNode(entry.getKey().getFirst().getIndex()), np.getNode(entry.getKey().getSecond().getIndex())));
+			assertEquals(expectedPaths.size(), entry.getValue().size());
+			for (int k = 0; k < expectedPaths.size(); k++)
+				for (int cont = 0; cont < expectedPaths.get(k).size(); cont++)
+				{
+					assertSame(npCopy, entry.getValue().get(k).get(cont).getNetPlan());
+					assertEquals(expectedPaths.get(k).get(cont).getIndex(), entry.getValue().get(k).get(cont).getIndex());
+				}
+		}
+
+		otherCache.clear();
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedRemovedFromDisk()
+	{
+		final File directory = temporaryFolder.getRoot();
+		final CandidatePathListCache cache = new CandidatePathListCache(0, directory, 2);
+		for (int K = 1; K <= 4; K++)
+		{
+			cache.computeUnicastCandidatePathList(np, null, K, -1, -1, -1, -1, -1, -1, null);
+			assertEquals(Math.min(K, 2), directory.listFiles().length);
+		}
+		assertArrayEquals(new long [] { 0, 0, 4 }, cache.getStatistics());
+
+		/* The last candidate path list written is never the one removed */
+		cache.computeUnicastCandidatePathList(np, null, 4, -1, -1, -1, -1, -1, -1, null);
+		assertArrayEquals(new long [] { 0, 1, 4 }, cache.getStatistics());
+	}
+
+	@Test
+	public void testDefaultCacheOnlyInMemory()
+	{
+		final CandidatePathListCache cache = CandidatePathListCache.getDefault();
+		final long [] statistics = cache.getStatistics();
+		cache.computeUnicastCandidatePathList(np, null, 5, -1, -1, -1, -1, -1, -1, null);
+		cache.computeUnicastCandidatePathList(np, null, 5, -1, -1, -1, -1, -1, -1, null);
+		assertEquals(statistics [1], cache.getStatistics() [1]);
+		assertEquals(statistics [0] + 1, cache.getStatistics() [0]);
+	}
+
+	@Test
+	public void testInvalidationWhenFingerprintChanges()
+	{
+		final CandidatePathListCache cache = new CandidatePathListCache(10, null);
+		cache.computeUnicastCandidatePathList(np, null, 3, -1, -1, -1, -1, -1, -1, null);
+		cache.computeUnicastCandidatePathList(np, null, 2, -1, -1, -1, -1, -1, -1, null);
+		cache.computeUnicastCandidatePathList(np, null, 3, 50, -1, -1, -1, -1, -1, null);
+		cache.computeUnicastCandidatePathList(np, np.getVectorLinkLengthInKm(), 3, -1, -1, -1, -1, -1, -1, null);
+		assertArrayEquals(new long [] { 0, 0, 4 }, cache.getStatistics());
+
+		/* A change in the topology changes the fingerprint, and the new candidate path list is the one computed for the new topology */
+		final Link longestLink = np.getLinks().stream().max((e1, e2) -> Double.compare(e1.getLengthInKm(), e2.getLengthInKm())).get();
+		longestLink.setLengthInKm(1000);
+		final Map<Pair<Node, Node>, List<List<Link>>> cpl = cache.computeUnicastCandidatePathList(np, np.getVectorLinkLengthInKm(), 3, -1, -1, -1, -1, -1, -1, null);
+		assertArrayEquals(new long [] { 0, 0, 5 }, cache.getStatistics());
+		assertEquals(np.computeUnicastCandidatePathList(np.getVectorLinkLengthInKm(), 3, -1, -1, -1, -1, -1, -1, null), cpl);
+
+		longestLink.remove();
+		cache.computeUnicastCandidatePathList(np, null, 3, -1, -1, -1, -1, -1, -1, null);
+		assertArrayEquals(new long [] { 0, 0, 6 }, cache.getStatistics());
+	}
+}
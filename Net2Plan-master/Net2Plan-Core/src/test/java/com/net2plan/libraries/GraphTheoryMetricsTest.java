@@ -0,0 +1,129 @@
+package com.net2plan.libraries;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import edu.uci.ics.jung.algorithms.scoring.BetweennessCentrality;
+import edu.uci.ics.jung.graph.Graph;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class GraphTheoryMetricsTest
+{
+	private NetPlan np;
+	private Map<Link, Double> linkCostMap;
+
+	@Before
+	public void setUp()
+	{
+		np = new NetPlan();
+		final Random rng = new Random(1L);
+		for (int n = 0; n < 40; n++) np.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null);
+		for (Node n1 : np.getNodes())
+			for (int cont = 0; cont < 2; cont++)
+			{
+				final Node n2 = np.getNode(rng.nextInt(40));
+				if (n1 != n2) np.addLink(n1, n2, 10, 100, 200000, null);
+			}
+		linkCostMap = new HashMap<Link, Double>();
+		for (Link e : np.getLinks()) linkCostMap.put(e, (double) (1 + rng.nextInt(10)));
+	}
+
+	/**
+	 * With the same costs in all the links, the betweeness centralities are the ones of the JUNG implementation, for any number of threads
+	 */
+	@Test
+	public void testBetweenessCentralityEqualsJUNG()
+	{
+		final Graph<Node, Link> graph = GraphUtils.JUNGUtils.getGraphFromLinkMap(np.getNodes(), np.getLinks());
+		final BetweennessCentrality<Node, Link> bc = new BetweennessCentrality<Node, Link>(graph, GraphUtils.JUNGUtils.getEdgeWeightTransformer(null));
+		for (int numThreads : new int [] { 1, 4 })
+		{
+			final GraphTheoryMetrics metrics = new GraphTheoryMetrics(np.getNodes(), np.getLinks(), null, numThreads);
+			for (Node n : np.getNodes()) assertEquals(bc.getVertexScore(n), metrics.getNodeBetweenessCentrality().get(n.getIndex()), 1e-9);
+			for (Link e : np.getLinks()) assertEquals(bc.getEdgeScore(e), metrics.getLinkBetweenessCentrality().get(e.getIndex()), 1e-9);
+		}
+	}
+
+	/**
+	 * Two paths whose costs only differ by rounding errors are both shortest paths: 0.1 + 0.2 is not exactly 0.3 in floating point
+	 */
+	@Test
+	public void testBetweenessCentralityWithTiesUpToRoundingErrors()
+	{
+		final NetPlan tiesNp = new NetPlan();
+		final Node a = tiesNp.addNode(0, 0, "a", null);
+		final Node b = tiesNp.addNode(0, 1, "b", null);
+		final Node c = tiesNp.addNode(1, 1, "c", null);
+		final Link ab = tiesNp.addLink(a, b, 10, 0.1, 200000, null);
+		final Link bc = tiesNp.addLink(b, c, 10, 0.2, 200000, null);
+		final Link ac = tiesNp.addLink(a, c, 10, 0.3, 200000, null);
+		final Map<Link, Double> costs = new HashMap<Link, Double>();
+		for (Link e : tiesNp.getLinks()) costs.put(e, e.getLengthInKm());
+		final GraphTheoryMetrics metrics = new GraphTheoryMetrics(tiesNp.getNodes(), tiesNp.getLinks(), costs, 1);
+		assertEquals(0.5, metrics.getNodeBetweenessCentrality().get(b.getIndex()), 1e-9);
+		assertEquals(1.5, metrics.getLinkBetweenessCentrality().get(ab.getIndex()), 1e-9);
+		assertEquals(1.5, metrics.getLinkBetweenessCentrality().get(bc.getIndex()), 1e-9);
+		assertEquals(0.5, metrics.getLinkBetweenessCentrality().get(ac.getIndex()), 1e-9);
+	}
+
+	/**
+	 * With several threads, the results are exactly the same in every run
+	 */
+	@Test
+	public void testParallelComputationIsDeterministic()
+	{
+		final GraphTheoryMetrics first = new GraphTheoryMetrics(np.getNodes(), np.getLinks(), linkCostMap, 4);
+		for (int run = 0; run < 10; run++)
+		{
+			final GraphTheoryMetrics metrics = new GraphTheoryMetrics(np.getNodes(), np.getLinks(), linkCostMap, 4);
+			assertEquals(first.getAverageShortestPathDistance(), metrics.getAverageShortestPathDistance(), 0);
+			assertEquals(first.getHeterogeneity(), metrics.getHeterogeneity(), 0);
+			assertEquals(first.getDiameter(), metrics.getDiameter(), 0);
+			assertEquals(first.getNodeBetweenessCentrality(), metrics.getNodeBetweenessCentrality());
+			assertEquals(first.getLinkBetweenessCentrality(), metrics.getLinkBetweenessCentrality());
+		}
+	}
+
+	/**
+	 * The distance metrics are the ones computed from the all-pairs shortest path distances (Floyd-Warshall), and are recomputed when the costs change
+	 */
+	@Test
+	public void testShortestPathDistanceMetrics()
+	{
+		final GraphTheoryMetrics metrics = new GraphTheoryMetrics(np.getNodes(), np.getLinks(), null, 3);
+		checkDistanceMetrics(metrics, null);
+		metrics.configureLinkCostMap(linkCostMap);
+		checkDistanceMetrics(metrics, linkCostMap);
+	}
+
+	private void checkDistanceMetrics(GraphTheoryMetrics metrics, Map<Link, Double> costs)
+	{
+		final int N = np.getNumberOfNodes();
+		final double [][] dist = new double [N][N];
+		for (double [] row : dist) Arrays.fill(row, Double.MAX_VALUE);
+		for (int n = 0; n < N; n++) dist [n][n] = 0;
+		for (Link e : np.getLinks())
+			dist [e.getOriginNode().getIndex()][e.getDestinationNode().getIndex()] = Math.min(dist [e.getOriginNode().getIndex()][e.getDestinationNode().getIndex()], costs == null ? 1.0 : costs.get(e));
+		for (int k = 0; k < N; k++)
+			for (int i = 0; i < N; i++)
+				for (int j = 0; j < N; j++)
+					if (dist [i][k] < Double.MAX_VALUE && dist [k][j] < Double.MAX_VALUE) dist [i][j] = Math.min(dist [i][j], dist [i][k] + dist [k][j]);
+		int numPaths = 0;
+		double sum = 0, sumSquares = 0, diameter = 0;
+		for (int i = 0; i < N; i++)
+			for (int j = 0; j < N; j++)
+				if (i != j && dist [i][j] < Double.MAX_VALUE) { numPaths++; sum += dist [i][j]; sumSquares += dist [i][j] * dist [i][j]; diameter = Math.max(diameter, dist [i][j]); }
+		final double average = sum / numPaths;
+		assertEquals(average, metrics.getAverageShortestPathDistance(), 1e-9);
+		assertEquals(diameter, metrics.getDiameter(), 1e-9);
+		assertEquals(Math.sqrt(sumSquares / numPaths - average * average) / average, metrics.getHeterogeneity(), 1e-9);
+	}
+}
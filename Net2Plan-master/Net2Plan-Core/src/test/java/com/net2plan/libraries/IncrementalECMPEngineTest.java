@@ -0,0 +1,121 @@
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import com.net2plan.interfaces.networkDesign.Configuration;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalECMPEngineTest
+{
+	private static final int NUMBER_OF_NODES = 15;
+
+	/**
+	 * After each single link weight change, the carried traffic updated incrementally is the one of an engine created from scratch with the
+	 * same weights, including the weights meaning a link not considered (Double.MAX_VALUE)
+	 */
+	@Test
+	public void testIncrementalUpdatesEqualFullRecomputation()
+	{
+		for (long seed = 1; seed <= 5; seed++)
+		{
+			final Random rng = new Random(seed);
+			final NetPlan np = createRandomDesign(rng);
+			final DoubleMatrix1D weights = createRandomWeights(np, rng);
+			final IncrementalECMPEngine engine = new IncrementalECMPEngine(np, weights);
+			for (int cont = 0; cont < 200; cont++)
+			{
+				final int e = rng.nextInt(np.getNumberOfLinks());
+				final double newWeight = rng.nextInt(10) == 0 ? Double.MAX_VALUE : 1 + rng.nextInt(5);
+				weights.set(e, newWeight);
+				engine.setLinkWeight(e, newWeight);
+				assertEquals(newWeight, engine.getLinkWeight(e), 0);
+
+				final IncrementalECMPEngine fullRecomputation = new IncrementalECMPEngine(np, weights);
+				assertEqualVectors(fullRecomputation.getVectorLinkCarriedTraffic(), engine.getVectorLinkCarriedTraffic(), 1e-9);
+				assertEqualVectors(fullRecomputation.getVectorDemandCarriedTraffic(), engine.getVectorDemandCarriedTraffic(), 1e-9);
+				for (int ee = 0; ee < np.getNumberOfLinks(); ee++)
+					assertEquals(fullRecomputation.getLinkCarriedTraffic(ee), engine.getLinkCarriedTraffic(ee), 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * After single and multiple link weight changes, the carried traffic is the one of IPUtils. The demand carried traffic is the same, but IPUtils rounds
+	 * to zero the traffic of a demand in a link below the precision factor: then, the traffic of a link may differ in up to the precision factor per demand
+	 */
+	@Test
+	public void testCarriedTrafficEqualsIPUtils()
+	{
+		final double precisionFactor = Double.parseDouble(Configuration.getOption("precisionFactor"));
+		for (long seed = 1; seed <= 5; seed++)
+		{
+			final Random rng = new Random(seed);
+			final NetPlan np = createRandomDesign(rng);
+			final double linkTolerance = precisionFactor * np.getNumberOfDemands();
+			final DoubleMatrix1D weights = createRandomWeights(np, rng);
+			final IncrementalECMPEngine engine = new IncrementalECMPEngine(np, weights);
+			for (int cont = 0; cont < 50; cont++)
+			{
+				if (cont % 10 == 9)
+				{
+					for (int e = 0; e < np.getNumberOfLinks(); e++) weights.set(e, 1 + rng.nextInt(5));
+					engine.setLinkWeights(weights);
+				}
+				else
+				{
+					final int e = rng.nextInt(np.getNumberOfLinks());
+					weights.set(e, 1 + rng.nextInt(5));
+					engine.setLinkWeight(e, weights.get(e));
+				}
+				final DoubleMatrix1D r_d = IPUtils.computeCarriedTrafficFromIGPWeights(np, weights).getThird();
+				final DoubleMatrix1D y_e = IPUtils.computeCarriedTrafficFromIGPWeights(np, weights).getFourth();
+				assertEqualVectors(r_d, engine.getVectorDemandCarriedTraffic(), 1e-9);
+				assertEqualVectors(y_e, engine.getVectorLinkCarriedTraffic(), linkTolerance);
+			}
+		}
+	}
+
+	/* A connected topology (a bidirectional ring plus random bidirectional links), and a full-mesh of demands with random traffic. Some demands
+	 * have no traffic, and some have so little that their traffic in some links is below the precision factor */
+	private static NetPlan createRandomDesign(Random rng)
+	{
+		final NetPlan np = new NetPlan();
+		for (int n = 0; n < NUMBER_OF_NODES; n++) np.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null);
+		for (int n = 0; n < NUMBER_OF_NODES; n++) np.addLinkBidirectional(np.getNode(n), np.getNode((n + 1) % NUMBER_OF_NODES), 100, 100, 200000, null);
+		for (int cont = 0; cont < NUMBER_OF_NODES; cont++)
+		{
+			final Node n1 = np.getNode(rng.nextInt(NUMBER_OF_NODES));
+			final Node n2 = np.getNode(rng.nextInt(NUMBER_OF_NODES));
+			if (n1 != n2) np.addLinkBidirectional(n1, n2, 100, 100, 200000, null);
+		}
+		for (Node n1 : np.getNodes())
+			for (Node n2 : np.getNodes())
+				if (n1 != n2)
+				{
+					final int demandType = rng.nextInt(4);
+					np.addDemand(n1, n2, demandType == 0 ? 0 : (demandType == 1 ? 0.005 * rng.nextDouble() : 10 * rng.nextDouble()), null);
+				}
+		return np;
+	}
+
+	/* Small integer weights, so that there are many equal cost paths */
+	private static DoubleMatrix1D createRandomWeights(NetPlan np, Random rng)
+	{
+		final DoubleMatrix1D weights = DoubleFactory1D.dense.make(np.getNumberOfLinks());
+		for (Link e : np.getLinks()) weights.set(e.getIndex(), 1 + rng.nextInt(5));
+		return weights;
+	}
+
+	private static void assertEqualVectors(DoubleMatrix1D expected, DoubleMatrix1D actual, double tolerance)
+	{
+		assertEquals(expected.size(), actual.size());
+		for (int cont = 0; cont < expected.size(); cont++) assertEquals(expected.get(cont), actual.get(cont), tolerance);
+	}
+}
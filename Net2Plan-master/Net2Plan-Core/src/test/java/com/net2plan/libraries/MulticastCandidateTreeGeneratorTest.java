@@ -0,0 +1,139 @@
+package com.net2plan.libraries;
+
+import com.google.common.collect.Sets;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.MulticastDemand;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MulticastCandidateTreeGeneratorTest
+{
+	private NetPlan np;
+	private Node n1, n2, n3, n4, n5;
+
+	@Before
+	public void setUp()
+	{
+		np = new NetPlan();
+		n1 = np.addNode(0, 0, "n1", null);
+		n2 = np.addNode(0, 0, "n2", null);
+		n3 = np.addNode(0, 0, "n3", null);
+		n4 = np.addNode(0, 0, "n4", null);
+		n5 = np.addNode(0, 0, "n5", null);
+		for (Node a : np.getNodes())
+			for (Node b : np.getNodes())
+				if (a.getIndex() < b.getIndex())
+					np.addLinkBidirectional(a, b, 10, 100 * (1 + Math.abs(a.getIndex() - b.getIndex())), 200000, null);
+		np.addMulticastDemand(n1, Sets.newHashSet(n2, n3, n4), 1, null);
+		np.addMulticastDemand(n2, Sets.newHashSet(n1, n5), 1, null);
+		np.addMulticastDemand(n5, Sets.newHashSet(n1, n2, n3, n4), 1, null);
+	}
+
+	@Test
+	public void testTreesAreValidDistinctAndSortedByCost()
+	{
+		final MulticastCandidateTreeGenerator generator = createGenerator(10, -1, -1);
+		for (MulticastDemand d : np.getMulticastDemands())
+		{
+			final Pair<List<Set<Link>>, Boolean> res = generator.computeCandidateTrees(d.getIngressNode(), d.getEgressNodes());
+			final List<Set<Link>> trees = res.getFirst();
+			assertFalse(res.getSecond());
+			assertEquals(10, trees.size());
+			assertEquals(trees.size(), Sets.newHashSet(trees).size());
+			double previousCost = 0;
+			for (Set<Link> tree : trees)
+			{
+				checkValidTree(tree, d.getIngressNode(), d.getEgressNodes(), Integer.MAX_VALUE);
+				final double cost = getCost(tree);
+				assertTrue(cost >= previousCost);
+				previousCost = cost;
+			}
+			if (d.getIndex() == 0) assertEquals(600, getCost(trees.get(0)), 1e-9); // n1-n2-n3-n4, not the star of shortest paths
+		}
+	}
+
+	@Test
+	public void testMaxCopyCapability()
+	{
+		final MulticastCandidateTreeGenerator generator = new MulticastCandidateTreeGenerator(np.getNodes(), np.getLinks(), np.getVectorLinkLengthInKm(), 10, 20, 1, -1, -1, -1, -1, -1, -1, -1, -1);
+		final MulticastDemand d = np.getMulticastDemand(2);
+		final List<Set<Link>> trees = generator.computeCandidateTrees(d.getIngressNode(), d.getEgressNodes()).getFirst();
+		assertFalse(trees.isEmpty());
+		for (Set<Link> tree : trees)
+			checkValidTree(tree, d.getIngressNode(), d.getEgressNodes(), 1);
+	}
+
+	@Test
+	public void testBudgetExhaustedReturnsPartialResult()
+	{
+		final MulticastCandidateTreeGenerator generator = createGenerator(10, -1, 1);
+		final MulticastDemand d = np.getMulticastDemand(0);
+		final Pair<List<Set<Link>>, Boolean> res = generator.computeCandidateTrees(d.getIngressNode(), d.getEgressNodes());
+		assertTrue(res.getSecond());
+		assertEquals(1, res.getFirst().size());
+		checkValidTree(res.getFirst().get(0), d.getIngressNode(), d.getEgressNodes(), Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testParallelEqualsSequential()
+	{
+		final MulticastCandidateTreeGenerator generator = createGenerator(5, -1, -1);
+		final Map<MulticastDemand, List<Set<Link>>> sequential = generator.computeCandidateTrees(np.getMulticastDemands(), 1);
+		final Map<MulticastDemand, List<Set<Link>>> parallel = generator.computeCandidateTrees(np.getMulticastDemands(), 4);
+		assertEquals(np.getMulticastDemands(), new ArrayList<>(sequential.keySet()));
+		assertEquals(sequential, parallel);
+	}
+
+	@Test
+	public void testNetPlanCandidateTreeList()
+	{
+		final Map<MulticastDemand, List<Set<Link>>> cpl = np.computeMulticastCandidatePathList(np.getNetworkLayerDefault(), null, 2, -1, -1, "K", "3", "maxCopyCapability", "2");
+		assertEquals(np.getNumberOfMulticastDemands(), cpl.size());
+		for (MulticastDemand d : cpl.keySet())
+		{
+			assertEquals(3, cpl.get(d).size());
+			for (Set<Link> tree : cpl.get(d))
+				checkValidTree(tree, d.getIngressNode(), d.getEgressNodes(), 2);
+		}
+		np.addMulticastTreesFromCandidateTreeList(cpl);
+		assertEquals(3 * np.getNumberOfMulticastDemands(), np.getNumberOfMulticastTrees());
+	}
+
+	private MulticastCandidateTreeGenerator createGenerator(int K, double maxTimeInSecondsPerDemand, int maxNumCombinationsPerDemand)
+	{
+		return new MulticastCandidateTreeGenerator(np.getNodes(), np.getLinks(), np.getVectorLinkLengthInKm(), K, -1, -1, -1, -1, -1, -1, -1, -1, maxTimeInSecondsPerDemand, maxNumCombinationsPerDemand);
+	}
+
+	private static double getCost(Set<Link> tree)
+	{
+		return tree.stream().mapToDouble(Link::getLengthInKm).sum();
+	}
+
+	private static void checkValidTree(Set<Link> tree, Node origin, Set<Node> destinations, int maxCopyCapability)
+	{
+		final Map<Node, Integer> inDegree = new HashMap<>();
+		final Map<Node, Integer> outDegree = new HashMap<>();
+		for (Link e : tree)
+		{
+			inDegree.merge(e.getDestinationNode(), 1, Integer::sum);
+			outDegree.merge(e.getOriginNode(), 1, Integer::sum);
+		}
+		assertFalse(inDegree.containsKey(origin));
+		for (int in : inDegree.values()) assertEquals(1, in);
+		for (int out : outDegree.values()) assertTrue(out <= maxCopyCapability);
+		for (Node dst : destinations) assertTrue(inDegree.containsKey(dst));
+	}
+}
@@ -0,0 +1,133 @@
+package com.net2plan.libraries;
+
+import com.net2plan.utils.Quadruple;
+import com.net2plan.utils.Triple;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OpticalImpairmentEvaluatorTest
+{
+	private static final int NUM_CHANNELS = 8;
+	private static final double CENTRAL_FREQUENCY_THZ = 193.1;
+
+	private Map<String, Map<String, Double>> fibersParameters;
+	private double[] frequenciesPerChannel_THz;
+	private OpticalImpairmentEvaluator evaluator;
+
+	@Before
+	public void setUp()
+	{
+		fibersParameters = new HashMap<>();
+		final Map<String, Double> smf = new HashMap<>();
+		smf.put(OpticalImpairmentUtils.stFiber_alpha_dB_per_km, 0.2);
+		smf.put(OpticalImpairmentUtils.stFiber_alpha1st_dB_per_km_per_THz, 0.0);
+		smf.put(OpticalImpairmentUtils.stFiber_beta2_ps2_per_km, 21.27);
+		smf.put(OpticalImpairmentUtils.stFiber_n2Coeff_m2_per_W, 2.5E-20);
+		smf.put(OpticalImpairmentUtils.stFiber_effectiveArea_um2, 77.77);
+		fibersParameters.put("SMF", smf);
+		frequenciesPerChannel_THz = new double[NUM_CHANNELS];
+		for (int n = 0; n < NUM_CHANNELS; n++)
+			frequenciesPerChannel_THz[n] = -0.2 + 0.05 * n;
+		evaluator = new OpticalImpairmentEvaluator(fibersParameters, 1E-3, 0.4, 0.5, 0.5, 0.5, 0.5, 0.5, frequenciesPerChannel_THz, CENTRAL_FREQUENCY_THZ, -20, -8);
+	}
+
+	@Test
+	public void testSpanContributionsAreReused()
+	{
+		final List<Quadruple<Double, String, Double, String>> lp1 = lightpath(2);
+		final List<Quadruple<Double, String, Double, String>> lp2 = lightpath(3);
+		assertEquals(1, evaluator.computeSpanContributions(Arrays.asList(lp1, lp2), initialSpectrum(), 4));
+		assertEquals(1, evaluator.getNumberOfSpansComputed());
+		assertEquals(0, evaluator.computeSpanContributions(Arrays.asList(lp1, lp2), initialSpectrum(), 2));
+
+		final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> res = evaluator.computeImpairments(lp2, initialSpectrum());
+		assertEquals(1, evaluator.getNumberOfSpansComputed());
+		assertEquals(lp2.size(), res.size());
+
+		/* The NLI noise accumulates along the lightpath: the second hop adds the same as the first one */
+		final double[] nliAfterFirstSpan = res.get(1).getThird().get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W);
+		final double[] nliAfterSecondSpan = res.get(4).getThird().get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W);
+		for (int n = 0; n < NUM_CHANNELS; n++)
+		{
+			assertTrue(nliAfterFirstSpan[n] > 0);
+			assertEquals(2 * nliAfterFirstSpan[n], nliAfterSecondSpan[n], 1e-9 * nliAfterSecondSpan[n]);
+		}
+	}
+
+	@Test
+	public void testSameResultAsSpanComputedFromScratch()
+	{
+		final List<Quadruple<Double, String, Double, String>> lp = lightpath(3);
+		final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> res = evaluator.computeImpairments(lp, initialSpectrum());
+		final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> resUtils = OpticalImpairmentUtils.computeImpairments(lp, initialSpectrum(), fibersParameters, 1E-3, 0.4, 0.5, 0.5, 0.5, 0.5,
+				0.5, frequenciesPerChannel_THz, CENTRAL_FREQUENCY_THZ, -20, -8);
+		assertEquals(resUtils.size(), res.size());
+		for (int cont = 0; cont < res.size(); cont++)
+		{
+			assertEquals(resUtils.get(cont).getFourth(), res.get(cont).getFourth(), 1e-12);
+			for (String key : resUtils.get(cont).getThird().keySet())
+				assertArrayEquals(resUtils.get(cont).getThird().get(key), res.get(cont).getThird().get(key), 0);
+		}
+
+		/* The NLI of the span is the one of the GN-model for the span input power */
+		final double[] nliFirstSpan = OpticalImpairmentUtils.computeNLIfiber(21.27, 0.2, 0.0, 2.5E-20, 77.77, 80, filled(0.032), filled(1E-3), CENTRAL_FREQUENCY_THZ, frequenciesPerChannel_THz);
+		assertArrayEquals(nliFirstSpan, res.get(1).getThird().get(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W), 0);
+	}
+
+	@Test
+	public void testOSNRDoesNotModifyTheSpectrum()
+	{
+		final List<Quadruple<Double, String, Double, String>> lp = lightpath(3);
+		final Map<String, double[]> spectrum = initialSpectrum();
+		final double[] initialPower = spectrum.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W);
+		final Triple<double[], double[], double[]> osnr = evaluator.computeOSNR(lp, spectrum);
+		assertSame(initialPower, spectrum.get(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W));
+
+		final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> res = evaluator.computeImpairments(lp, spectrum);
+		final Triple<double[], double[], double[]> osnrAtReceiver = OpticalImpairmentUtils.getOSNR(res.get(res.size() - 1).getThird());
+		assertArrayEquals(osnrAtReceiver.getThird(), osnr.getThird(), 1e-12);
+		assertArrayEquals(osnrAtReceiver.getThird(), OpticalImpairmentUtils.getOSNR(spectrum).getThird(), 1e-12);
+	}
+
+	/* OADM-ADD, and then numHops times (80 km span, EDFA compensating it, OADM), the last OADM being a drop */
+	private static List<Quadruple<Double, String, Double, String>> lightpath(int numHops)
+	{
+		final List<Quadruple<Double, String, Double, String>> res = new ArrayList<>();
+		res.add(Quadruple.of(0.0, "OADM-ADD", 0.0, "6"));
+		for (int hop = 0; hop < numHops; hop++)
+		{
+			res.add(Quadruple.of(80.0 * hop, "SPAN", 80.0, "SMF"));
+			res.add(Quadruple.of(80.0 * (hop + 1), "EDFA", 16.0, "5"));
+			res.add(Quadruple.of(80.0 * (hop + 1), hop == numHops - 1 ? "OADM-DROP" : "OADM-EXPRESS", 0.0, "6"));
+		}
+		return res;
+	}
+
+	private static Map<String, double[]> initialSpectrum()
+	{
+		final Map<String, double[]> spectrum = new HashMap<>();
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_bandwidthPerChannel_THz, filled(0.032));
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_powerPerChannel_W, filled(1E-3));
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_aseNoisePower_W, filled(0));
+		spectrum.put(OpticalImpairmentUtils.stSpectrum_nliNoisePowerg_W, filled(0));
+		return spectrum;
+	}
+
+	private static double[] filled(double value)
+	{
+		final double[] res = new double[NUM_CHANNELS];
+		Arrays.fill(res, value);
+		return res;
+	}
+}
@@ -0,0 +1,112 @@
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleFactory1D;
+import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix1D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import cern.colt.matrix.tdouble.algo.DenseDoubleAlgebra;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.utils.Constants.RoutingCycleType;
+import com.net2plan.utils.Quintuple;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RoutingFundamentalVectorSolverTest
+{
+	private NetPlan np;
+	private Node n1, n2, n3, n4;
+	private Link link12, link13, link23, link24, link34, link32, link21;
+
+	@Before
+	public void setUp()
+	{
+		np = new NetPlan();
+		n1 = np.addNode(0, 0, "n1", null);
+		n2 = np.addNode(0, 0, "n2", null);
+		n3 = np.addNode(0, 0, "n3", null);
+		n4 = np.addNode(0, 0, "n4", null);
+		link12 = np.addLink(n1, n2, 10, 100, 200000, null);
+		link13 = np.addLink(n1, n3, 10, 100, 200000, null);
+		link23 = np.addLink(n2, n3, 10, 100, 200000, null);
+		link24 = np.addLink(n2, n4, 10, 100, 200000, null);
+		link34 = np.addLink(n3, n4, 10, 100, 200000, null);
+		link32 = np.addLink(n3, n2, 10, 100, 200000, null);
+		link21 = np.addLink(n2, n1, 10, 100, 200000, null);
+	}
+
+	@Test
+	public void testAcyclicForwardingRules()
+	{
+		final Map<Link, Double> frs = new HashMap<>();
+		frs.put(link12, 0.5); frs.put(link13, 0.5); frs.put(link24, 1.0); frs.put(link34, 1.0);
+		final RoutingFundamentalVectorSolver solver = new RoutingFundamentalVectorSolver(frs, np.getNumberOfNodes());
+		assertTrue(solver.isAcyclic());
+		for (Node ingress : new Node [] { n1, n2, n3 })
+			checkEqualsLinearSystemSolution(solver, frs, ingress, RoutingCycleType.LOOPLESS);
+		final Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> res = solver.computeRoutingFundamentalVector(frs, getOutFrs(frs), n1, n4);
+		assertEquals(1.0, res.getFirst().get(n4.getIndex()), 1e-12);
+		assertEquals(0.5, res.getFirst().get(n3.getIndex()), 1e-12);
+		assertEquals(200, res.getFifth(), 1e-9);
+	}
+
+	@Test
+	public void testOpenCycles()
+	{
+		final Map<Link, Double> frs = new HashMap<>();
+		frs.put(link12, 1.0); frs.put(link23, 0.5); frs.put(link24, 0.5); frs.put(link32, 0.5); frs.put(link34, 0.5);
+		final RoutingFundamentalVectorSolver solver = new RoutingFundamentalVectorSolver(frs, np.getNumberOfNodes());
+		assertFalse(solver.isAcyclic());
+		for (Node ingress : new Node [] { n1, n2, n3 })
+			checkEqualsLinearSystemSolution(solver, frs, ingress, RoutingCycleType.OPEN_CYCLES);
+	}
+
+	@Test
+	public void testClosedCycles()
+	{
+		final Map<Link, Double> frs = new HashMap<>();
+		frs.put(link12, 1.0); frs.put(link21, 1.0);
+		final RoutingFundamentalVectorSolver solver = new RoutingFundamentalVectorSolver(frs, np.getNumberOfNodes());
+		assertFalse(solver.isAcyclic());
+		final Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> res = solver.computeRoutingFundamentalVector(frs, getOutFrs(frs), n1, n4);
+		assertNull(res.getFirst());
+		assertEquals(RoutingCycleType.CLOSED_CYCLES, res.getSecond());
+	}
+
+	private void checkEqualsLinearSystemSolution(RoutingFundamentalVectorSolver solver, Map<Link, Double> frs, Node ingress, RoutingCycleType expectedCycleType)
+	{
+		final int N = np.getNumberOfNodes();
+		final DoubleMatrix2D eyeMinusQ_nn = DoubleFactory2D.dense.identity(N);
+		for (Link e : frs.keySet())
+			eyeMinusQ_nn.set(e.getDestinationNode().getIndex(), e.getOriginNode().getIndex(), eyeMinusQ_nn.get(e.getDestinationNode().getIndex(), e.getOriginNode().getIndex()) - frs.get(e));
+		final DoubleMatrix1D e_k = DoubleFactory1D.dense.make(N);
+		e_k.set(ingress.getIndex(), 1.0);
+		final DoubleMatrix1D expected = new DenseDoubleAlgebra().solve(eyeMinusQ_nn, e_k);
+
+		final Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> res = solver.computeRoutingFundamentalVector(frs, getOutFrs(frs), ingress, n4);
+		for (int n = 0; n < N; n++) assertEquals(expected.get(n), res.getFirst().get(n), 1e-9);
+		assertEquals(expectedCycleType, res.getSecond());
+		assertEquals(1.0, res.getThird(), 1e-12);
+		final Quintuple<DoubleMatrix1D, RoutingCycleType, Double, Double, Double> resGraphUtils = GraphUtils.computeRoutingFundamentalVector(frs, getOutFrs(frs), ingress, n4);
+		for (int n = 0; n < N; n++) assertEquals(res.getFirst().get(n), resGraphUtils.getFirst().get(n), 1e-9);
+		assertEquals(res.getSecond(), resGraphUtils.getSecond());
+	}
+
+	private static Map<Node, Set<Link>> getOutFrs(Map<Link, Double> frs)
+	{
+		final Map<Node, Set<Link>> outFrs = new HashMap<>();
+		for (Link e : frs.keySet()) outFrs.computeIfAbsent(e.getOriginNode(), n -> new HashSet<>()).add(e);
+		return outFrs;
+	}
+}
@@ -0,0 +1,96 @@
+package com.net2plan.libraries;
+
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import edu.uci.ics.jung.graph.Graph;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the shortest path and k-shortest path computations for a random node pair, comparing the JUNG based
+ * implementation (a graph built per call, as GraphUtils did) against a reused CSRGraph snapshot. It is not a unit test, run it with the main method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShortestPathBenchmark
+{
+	@Param({"50", "200"})
+	public int numberOfNodes;
+
+	@Param({"5"})
+	public int K;
+
+	private NetPlan netPlan;
+	private Map<Link, Double> linkCostMap;
+	private CSRGraph graph;
+	private Random rng;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		rng = new Random(1L);
+		netPlan = new NetPlan();
+		for (int n = 0; n < numberOfNodes; n++)
+			netPlan.addNode(rng.nextDouble(), rng.nextDouble(), "n" + n, null);
+		for (Node n1 : netPlan.getNodes())
+			for (int cont = 0; cont < 3; cont++)
+			{
+				final Node n2 = netPlan.getNode(rng.nextInt(numberOfNodes));
+				if (n1 != n2) netPlan.addLinkBidirectional(n1, n2, 100, 100 * rng.nextDouble(), 200000, null);
+			}
+		linkCostMap = new HashMap<Link, Double>();
+		for (Link e : netPlan.getLinks()) linkCostMap.put(e, e.getLengthInKm());
+		graph = new CSRGraph(netPlan.getNodes(), netPlan.getLinks(), linkCostMap);
+	}
+
+	@Benchmark
+	public List<Link> jungShortestPath()
+	{
+		final Graph<Node, Link> jungGraph = GraphUtils.JUNGUtils.getGraphFromLinkMap(netPlan.getNodes(), netPlan.getLinks());
+		return GraphUtils.JUNGUtils.getShortestPath(jungGraph, GraphUtils.JUNGUtils.getEdgeWeightTransformer(linkCostMap), randomNode(), randomNode());
+	}
+
+	@Benchmark
+	public List<Link> csrShortestPath()
+	{
+		return graph.getShortestPath(randomNode(), randomNode());
+	}
+
+	@Benchmark
+	public List<List<Link>> jungKShortestPaths()
+	{
+		final Graph<Node, Link> jungGraph = GraphUtils.JUNGUtils.getGraphFromLinkMap(netPlan.getNodes(), netPlan.getLinks());
+		return new GraphUtils.YenAlgorithm<Node, Link>(jungGraph, GraphUtils.JUNGUtils.getEdgeWeightTransformer(linkCostMap)).getPaths(randomNode(), randomNode(), K);
+	}
+
+	@Benchmark
+	public List<List<Link>> csrKShortestPaths()
+	{
+		return graph.getKLooplessShortestPaths(randomNode(), randomNode(), K, -1, -1, -1, -1, -1, -1);
+	}
+
+	private Node randomNode()
+	{
+		return netPlan.getNode(rng.nextInt(numberOfNodes));
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		Options options = new OptionsBuilder().include(ShortestPathBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
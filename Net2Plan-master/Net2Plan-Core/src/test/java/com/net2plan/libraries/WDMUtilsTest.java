@@ -0,0 +1,95 @@
+package com.net2plan.libraries;
+
+import cern.colt.matrix.tdouble.DoubleFactory2D;
+import cern.colt.matrix.tdouble.DoubleMatrix2D;
+import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.libraries.WDMUtils.RSA;
+import com.net2plan.libraries.WDMUtils.SpectrumOccupancy;
+import com.net2plan.utils.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WDMUtilsTest
+{
+	private NetPlan np;
+	private Link ab, bc, cd, ba;
+
+	@Before
+	public void setUp()
+	{
+		np = new NetPlan();
+		final Node a = np.addNode(0, 0, "a", null);
+		final Node b = np.addNode(0, 0, "b", null);
+		final Node c = np.addNode(0, 0, "c", null);
+		final Node d = np.addNode(0, 0, "d", null);
+		ab = np.addLink(a, b, 150, 100, 200000, null);
+		bc = np.addLink(b, c, 150, 100, 200000, null);
+		cd = np.addLink(c, d, 150, 100, 200000, null);
+		ba = np.addLink(b, a, 150, 100, 200000, null);
+	}
+
+	/**
+	 * The methods receiving a bitset occupancy give the same result as the ones receiving an occupancy matrix, for random occupancies
+	 * (with more than 64 slots, so that blocks of free slots cross the words of the bitsets)
+	 */
+	@Test
+	public void testSpectrumOccupancyEqualsMatrixOccupancy()
+	{
+		final Random rng = new Random(1L);
+		final List<Link> path_1 = Arrays.asList(ab, bc, cd);
+		final List<Link> path_2 = Arrays.asList(ba);
+		final List<Link> path_3 = Arrays.asList(bc);
+		for (int iteration = 0; iteration < 500; iteration++)
+		{
+			final int W = 1 + rng.nextInt(150);
+			final double occupationProbability = rng.nextDouble() * 0.3;
+			final DoubleMatrix2D occupancy_se = DoubleFactory2D.dense.make(W, np.getNumberOfLinks());
+			for (int s = 0; s < W; s++)
+				for (int e = 0; e < np.getNumberOfLinks(); e++)
+					if (rng.nextDouble() < occupationProbability) occupancy_se.set(s, e, 1);
+			final SpectrumOccupancy occupancy = new SpectrumOccupancy(occupancy_se);
+			assertEquals(occupancy_se, occupancy.toMatrix());
+			for (int numSlots = 1; numSlots <= 5; numSlots++)
+			{
+				assertEquals(WDMUtils.spectrumAssignment_firstFit(path_1, occupancy_se, numSlots), WDMUtils.spectrumAssignment_firstFit(path_1, occupancy, numSlots));
+				assertEquals(WDMUtils.spectrumAssignment_firstFitTwoRoutes(path_1, path_2, occupancy_se, numSlots), WDMUtils.spectrumAssignment_firstFitTwoRoutes(path_1, path_2, occupancy, numSlots));
+				assertEquals(WDMUtils.spectrumAssignment_firstFitTwoRoutes(path_1, path_3, occupancy_se, numSlots), WDMUtils.spectrumAssignment_firstFitTwoRoutes(path_1, path_3, occupancy, numSlots));
+			}
+			assertEquals(WDMUtils.computePathSlotOccupancy(path_1, occupancy_se), WDMUtils.computePathSlotOccupancy(path_1, occupancy));
+			assertEquals(WDMUtils.computeAvailableSpectrumVoids(WDMUtils.computePathSlotOccupancy(path_1, occupancy_se), W), WDMUtils.computeAvailableSpectrumVoids(path_1, occupancy));
+		}
+	}
+
+	@Test
+	public void testAllocateAndReleaseResources()
+	{
+		final SpectrumOccupancy occupancy = new SpectrumOccupancy(100, np.getNumberOfLinks());
+		final RSA rsa_1 = new RSA(Arrays.asList(ab, bc), 62, 4);
+		final RSA rsa_2 = new RSA(Arrays.asList(bc, cd), 64, 1);
+		assertTrue(WDMUtils.isAllocatableRSASet(occupancy, rsa_1));
+		assertFalse(WDMUtils.isAllocatableRSASet(occupancy, rsa_1, rsa_2));
+
+		WDMUtils.allocateResources(rsa_1, occupancy, null);
+		assertTrue(occupancy.isOccupied(65, bc));
+		assertFalse(occupancy.isOccupied(66, bc));
+		assertEquals(4, occupancy.getNumOccupiedSlots(ab));
+		assertFalse(WDMUtils.isAllocatableRSASet(occupancy, rsa_2));
+		assertEquals(Arrays.asList(Pair.of(0, 62), Pair.of(66, 34)), WDMUtils.computeAvailableSpectrumVoids(Arrays.asList(bc, cd), occupancy));
+		assertEquals(0, WDMUtils.spectrumAssignment_firstFit(Arrays.asList(bc, cd), occupancy, 62));
+		assertEquals(-1, WDMUtils.spectrumAssignment_firstFit(Arrays.asList(bc, cd), occupancy, 63));
+
+		WDMUtils.releaseResources(rsa_1, occupancy, null);
+		assertEquals(new SpectrumOccupancy(100, np.getNumberOfLinks()), occupancy);
+		assertEquals(0, WDMUtils.spectrumAssignment_firstFit(Arrays.asList(bc, cd), occupancy, 100));
+	}
+}
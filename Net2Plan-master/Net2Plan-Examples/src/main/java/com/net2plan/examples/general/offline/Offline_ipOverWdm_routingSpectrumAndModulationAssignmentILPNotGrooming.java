@@ -18,6 +18,7 @@ import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import com.jom.DoubleMatrixND;
 import com.jom.OptimizationProblem;
 import com.net2plan.interfaces.networkDesign.*;
+import com.net2plan.libraries.CandidatePathListCache;
 import com.net2plan.libraries.WDMUtils;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.InputParameter;
@@ -190,7 +191,7 @@ public class Offline_ipOverWdm_routingSpectrumAndModulationAssignmentILPNotGroom
 		netPlan.setRoutingType(RoutingType.SOURCE_ROUTING , ipLayer);
 
 		/* Compute the candidate path list of possible paths */
-		final Map<Pair<Node,Node>,List<List<Link>>> cpl = netPlan.computeUnicastCandidatePathList(netPlan.getVectorLinkLengthInKm(wdmLayer) , k.getInt(), tpInfo.getMaxOpticalReachKm() , -1, maxPropagationDelayMs.getDouble(), -1, -1, -1 , null , wdmLayer);
+		final Map<Pair<Node,Node>,List<List<Link>>> cpl = CandidatePathListCache.getDefault().computeUnicastCandidatePathList(netPlan , netPlan.getVectorLinkLengthInKm(wdmLayer) , k.getInt(), tpInfo.getMaxOpticalReachKm() , -1, maxPropagationDelayMs.getDouble(), -1, -1, -1 , null , wdmLayer);
 		final Map<Pair<Node,Node>,List<Pair<List<Link>,List<Link>>>> cpl11 = networkRecoveryType.getString().equals("1+1-srg-disjoint-lps")? NetPlan.computeUnicastCandidate11PathList(cpl,0) : null;
 		
 		/* Compute the CPL, adding the routes */
@@ -12,6 +12,7 @@ package com.net2plan.examples.general.onlineSim;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,9 +32,10 @@ import com.net2plan.interfaces.networkDesign.Route;
 import com.net2plan.interfaces.networkDesign.SharedRiskGroup;
 import com.net2plan.interfaces.simulation.IEventProcessor;
 import com.net2plan.interfaces.simulation.SimEvent;
-import com.net2plan.libraries.GraphUtils;
+import com.net2plan.libraries.CandidatePathListCache;
 import com.net2plan.libraries.SRGUtils;
 import com.net2plan.libraries.WDMUtils;
+import com.net2plan.libraries.WDMUtils.SpectrumOccupancy;
 import com.net2plan.libraries.WDMUtils.TransponderTypesInfo;
 import com.net2plan.utils.Constants.RoutingType;
 import com.net2plan.utils.InputParameter;
@@ -42,7 +44,6 @@ import com.net2plan.utils.Quadruple;
 import com.net2plan.utils.RandomUtils;
 import com.net2plan.utils.Triple;
 
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import cern.jet.math.tdouble.DoubleFunctions;
 
 /** Implements the reactions of a WDM network carrying lightpaths in a fixed or flexi grid of wavelengths. 
@@ -92,7 +93,7 @@ public class Online_evProc_wdm extends IEventProcessor
 	//private Map<Route,Pair<WDMUtils.RSA,WDMUtils.RSA>> wdmRouteOriginalRwa;
 	private Map<Pair<Node,Node>,List<List<Link>>> cplWdm;
 	private Map<Pair<Node,Node>,List<Pair<List<Link>,List<Link>>>> cplWdm11;
-	private DoubleMatrix2D wavelengthFiberOccupancy;
+	private SpectrumOccupancy wavelengthFiberOccupancy;
 	private TransponderTypesInfo tpInfo;
 	private Map<Route,Integer> transponderTypeOfNewLps;
 
@@ -152,12 +153,12 @@ public class Online_evProc_wdm extends IEventProcessor
 		this.tpInfo = new TransponderTypesInfo(wdmTransponderTypesInfo.getString());
 		this.transponderTypeOfNewLps = new HashMap<Route,Integer> ();
 
-		/* Create empty candidate path lists: they will be filled on demand */
+		/* Create empty candidate path lists: they will be filled on demand (the paths of each node pair are read from the candidate path list cache) */
 		this.cplWdm = new HashMap<> ();
 		this.protectionTypeCode = wdmDefaultAndNewRouteRevoveryType.getString ().equals("1+1-srg-disjoint") ? 0 : wdmDefaultAndNewRouteRevoveryType.getString ().equals("1+1-node-disjoint")? 1 : 2;
 		this.cplWdm11 = isProtectionRecovery? new HashMap<> () : null; 
 		
-		this.wavelengthFiberOccupancy = WDMUtils.getNetworkSlotAndRegeneratorOcupancy(initialNetPlan, true , wdmLayer).getFirst();
+		this.wavelengthFiberOccupancy = WDMUtils.getNetworkSpectrumOccupancy(initialNetPlan, true , wdmLayer);
 		if (DEBUG) { checkWaveOccupEqualsNp(initialNetPlan); checkClashing (initialNetPlan); } 
 		initialNetPlan.setLinkCapacityUnitsName("Frequency slots" , wdmLayer);
 
@@ -650,10 +651,10 @@ public class Online_evProc_wdm extends IEventProcessor
 	private static double getLengthInKm (List<Link> p) { double res = 0; for (Link e : p) res += e.getLengthInKm(); return res; }
 	private void checkWaveOccupEqualsNp (NetPlan currentNetPlan)
 	{
-		DoubleMatrix2D freqNow_se = WDMUtils.getNetworkSlotAndRegeneratorOcupancy(currentNetPlan, true , wdmLayer).getFirst();
+		SpectrumOccupancy freqNow_se = WDMUtils.getNetworkSpectrumOccupancy(currentNetPlan, true , wdmLayer);
 		if (!freqNow_se.equals(wavelengthFiberOccupancy))
 		{
-			System.out.println(freqNow_se.assign(wavelengthFiberOccupancy , DoubleFunctions.minusMult(1.0)));
+			System.out.println(freqNow_se.toMatrix().assign(wavelengthFiberOccupancy.toMatrix() , DoubleFunctions.minusMult(1.0)));
 			throw new RuntimeException ();
 		} 
 
@@ -663,10 +664,9 @@ public class Online_evProc_wdm extends IEventProcessor
 	{
 		List<List<Link>> res = cplWdm.get(pair);
 		if (res != null) return res;
-		final Map<Link,Double> linkCostMap = new HashMap<> (); for (Link e : np.getLinks(wdmLayer)) linkCostMap.put(e, e.getLengthInKm());
-        res = GraphUtils.getKLooplessShortestPaths(np.getNodes(), np.getLinks(wdmLayer), pair.getFirst(), 
-        		pair.getSecond(), linkCostMap, wdmK.getInt(), tpInfo.getMaxOpticalReachKm(), wdmMaxLightpathNumHops.getInt(), -1, -1, -1, -1);
-        if (res.isEmpty()) throw new Net2PlanException ("There is no path between nodes: " + pair.getFirst() + " -> " + pair.getSecond());
+        res = CandidatePathListCache.getDefault().computeUnicastCandidatePathList(np , np.getVectorLinkLengthInKm(wdmLayer) , 
+        		wdmK.getInt(), tpInfo.getMaxOpticalReachKm(), wdmMaxLightpathNumHops.getInt(), -1, -1, -1, -1, Collections.singleton(pair) , wdmLayer).get(pair);
+        if (res == null || res.isEmpty()) throw new Net2PlanException ("There is no path between nodes: " + pair.getFirst() + " -> " + pair.getSecond());
         cplWdm.put(pair ,  res);
         return res;
 	}
@@ -5,6 +5,7 @@ import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.networkDesign.Route;
+import com.net2plan.libraries.OpticalImpairmentEvaluator;
 import com.net2plan.libraries.OpticalImpairmentUtils;
 import com.net2plan.utils.Constants.OrderingType;
 import com.net2plan.utils.DoubleUtils;
@@ -14,7 +15,9 @@ import com.net2plan.utils.StringUtils;
 import com.net2plan.utils.Triple;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -149,6 +152,7 @@ public class Report_WDM_lineEngineering_GNModel implements IReport
 
 	/* Global parameters */
 	private Map<String, double[]>		spectrumParameters;
+	private Map<Link, LinkAttributes>	linkAttributes;
 	Map<String, Map<String, Double>>	fiberParameters;
 	private double						centralFreq_THz;
 	private double[]					frequenciesPerChannel_THz;
@@ -177,44 +181,48 @@ public class Report_WDM_lineEngineering_GNModel implements IReport
 		osnrPenalty_SUM_dB = osnrPenalty_nonLinear_dB.getDouble() + osnrPenalty_PMD_dB.getDouble() + osnrPenalty_PDL_dB.getDouble() + osnrPenalty_transmitterChirp_dB.getDouble() + osnrPenalty_OADMCrosstalk_dB.getDouble()
 				+ osnrPenalty_unassignedMargin_dB.getDouble();
 
+		/* The attributes of each link are parsed once, and the contribution of each fiber span computed once (in parallel) for all the links and lightpaths */
+		linkAttributes = new HashMap<Link, LinkAttributes>();
+		final OpticalImpairmentEvaluator evaluator = new OpticalImpairmentEvaluator(fiberParameters, oadm_outputPowerPerChannel_W.getDouble(), fiber_PMD_ps_per_sqroot_km.getDouble(), edfa_PMD_ps.getDouble(),
+				pc_PMD_ps.getDouble(), oadm_muxDemuxPMD_ps.getDouble(), oadm_preAmplifierPMD_ps.getDouble(), oadm_boosterPMD_ps.getDouble(), frequenciesPerChannel_THz, centralFreq_THz,
+				tp_inputPowerSensitivityMin_dBm.getDouble(), tp_inputPowerSensitivityMax_dBm.getDouble());
+
 		final Map<Link, List<Quadruple<Double, String, Double, String>>> elements_e = new LinkedHashMap<Link, List<Quadruple<Double, String, Double, String>>>();
+		for (Link link : netPlan.getLinks())
+			elements_e.put(link, getElementPositionsListPerLightpath(Collections.singletonList(link)));
+		final Map<Route, List<Quadruple<Double, String, Double, String>>> elements_r = new LinkedHashMap<Route, List<Quadruple<Double, String, Double, String>>>();
+		for (Route r : netPlan.getRoutes())
+			elements_r.put(r, getElementPositionsListPerLightpath(r.getSeqLinks()));
+		final List<List<Quadruple<Double, String, Double, String>>> allElementPositions = new ArrayList<List<Quadruple<Double, String, Double, String>>>(elements_e.values());
+		allElementPositions.addAll(elements_r.values());
+		evaluator.computeSpanContributions(allElementPositions, initializeSpectrum(), Runtime.getRuntime().availableProcessors());
+
 		final Map<Link, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> impairments_e = new LinkedHashMap<Link, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>>();
 		final Map<Link, List<String>> warnings_e = new LinkedHashMap<Link, List<String>>();
-
 		for (Link link : netPlan.getLinks())
 		{
-			final List<Link> seqLinks = new LinkedList<Link>();
-			seqLinks.add(link);
-			final List<Quadruple<Double, String, Double, String>> elementPositions = getElementPositionsListPerLightpath(seqLinks);
+			final List<Quadruple<Double, String, Double, String>> elementPositions = elements_e.get(link);
 
 			spectrumParameters = initializeSpectrum();
 
-			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = OpticalImpairmentUtils.computeImpairments(elementPositions, spectrumParameters, fiberParameters,
-					oadm_outputPowerPerChannel_W.getDouble(), fiber_PMD_ps_per_sqroot_km.getDouble(), edfa_PMD_ps.getDouble(), pc_PMD_ps.getDouble(), oadm_muxDemuxPMD_ps.getDouble(), oadm_preAmplifierPMD_ps.getDouble(),
-					oadm_boosterPMD_ps.getDouble(), frequenciesPerChannel_THz, centralFreq_THz, tp_inputPowerSensitivityMin_dBm.getDouble(), tp_inputPowerSensitivityMax_dBm.getDouble());
+			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = evaluator.computeImpairments(elementPositions, spectrumParameters);
 			final List<String> warningMessages = computeWarningMessages(elementPositions, impairmentsAtInputAndOutputs);
 
-			elements_e.put(link, elementPositions);
 			impairments_e.put(link, impairmentsAtInputAndOutputs);
 			warnings_e.put(link, warningMessages);
 		}
 
-		final Map<Route, List<Quadruple<Double, String, Double, String>>> elements_r = new LinkedHashMap<Route, List<Quadruple<Double, String, Double, String>>>();
 		final Map<Route, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>> impairments_r = new LinkedHashMap<Route, List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>>>();
 		final Map<Route, List<String>> warnings_r = new LinkedHashMap<Route, List<String>>();
 		for (Route r : netPlan.getRoutes())
 		{
-			final List<Link> seqLinks = r.getSeqLinks();
-			final List<Quadruple<Double, String, Double, String>> elementPositions = getElementPositionsListPerLightpath(seqLinks);
+			final List<Quadruple<Double, String, Double, String>> elementPositions = elements_r.get(r);
 
 			spectrumParameters = initializeSpectrum();
 
-			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = OpticalImpairmentUtils.computeImpairments(elementPositions, spectrumParameters, fiberParameters,
-					oadm_outputPowerPerChannel_W.getDouble(), fiber_PMD_ps_per_sqroot_km.getDouble(), edfa_PMD_ps.getDouble(), pc_PMD_ps.getDouble(), oadm_muxDemuxPMD_ps.getDouble(), oadm_preAmplifierPMD_ps.getDouble(),
-					oadm_boosterPMD_ps.getDouble(), frequenciesPerChannel_THz, centralFreq_THz, tp_inputPowerSensitivityMin_dBm.getDouble(), tp_inputPowerSensitivityMax_dBm.getDouble());
+			final List<Quadruple<Map<String, double[]>, Double, Map<String, double[]>, Double>> impairmentsAtInputAndOutputs = evaluator.computeImpairments(elementPositions, spectrumParameters);
 			final List<String> warningMessages = computeWarningMessages(elementPositions, impairmentsAtInputAndOutputs);
 
-			elements_r.put(r, elementPositions);
 			impairments_r.put(r, impairmentsAtInputAndOutputs);
 			warnings_r.put(r, warningMessages);
 		}
@@ -502,41 +510,15 @@ public class Report_WDM_lineEngineering_GNModel implements IReport
 			int oadmCounter = 0;
 
 			final double d_e = e.getLengthInKm();
-			final String st_edfaPositions_km = e.getAttribute("edfaPositions_km") == null ? "" : e.getAttribute("edfaPositions_km");
-			final String st_edfaGains_dB = e.getAttribute("edfaGains_dB") == null ? "" : e.getAttribute("edfaGains_dB");
-			final String st_edfaNoiseFigures_dB = e.getAttribute("edfaNoiseFigures_dB") == null ? "" : e.getAttribute("edfaNoiseFigures_dB");
-			final String st_pcPositions_km = e.getAttribute("pcPositions_km") == null ? "" : e.getAttribute("pcPositions_km");
-			final String st_pcLosses_dB = e.getAttribute("pcLosses_dB") == null ? "" : e.getAttribute("pcLosses_dB");
-			final String st_oadmNoiseFigures_dB = e.getAttribute("oadmNoiseFigures_dB") == null ? "" : e.getAttribute("oadmNoiseFigures_dB");
-			final String st_fiberTypes = e.getAttribute("fiberTypes") == null ? "" : e.getAttribute("fiberTypes");
-
-			final double[] edfaPositions_km = StringUtils.toDoubleArray(StringUtils.split(st_edfaPositions_km));
-			final double[] edfaGains_dB = StringUtils.toDoubleArray(StringUtils.split(st_edfaGains_dB));
-			final double[] edfaNoiseFigures_dB = StringUtils.toDoubleArray(StringUtils.split(st_edfaNoiseFigures_dB));
-			final double[] pcPositions_km = StringUtils.toDoubleArray(StringUtils.split(st_pcPositions_km));
-			final double[] pcLosses_dB = StringUtils.toDoubleArray(StringUtils.split(st_pcLosses_dB));
-			final double[] oadmNoiseFigures_dB = StringUtils.toDoubleArray(StringUtils.split(st_oadmNoiseFigures_dB));
-			final String[] fiberTypes = StringUtils.split(st_fiberTypes);
-
-			/* Basic checks */
-			if (edfaPositions_km.length != edfaGains_dB.length)
-				throw new Net2PlanException("Link: " + e + ". Number of elements in edfaPositions_km is not equal to the number of elements in edfaGains_dB");
-
-			if (pcPositions_km.length != pcLosses_dB.length)
-				throw new Net2PlanException("Link: " + e + ". Number of elements in pcPositions_km is not equal to the number of elements in pcLosses_dB");
-
-			for (double edfaPosition : edfaPositions_km)
-				if ((edfaPosition < 0) || (edfaPosition > d_e))
-					throw new Net2PlanException("Link: " + e + ". Wrong OA position: " + edfaPosition + ", link length = " + d_e);
-
-			for (double pcPosition : pcPositions_km)
-				if ((pcPosition < 0) || (pcPosition > d_e))
-					throw new Net2PlanException("Link: " + e + ". Wrong PC position: " + pcPosition + ", link length = " + d_e);
-
-			for (double noiseFigure_dB : edfaNoiseFigures_dB)
-				if ((noiseFigure_dB < Math.min(edfa_noiseFactorMinimumGain_dB.getDouble(), edfa_noiseFactorMaximumGain_dB.getDouble()))
-						|| (noiseFigure_dB > Math.max(edfa_noiseFactorMinimumGain_dB.getDouble(), edfa_noiseFactorMaximumGain_dB.getDouble())))
-					throw new RuntimeException("Bad EDFA Noise Factor, out of range");
+			LinkAttributes attributes = linkAttributes.get(e);
+			if (attributes == null) { attributes = new LinkAttributes(e); linkAttributes.put(e, attributes); }
+			final double[] edfaPositions_km = attributes.edfaPositions_km;
+			final double[] edfaGains_dB = attributes.edfaGains_dB;
+			final double[] edfaNoiseFigures_dB = attributes.edfaNoiseFigures_dB;
+			final double[] pcPositions_km = attributes.pcPositions_km;
+			final double[] pcLosses_dB = attributes.pcLosses_dB;
+			final double[] oadmNoiseFigures_dB = attributes.oadmNoiseFigures_dB;
+			final String[] fiberTypes = attributes.fiberTypes;
 
 			/* All links and lightpaths allways begin with an OADM-ADD */
 			if (index == 0)
@@ -877,4 +859,55 @@ public class Report_WDM_lineEngineering_GNModel implements IReport
 		return out.toString();
 	}
 
+	/** The optical elements in a link, parsed from its attributes */
+	private final class LinkAttributes
+	{
+		private final double[]	edfaPositions_km;
+		private final double[]	edfaGains_dB;
+		private final double[]	edfaNoiseFigures_dB;
+		private final double[]	pcPositions_km;
+		private final double[]	pcLosses_dB;
+		private final double[]	oadmNoiseFigures_dB;
+		private final String[]	fiberTypes;
+
+		private LinkAttributes(Link e)
+		{
+			final double d_e = e.getLengthInKm();
+			final String st_edfaPositions_km = e.getAttribute("edfaPositions_km") == null ? "" : e.getAttribute("edfaPositions_km");
+			final String st_edfaGains_dB = e.getAttribute("edfaGains_dB") == null ? "" : e.getAttribute("edfaGains_dB");
+			final String st_edfaNoiseFigures_dB = e.getAttribute("edfaNoiseFigures_dB") == null ? "" : e.getAttribute("edfaNoiseFigures_dB");
+			final String st_pcPositions_km = e.getAttribute("pcPositions_km") == null ? "" : e.getAttribute("pcPositions_km");
+			final String st_pcLosses_dB = e.getAttribute("pcLosses_dB") == null ? "" : e.getAttribute("pcLosses_dB");
+			final String st_oadmNoiseFigures_dB = e.getAttribute("oadmNoiseFigures_dB") == null ? "" : e.getAttribute("oadmNoiseFigures_dB");
+			final String st_fiberTypes = e.getAttribute("fiberTypes") == null ? "" : e.getAttribute("fiberTypes");
+
+			this.edfaPositions_km = StringUtils.toDoubleArray(StringUtils.split(st_edfaPositions_km));
+			this.edfaGains_dB = StringUtils.toDoubleArray(StringUtils.split(st_edfaGains_dB));
+			this.edfaNoiseFigures_dB = StringUtils.toDoubleArray(StringUtils.split(st_edfaNoiseFigures_dB));
+			this.pcPositions_km = StringUtils.toDoubleArray(StringUtils.split(st_pcPositions_km));
+			this.pcLosses_dB = StringUtils.toDoubleArray(StringUtils.split(st_pcLosses_dB));
+			this.oadmNoiseFigures_dB = StringUtils.toDoubleArray(StringUtils.split(st_oadmNoiseFigures_dB));
+			this.fiberTypes = StringUtils.split(st_fiberTypes);
+
+			/* Basic checks */
+			if (edfaPositions_km.length != edfaGains_dB.length)
+				throw new Net2PlanException("Link: " + e + ". Number of elements in edfaPositions_km is not equal to the number of elements in edfaGains_dB");
+
+			if (pcPositions_km.length != pcLosses_dB.length)
+				throw new Net2PlanException("Link: " + e + ". Number of elements in pcPositions_km is not equal to the number of elements in pcLosses_dB");
+
+			for (double edfaPosition : edfaPositions_km)
+				if ((edfaPosition < 0) || (edfaPosition > d_e))
+					throw new Net2PlanException("Link: " + e + ". Wrong OA position: " + edfaPosition + ", link length = " + d_e);
+
+			for (double pcPosition : pcPositions_km)
+				if ((pcPosition < 0) || (pcPosition > d_e))
+					throw new Net2PlanException("Link: " + e + ". Wrong PC position: " + pcPosition + ", link length = " + d_e);
+
+			for (double noiseFigure_dB : edfaNoiseFigures_dB)
+				if ((noiseFigure_dB < Math.min(edfa_noiseFactorMinimumGain_dB.getDouble(), edfa_noiseFactorMaximumGain_dB.getDouble()))
+						|| (noiseFigure_dB > Math.max(edfa_noiseFactorMinimumGain_dB.getDouble(), edfa_noiseFactorMaximumGain_dB.getDouble())))
+					throw new RuntimeException("Bad EDFA Noise Factor, out of range");
+		}
+	}
 }
@@ -13,13 +13,11 @@ package com.net2plan.examples.ocnbook.offline;
 
 import cern.colt.matrix.tdouble.DoubleFactory1D;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
-import cern.colt.matrix.tdouble.DoubleMatrix2D;
 import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetPlan;
-import com.net2plan.libraries.IPUtils;
+import com.net2plan.libraries.IncrementalECMPEngine;
 import com.net2plan.utils.Pair;
-import com.net2plan.utils.Quadruple;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,6 +30,7 @@ class OSPFHeuristicUtils
 	final int maxLinkWeight;
 	final double weightOfMaxUtilizationInObjectiveFunction;
 	final Random rng;
+	final IncrementalECMPEngine ecmpEngine; // evaluations of neighbor solutions differing in a few weights are incremental
 	
 	OSPFHeuristicUtils (NetPlan netPlan , int maxLinkWeight , double weightOfMaxUtilizationInObjectiveFunction , Random rng)
 	{
@@ -39,6 +38,7 @@ class OSPFHeuristicUtils
 		this.maxLinkWeight = maxLinkWeight;
 		this.weightOfMaxUtilizationInObjectiveFunction = weightOfMaxUtilizationInObjectiveFunction;
 		this.rng = rng;
+		this.ecmpEngine = new IncrementalECMPEngine(netPlan, DoubleFactory1D.dense.make (netPlan.getNumberOfLinks () , 1.0));
 	}
 	
 	Pair<DoubleMatrix1D,Double> getInitialSolution (String initializationType)
@@ -154,8 +154,8 @@ class OSPFHeuristicUtils
 	
 	Pair<Double,DoubleMatrix1D> computeObjectiveFunction (DoubleMatrix1D sol)
 	{
-		Quadruple<DoubleMatrix2D, DoubleMatrix2D, DoubleMatrix1D, DoubleMatrix1D> q = IPUtils.computeCarriedTrafficFromIGPWeights(netPlan, sol);
-		DoubleMatrix1D y_e = q.getFourth();
+		ecmpEngine.setLinkWeights(sol);
+		DoubleMatrix1D y_e = ecmpEngine.getVectorLinkCarriedTraffic();
 		double congestion = 0;
 		double accumUtilization = 0;
 		for (Link e : netPlan.getLinks ())
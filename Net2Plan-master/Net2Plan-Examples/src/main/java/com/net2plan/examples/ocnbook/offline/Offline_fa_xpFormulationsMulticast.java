@@ -58,6 +58,9 @@ public class Offline_fa_xpFormulationsMulticast implements IAlgorithm
 	private InputParameter solverName = new InputParameter ("solverName", "#select# glpk ipopt xpress cplex", "The solver name to be used by JOM. GLPK and IPOPT are free, XPRESS and CPLEX commercial. GLPK, XPRESS and CPLEX solve linear problems w/w.o integer contraints. IPOPT is can solve nonlinear problems (if convex, returns global optimum), but cannot handle integer constraints");
 	private InputParameter solverLibraryName = new InputParameter ("solverLibraryName", "" , "The solver library full or relative path, to be used by JOM. Leave blank to use JOM default.");
 	private InputParameter maxSolverTimeInSeconds = new InputParameter ("maxSolverTimeInSeconds", (double) -1 , "Maximum time granted to the solver to solve the problem. If this time expires, the solver returns the best solution found so far (if a feasible solution is found)");
+	private InputParameter candidateTreeComputation = new InputParameter ("candidateTreeComputation", "#select# ilp shortest-path-combinations" , "How the candidate multicast trees are computed. 'ilp': the k-minimum cost trees, solving an ILP per tree. 'shortest-path-combinations': combining the k-shortest paths to each destination, in parallel for the demands and without solver (the trees are not necessarily the minimum cost ones)");
+	private InputParameter maxNumPathCombinationsPerDemand = new InputParameter ("maxNumPathCombinationsPerDemand", (int) 100000 , "If candidateTreeComputation is 'shortest-path-combinations', maximum number of path combinations explored per demand. The trees found until then are used. A non-positive number means this limit does not exist");
+	private InputParameter maxTimeInSecondsPerDemand = new InputParameter ("maxTimeInSecondsPerDemand", (double) -1 , "If candidateTreeComputation is 'shortest-path-combinations', maximum time in seconds for exploring the path combinations of each demand. The trees found until then are used. A non-positive number means this limit does not exist");
 	
 	@Override
 	public String executeAlgorithm(NetPlan netPlan, Map<String, String> algorithmParameters, Map<String, String> net2planParameters)
@@ -79,10 +82,7 @@ public class Offline_fa_xpFormulationsMulticast implements IAlgorithm
 		/* Add all the k-shortest candidate routes to the netPlan object carrying no traffic */
 		final DoubleMatrix1D linkCostVector = linkCostType.getString().equalsIgnoreCase("hops")? DoubleFactory1D.dense.make (E , 1.0) : netPlan.getVectorLinkLengthInKm();
 
-		netPlan.addMulticastTreesFromCandidateTreeList(netPlan.computeMulticastCandidatePathList(linkCostVector , 
-				solverName.getString().equals("ipopt")? "glpk" : solverName.getString() , 
-				solverName.getString().equals("ipopt")? "" : solverLibraryName.getString () , 
-				maxSolverTimeInSeconds.getDouble () , 
+		final String [] candidateTreeListParamValuePairs = new String [] {
 				"K", Integer.toString(k.getInt ()), 
 				"maxCopyCapability", Integer.toString(maxCopyCapability.getInt ()) , 
 				"maxE2ELengthInKm", Double.toString(maxE2ELengthInKm.getDouble ()) , 
@@ -90,7 +90,20 @@ public class Offline_fa_xpFormulationsMulticast implements IAlgorithm
 				"maxE2EPropDelayInMs", Double.toString(maxE2EPropDelayInMs.getDouble ()) , 
 				"maxTreeCost", Double.toString(maxTreeCost.getDouble ()) , 
 				"maxTreeCostFactorRespectToMinimumCostTree", Double.toString(maxTreeCostFactorRespectToMinimumCostTree.getDouble ()) , 
-				"maxTreeCostRespectToMinimumCostTree", Double.toString(maxTreeCostRespectToMinimumCostTree.getDouble ())));
+				"maxTreeCostRespectToMinimumCostTree", Double.toString(maxTreeCostRespectToMinimumCostTree.getDouble ()) };
+		if (candidateTreeComputation.getString().equalsIgnoreCase("ilp"))
+			netPlan.addMulticastTreesFromCandidateTreeList(netPlan.computeMulticastCandidatePathList(linkCostVector , 
+					solverName.getString().equals("ipopt")? "glpk" : solverName.getString() , 
+					solverName.getString().equals("ipopt")? "" : solverLibraryName.getString () , 
+					maxSolverTimeInSeconds.getDouble () , 
+					candidateTreeListParamValuePairs));
+		else if (candidateTreeComputation.getString().equalsIgnoreCase("shortest-path-combinations"))
+			netPlan.addMulticastTreesFromCandidateTreeList(netPlan.computeMulticastCandidatePathList(netPlan.getNetworkLayerDefault() , linkCostVector , 
+					Runtime.getRuntime().availableProcessors() , 
+					maxTimeInSecondsPerDemand.getDouble () , 
+					maxNumPathCombinationsPerDemand.getInt () , 
+					candidateTreeListParamValuePairs));
+		else throw new Net2PlanException("Wrong candidateTreeComputation parameter");
 		final int P = netPlan.getNumberOfMulticastTrees(); 
 
 		/* Create the optimization problem object (JOM library) */
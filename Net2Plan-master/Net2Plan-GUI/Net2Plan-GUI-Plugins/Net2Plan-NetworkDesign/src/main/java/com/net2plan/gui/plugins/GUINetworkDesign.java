@@ -15,7 +15,11 @@ package com.net2plan.gui.plugins;
 import com.net2plan.gui.plugins.networkDesign.GUIWindow;
 import com.net2plan.gui.plugins.networkDesign.NetworkDesignWindow;
 import com.net2plan.gui.plugins.networkDesign.focusPane.FocusPane;
+import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackChangeSet;
+import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackLink;
 import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackNet;
+import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackNetworkElement;
+import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackNode;
 import com.net2plan.gui.plugins.networkDesign.interfaces.ITopologyCanvas;
 import com.net2plan.gui.plugins.networkDesign.offlineExecPane.OfflineExecutionPanel;
 import com.net2plan.gui.plugins.networkDesign.topologyPane.TopologyPanel;
@@ -295,6 +299,26 @@ import java.util.List;
             this.currentOpenStackNet = OpenStackNet.buildOpenStackNetFromServer(password, user, password, user);
         }
 
+        /**
+         * Updates the current OpenStack network with the changes in the server it was imported from, and refreshes the views
+         * affected. Nothing is refreshed if there were no changes
+         *
+         * @return the changes made
+         */
+        public OpenStackChangeSet resyncOpenStack()
+        {
+            /* The resync modifies the OpenStack network (and its NetPlan), not the current design: keep a copy before touching it */
+            final OpenStackNet openStackNetBeforeChange = this.currentOpenStackNet.copy();
+            final OpenStackChangeSet changes = this.currentOpenStackNet.resyncFromServer();
+            if (changes.isEmpty()) return changes;
+            undoRedoManager.addOpenStackNetChange(openStackNetBeforeChange, this.currentOpenStackNet.copy());
+            if (changes.getAddedElements().isEmpty() && changes.getRemovedElements().isEmpty())
+                updateVisualizationAfterElementChanges(changes.getUpdatedElements());
+            else
+                updateVisualizationAfterChanges(changes.getModifiedNetworkElementTypes());
+            return changes;
+        }
+
         public OpenStackNet getOpenStackNet() { return this.currentOpenStackNet; }
         private JPanel configureLeftBottomPanel()
         {
@@ -448,6 +472,8 @@ import java.util.List;
             final Triple<NetPlan, Map<NetworkLayer, Integer>, Map<NetworkLayer, Boolean>> back = undoRedoManager.getNavigationBackElement();
             if (back == null) return;
             this.currentNetPlan = back.getFirst();
+            final OpenStackNet openStackNet = undoRedoManager.getNavigationCurrentOpenStackNet();
+            if (openStackNet != null) this.currentOpenStackNet = openStackNet;
             this.vs.setCanvasLayerVisibilityAndOrder(this.currentNetPlan, back.getSecond(), back.getThird());
             updateVisualizationAfterNewTopology();
         }
@@ -458,6 +484,8 @@ import java.util.List;
             final Triple<NetPlan, Map<NetworkLayer, Integer>, Map<NetworkLayer, Boolean>> forward = undoRedoManager.getNavigationForwardElement();
             if (forward == null) return;
             this.currentNetPlan = forward.getFirst();
+            final OpenStackNet openStackNet = undoRedoManager.getNavigationCurrentOpenStackNet();
+            if (openStackNet != null) this.currentOpenStackNet = openStackNet;
             this.vs.setCanvasLayerVisibilityAndOrder(this.currentNetPlan, forward.getSecond(), forward.getThird());
             updateVisualizationAfterNewTopology();
         }
@@ -674,6 +702,20 @@ import java.util.List;
             topologyPanel.getCanvas().refresh();
         }
 
+        /**
+         * Updates the views after some elements changed, when no element was added or removed: only the table rows of
+         * those elements are recomputed
+         *
+         * @param changedElements the elements which changed
+         */
+        public void updateVisualizationAfterElementChanges(Collection<? extends OpenStackNetworkElement> changedElements)
+        {
+            if (changedElements.stream().anyMatch(e -> e instanceof OpenStackNode || e instanceof OpenStackLink))
+                topologyPanel.getCanvas().refresh();
+            viewEditTopTables.updateViewOfElements(changedElements);
+            focusPanel.updateView();
+        }
+
         public void updateVisualizationAfterChanges(Set<NetworkElementType> modificationsMade)
         {
             if (modificationsMade == null)
@@ -45,6 +45,7 @@ public class FileChooserNetworkDesign extends FileChooserConfirmOverwrite
     static
     {
         PluginSystem.addPlugin(IOFilter.class, IONet2Plan.class);
+        PluginSystem.addPlugin(IOFilter.class, IONet2PlanBinary.class);
         PluginSystem.addPlugin(IOFilter.class, IOSNDLibNative.class);
         PluginSystem.addPlugin(IOFilter.class, IOBrite.class);
         PluginSystem.addPlugin(IOFilter.class, IOVisum.class);
@@ -150,6 +150,32 @@ public interface ITopologyCanvas extends Plugin
 	 */
 	void refresh();
 
+	/**
+	 * Activates or deactivates the level-of-detail rendering for large topologies: only the area shown is drawn, the
+	 * labels are hidden when the nodes are too close, the overlapping parallel links are drawn once, and the drawing
+	 * is cached while panning.
+	 *
+	 * @param isActive true to activate it
+	 * @since 0.5.3
+	 */
+	void setLevelOfDetailRendering(boolean isActive);
+
+	/**
+	 * Returns if the level-of-detail rendering for large topologies is active.
+	 *
+	 * @return see above
+	 * @since 0.5.3
+	 */
+	boolean isLevelOfDetailRendering();
+
+	/**
+	 * Returns the time spent painting the last frame of the canvas, in milliseconds.
+	 *
+	 * @return see above
+	 * @since 0.5.3
+	 */
+	double getLastFrameRenderingTimeInMs();
+
 	/**
 	 * Refresh the canvas with the physical topology from the given network design.
 	 *
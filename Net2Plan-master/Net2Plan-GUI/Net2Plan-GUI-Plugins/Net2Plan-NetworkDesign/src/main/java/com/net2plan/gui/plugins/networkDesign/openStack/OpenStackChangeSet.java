@@ -0,0 +1,70 @@
+package com.net2plan.gui.plugins.networkDesign.openStack;
+
+import com.net2plan.internal.Constants.NetworkElementType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The elements added, updated and removed in an {@link OpenStackNet} by a synchronization with the server
+ * @author Manuel
+ */
+public class OpenStackChangeSet
+{
+    private final List<OpenStackNetworkElement> addedElements = new ArrayList<> ();
+    private final List<OpenStackNetworkElement> updatedElements = new ArrayList<> ();
+    private final List<OpenStackNetworkElement> removedElements = new ArrayList<> ();
+
+    OpenStackChangeSet () { }
+
+    void addAddedElement (OpenStackNetworkElement e) { addedElements.add(e); }
+    void addUpdatedElement (OpenStackNetworkElement e) { updatedElements.add(e); }
+    void addRemovedElements (List<? extends OpenStackNetworkElement> e) { removedElements.addAll(e); }
+
+    /** Returns the elements created in the synchronization, in the order they were created
+     * @return see above
+     */
+    public List<OpenStackNetworkElement> getAddedElements () { return Collections.unmodifiableList(addedElements); }
+
+    /** Returns the already existing elements whose information changed in the synchronization
+     * @return see above
+     */
+    public List<OpenStackNetworkElement> getUpdatedElements () { return Collections.unmodifiableList(updatedElements); }
+
+    /** Returns the elements removed in the synchronization, since they no longer exist in the server. These objects are no longer
+     * part of the OpenStack network
+     * @return see above
+     */
+    public List<OpenStackNetworkElement> getRemovedElements () { return Collections.unmodifiableList(removedElements); }
+
+    /** Indicates if the synchronization did not change anything
+     * @return see above
+     */
+    public boolean isEmpty () { return addedElements.isEmpty() && updatedElements.isEmpty() && removedElements.isEmpty(); }
+
+    /** Returns the types of the elements changed, in the form expected by the GUI visualization update methods: nodes for routers,
+     * links for links, and network for users, networks and subnets
+     * @return see above
+     */
+    public Set<NetworkElementType> getModifiedNetworkElementTypes ()
+    {
+        final Set<NetworkElementType> res = EnumSet.noneOf(NetworkElementType.class);
+        for (List<OpenStackNetworkElement> list : Arrays.asList(addedElements , updatedElements , removedElements))
+            for (OpenStackNetworkElement e : list)
+            {
+                if (e instanceof OpenStackNode) res.add(NetworkElementType.NODE);
+                else if (e instanceof OpenStackLink) res.add(NetworkElementType.LINK);
+                else res.add(NetworkElementType.NETWORK);
+            }
+        return res;
+    }
+
+    @Override
+    public String toString ()
+    {
+        return "OpenStack changes: " + addedElements.size() + " added, " + updatedElements.size() + " updated, " + removedElements.size() + " removed";
+    }
+}
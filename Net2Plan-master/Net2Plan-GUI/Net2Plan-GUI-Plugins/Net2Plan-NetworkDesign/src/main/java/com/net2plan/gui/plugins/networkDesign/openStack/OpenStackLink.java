@@ -45,6 +45,20 @@ public class OpenStackLink extends OpenStackNetworkElement
         return res;
     }
 
+    /* Creates in the given object (a copy of this one's) an element with the same information, backed by the copy of this one's NetPlan link */
+    OpenStackLink copyTo (OpenStackNet target)
+    {
+        final OpenStackLink res = new OpenStackLink(target, npLink == null? null : target.getNetPlan().getLinkFromId(npLink.getId()));
+        res.linkId = linkId;
+        res.originNodeId = originNodeId;
+        res.destinationNodeId = destinationNodeId;
+        res.originPort = originPort;
+        res.destinationPort = destinationPort;
+        res.osn_linkType = osn_linkType;
+        res.osn_linkState = osn_linkState;
+        return res;
+    }
+
     private OpenStackLink (OpenStackNet osn , Link npLink)
     {
         super (osn , npLink , (List<OpenStackNetworkElement>) (List<?>) osn.list_osLinks);
@@ -55,6 +69,8 @@ public class OpenStackLink extends OpenStackNetworkElement
     public String getId () { return this.linkId; }
 
     //public OpenStackNode getOriginNode () { return this; }
+    String getOriginNodeId () { return this.originNodeId; }
+    String getDestinationNodeId () { return this.destinationNodeId; }
     public String getOriginPort () { return this.originPort; }
     // public OpenStackNode getDestinationNode () { return npLink.getDestinationNode(); }
     public String getDestinationPort () { return this.destinationPort; }
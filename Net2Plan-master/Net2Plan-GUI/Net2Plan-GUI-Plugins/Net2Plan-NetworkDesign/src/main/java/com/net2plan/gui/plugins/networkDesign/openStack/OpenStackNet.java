@@ -1,15 +1,20 @@
 package com.net2plan.gui.plugins.networkDesign.openStack;
 
 
-import com.google.common.collect.Lists;
 import com.net2plan.interfaces.networkDesign.Link;
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
 import com.net2plan.interfaces.networkDesign.NetPlan;
 import com.net2plan.interfaces.networkDesign.Node;
+import com.net2plan.interfaces.networkDesign.Resource;
 import java.awt.geom.Point2D;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import org.openstack4j.model.network.ExternalGateway;
 import org.openstack4j.model.network.HostRoute;
@@ -37,6 +42,20 @@ public class OpenStackNet
     final List<OpenStackNetwork> list_osNetworks = new ArrayList<> ();
     final List<OpenStackSubnet> list_osSubnets = new ArrayList<> ();
 
+    /* Lookup indexes, maintained by the addOpenStack* methods and removeOpenStackNetworkElement */
+    final Map<Long,OpenStackNetworkElement> cache_internalId2Element = new HashMap<> ();
+    final Map<String,OpenStackNetworkElement> cache_openStackId2Element = new HashMap<> ();
+    final Map<String,List<OpenStackSubnet>> cache_networkId2Subnets = new HashMap<> ();
+    final Map<String,List<OpenStackNetwork>> cache_tenantId2Networks = new HashMap<> ();
+
+    private Map<String,Double> lastImportTimePerResourceTypeInMs = new LinkedHashMap<> ();
+
+    /* Internal ids of the elements not backed by a NetPlan element: negative, so they never collide with the NetPlan ids */
+    private long nextInternalIdWithoutNetPlanElement = -1;
+
+    /* The authenticated connection this object was imported from, reused by the resynchronizations. Null if not imported from a server */
+    private TopologyCreator serverConnection = null;
+
     final  NetPlan getNetPlan () { return np; }
 
     public OpenStackNet ()
@@ -46,26 +65,51 @@ public class OpenStackNet
 
     public static OpenStackNet buildFrqNetFromN2pFile(File n2pFile)
     {
-        return new OpenStackNet (new NetPlan (n2pFile));
+        final OpenStackNet res = new OpenStackNet (new NetPlan (n2pFile));
+        for (Node npNode : res.np.getNodes())
+            res.updateCachesAfterAddition(OpenStackNode.createFromNetPlan(res, npNode));
+        for (Link npLink : res.np.getLinks())
+            res.updateCachesAfterAddition(OpenStackLink.createFromNetPlan(res, npLink));
+        return res;
     }
 
     private OpenStackNet (NetPlan np)
     {
         this.np = np;
+    }
 
-        for (Node npNode : np.getNodes())
-            OpenStackNode.createFromNetPlan(this, npNode);
-        for (Link npLink : np.getLinks())
-            OpenStackLink.createFromNetPlan(this, npLink);
+    /** Returns a deep copy of this object: the NetPlan is copied, and the OpenStack elements are recreated on the copy in the
+     * same order and with the same information. The copy keeps the server connection, so it can be resynchronized
+     * @return see above
+     */
+    public OpenStackNet copy ()
+    {
+        final OpenStackNet res = new OpenStackNet (np.copy());
+        for (OpenStackNode e : list_osNodes) res.addCopy(e.copyTo(res), e);
+        for (OpenStackLink e : list_osLinks) res.addCopy(e.copyTo(res), e);
+        for (OpenStackUser e : list_osUsers) res.addCopy(e.copyTo(res), e);
+        for (OpenStackNetwork e : list_osNetworks) res.addCopy(e.copyTo(res), e);
+        for (OpenStackSubnet e : list_osSubnets) res.addCopy(e.copyTo(res), e);
+        res.nextInternalIdWithoutNetPlanElement = nextInternalIdWithoutNetPlanElement;
+        res.lastImportTimePerResourceTypeInMs = new LinkedHashMap<> (lastImportTimePerResourceTypeInMs);
+        res.serverConnection = serverConnection;
+        return res;
+    }
 
+    /* The copy keeps the internal id of the original, so the ids of the elements are the same in both objects */
+    private void addCopy (OpenStackNetworkElement copy , OpenStackNetworkElement original)
+    {
+        copy.internalId = original.internalId;
+        updateCachesAfterAddition(copy);
     }
 
+    long getNewInternalIdWithoutNetPlanElement () { return nextInternalIdWithoutNetPlanElement --; }
+
     public static OpenStackNet buildOpenStackNetFromServer(String serverIp, String serverPort, String userName, String password)
     {
         try
         {
-            final OpenStackNet res = new TopologyCreator(serverIp, serverPort, userName, password).getOpenStackNet();
-            return res;
+            return buildOpenStackNetFromServer(new TopologyCreator(serverIp, serverPort, userName, password));
         } catch (Exception e)
         {
             e.printStackTrace();
@@ -73,42 +117,68 @@ public class OpenStackNet
         }
     }
 
+    /* Imports the contents of the server, keeping the connection for the resynchronizations */
+    static OpenStackNet buildOpenStackNetFromServer(TopologyCreator serverConnection)
+    {
+        final OpenStackNet res = serverConnection.getOpenStackNet();
+        res.serverConnection = serverConnection;
+        return res;
+    }
+
+
+    /** Updates this object with the current contents of the OpenStack server it was imported from. Only the elements that changed
+     * are touched: elements are matched by OpenStack id, those not existing in this object are added, those whose information
+     * differs are updated, and those no longer in the server are removed
+     * @return the changes made
+     */
+    public OpenStackChangeSet resyncFromServer ()
+    {
+        if (serverConnection == null) throw new Net2PlanException ("This OpenStack network was not imported from a server");
+        return serverConnection.syncOpenStackNet(this);
+    }
 
     public OpenStackLink addOpenStackLink (OpenStackNode originNode, OpenStackNode destinationNode, String originPort, String destinationPort, Optional<String> linkType, Optional<String> linkState)
     {
         final OpenStackLink res = OpenStackLink.createFromAddLink(originNode, destinationNode, originPort, destinationPort, linkType, linkState);
-        list_osLinks.add(res);
+        updateCachesAfterAddition(res);
         return res;
     }
     public OpenStackUser addOpenStackUser (String userId, String userName, String userDomainId, String userEmail, String userDescription)
     {
         final OpenStackUser res = OpenStackUser.createFromAddUser(this , userId, userName, userDomainId, userEmail, userDescription);
-        list_osUsers.add(res);
+        updateCachesAfterAddition(res);
         return res;
     }
 
     public OpenStackNetwork addOpenStackNetwork(String networkId,String networkName,State networkStatus,NetworkType networkType,List<? extends Subnet> networkNeutronSubnets,String networkProviderPhyNet,String networkProviderSegID,List <String> networkSubnets,String networkTenantId,boolean networkIsAdminStateUp,boolean networkIsRouterExternal, boolean networkIsShared)
     {
         final OpenStackNetwork res = OpenStackNetwork.createFromAddNetwork(this , networkId, networkName, networkStatus, networkType, networkNeutronSubnets,networkProviderPhyNet,networkProviderSegID,networkSubnets,networkTenantId,networkIsAdminStateUp,networkIsRouterExternal,networkIsShared);
-        list_osNetworks.add(res);
+        updateCachesAfterAddition(res);
         return res;
     }
 
     public OpenStackSubnet addOpenStackSubnet (String subnetId,String subnetName,List<? extends Pool> subnetAllocationPools,String subnetCidr,List<String> subnetDnsNames,String subnetGateway,List<? extends HostRoute> subnetHostRoutes,IPVersionType subnetIpVersion,Ipv6AddressMode subnetIpv6AddressMode,Ipv6RaMode subnetIpv6RaMode,String subnetNetworkId,String subnetTenantId,boolean subnetIsDHCPEnabled)
     {
         final OpenStackSubnet res = OpenStackSubnet.createFromAddSubnet(this,subnetId, subnetName, subnetAllocationPools, subnetCidr, subnetDnsNames, subnetGateway,subnetHostRoutes,subnetIpVersion,subnetIpv6AddressMode,subnetIpv6RaMode,subnetNetworkId,subnetTenantId,subnetIsDHCPEnabled);
-        list_osSubnets.add(res);
+        updateCachesAfterAddition(res);
         return res;
     }
 
     public OpenStackNode addOpenStackNode(String nodeId,String nodeName,String nodeTenantId, State nodeStatus,boolean nodeIsAdminStateUp,boolean nodeDistributed,List<? extends HostRoute> nodeRoutes, ExternalGateway nodeExternalGatewayInfo)
     {
         final OpenStackNode res = OpenStackNode.createFromAddNode(this,nodeId, nodeName,nodeTenantId, nodeStatus, nodeIsAdminStateUp, nodeDistributed, nodeRoutes,nodeExternalGatewayInfo);
-        list_osNodes.add(res);
+        updateCachesAfterAddition(res);
         return res;
     }
 
 
+    /** Returns the time in ms spent retrieving and building each resource type (users, networks, subnets, routers) in the
+     * import from the server that created this object. The map is empty if the object was not imported from a server
+     * @return see above
+     */
+    public Map<String,Double> getLastImportTimePerResourceTypeInMs () { return Collections.unmodifiableMap(lastImportTimePerResourceTypeInMs); }
+    void setLastImportTimePerResourceTypeInMs (Map<String,Double> times) { this.lastImportTimePerResourceTypeInMs = new LinkedHashMap<> (times); }
+
     public String getTopologyName () { return np.getNetPlan().getNetworkName(); }
     public String getTopologyDescription () { return np.getNetPlan().getNetworkDescription(); }
     public void setTopologyName (String name) { this.np.getNetPlan().setNetworkName(name); }
@@ -126,31 +196,126 @@ public class OpenStackNet
 
     public OpenStackNetworkElement getOpenStackNetworkElementByInternalId (long internalId)
     {
-        final List<OpenStackNetworkElement> allOpenStackNetworkElements = Lists.newArrayList();
-        allOpenStackNetworkElements.addAll(list_osNodes);
-        allOpenStackNetworkElements.addAll(list_osLinks);
-        allOpenStackNetworkElements.addAll(list_osUsers);
-        allOpenStackNetworkElements.addAll(list_osNetworks);
-        allOpenStackNetworkElements.addAll(list_osSubnets);
-
-        Optional<OpenStackNetworkElement> element = allOpenStackNetworkElements.stream().filter(n->n.getInternalId() == internalId).findFirst();
-        if (element.isPresent()) return element.get();
-        else return null;
+        return cache_internalId2Element.get(internalId);
     }
 
 
     public OpenStackNetworkElement getOpenStackNetworkElementByOpenStackId (String openStackId)
     {
-        final List<OpenStackNetworkElement> allOpenStackNetworkElements = Lists.newArrayList();
-        allOpenStackNetworkElements.addAll(list_osNodes);
-        allOpenStackNetworkElements.addAll(list_osLinks);
-        allOpenStackNetworkElements.addAll(list_osUsers);
-        allOpenStackNetworkElements.addAll(list_osNetworks);
-        allOpenStackNetworkElements.addAll(list_osSubnets);
+        return cache_openStackId2Element.get(openStackId);
+    }
+
+    /** Returns the subnets attached to the network with the given OpenStack id, in the order they were added
+     * @param networkId the OpenStack id of the network
+     * @return see above (an empty list if none)
+     */
+    public List<OpenStackSubnet> getOpenStackSubnetsOfNetwork (String networkId)
+    {
+        final List<OpenStackSubnet> res = cache_networkId2Subnets.get(networkId);
+        return res == null? Collections.emptyList() : Collections.unmodifiableList(res);
+    }
 
-        Optional<OpenStackNetworkElement> element = allOpenStackNetworkElements.stream().filter(n->n.getId() == openStackId).findFirst();
-        if (element.isPresent()) return element.get();
-        else return null;
+    /** Returns the networks owned by the tenant with the given id, in the order they were added
+     * @param tenantId the tenant id
+     * @return see above (an empty list if none)
+     */
+    public List<OpenStackNetwork> getOpenStackNetworksOfTenant (String tenantId)
+    {
+        final List<OpenStackNetwork> res = cache_tenantId2Networks.get(tenantId);
+        return res == null? Collections.emptyList() : Collections.unmodifiableList(res);
+    }
+
+    /** Removes the element from this object and, if it is backed by one, the associated element in the NetPlan.
+     * The OpenStack indexes of the remaining elements of the same type are updated. Removing a node also removes the links
+     * starting or ending in it
+     * @param e the element to remove
+     * @return the elements removed: the links of a removed node first, and then the element itself
+     */
+    public List<OpenStackNetworkElement> removeOpenStackNetworkElement (OpenStackNetworkElement e)
+    {
+        if (e.getOpenStackNet() != this) throw new Net2PlanException ("The element does not belong to this OpenStack network");
+        final List<OpenStackNetworkElement> res = new ArrayList<> ();
+        if (e instanceof OpenStackNode)
+        {
+            final String nodeId = e.getId();
+            for (OpenStackLink link : new ArrayList<> (list_osLinks))
+                if (nodeId.equals(link.getOriginNodeId()) || nodeId.equals(link.getDestinationNodeId()))
+                    res.addAll(removeOpenStackNetworkElement(link));
+        }
+        final List<? extends OpenStackNetworkElement> list = e.indexedList;
+        final int index = e.getOpenStackIndex();
+        if (index >= list.size() || list.get(index) != e) throw new Net2PlanException ("The element was already removed");
+        list.remove(index);
+        for (int cont = index ; cont < list.size() ; cont ++) list.get(cont).osnIndex = cont;
+        updateCachesAfterRemoval(e);
+        if (e.npNe instanceof Link) ((Link) e.npNe).remove();
+        else if (e.npNe instanceof Node) ((Node) e.npNe).remove();
+        else if (e.npNe instanceof Resource) ((Resource) e.npNe).remove();
+        res.add(e);
+        return res;
+    }
+
+    boolean updateOpenStackUser (OpenStackUser user, String userName, String userDomainId, String userEmail, String userDescription)
+    {
+        return user.updateFromServer(userName, userDomainId, userEmail, userDescription);
+    }
+
+    boolean updateOpenStackNetwork (OpenStackNetwork network, String networkName,String networkProviderPhyNet,String networkProviderSegID,String networkTenantId)
+    {
+        final boolean tenantChanged = !Objects.equals(network.getNetworkTenantId(), networkTenantId);
+        if (tenantChanged) updateCachesAfterRemoval(network);
+        final boolean changed = network.updateFromServer(networkName, networkProviderPhyNet, networkProviderSegID, networkTenantId);
+        if (tenantChanged) updateCachesAfterAddition(network);
+        return changed;
+    }
+
+    boolean updateOpenStackSubnet (OpenStackSubnet subnet, String subnetName,String subnetCidr,String subnetGateway,String subnetNetworkId)
+    {
+        final boolean networkChanged = !Objects.equals(subnet.getSubnetNetworkId(), subnetNetworkId);
+        if (networkChanged) updateCachesAfterRemoval(subnet);
+        final boolean changed = subnet.updateFromServer(subnetName, subnetCidr, subnetGateway, subnetNetworkId);
+        if (networkChanged) updateCachesAfterAddition(subnet);
+        return changed;
+    }
+
+    boolean updateOpenStackNode (OpenStackNode node, String nodeName,String nodeTenantId,State nodeStatus,boolean nodeIsAdminStateUp)
+    {
+        return node.updateFromServer(nodeName, nodeTenantId, nodeStatus, nodeIsAdminStateUp);
+    }
+
+    private void updateCachesAfterAddition (OpenStackNetworkElement e)
+    {
+        cache_internalId2Element.put(e.getInternalId(), e);
+        if (e.getId() != null && !e.getId().isEmpty()) cache_openStackId2Element.put(e.getId(), e);
+        if (e instanceof OpenStackSubnet)
+        {
+            final OpenStackSubnet subnet = (OpenStackSubnet) e;
+            cache_networkId2Subnets.computeIfAbsent(subnet.getSubnetNetworkId(), k -> new ArrayList<> ()).add(subnet);
+        }
+        else if (e instanceof OpenStackNetwork)
+        {
+            final OpenStackNetwork network = (OpenStackNetwork) e;
+            cache_tenantId2Networks.computeIfAbsent(network.getNetworkTenantId(), k -> new ArrayList<> ()).add(network);
+        }
+    }
+
+    /* The elements are removed from the lists by identity */
+    private void updateCachesAfterRemoval (OpenStackNetworkElement e)
+    {
+        cache_internalId2Element.remove(e.getInternalId(), e);
+        if (e.getId() != null && !e.getId().isEmpty()) cache_openStackId2Element.remove(e.getId(), e);
+        if (e instanceof OpenStackSubnet)
+        {
+            final OpenStackSubnet subnet = (OpenStackSubnet) e;
+            final List<OpenStackSubnet> subnets = cache_networkId2Subnets.get(subnet.getSubnetNetworkId());
+            if (subnets != null) { subnets.removeIf(x -> x == subnet); if (subnets.isEmpty()) cache_networkId2Subnets.remove(subnet.getSubnetNetworkId()); }
+        }
+        else if (e instanceof OpenStackNetwork)
+        {
+            final OpenStackNetwork network = (OpenStackNetwork) e;
+            final List<OpenStackNetwork> networks = cache_tenantId2Networks.get(network.getNetworkTenantId());
+            if (networks != null) { networks.removeIf(x -> x == network); if (networks.isEmpty()) cache_tenantId2Networks.remove(network.getNetworkTenantId()); }
+        }
     }
 
     public void distributeTopologyOverCircle()
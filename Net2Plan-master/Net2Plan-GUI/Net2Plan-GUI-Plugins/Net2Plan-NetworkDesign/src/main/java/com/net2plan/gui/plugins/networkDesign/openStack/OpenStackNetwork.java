@@ -2,6 +2,7 @@ package com.net2plan.gui.plugins.networkDesign.openStack;
 
 import com.net2plan.interfaces.networkDesign.Resource;
 import java.util.List;
+import java.util.Objects;
 import org.openstack4j.model.network.NetworkType;
 import org.openstack4j.model.network.State;
 import org.openstack4j.model.network.Subnet;
@@ -35,6 +36,28 @@ public class OpenStackNetwork extends OpenStackNetworkElement
         return res;
     }
 
+    boolean updateFromServer (String networkName,String networkProviderPhyNet,String networkProviderSegID,String networkTenantId)
+    {
+        if (Objects.equals(this.networkName, networkName) && Objects.equals(this.networkProviderPhyNet, networkProviderPhyNet) && Objects.equals(this.networkProviderSegID, networkProviderSegID) && Objects.equals(this.networkTenantId, networkTenantId)) return false;
+        this.networkName=networkName;
+        this.networkProviderPhyNet=networkProviderPhyNet;
+        this.networkProviderSegID=networkProviderSegID;
+        this.networkTenantId=networkTenantId;
+        return true;
+    }
+
+    /* Creates in the given object (a copy of this one's) an element with the same information */
+    OpenStackNetwork copyTo (OpenStackNet target)
+    {
+        final OpenStackNetwork res = new OpenStackNetwork(target, npNe == null? null : target.getNetPlan().getResourceFromId(npNe.getId()));
+        res.networkId = networkId;
+        res.networkName = networkName;
+        res.networkProviderPhyNet = networkProviderPhyNet;
+        res.networkProviderSegID = networkProviderSegID;
+        res.networkTenantId = networkTenantId;
+        return res;
+    }
+
     public OpenStackNetwork(OpenStackNet osn, Resource npDummyResource)
     {
         super (osn , npDummyResource , (List<OpenStackNetworkElement>) (List<?>) osn.list_osNetworks);
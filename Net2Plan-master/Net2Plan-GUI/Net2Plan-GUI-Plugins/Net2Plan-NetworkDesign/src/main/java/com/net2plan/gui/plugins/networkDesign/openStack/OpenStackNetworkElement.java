@@ -15,12 +15,13 @@ public abstract class OpenStackNetworkElement
     protected final NetworkElement npNe;
     protected final List<? extends OpenStackNetworkElement> indexedList;
     protected Integer osnIndex;
+    /* The id of the NetPlan element, or a negative id given by the OpenStack network for the elements not backed by one */
+    long internalId;
     protected OpenStackNetworkElement (OpenStackNet osn , NetworkElement npNe , List<OpenStackNetworkElement> indexedList)
     {
-        assert npNe != null;
-        assert npNe.getNetPlan() != null;
-        assert npNe.getNetPlan() == osn.getNetPlan();
+        assert npNe == null || npNe.getNetPlan() == osn.getNetPlan();
         this.npNe = npNe;
+        this.internalId = npNe == null? osn.getNewInternalIdWithoutNetPlanElement() : npNe.getId();
         this.osn = osn;
         this.np = osn.getNetPlan();
         this.indexedList = indexedList;
@@ -35,11 +36,11 @@ public abstract class OpenStackNetworkElement
     public final void setDescription (String description) { npNe.getNetPlan().setNetworkDescription(description); } // CHECK USE
 
     /**
-     * <p>Returns the unique identifier</p>
+     * <p>Returns the unique identifier: the one of the NetPlan element backing this element, or a negative number if there is none</p>
      * @return The unique id
      * @since 0.4.0
      */
-    final public long getInternalId () { return npNe.getId(); }
+    final public long getInternalId () { return internalId; }
 
     /**
      * <p>Returns the index</p>
@@ -51,28 +52,12 @@ public abstract class OpenStackNetworkElement
     public final OpenStackNet getOpenStackNet () { return this.osn; }
 
 
+    /* As in the NetPlan elements, two elements are equal only if they are the same object */
     @Override
-    public int hashCode()
-    {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((npNe == null) ? 0 : npNe.hashCode());
-        return result;
-    }
+    public final int hashCode() { return Long.hashCode(internalId); }
 
     @Override
-    public boolean equals(Object obj)
-    {
-        if (this == obj) return true;
-        if (obj == null) return false;
-        if (getClass() != obj.getClass()) return false;
-        OpenStackNetworkElement other = (OpenStackNetworkElement) obj;
-        if (npNe == null)
-        {
-            if (other.npNe != null) return false;
-        } else if (!npNe.equals(other.npNe)) return false;
-        return true;
-    }
+    public final boolean equals(Object obj) { return this == obj; }
 
     public abstract String get50CharactersDescription ();
 
@@ -3,6 +3,7 @@ package com.net2plan.gui.plugins.networkDesign.openStack;
 import com.net2plan.interfaces.networkDesign.Node;
 import java.awt.geom.Point2D;
 import java.util.List;
+import java.util.Objects;
 import org.openstack4j.model.network.ExternalGateway;
 import org.openstack4j.model.network.HostRoute;
 import org.openstack4j.model.network.State;
@@ -18,6 +19,8 @@ public class OpenStackNode extends OpenStackNetworkElement
     private String osn_nodeId = "";
     private String osn_nodeName = "";
     private String osn_nodeTenantId = "";
+    private State osn_nodeStatus = null;
+    private boolean osn_nodeIsAdminStateUp = true;
 
     static OpenStackNode createFromNetPlan (OpenStackNet osn , Node l)
     {
@@ -27,12 +30,38 @@ public class OpenStackNode extends OpenStackNetworkElement
 
     static OpenStackNode createFromAddNode (OpenStackNet osn ,String nodeId,String nodeName,String nodeTenantId, State nodeStatus,boolean nodeIsAdminStateUp,boolean nodeDistributed,List<? extends HostRoute> nodeRoutes, ExternalGateway nodeExternalGatewayInfo)
     {
-        final OpenStackNode res = new OpenStackNode(osn,null);
+        /* Backed by a NetPlan node, which is the one shown in the canvas, and the one the links are attached to */
+        final OpenStackNode res = new OpenStackNode(osn, osn.getNetPlan().addNode(0, 0, nodeName, null));
         res.osn_nodeId = nodeId;
         res.osn_nodeName = nodeName;
         res.osn_nodeTenantId = nodeTenantId;
+        res.osn_nodeStatus = nodeStatus;
+        res.osn_nodeIsAdminStateUp = nodeIsAdminStateUp;
         return res;
     }
+    boolean updateFromServer (String nodeName,String nodeTenantId,State nodeStatus,boolean nodeIsAdminStateUp)
+    {
+        if (Objects.equals(this.osn_nodeName, nodeName) && Objects.equals(this.osn_nodeTenantId, nodeTenantId) && this.osn_nodeStatus == nodeStatus && this.osn_nodeIsAdminStateUp == nodeIsAdminStateUp) return false;
+        this.osn_nodeName = nodeName;
+        if (npNode != null) npNode.setName(nodeName);
+        this.osn_nodeTenantId = nodeTenantId;
+        this.osn_nodeStatus = nodeStatus;
+        this.osn_nodeIsAdminStateUp = nodeIsAdminStateUp;
+        return true;
+    }
+
+    /* Creates in the given object (a copy of this one's) an element with the same information, backed by the copy of this one's NetPlan node */
+    OpenStackNode copyTo (OpenStackNet target)
+    {
+        final OpenStackNode res = new OpenStackNode(target, npNode == null? null : target.getNetPlan().getNodeFromId(npNode.getId()));
+        res.osn_nodeId = osn_nodeId;
+        res.osn_nodeName = osn_nodeName;
+        res.osn_nodeTenantId = osn_nodeTenantId;
+        res.osn_nodeStatus = osn_nodeStatus;
+        res.osn_nodeIsAdminStateUp = osn_nodeIsAdminStateUp;
+        return res;
+    }
+
     public OpenStackNode(OpenStackNet osn, Node npNode)
     {
         super (osn , npNode , (List<OpenStackNetworkElement>) (List<?>) osn.list_osNodes);
@@ -43,6 +72,10 @@ public class OpenStackNode extends OpenStackNetworkElement
 
     @Override
     public String getId () { return osn_nodeId; }
+    public String getName () { return osn_nodeName; }
+    public String getTenantId () { return osn_nodeTenantId; }
+    public State getStatus () { return osn_nodeStatus; }
+    public boolean isAdminStateUp () { return osn_nodeIsAdminStateUp; }
 
     public Point2D getXYPositionMap () { return npNode.getXYPositionMap(); }
     public void setXYPositionMap (Point2D pos) { npNode.setXYPositionMap(pos); }
@@ -3,6 +3,7 @@ package com.net2plan.gui.plugins.networkDesign.openStack;
 
 import com.net2plan.interfaces.networkDesign.Resource;
 import java.util.List;
+import java.util.Objects;
 import org.openstack4j.model.network.HostRoute;
 import org.openstack4j.model.network.IPVersionType;
 import org.openstack4j.model.network.Ipv6AddressMode;
@@ -40,6 +41,28 @@ public class OpenStackSubnet extends OpenStackNetworkElement
         return res;
     }
 
+    boolean updateFromServer (String subnetName,String subnetCidr,String subnetGateway,String subnetNetworkId)
+    {
+        if (Objects.equals(this.subnetName, subnetName) && Objects.equals(this.subnetCidr, subnetCidr) && Objects.equals(this.subnetGateway, subnetGateway) && Objects.equals(this.subnetNetworkId, subnetNetworkId)) return false;
+        this.subnetName =subnetName;
+        this.subnetCidr = subnetCidr;
+        this.subnetGateway = subnetGateway;
+        this.subnetNetworkId =subnetNetworkId;
+        return true;
+    }
+
+    /* Creates in the given object (a copy of this one's) an element with the same information */
+    OpenStackSubnet copyTo (OpenStackNet target)
+    {
+        final OpenStackSubnet res = new OpenStackSubnet(target, npNe == null? null : target.getNetPlan().getResourceFromId(npNe.getId()));
+        res.subnetId = subnetId;
+        res.subnetName = subnetName;
+        res.subnetCidr = subnetCidr;
+        res.subnetGateway = subnetGateway;
+        res.subnetNetworkId = subnetNetworkId;
+        return res;
+    }
+
     public OpenStackSubnet(OpenStackNet onos, Resource npDummyResource)
     {
         super (onos , npDummyResource , (List<OpenStackNetworkElement>) (List<?>) onos.list_osSubnets);
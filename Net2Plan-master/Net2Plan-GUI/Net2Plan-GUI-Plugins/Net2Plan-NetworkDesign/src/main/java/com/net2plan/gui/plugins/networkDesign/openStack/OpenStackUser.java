@@ -2,6 +2,7 @@ package com.net2plan.gui.plugins.networkDesign.openStack;
 
 import com.net2plan.interfaces.networkDesign.Link;
 import java.util.List;
+import java.util.Objects;
 
 /**
  *
@@ -34,6 +35,28 @@ public class OpenStackUser extends OpenStackNetworkElement
         return res;
     }
 
+    boolean updateFromServer (String userName, String userDomainId, String userEmail, String userDescription)
+    {
+        if (Objects.equals(this.userName, userName) && Objects.equals(this.userDomainId, userDomainId) && Objects.equals(this.userEmail, userEmail) && Objects.equals(this.userDescription, userDescription)) return false;
+        this.userName=userName;
+        this.userDomainId=userDomainId;
+        this.userEmail=userEmail;
+        this.userDescription=userDescription;
+        return true;
+    }
+
+    /* Creates in the given object (a copy of this one's) an element with the same information */
+    OpenStackUser copyTo (OpenStackNet target)
+    {
+        final OpenStackUser res = new OpenStackUser(target, npNe == null? null : target.getNetPlan().getLinkFromId(npNe.getId()));
+        res.userId = userId;
+        res.userName = userName;
+        res.userDomainId = userDomainId;
+        res.userEmail = userEmail;
+        res.userDescription = userDescription;
+        return res;
+    }
+
     private OpenStackUser (OpenStackNet osn , Link npLink)
     {
         super (osn , npLink , (List<OpenStackNetworkElement>) (List<?>) osn.list_osUsers);
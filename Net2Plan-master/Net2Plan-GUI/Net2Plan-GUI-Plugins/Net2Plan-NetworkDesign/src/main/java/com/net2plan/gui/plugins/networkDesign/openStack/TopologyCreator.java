@@ -1,13 +1,24 @@
 package com.net2plan.gui.plugins.networkDesign.openStack;
 
 
-import com.net2plan.interfaces.networkDesign.Link;
 import com.net2plan.interfaces.networkDesign.Net2PlanException;
-import com.net2plan.interfaces.networkDesign.Node;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 import org.openstack4j.api.OSClient.OSClientV3;
 import org.openstack4j.model.common.Identifier;
+import org.openstack4j.model.identity.v3.Token;
 import org.openstack4j.model.identity.v3.User;
 import org.openstack4j.model.network.Network;
 import org.openstack4j.model.network.Router;
@@ -20,6 +31,19 @@ import org.openstack4j.openstack.OSFactory;
  */
 class TopologyCreator
 {
+    /* Resource types fetched from the server, in the order they are reported */
+    static final String RESOURCE_USERS = "users";
+    static final String RESOURCE_NETWORKS = "networks";
+    static final String RESOURCE_SUBNETS = "subnets";
+    static final String RESOURCE_ROUTERS = "routers";
+    static final List<String> RESOURCE_TYPES = Collections.unmodifiableList(Arrays.asList(RESOURCE_USERS, RESOURCE_NETWORKS, RESOURCE_SUBNETS, RESOURCE_ROUTERS));
+
+    /* Number of elements requested per page, in the list calls that accept Neutron pagination */
+    static final int PAGE_SIZE = 500;
+
+    /* Maximum number of pages requested per resource type, in case the server never returns a short page */
+    static final int MAX_NUMBER_OF_PAGES = 10000;
+
     private final OSClientV3 os;
 
     TopologyCreator(String openstackIPAddress, String user, String password, String project)
@@ -31,47 +55,211 @@ class TopologyCreator
                 .authenticate();
     }
 
+    /* A block of elements of one resource type, as returned by one list call. The last block of each type has isLast set */
+    private static class ResourceBatch
+    {
+        final String resourceType;
+        final List<?> elements;
+        final boolean isLast;
+        final Throwable error;
+        ResourceBatch (String resourceType , List<?> elements , boolean isLast , Throwable error) { this.resourceType = resourceType; this.elements = elements; this.isLast = isLast; this.error = error; }
+    }
+
+    /* Fetches the pages of one resource type, pushing them to the queue as they arrive */
+    private interface ResourceFetcher
+    {
+        void fetch (OSClientV3 client , BlockingQueue<ResourceBatch> queue) throws InterruptedException;
+    }
 
+    /* Imports the server contents in a new object. The object is not visible until it is returned: each page is applied to it as soon
+     * as it arrives, and if the import fails the object is discarded */
     OpenStackNet getOpenStackNet()
     {
         /* Empty NetPlan */
         final OpenStackNet osn = new OpenStackNet();
 
-        /* Get elements */
-        final List<User> users = (List<User>) os.identity().users().list();
-        final List<Network> networks = (List<Network>) os.networking().network().list();
-        final List<Subnet> subnets = (List<Subnet>) os.networking().subnet().list();
-        final List<Router> routers = (List<Router>) os.networking().router().list();
-        final List<Link> links = new ArrayList<>();
+        final OpenStackChangeSet changes = new OpenStackChangeSet();
+        final Map<String,Double> elapsedTimePerResourceTypeInMs = fetchFromServer(batch -> applyElementsInServer(osn, batch.resourceType, batch.elements, new HashSet<>(), changes));
+        osn.setLastImportTimePerResourceTypeInMs(elapsedTimePerResourceTypeInMs);
+
+        if (osn.getOpenStackNodes().isEmpty()) throw new Net2PlanException("The OpenStack topology is empty");
+
+        osn.distributeTopologyOverCircle();
+
+        return osn;
+    }
+
+    /* Makes the given object reflect the current server contents, touching only what changed. Elements are matched by OpenStack id
+     * and compared field by field: the openstack4j models do not expose the Neutron revision numbers or update times. Unlike in
+     * the first import, every resource type is completely retrieved before touching the object, so a failed or interrupted
+     * resynchronization leaves it as it was */
+    OpenStackChangeSet syncOpenStackNet(OpenStackNet osn)
+    {
+        final Map<String,List<Object>> elementsInServerPerResourceType = new HashMap<>();
+        for (String resourceType : RESOURCE_TYPES) elementsInServerPerResourceType.put(resourceType, new ArrayList<>());
+        final Map<String,Double> elapsedTimePerResourceTypeInMs = fetchFromServer(batch -> elementsInServerPerResourceType.get(batch.resourceType).addAll(batch.elements));
 
+        final OpenStackChangeSet changes = new OpenStackChangeSet();
+        final Map<String,Set<String>> idsInServerPerResourceType = new HashMap<>();
+        for (String resourceType : RESOURCE_TYPES)
+        {
+            idsInServerPerResourceType.put(resourceType, new HashSet<>());
+            applyElementsInServer(osn, resourceType, elementsInServerPerResourceType.get(resourceType), idsInServerPerResourceType.get(resourceType), changes);
+        }
+        osn.setLastImportTimePerResourceTypeInMs(elapsedTimePerResourceTypeInMs);
 
-        /* Create users objects */
-        for (User user : users)
-            osn.addOpenStackUser(user.getId(), user.getName(), user.getDomainId(), user.getEmail(), user.getDescription());
+        removeElementsNotInServer(osn, osn.getOpenStackUsers(), idsInServerPerResourceType.get(RESOURCE_USERS), changes);
+        removeElementsNotInServer(osn, osn.getOpenStackNetworks(), idsInServerPerResourceType.get(RESOURCE_NETWORKS), changes);
+        removeElementsNotInServer(osn, osn.getOpenStackSubnets(), idsInServerPerResourceType.get(RESOURCE_SUBNETS), changes);
+        removeElementsNotInServer(osn, osn.getOpenStackNodes(), idsInServerPerResourceType.get(RESOURCE_ROUTERS), changes);
 
-        /* Create networks objects */
-        for (Network net : networks)
-            osn.addOpenStackNetwork(net.getId(),net.getName(),net.getStatus(),net.getNetworkType(),net.getNeutronSubnets(),net.getProviderPhyNet(),net.getProviderSegID(),net.getSubnets(),net.getTenantId(),net.isAdminStateUp(),net.isRouterExternal(),net.isShared());
+        return changes;
+    }
 
-        /* Create subnets objects */
-        for (Subnet subnet : subnets)
-            osn.addOpenStackSubnet(subnet.getId(),subnet.getName(),subnet.getAllocationPools(),subnet.getCidr(),subnet.getDnsNames(),subnet.getGateway(),subnet.getHostRoutes(),subnet.getIpVersion(),subnet.getIpv6AddressMode(),subnet.getIpv6RaMode(),subnet.getNetworkId(),subnet.getTenantId(),subnet.isDHCPEnabled());
+    /* Retrieves all the resource types in parallel, and passes each block of elements to the consumer in this thread as it arrives.
+     * Returns the time spent retrieving and building each resource type, in the RESOURCE_TYPES order */
+    private Map<String,Double> fetchFromServer(Consumer<ResourceBatch> consumer)
+    {
+        /* The openstack4j session is bound to the thread that authenticated, each worker rebuilds it from the token */
+        final Token token = os.getToken();
 
-        /*Create links objects
-        for (Link link : links)
-            osn.addOpenStackLink(link.getId(),link.getCapacity(),subnet.getAllocationPools(),subnet.getCidr(),subnet.getDnsNames(),subnet.getGateway(),subnet.getHostRoutes(),subnet.getIpVersion(),subnet.getIpv6AddressMode(),subnet.getIpv6RaMode(),subnet.getNetworkId(),subnet.getTenantId(),subnet.isDHCPEnabled());
-        */
-        /* Create links objects */
-        for (Router router : routers)
+        final Map<String,ResourceFetcher> fetchers = new LinkedHashMap<>();
+        fetchers.put(RESOURCE_USERS, (client,queue) -> queue.put(new ResourceBatch(RESOURCE_USERS, client.identity().users().list(), true, null)));
+        fetchers.put(RESOURCE_NETWORKS, (client,queue) -> fetchNetworksPaginated(client, queue));
+        fetchers.put(RESOURCE_SUBNETS, (client,queue) -> queue.put(new ResourceBatch(RESOURCE_SUBNETS, client.networking().subnet().list(), true, null)));
+        fetchers.put(RESOURCE_ROUTERS, (client,queue) -> queue.put(new ResourceBatch(RESOURCE_ROUTERS, client.networking().router().list(), true, null)));
 
-            osn.addOpenStackNode(router.getId(), router.getName(), router.getTenantId(), router.getStatus(),router.isAdminStateUp(),router.getDistributed(),router.getRoutes(),router.getExternalGatewayInfo());
+        final BlockingQueue<ResourceBatch> queue = new LinkedBlockingQueue<>();
+        final Map<String,Long> startTimePerResourceType = new LinkedHashMap<>();
+        final Map<String,Double> elapsedTimePerResourceTypeInMs = new HashMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(fetchers.size());
+        try
+        {
+            /* Issue all the list calls in parallel */
+            for (Map.Entry<String,ResourceFetcher> entry : fetchers.entrySet())
+            {
+                final String resourceType = entry.getKey();
+                final ResourceFetcher fetcher = entry.getValue();
+                startTimePerResourceType.put(resourceType, System.nanoTime());
+                executor.submit(() ->
+                {
+                    try
+                    {
+                        fetcher.fetch(OSFactory.clientFromToken(token), queue);
+                    } catch (Throwable e)
+                    {
+                        try { queue.put(new ResourceBatch(resourceType, Collections.emptyList(), true, e)); } catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
+                    }
+                });
+            }
 
-        if (routers.isEmpty()) throw new Net2PlanException("The OpenStack topology is empty");
+            int numResourceTypesPending = fetchers.size();
+            while (numResourceTypesPending > 0)
+            {
+                final ResourceBatch batch = queue.take();
+                if (batch.error != null) throw new Net2PlanException("Error retrieving the OpenStack " + batch.resourceType + ": " + batch.error.getMessage());
+                consumer.accept(batch);
+                if (batch.isLast)
+                {
+                    elapsedTimePerResourceTypeInMs.put(batch.resourceType, (System.nanoTime() - startTimePerResourceType.get(batch.resourceType)) * 1e-6);
+                    numResourceTypesPending --;
+                }
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new Net2PlanException("The OpenStack import was interrupted");
+        } finally
+        {
+            executor.shutdownNow();
+        }
 
+        /* Keep the same reporting order regardless of the arrival order */
+        final Map<String,Double> orderedTimes = new LinkedHashMap<>();
+        for (String resourceType : RESOURCE_TYPES) orderedTimes.put(resourceType, elapsedTimePerResourceTypeInMs.get(resourceType));
+        return orderedTimes;
+    }
 
-        osn.distributeTopologyOverCircle();
+    /* Adds the elements of the given type not in the object, and updates those that are. The OpenStack ids of the elements are added
+     * to idsInServer. Must be called in the thread that owns the object: OpenStackNet is not thread safe */
+    private static void applyElementsInServer (OpenStackNet osn , String resourceType , List<?> elementsInServer , Set<String> idsInServer , OpenStackChangeSet changes)
+    {
+        for (Object o : elementsInServer)
+        {
+            if (resourceType.equals(RESOURCE_USERS))
+            {
+                final User user = (User) o;
+                idsInServer.add(user.getId());
+                final OpenStackNetworkElement existing = osn.getOpenStackNetworkElementByOpenStackId(user.getId());
+                if (existing instanceof OpenStackUser)
+                {
+                    if (osn.updateOpenStackUser((OpenStackUser) existing, user.getName(), user.getDomainId(), user.getEmail(), user.getDescription())) changes.addUpdatedElement(existing);
+                }
+                else changes.addAddedElement(osn.addOpenStackUser(user.getId(), user.getName(), user.getDomainId(), user.getEmail(), user.getDescription()));
+            }
+            else if (resourceType.equals(RESOURCE_NETWORKS))
+            {
+                final Network net = (Network) o;
+                idsInServer.add(net.getId());
+                final OpenStackNetworkElement existing = osn.getOpenStackNetworkElementByOpenStackId(net.getId());
+                if (existing instanceof OpenStackNetwork)
+                {
+                    if (osn.updateOpenStackNetwork((OpenStackNetwork) existing, net.getName(), net.getProviderPhyNet(), net.getProviderSegID(), net.getTenantId())) changes.addUpdatedElement(existing);
+                }
+                else changes.addAddedElement(osn.addOpenStackNetwork(net.getId(),net.getName(),net.getStatus(),net.getNetworkType(),net.getNeutronSubnets(),net.getProviderPhyNet(),net.getProviderSegID(),net.getSubnets(),net.getTenantId(),net.isAdminStateUp(),net.isRouterExternal(),net.isShared()));
+            }
+            else if (resourceType.equals(RESOURCE_SUBNETS))
+            {
+                final Subnet subnet = (Subnet) o;
+                idsInServer.add(subnet.getId());
+                final OpenStackNetworkElement existing = osn.getOpenStackNetworkElementByOpenStackId(subnet.getId());
+                if (existing instanceof OpenStackSubnet)
+                {
+                    if (osn.updateOpenStackSubnet((OpenStackSubnet) existing, subnet.getName(), subnet.getCidr(), subnet.getGateway(), subnet.getNetworkId())) changes.addUpdatedElement(existing);
+                }
+                else changes.addAddedElement(osn.addOpenStackSubnet(subnet.getId(),subnet.getName(),subnet.getAllocationPools(),subnet.getCidr(),subnet.getDnsNames(),subnet.getGateway(),subnet.getHostRoutes(),subnet.getIpVersion(),subnet.getIpv6AddressMode(),subnet.getIpv6RaMode(),subnet.getNetworkId(),subnet.getTenantId(),subnet.isDHCPEnabled()));
+            }
+            else if (resourceType.equals(RESOURCE_ROUTERS))
+            {
+                final Router router = (Router) o;
+                idsInServer.add(router.getId());
+                final OpenStackNetworkElement existing = osn.getOpenStackNetworkElementByOpenStackId(router.getId());
+                if (existing instanceof OpenStackNode)
+                {
+                    if (osn.updateOpenStackNode((OpenStackNode) existing, router.getName(), router.getTenantId(), router.getStatus(), router.isAdminStateUp())) changes.addUpdatedElement(existing);
+                }
+                else changes.addAddedElement(osn.addOpenStackNode(router.getId(), router.getName(), router.getTenantId(), router.getStatus(),router.isAdminStateUp(),router.getDistributed(),router.getRoutes(),router.getExternalGatewayInfo()));
+            }
+        }
+    }
 
-        return osn;
+    private static void removeElementsNotInServer (OpenStackNet osn , List<? extends OpenStackNetworkElement> elements , Set<String> idsInServer , OpenStackChangeSet changes)
+    {
+        for (OpenStackNetworkElement e : new ArrayList<> (elements))
+            if (!idsInServer.contains(e.getId()))
+                changes.addRemovedElements(osn.removeOpenStackNetworkElement(e));
     }
-}
 
+    /* Neutron networks are requested in pages of PAGE_SIZE elements (limit/marker), each page is pushed as soon as it arrives.
+     * The listing ends with a short page, or when the server ignores the marker (the marker repeats, or a page brings no new ids) */
+    private static void fetchNetworksPaginated (OSClientV3 client , BlockingQueue<ResourceBatch> queue) throws InterruptedException
+    {
+        final Set<String> idsReceived = new HashSet<>();
+        String marker = null;
+        for (int numPage = 0; numPage < MAX_NUMBER_OF_PAGES; numPage ++)
+        {
+            final Map<String,String> params = new LinkedHashMap<>();
+            params.put("limit", "" + PAGE_SIZE);
+            if (marker != null) params.put("marker", marker);
+            final List<? extends Network> page = client.networking().network().list(params);
+            final List<Network> newNetworks = new ArrayList<>();
+            for (Network net : page) if (idsReceived.add(net.getId())) newNetworks.add(net);
+            final String nextMarker = page.isEmpty()? null : page.get(page.size() - 1).getId();
+            /* A short page ends the listing. A longer one means the server ignored the limit and returned everything */
+            final boolean isLast = page.size() != PAGE_SIZE || newNetworks.isEmpty() || nextMarker == null || nextMarker.equals(marker) || numPage == MAX_NUMBER_OF_PAGES - 1;
+            queue.put(new ResourceBatch(RESOURCE_NETWORKS, newNetworks, isLast, null));
+            if (isLast) return;
+            marker = nextMarker;
+        }
+    }
+}
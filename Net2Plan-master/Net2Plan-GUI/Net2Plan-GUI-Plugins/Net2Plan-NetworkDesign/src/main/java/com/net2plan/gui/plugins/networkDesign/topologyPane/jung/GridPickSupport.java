@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.gui.plugins.networkDesign.topologyPane.jung;
+
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
+import edu.uci.ics.jung.graph.util.Pair;
+import edu.uci.ics.jung.visualization.Layer;
+import edu.uci.ics.jung.visualization.VisualizationServer;
+import edu.uci.ics.jung.visualization.picking.ShapePickSupport;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.*;
+
+/**
+ * <p>Picking support for the topology canvas, which keeps the vertices and edges in a uniform grid in layout coordinates,
+ * so that picking the vertex or edge at a point only checks the shapes of the elements close to it, instead of all the
+ * elements in the graph.</p>
+ * <p>The index is rebuilt when first needed after calling {@link #invalidate()}, which must be called when vertices
+ * or edges are added or removed, or the vertices are moved. If the area to look at covers too many cells (e.g. in
+ * an extreme zoom out), the picking falls back to check all the elements.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+class GridPickSupport extends ShapePickSupport<GUINode, GUILink>
+{
+    private static final int MAX_CELLS_PER_EDGE = 256;
+
+    private final double curvedEdgesOffsetPerParallelEdgeInPixels;
+
+    private boolean isValid;
+    private double cellSize;
+    private double vertexMarginInPixels;
+    private double edgeMarginInPixels;
+    private int numVertices;
+    private final Map<Long, List<GUINode>> cellVertices;
+    private final Map<Long, List<GUILink>> cellEdges;
+    private final List<GUILink> edgesCoveringManyCells;
+
+    /* The candidates of the pick in course, null if all the elements should be checked */
+    private Collection<GUINode> currentVertexCandidates;
+    private Collection<GUILink> currentEdgeCandidates;
+
+    /**
+     * Constructor.
+     *
+     * @param vv the visualization server
+     * @param curvedEdgesOffsetPerParallelEdgeInPixels how much the parallel edges shown curved separate from the straight line, per edge
+     */
+    GridPickSupport(VisualizationServer<GUINode, GUILink> vv, double curvedEdgesOffsetPerParallelEdgeInPixels)
+    {
+        super(vv);
+        this.curvedEdgesOffsetPerParallelEdgeInPixels = curvedEdgesOffsetPerParallelEdgeInPixels;
+        this.cellVertices = new HashMap<>();
+        this.cellEdges = new HashMap<>();
+        this.edgesCoveringManyCells = new ArrayList<>();
+        this.isValid = false;
+    }
+
+    /**
+     * Marks the index as outdated, so that it is rebuilt in the next pick.
+     */
+    void invalidate()
+    {
+        this.isValid = false;
+    }
+
+    @Override
+    public GUINode getVertex(Layout<GUINode, GUILink> layout, double x, double y)
+    {
+        try
+        {
+            currentVertexCandidates = getCandidates(layout, x, y, true);
+            return super.getVertex(layout, x, y);
+        } finally
+        {
+            currentVertexCandidates = null;
+        }
+    }
+
+    @Override
+    public GUILink getEdge(Layout<GUINode, GUILink> layout, double x, double y)
+    {
+        try
+        {
+            currentEdgeCandidates = getCandidates(layout, x, y, false);
+            return super.getEdge(layout, x, y);
+        } finally
+        {
+            currentEdgeCandidates = null;
+        }
+    }
+
+    @Override
+    protected Collection<GUINode> getFilteredVertices(Layout<GUINode, GUILink> layout)
+    {
+        if (currentVertexCandidates == null) return super.getFilteredVertices(layout);
+        final Graph<GUINode, GUILink> g = layout.getGraph();
+        final List<GUINode> res = new ArrayList<>(currentVertexCandidates.size());
+        for (GUINode v : currentVertexCandidates)
+            if (isVertexRendered(Context.<Graph<GUINode, GUILink>, GUINode>getInstance(g, v))) res.add(v);
+        return res;
+    }
+
+    @Override
+    protected Collection<GUILink> getFilteredEdges(Layout<GUINode, GUILink> layout)
+    {
+        if (currentEdgeCandidates == null) return super.getFilteredEdges(layout);
+        final Graph<GUINode, GUILink> g = layout.getGraph();
+        final List<GUILink> res = new ArrayList<>(currentEdgeCandidates.size());
+        for (GUILink e : currentEdgeCandidates)
+            if (isEdgeRendered(Context.<Graph<GUINode, GUILink>, GUILink>getInstance(g, e))) res.add(e);
+        return res;
+    }
+
+    /* Returns the vertices (or edges) in the cells close to the given point in screen coordinates, or null if all
+     * should be checked */
+    @SuppressWarnings("unchecked")
+    private <T> Collection<T> getCandidates(Layout<GUINode, GUILink> layout, double x, double y, boolean vertices)
+    {
+        if (!isValid) rebuildIndex(layout);
+        final double layoutScale = vv.getRenderContext().getMultiLayerTransformer().getTransformer(Layer.LAYOUT).getScale();
+        if (!(layoutScale > 0) || Double.isInfinite(layoutScale)) return null;
+        final Point2D viewPoint = vv.getRenderContext().getMultiLayerTransformer().inverseTransform(Layer.VIEW, new Point2D.Double(x, y));
+        final Point2D layoutPoint = vv.getRenderContext().getMultiLayerTransformer().inverseTransform(Layer.LAYOUT, viewPoint);
+        final double marginInLayoutCoordinates = (vertices ? vertexMarginInPixels : edgeMarginInPixels) / layoutScale;
+        final long minX = cellIndex(layoutPoint.getX() - marginInLayoutCoordinates);
+        final long maxX = cellIndex(layoutPoint.getX() + marginInLayoutCoordinates);
+        final long minY = cellIndex(layoutPoint.getY() - marginInLayoutCoordinates);
+        final long maxY = cellIndex(layoutPoint.getY() + marginInLayoutCoordinates);
+        if ((maxX - minX + 1) * (maxY - minY + 1) > Math.max(numVertices, 1)) return null;
+
+        final Collection<Object> res = vertices ? new ArrayList<>() : new LinkedHashSet<>();
+        if (!vertices) res.addAll(edgesCoveringManyCells);
+        for (long cellX = minX; cellX <= maxX; cellX++)
+            for (long cellY = minY; cellY <= maxY; cellY++)
+            {
+                final List<?> inCell = (vertices ? cellVertices : cellEdges).get(cellKey(cellX, cellY));
+                if (inCell != null) res.addAll(inCell);
+            }
+        return (Collection<T>) res;
+    }
+
+    private void rebuildIndex(Layout<GUINode, GUILink> layout)
+    {
+        cellVertices.clear();
+        cellEdges.clear();
+        edgesCoveringManyCells.clear();
+
+        final Graph<GUINode, GUILink> g = layout.getGraph();
+        final Map<GUINode, Point2D> positions = new HashMap<>();
+        final Rectangle2D bounds = new Rectangle2D.Double();
+        vertexMarginInPixels = 0;
+        for (GUINode v : g.getVertices())
+        {
+            final Point2D p = layout.transform(v);
+            if (p == null) continue;
+            if (positions.isEmpty()) bounds.setRect(p.getX(), p.getY(), 0, 0);
+            else bounds.add(p);
+            positions.put(v, p);
+            final Rectangle2D shapeBounds = vv.getRenderContext().getVertexShapeTransformer().transform(v).getBounds2D();
+            vertexMarginInPixels = Math.max(vertexMarginInPixels, Math.max(Math.max(-shapeBounds.getMinX(), shapeBounds.getMaxX()), Math.max(-shapeBounds.getMinY(), shapeBounds.getMaxY())));
+        }
+        numVertices = positions.size();
+        cellSize = Math.max(bounds.getWidth(), bounds.getHeight()) / Math.ceil(Math.sqrt(Math.max(numVertices, 1)));
+        if (!(cellSize > 0)) cellSize = 1;
+
+        for (Map.Entry<GUINode, Point2D> entry : positions.entrySet())
+            cellVertices.computeIfAbsent(cellKey(cellIndex(entry.getValue().getX()), cellIndex(entry.getValue().getY())), k -> new ArrayList<>()).add(entry.getKey());
+
+        final Map<Pair<GUINode>, Integer> numParallelEdges = new HashMap<>();
+        int maxNumParallelEdges = 0;
+        for (GUILink e : g.getEdges())
+        {
+            final Pair<GUINode> endpoints = g.getEndpoints(e);
+            final Point2D p1 = positions.get(endpoints.getFirst());
+            final Point2D p2 = positions.get(endpoints.getSecond());
+            if (p1 == null || p2 == null) continue;
+            maxNumParallelEdges = Math.max(maxNumParallelEdges, numParallelEdges.merge(endpoints, 1, Integer::sum));
+            final long minX = cellIndex(Math.min(p1.getX(), p2.getX()));
+            final long maxX = cellIndex(Math.max(p1.getX(), p2.getX()));
+            final long minY = cellIndex(Math.min(p1.getY(), p2.getY()));
+            final long maxY = cellIndex(Math.max(p1.getY(), p2.getY()));
+            if ((maxX - minX + 1) * (maxY - minY + 1) > MAX_CELLS_PER_EDGE) { edgesCoveringManyCells.add(e); continue; }
+            for (long cellX = minX; cellX <= maxX; cellX++)
+                for (long cellY = minY; cellY <= maxY; cellY++)
+                    cellEdges.computeIfAbsent(cellKey(cellX, cellY), k -> new ArrayList<>()).add(e);
+        }
+        /* The edges shown curved can go away from the straight line between the end nodes */
+        edgeMarginInPixels = getPickSize() + curvedEdgesOffsetPerParallelEdgeInPixels * (maxNumParallelEdges + 1);
+        isValid = true;
+    }
+
+    private long cellIndex(double coordinate)
+    {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(long cellX, long cellY)
+    {
+        return (cellX << 32) ^ (cellY & 0xFFFFFFFFL);
+    }
+}
@@ -33,6 +33,7 @@ import edu.uci.ics.jung.graph.util.Context;
 import edu.uci.ics.jung.graph.util.EdgeIndexFunction;
 import edu.uci.ics.jung.visualization.Layer;
 import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.VisualizationServer;
 import edu.uci.ics.jung.visualization.VisualizationViewer;
 import edu.uci.ics.jung.visualization.control.*;
 import edu.uci.ics.jung.visualization.decorators.ConstantDirectionalEdgeValueTransformer;
@@ -56,6 +57,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Topology canvas using JUNG library [<a href='#jung'>JUNG</a>].
@@ -65,6 +67,8 @@ import java.util.List;
 @SuppressWarnings("unchecked")
 public final class JUNGCanvas implements ITopologyCanvas
 {
+    private static final int CURVEDEDGES_CONTROLOFFSETINCREMENT = 10;
+
     private final GUINetworkDesign callback;
 
     private double currentInterLayerDistanceInNpCoordinates;
@@ -76,6 +80,11 @@ public final class JUNGCanvas implements ITopologyCanvas
     private final ScalingControl scalingControl;
     private final Transformer<GUINode, Point2D> transformNetPlanCoordinatesToJungCoordinates;
     private final Transformer<Context<Graph<GUINode, GUILink>, GUILink>, Shape> originalEdgeShapeTransformer;
+    private final GridPickSupport pickSupport;
+    private final AtomicBoolean isRepaintPending;
+    private final LevelOfDetailRenderer levelOfDetailRenderer;
+    private long frameRenderingStartTimeInNs;
+    private long lastFrameRenderingTimeInNs;
 
     private final CanvasStateController stateController;
 
@@ -99,11 +108,13 @@ public final class JUNGCanvas implements ITopologyCanvas
         g = new DirectedOrderedSparseMultigraph<>();
         l = new StaticLayout<>(g, transformNetPlanCoordinatesToJungCoordinates); 
         vv = new VisualizationViewer<>(l);
+        levelOfDetailRenderer = new LevelOfDetailRenderer(vv.getRenderer(), gl -> callback.getVisualizationState().isVisibleInCanvas(gl), this::getCurrentCanvasViewWindow);
+        vv.setRenderer(levelOfDetailRenderer);
 
         stateController = new CanvasStateController(callback, topologyPanel, this);
 
         originalEdgeShapeTransformer = new EdgeShape.QuadCurve<>();
-        ((EdgeShape.QuadCurve<GUINode, GUILink>) originalEdgeShapeTransformer).setControlOffsetIncrement(10); // how much they separate from the direct line (default is 20)
+        ((EdgeShape.QuadCurve<GUINode, GUILink>) originalEdgeShapeTransformer).setControlOffsetIncrement(CURVEDEDGES_CONTROLOFFSETINCREMENT); // how much they separate from the direct line (default is 20)
         //((EdgeShape.QuadCurve<GUINode, GUILink>) originalEdgeShapeTransformer).setEdgeIndexFunction(DefaultParallelEdgeIndexFunction.<GUINode, GUILink>getInstance()); // how much they separate from the direct line (default is 20)
         /* This functions gives an index to the links to show separate (curved): the order among the parallel links (BUT NOW only among the separated ones among them) */
         ((EdgeShape.QuadCurve<GUINode, GUILink>) originalEdgeShapeTransformer).setEdgeIndexFunction(new EdgeIndexFunction<GUINode,GUILink>()
@@ -138,7 +149,7 @@ public final class JUNGCanvas implements ITopologyCanvas
         vv.setVertexToolTipTransformer(node -> node.getToolTip());
 
 
-        vv.getRenderContext().setEdgeIncludePredicate(context -> callback.getVisualizationState().isVisibleInCanvas(context.element));
+        vv.getRenderContext().setEdgeIncludePredicate(context -> callback.getVisualizationState().isVisibleInCanvas(context.element) && levelOfDetailRenderer.isToDraw(context.element));
         vv.getRenderContext().setEdgeArrowPredicate(context -> callback.getVisualizationState().isVisibleInCanvas(context.element) && context.element.getHasArrow());
         vv.getRenderContext().setEdgeArrowStrokeTransformer(i -> i.getStroke());
         vv.getRenderContext().setEdgeArrowTransformer(new ConstantTransformer(ArrowFactory.getNotchedArrow(7, 10, 5)));
@@ -154,12 +165,29 @@ public final class JUNGCanvas implements ITopologyCanvas
         {
             public void labelEdge(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUILink e, String label)
             {
-                if (callback.getVisualizationState().isCanvasShowLinkLabels()) super.labelEdge(rc, layout, e, e.getLabel());
+                if (callback.getVisualizationState().isCanvasShowLinkLabels() && levelOfDetailRenderer.areLabelsShown()) super.labelEdge(rc, layout, e, e.getLabel());
             }
         });
         vv.setEdgeToolTipTransformer(link -> link.getToolTip());
         vv.getRenderContext().setEdgeShapeTransformer(c -> c.element.isShownSeparated() ? originalEdgeShapeTransformer.transform(c) : new Line2D.Float(0.0f, 0.0f, 1.0f, 0.0f));
 
+        /* Picking only checks the vertices and edges close to the point */
+        pickSupport = new GridPickSupport(vv, CURVEDEDGES_CONTROLOFFSETINCREMENT);
+        vv.setPickSupport(pickSupport);
+        isRepaintPending = new AtomicBoolean(false);
+
+        /* Measure the time to paint each frame */
+        vv.addPreRenderPaintable(new VisualizationServer.Paintable()
+        {
+            public void paint(Graphics g) { frameRenderingStartTimeInNs = System.nanoTime(); }
+            public boolean useTransform() { return false; }
+        });
+        vv.addPostRenderPaintable(new VisualizationServer.Paintable()
+        {
+            public void paint(Graphics g) { lastFrameRenderingTimeInNs = System.nanoTime() - frameRenderingStartTimeInNs; }
+            public boolean useTransform() { return false; }
+        });
+
         gm = new PluggableGraphMouse();
         vv.setGraphMouse(gm);
 
@@ -293,10 +321,19 @@ public final class JUNGCanvas implements ITopologyCanvas
         return null;
     }
 
+    /**
+     * Repaints the canvas. The calls made before the repaint is done, e.g. in a burst of changes, produce just one repaint.
+     */
     @Override
     public void refresh()
     {
-        vv.repaint();
+        levelOfDetailRenderer.invalidate();
+        if (!isRepaintPending.compareAndSet(false, true)) return;
+        SwingUtilities.invokeLater(() ->
+        {
+            isRepaintPending.set(false);
+            vv.repaint();
+        });
     }
 
     @Override
@@ -307,21 +344,47 @@ public final class JUNGCanvas implements ITopologyCanvas
         refresh();
     }
 
+    /**
+     * Updates the graph to the GUI nodes and links in the visualization state: the ones not there anymore are removed,
+     * and the new ones are added. The ones kept are not touched.
+     */
     @Override
     public void rebuildGraph()
     {
+        final Set<GUINode> guiNodes = callback.getVisualizationState().getCanvasAllGUINodes();
+        final Set<GUILink> guiLinks = callback.getVisualizationState().getCanvasAllGUILinks(true, true);
         for (GUILink gl : new ArrayList<>(g.getEdges()))
-            g.removeEdge(gl);
+            if (!guiLinks.contains(gl)) g.removeEdge(gl);
         for (GUINode gn : new ArrayList<>(g.getVertices()))
-            g.removeVertex(gn);
-        for (GUINode gn : callback.getVisualizationState().getCanvasAllGUINodes()) g.addVertex(gn);
-        for (GUILink gl : callback.getVisualizationState().getCanvasAllGUILinks(true, true))
-            g.addEdge(gl, gl.getOriginNode(), gl.getDestinationNode());
+            if (!guiNodes.contains(gn)) g.removeVertex(gn);
+        for (GUINode gn : guiNodes)
+            if (!g.containsVertex(gn)) g.addVertex(gn);
+        for (GUILink gl : guiLinks)
+            if (!g.containsEdge(gl)) g.addEdge(gl, gl.getOriginNode(), gl.getDestinationNode());
 
         updateAllVerticesXYPosition();
         refresh();
     }
 
+    @Override
+    public void setLevelOfDetailRendering(boolean isActive)
+    {
+        levelOfDetailRenderer.setEnabled(isActive);
+        refresh();
+    }
+
+    @Override
+    public boolean isLevelOfDetailRendering()
+    {
+        return levelOfDetailRenderer.isEnabled();
+    }
+
+    @Override
+    public double getLastFrameRenderingTimeInMs()
+    {
+        return lastFrameRenderingTimeInNs / 1e6;
+    }
+
     @Override
     public void zoomAll()
     {
@@ -332,12 +395,16 @@ public final class JUNGCanvas implements ITopologyCanvas
     public void updateAllVerticesXYPosition()
     {
         stateController.updateNodesXYPosition();
+        pickSupport.invalidate();
+        levelOfDetailRenderer.invalidate();
     }
 
     @Override
     public void moveVertexToXYPosition(GUINode npNode, Point2D point)
     {
         l.setLocation(npNode, point);
+        pickSupport.invalidate();
+        levelOfDetailRenderer.invalidate();
     }
 
     @Override
@@ -441,7 +508,7 @@ public final class JUNGCanvas implements ITopologyCanvas
         public void labelVertex(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUINode v, String label)
         {
             if (!callback.getVisualizationState().isVisibleInCanvas(v)) return;
-            if (callback.getVisualizationState().isCanvasShowNodeNames() && v.getLayer().isDefaultLayer())
+            if (callback.getVisualizationState().isCanvasShowNodeNames() && levelOfDetailRenderer.areLabelsShown() && v.getLayer().isDefaultLayer())
             {
                 Point2D vertexPositionInPixels = layout.transform(v);
                 vertexPositionInPixels = rc.getMultiLayerTransformer().transform(Layer.LAYOUT, vertexPositionInPixels);
@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Pablo Pavon Marino and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the 2-clause BSD License
+ * which accompanies this distribution, and is available at
+ * https://opensource.org/licenses/BSD-2-Clause
+ *
+ * Contributors:
+ *     Pablo Pavon Marino and others - initial API and implementation
+ *******************************************************************************/
+
+
+package com.net2plan.gui.plugins.networkDesign.topologyPane.jung;
+
+import edu.uci.ics.jung.algorithms.layout.Layout;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.visualization.BasicTransformer;
+import edu.uci.ics.jung.visualization.Layer;
+import edu.uci.ics.jung.visualization.MultiLayerTransformer;
+import edu.uci.ics.jung.visualization.RenderContext;
+import edu.uci.ics.jung.visualization.renderers.Renderer;
+import edu.uci.ics.jung.visualization.transform.MutableAffineTransformer;
+import edu.uci.ics.jung.visualization.transform.MutableTransformer;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * <p>Renderer of the topology canvas for large topologies, which wraps the JUNG renderer adding:</p>
+ * <ul>
+ * <li>Viewport culling: only the nodes and links in the area drawn (plus a margin for icons and labels) are rendered. The links are
+ * culled through the edge include predicate, and the nodes in the vertex and vertex label renderers, which are wrapped for this. The nodes
+ * cannot be culled through the vertex include predicate, since JUNG does not draw the edges with an end node not included.</li>
+ * <li>The node and link labels are not drawn when the zoom makes the nodes too close in the screen.</li>
+ * <li>The parallel links between the same pair of nodes which are not shown separated (and thus are drawn one over the
+ * other) are drawn once, using the one that would be drawn the last.</li>
+ * <li>The graph is drawn in tiles, cached offscreen and reused while panning. The cache is cleared with
+ * {@link #invalidate()}, which must be called when anything drawn changes, and when the zoom changes.</li>
+ * </ul>
+ * <p>It is only active when enabled, and the graph has at least {@link #MIN_NUMBER_OF_VERTICES_AND_EDGES} vertices and
+ * edges. Otherwise, the graph is rendered by the wrapped renderer as usual.</p>
+ *
+ * @author Pablo Pavon-Marino
+ * @since 0.5.3
+ */
+class LevelOfDetailRenderer implements Renderer<GUINode, GUILink>
+{
+    static final int MIN_NUMBER_OF_VERTICES_AND_EDGES = 2000;
+    private static final int TILE_SIZE_IN_PIXELS = 512;
+    private static final int MAX_NUMBER_OF_CACHED_TILES = 32;
+    private static final double CULLING_MARGIN_IN_PIXELS = 100;
+    private static final double MIN_AVERAGE_PIXELS_BETWEEN_NODES_TO_SHOW_LABELS = 40;
+
+    private final Renderer<GUINode, GUILink> delegate;
+    private final Predicate<GUILink> isVisibleInCanvas;
+    private final Supplier<Rectangle2D> currentCanvasViewWindow;
+    private final JComponent tileDevice;
+    private final Map<Long, BufferedImage> cacheTiles;
+    private boolean isEnabled;
+
+    /* Valid while the content drawn and the zoom do not change */
+    private AffineTransform cacheLinearTransform;
+    private Boolean cacheAreLabelsShown;
+    private Set<GUILink> cacheEdgesNotDrawnSinceParallelToOther;
+
+    /* Valid during a rendering */
+    private Layout<GUINode, GUILink> renderingLayout;
+    private Rectangle2D renderingCullingWindow;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the renderer that draws the graph
+     * @param isVisibleInCanvas if a link is visible in the canvas (the parallel links not visible are not considered)
+     * @param currentCanvasViewWindow the area of the graph currently shown, in layout coordinates
+     */
+    LevelOfDetailRenderer(Renderer<GUINode, GUILink> delegate, Predicate<GUILink> isVisibleInCanvas, Supplier<Rectangle2D> currentCanvasViewWindow)
+    {
+        this.delegate = delegate;
+        this.isVisibleInCanvas = isVisibleInCanvas;
+        this.currentCanvasViewWindow = currentCanvasViewWindow;
+        this.tileDevice = new JPanel();
+        this.tileDevice.setSize(TILE_SIZE_IN_PIXELS, TILE_SIZE_IN_PIXELS);
+        this.cacheTiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest)
+            {
+                return size() > MAX_NUMBER_OF_CACHED_TILES;
+            }
+        };
+        this.isEnabled = true;
+        delegate.setVertexRenderer(new CullingVertexRenderer(delegate.getVertexRenderer()));
+        delegate.setVertexLabelRenderer(new CullingVertexLabelRenderer(delegate.getVertexLabelRenderer()));
+    }
+
+    boolean isEnabled()
+    {
+        return isEnabled;
+    }
+
+    void setEnabled(boolean isEnabled)
+    {
+        this.isEnabled = isEnabled;
+        invalidate();
+    }
+
+    /**
+     * Clears the cached tiles, and the labels and parallel links information.
+     */
+    void invalidate()
+    {
+        cacheTiles.clear();
+        cacheLinearTransform = null;
+        cacheAreLabelsShown = null;
+        cacheEdgesNotDrawnSinceParallelToOther = null;
+    }
+
+    /**
+     * Returns if the labels should be drawn: false if the level of detail rendering is active and the nodes are too close.
+     *
+     * @return see above
+     */
+    boolean areLabelsShown()
+    {
+        return renderingLayout == null || cacheAreLabelsShown == null || cacheAreLabelsShown;
+    }
+
+    /* Returns false if, in the rendering in course, the vertex is out of the area drawn */
+    private boolean isToDraw(GUINode v)
+    {
+        if (renderingLayout == null || renderingCullingWindow == null) return true;
+        final Point2D p = renderingLayout.transform(v);
+        return p == null || renderingCullingWindow.contains(p);
+    }
+
+    /**
+     * Returns false if, in the rendering in course, the edge is out of the area drawn, or is drawn by a parallel one.
+     *
+     * @param e the edge
+     * @return see above
+     */
+    boolean isToDraw(GUILink e)
+    {
+        if (renderingLayout == null) return true;
+        if (cacheEdgesNotDrawnSinceParallelToOther != null && cacheEdgesNotDrawnSinceParallelToOther.contains(e)) return false;
+        if (renderingCullingWindow == null) return true;
+        final Point2D p1 = renderingLayout.transform(e.getOriginNode());
+        final Point2D p2 = renderingLayout.transform(e.getDestinationNode());
+        if (p1 == null || p2 == null) return true;
+        return renderingCullingWindow.intersectsLine(p1.getX(), p1.getY(), p2.getX(), p2.getY());
+    }
+
+    @Override
+    public void render(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout)
+    {
+        final Graph<GUINode, GUILink> g = layout.getGraph();
+        if (!isEnabled || g.getVertexCount() + g.getEdgeCount() < MIN_NUMBER_OF_VERTICES_AND_EDGES)
+        {
+            delegate.render(rc, layout);
+            return;
+        }
+
+        final MutableTransformer layoutTransformer = rc.getMultiLayerTransformer().getTransformer(Layer.LAYOUT);
+        final AffineTransform linearTransform = new AffineTransform(layoutTransformer.getScaleX(), layoutTransformer.getShearY(), layoutTransformer.getShearX(), layoutTransformer.getScaleY(), 0, 0);
+        if (!linearTransform.equals(cacheLinearTransform)) invalidate();
+        if (cacheLinearTransform == null) updateContentInformation(layout, linearTransform);
+
+        renderingLayout = layout;
+        try
+        {
+            /* The tiles are drawn in layout coordinates: only possible if the view transformer does nothing */
+            if (!rc.getMultiLayerTransformer().getTransformer(Layer.VIEW).getTransform().isIdentity())
+            {
+                renderingCullingWindow = expand(currentCanvasViewWindow.get(), CULLING_MARGIN_IN_PIXELS / layoutTransformer.getScale());
+                delegate.render(rc, layout);
+                return;
+            }
+
+            final Graphics2D screenGraphics = rc.getGraphicsContext().getDelegate();
+            final Dimension screenSize = rc.getScreenDevice().getSize();
+            final double tx = layoutTransformer.getTranslateX();
+            final double ty = layoutTransformer.getTranslateY();
+            final long minTileX = (long) Math.floor(-tx / TILE_SIZE_IN_PIXELS);
+            final long maxTileX = (long) Math.floor((screenSize.getWidth() - tx) / TILE_SIZE_IN_PIXELS);
+            final long minTileY = (long) Math.floor(-ty / TILE_SIZE_IN_PIXELS);
+            final long maxTileY = (long) Math.floor((screenSize.getHeight() - ty) / TILE_SIZE_IN_PIXELS);
+            for (long tileX = minTileX; tileX <= maxTileX; tileX++)
+                for (long tileY = minTileY; tileY <= maxTileY; tileY++)
+                {
+                    final long key = (tileX << 32) ^ (tileY & 0xFFFFFFFFL);
+                    BufferedImage tile = cacheTiles.get(key);
+                    if (tile == null)
+                    {
+                        tile = renderTile(rc, layout, screenGraphics, layoutTransformer, tileX, tileY);
+                        cacheTiles.put(key, tile);
+                    }
+                    screenGraphics.drawImage(tile, AffineTransform.getTranslateInstance(tileX * TILE_SIZE_IN_PIXELS + tx, tileY * TILE_SIZE_IN_PIXELS + ty), null);
+                }
+        } finally
+        {
+            renderingLayout = null;
+            renderingCullingWindow = null;
+        }
+    }
+
+    /* Renders the graph in an image, which shows the area of the given tile, with the transformer translation removed */
+    private BufferedImage renderTile(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, Graphics2D screenGraphics, MutableTransformer layoutTransformer, long tileX, long tileY)
+    {
+        final BufferedImage tile = new BufferedImage(TILE_SIZE_IN_PIXELS, TILE_SIZE_IN_PIXELS, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D tileGraphics = tile.createGraphics();
+        tileGraphics.setRenderingHints(screenGraphics.getRenderingHints());
+        tileGraphics.setFont(screenGraphics.getFont());
+
+        final AffineTransform tileTransform = new AffineTransform(layoutTransformer.getTransform());
+        tileTransform.preConcatenate(AffineTransform.getTranslateInstance(-layoutTransformer.getTranslateX() - tileX * TILE_SIZE_IN_PIXELS, -layoutTransformer.getTranslateY() - tileY * TILE_SIZE_IN_PIXELS));
+        final BasicTransformer tileTransformer = new BasicTransformer();
+        tileTransformer.setTransformer(Layer.LAYOUT, new MutableAffineTransformer(tileTransform));
+        try
+        {
+            renderingCullingWindow = tileTransform.createInverse().createTransformedShape(new Rectangle2D.Double(-CULLING_MARGIN_IN_PIXELS, -CULLING_MARGIN_IN_PIXELS,
+                    TILE_SIZE_IN_PIXELS + 2 * CULLING_MARGIN_IN_PIXELS, TILE_SIZE_IN_PIXELS + 2 * CULLING_MARGIN_IN_PIXELS)).getBounds2D();
+        } catch (NoninvertibleTransformException e)
+        {
+            renderingCullingWindow = null;
+        }
+
+        final MultiLayerTransformer screenTransformer = rc.getMultiLayerTransformer();
+        final JComponent screenDevice = rc.getScreenDevice();
+        rc.setMultiLayerTransformer(tileTransformer);
+        rc.getGraphicsContext().setDelegate(tileGraphics);
+        rc.setScreenDevice(tileDevice);
+        try
+        {
+            delegate.render(rc, layout);
+        } finally
+        {
+            rc.setMultiLayerTransformer(screenTransformer);
+            rc.getGraphicsContext().setDelegate(screenGraphics);
+            rc.setScreenDevice(screenDevice);
+            tileGraphics.dispose();
+        }
+        return tile;
+    }
+
+    /* Computes if the labels are shown, and the parallel links not drawn, for the current content and zoom */
+    private void updateContentInformation(Layout<GUINode, GUILink> layout, AffineTransform linearTransform)
+    {
+        final Graph<GUINode, GUILink> g = layout.getGraph();
+
+        /* Labels: depending on the average distance between nodes in the screen */
+        final Rectangle2D bounds = new Rectangle2D.Double();
+        int numVertices = 0;
+        for (GUINode v : g.getVertices())
+        {
+            final Point2D p = layout.transform(v);
+            if (p == null) continue;
+            if (numVertices++ == 0) bounds.setRect(p.getX(), p.getY(), 0, 0);
+            else bounds.add(p);
+        }
+        final double areaInPixels = bounds.getWidth() * bounds.getHeight() * Math.abs(linearTransform.getDeterminant());
+        cacheAreLabelsShown = numVertices <= 1 || Math.sqrt(areaInPixels / numVertices) >= MIN_AVERAGE_PIXELS_BETWEEN_NODES_TO_SHOW_LABELS;
+
+        /* Parallel links not shown separated: the last one in drawing order is the one drawn */
+        final Map<GUINode, Map<GUINode, GUILink>> lastParallelEdge = new HashMap<>();
+        final Set<GUILink> notDrawn = new HashSet<>();
+        for (GUILink e : g.getEdges())
+        {
+            if (e.isShownSeparated() || !isVisibleInCanvas.test(e)) continue;
+            final GUINode a = e.getOriginNode();
+            final GUINode b = e.getDestinationNode();
+            final Map<GUINode, GUILink> fromB = lastParallelEdge.get(b);
+            final GUILink previousInOppositeDirection = fromB == null ? null : fromB.remove(a);
+            final GUILink previous = lastParallelEdge.computeIfAbsent(a, k -> new HashMap<>()).put(b, e);
+            if (previousInOppositeDirection != null) notDrawn.add(previousInOppositeDirection);
+            if (previous != null) notDrawn.add(previous);
+        }
+        cacheEdgesNotDrawnSinceParallelToOther = notDrawn;
+        cacheLinearTransform = linearTransform;
+    }
+
+    private static Rectangle2D expand(Rectangle2D r, double margin)
+    {
+        return new Rectangle2D.Double(r.getX() - margin, r.getY() - margin, r.getWidth() + 2 * margin, r.getHeight() + 2 * margin);
+    }
+
+    @Override
+    public void renderVertex(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUINode v)
+    {
+        delegate.renderVertex(rc, layout, v);
+    }
+
+    @Override
+    public void renderVertexLabel(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUINode v)
+    {
+        delegate.renderVertexLabel(rc, layout, v);
+    }
+
+    @Override
+    public void renderEdge(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUILink e)
+    {
+        delegate.renderEdge(rc, layout, e);
+    }
+
+    @Override
+    public void renderEdgeLabel(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUILink e)
+    {
+        delegate.renderEdgeLabel(rc, layout, e);
+    }
+
+    @Override
+    public void setVertexRenderer(Vertex<GUINode, GUILink> r)
+    {
+        delegate.setVertexRenderer(new CullingVertexRenderer(r));
+    }
+
+    @Override
+    public void setEdgeRenderer(Edge<GUINode, GUILink> r)
+    {
+        delegate.setEdgeRenderer(r);
+    }
+
+    @Override
+    public void setVertexLabelRenderer(VertexLabel<GUINode, GUILink> r)
+    {
+        delegate.setVertexLabelRenderer(new CullingVertexLabelRenderer(r));
+    }
+
+    @Override
+    public void setEdgeLabelRenderer(EdgeLabel<GUINode, GUILink> r)
+    {
+        delegate.setEdgeLabelRenderer(r);
+    }
+
+    @Override
+    public VertexLabel<GUINode, GUILink> getVertexLabelRenderer()
+    {
+        return delegate.getVertexLabelRenderer();
+    }
+
+    @Override
+    public Vertex<GUINode, GUILink> getVertexRenderer()
+    {
+        return delegate.getVertexRenderer();
+    }
+
+    @Override
+    public Edge<GUINode, GUILink> getEdgeRenderer()
+    {
+        return delegate.getEdgeRenderer();
+    }
+
+    @Override
+    public EdgeLabel<GUINode, GUILink> getEdgeLabelRenderer()
+    {
+        return delegate.getEdgeLabelRenderer();
+    }
+
+    private class CullingVertexRenderer implements Vertex<GUINode, GUILink>
+    {
+        private final Vertex<GUINode, GUILink> vertexRenderer;
+
+        private CullingVertexRenderer(Vertex<GUINode, GUILink> vertexRenderer)
+        {
+            this.vertexRenderer = vertexRenderer;
+        }
+
+        @Override
+        public void paintVertex(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUINode v)
+        {
+            if (isToDraw(v)) vertexRenderer.paintVertex(rc, layout, v);
+        }
+    }
+
+    private class CullingVertexLabelRenderer implements VertexLabel<GUINode, GUILink>
+    {
+        private final VertexLabel<GUINode, GUILink> vertexLabelRenderer;
+
+        private CullingVertexLabelRenderer(VertexLabel<GUINode, GUILink> vertexLabelRenderer)
+        {
+            this.vertexLabelRenderer = vertexLabelRenderer;
+        }
+
+        @Override
+        public void labelVertex(RenderContext<GUINode, GUILink> rc, Layout<GUINode, GUILink> layout, GUINode v, String label)
+        {
+            if (isToDraw(v)) vertexLabelRenderer.labelVertex(rc, layout, v, label);
+        }
+
+        @Override
+        public Position getPosition()
+        {
+            return vertexLabelRenderer.getPosition();
+        }
+
+        @Override
+        public void setPosition(Position position)
+        {
+            vertexLabelRenderer.setPosition(position);
+        }
+
+        @Override
+        public void setPositioner(Positioner positioner)
+        {
+            vertexLabelRenderer.setPositioner(positioner);
+        }
+
+        @Override
+        public Positioner getPositioner()
+        {
+            return vertexLabelRenderer.getPositioner();
+        }
+    }
+}
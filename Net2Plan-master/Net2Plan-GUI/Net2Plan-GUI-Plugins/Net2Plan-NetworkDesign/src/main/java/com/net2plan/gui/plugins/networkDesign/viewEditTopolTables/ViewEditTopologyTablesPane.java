@@ -12,7 +12,9 @@ package com.net2plan.gui.plugins.networkDesign.viewEditTopolTables;
 
 import java.awt.BorderLayout;
 import java.awt.LayoutManager;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +29,7 @@ import javax.swing.JTabbedPane;
 import javax.swing.table.TableModel;
 
 import com.net2plan.gui.plugins.GUINetworkDesign;
+import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackLink;
 import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackNetwork;
 import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackNetworkElement;
 import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackNode;
@@ -70,7 +73,7 @@ public class ViewEditTopologyTablesPane extends JPanel
         {
             if (e instanceof OpenStackNode)
                 return AJTableType.NODES;
-            if (e instanceof OpenStackUser)
+            if (e instanceof OpenStackLink)
                 return AJTableType.LINKS;
             if (e instanceof OpenStackUser)
                 return AJTableType.USERS;
@@ -187,6 +190,24 @@ public class ViewEditTopologyTablesPane extends JPanel
         if (ErrorHandling.isDebugEnabled()) currentState.checkCachesConsistency();
     }
 
+    /**
+     * Recomputes only the rows of the given elements, in the tables of their types. To be used when some elements changed,
+     * but no element was added or removed
+     *
+     * @param changedElements the elements which changed
+     */
+    public void updateViewOfElements(Collection<? extends OpenStackNetworkElement> changedElements)
+    {
+        final Map<AJTableType, List<OpenStackNetworkElement>> changedElementsPerTable = new EnumMap<>(AJTableType.class);
+        for (OpenStackNetworkElement e : changedElements)
+        {
+            final AJTableType type = AJTableType.getTypeOfElement(e);
+            if (type != null) changedElementsPerTable.computeIfAbsent(type, t -> new ArrayList<>()).add(e);
+        }
+        for (Map.Entry<AJTableType, List<OpenStackNetworkElement>> entry : changedElementsPerTable.entrySet())
+            ajTables.get(entry.getKey()).getFirst().updateViewOfElements(entry.getValue());
+    }
+
     /**
      * Shows the tab corresponding associated to a network element.
      *
@@ -8,14 +8,17 @@ import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.swing.ActionMap;
@@ -30,6 +33,7 @@ import javax.swing.JTable;
 import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
@@ -75,6 +79,8 @@ public abstract class AdvancedJTable_abstractElement<T> extends AdvancedJTable
     private final Map<AjtColumnInfo,Pair<Integer,Integer>> widthAndGlobalViewIndexIfPreviouslyVisible = new HashMap<> ();
     private String control_currentViewTypeForColumns;
     private final boolean hasAggregationRow;
+    private long refreshEpoch = 0; // incremented in each refresh of the table values, to discard the aggregation rows computed before it
+    private static final Object NOT_COMPUTED = new Object();
     private final String tableTitle;
 
     /**
@@ -142,13 +148,11 @@ public abstract class AdvancedJTable_abstractElement<T> extends AdvancedJTable
                     return Integer.compare(c1.getColumnIndexOriginallyUserDefined(), c2.getColumnIndexOriginallyUserDefined());
                 }).
                 collect(Collectors.toCollection(ArrayList::new));
-        final Object[][] dataVector = computeDataVector (visibleTableColumnsInTableModelOrder);
-        this.setModel(createTableModel(visibleTableColumnsInTableModelOrder));//this.getModel();
-        final String[] tableHeaders = this.getTableHeaders(visibleTableColumnsInTableModelOrder);
-        if (dataVector.length == 0)
-            this.getModel().setDataVector(new Object[1][tableHeaders.length], tableHeaders);
-        else
-            this.getModel().setDataVector(dataVector, tableHeaders);
+        /* The cell values are computed on demand, and cached until the next refresh */
+        refreshEpoch ++;
+        if (super.getModel() instanceof AdvancedJTable_abstractElement.LazyTableModel) ((LazyTableModel) super.getModel()).cancelAggregationRowComputation();
+        final LazyTableModel lazyModel = createTableModel(visibleTableColumnsInTableModelOrder);
+        this.setModel(lazyModel);
 
         /* Create initial column model: all in one table.
          * The fixed/scroll decorator will change this column model */
@@ -195,12 +199,38 @@ public abstract class AdvancedJTable_abstractElement<T> extends AdvancedJTable
         this.getRowSorter().setSortKeys(this.getRowSorter().getSortKeys());
         this.setTips(visibleTableColumnsInTableModelOrder);
         this.getModel().fireTableDataChanged();
+        lazyModel.startAggregationRowComputation();
 
 
         /* Enable the table before returning */
         this.setEnabled(true);
     }
 
+    /**
+     * Recomputes the rows of the given elements, instead of the full table as in {@link #updateView()}. To be used when
+     * some elements changed, but no element was added or removed and the visible columns are the same. The aggregation
+     * row, if any, is recomputed in the background. Elements not in the table are ignored.
+     *
+     * @param changedElements the elements which changed
+     */
+    public final void updateViewOfElements(Collection<? extends T> changedElements)
+    {
+        if (!(super.getModel() instanceof AdvancedJTable_abstractElement.LazyTableModel)) { updateView(); return; }
+        final LazyTableModel model = (LazyTableModel) super.getModel();
+        boolean someRowChanged = false;
+        for (T element : changedElements)
+        {
+            final int rowModelIndex = model.getRowModelIndex(element);
+            if (rowModelIndex == -1) continue;
+            model.invalidateRow(rowModelIndex);
+            someRowChanged = true;
+        }
+        if (!someRowChanged) return;
+        refreshEpoch ++;
+        model.startAggregationRowComputation();
+        this.repaint();
+    }
+
     public final SortedSet<T> getSelectedElements()
     {
         final int[] rowViewIndexes = this.getSelectedRows();
@@ -437,18 +467,9 @@ public abstract class AdvancedJTable_abstractElement<T> extends AdvancedJTable
 //        return invertedElements;
 //    }
 
-    private final DefaultTableModel createTableModel(List<AjtColumnInfo<T>> tableColumns)
+    private final LazyTableModel createTableModel(List<AjtColumnInfo<T>> tableColumns)
     {
-        final int C = tableColumns.size();
-        final DefaultTableModel tableModel = new ClassAwareTableModel(new Object[1][C], getTableHeaders(tableColumns))
-        {
-            @Override
-            public boolean isCellEditable(int rowIndex, int columnIndex)
-            {
-                return false;
-            }
-        };
-        return tableModel;
+        return new LazyTableModel(getAllAbstractElementsInTable(), tableColumns);
     }
     private String[] getTableHeaders(List<AjtColumnInfo<T>> tableColumns)
     {
@@ -518,45 +539,176 @@ public abstract class AdvancedJTable_abstractElement<T> extends AdvancedJTable
         return menu;
     }
 
-    private Object[][] computeDataVector (List<AjtColumnInfo<T>> visibleTableColumns)
+    /**
+     * Table model where the cell values of the element rows are computed when first asked (typically, when the row
+     * is rendered, or when the column is sorted), and then cached until the next {@link #updateView()} creates a new model.
+     * The aggregation row values, which need all the elements, are computed by a background worker.
+     * The worker reads the design while the event dispatch thread may modify it: its result is tagged with the refresh epoch
+     * when it started, and discarded if the table was refreshed since then (the design changes in the GUI are followed by
+     * a refresh). If the read failed with a {@link ConcurrentModificationException}, it is computed again in the event
+     * dispatch thread. Any other failure is logged, and the aggregation row is left empty.
+     * To be accessed from the event dispatch thread
+     */
+    private final class LazyTableModel extends ClassAwareTableModel
     {
-        final int numColVisible = visibleTableColumns.size();
-        final List<T> tableElements = getAllAbstractElementsInTable();
-
-        /* Create data vector*/
-        final int numRowsDataVector = tableElements.size() + (hasAggregationRow? 1 : 0);
-        final Object[][] dataVector = new Object[numRowsDataVector][numColVisible];
-        int rowCount = 0;
-        final Number [] accumIfLastRow = new Number [numColVisible];
-        for (AjtColumnInfo<T> col : visibleTableColumns)
-            if (col.getLastRowAggregationRowType().isToAggregate())
-                accumIfLastRow [col.getColumnIndexInTableModelWhenVissible()] = 0.0;
-        for (T visibleElement : tableElements)
+        private final List<T> tableElements;
+        private final List<AjtColumnInfo<T>> columns; // in table model order
+        private final Object [][] cacheValues; // per row, null if no value of the row is computed
+        private final Object [] aggregationRow;
+        private Map<T,Integer> cacheElementToRowIndex;
+        private SwingWorker<Number[],Void> aggregationWorker;
+
+        private LazyTableModel (List<T> tableElements , List<AjtColumnInfo<T>> visibleTableColumns)
+        {
+            super(new Object[0][visibleTableColumns.size()], getTableHeaders(visibleTableColumns));
+            this.tableElements = new ArrayList<> (tableElements);
+            this.columns = new ArrayList<> (visibleTableColumns);
+            this.columns.sort((c1,c2)->Integer.compare(c1.getColumnIndexInTableModelWhenVissible(), c2.getColumnIndexInTableModelWhenVissible()));
+            this.cacheValues = new Object [tableElements.size()][];
+            if (hasAggregationRow)
+            {
+                this.aggregationRow = new Object [columns.size()];
+                Arrays.fill(aggregationRow, new LastRowAggregatedValue());
+            }
+            else this.aggregationRow = null;
+            this.cacheElementToRowIndex = null;
+            this.aggregationWorker = null;
+        }
+
+        @Override
+        public int getRowCount()
+        {
+            if (tableElements == null) return 0; // called from the super constructor
+            final int numRows = tableElements.size() + (hasAggregationRow? 1 : 0);
+            return numRows == 0? 1 : numRows; // an empty table shows one empty row
+        }
+
+        @Override
+        public Object getValueAt(int row, int column)
+        {
+            if (row < tableElements.size())
+            {
+                Object [] rowValues = cacheValues [row];
+                if (rowValues == null)
+                {
+                    rowValues = new Object [columns.size()];
+                    Arrays.fill(rowValues, NOT_COMPUTED);
+                    cacheValues [row] = rowValues;
+                }
+                if (rowValues [column] == NOT_COMPUTED)
+                    rowValues [column] = columns.get(column).getComputeNewValueAtFunction().apply(tableElements.get(row));
+                return rowValues [column];
+            }
+            if (hasAggregationRow && row == tableElements.size()) return aggregationRow [column];
+            return null;
+        }
+
+        @Override
+        public void setValueAt(Object aValue, int row, int column)
         {
-            for (AjtColumnInfo<T> col : visibleTableColumns)
+            if (row < tableElements.size())
             {
-                final Object val = col.getComputeNewValueAtFunction().apply(visibleElement);
-                dataVector [rowCount][col.getColumnIndexInTableModelWhenVissible()] = val;
-                if (this.hasAggregationRow && col.getLastRowAggregationRowType().isToAggregate())
-                    accumIfLastRow [col.getColumnIndexInTableModelWhenVissible()] = col.getLastRowAggregationRowType().agg(val , accumIfLastRow [col.getColumnIndexInTableModelWhenVissible()]).doubleValue();
+                getValueAt(row, column);
+                cacheValues [row][column] = aValue;
             }
-            rowCount ++;
+            else if (hasAggregationRow && row == tableElements.size()) aggregationRow [column] = aValue;
+            else return;
+            fireTableCellUpdated(row, column);
+        }
+
+        @Override
+        public boolean isCellEditable(int rowIndex, int columnIndex)
+        {
+            return false;
         }
-        if (hasAggregationRow)
+
+        private int getRowModelIndex (T element)
+        {
+            if (cacheElementToRowIndex == null)
+            {
+                cacheElementToRowIndex = new HashMap<> ();
+                for (int row = 0; row < tableElements.size() ; row ++) cacheElementToRowIndex.put(tableElements.get(row), row);
+            }
+            return cacheElementToRowIndex.getOrDefault(element, -1);
+        }
+
+        private void invalidateRow (int row)
+        {
+            cacheValues [row] = null;
+            fireTableRowsUpdated(row, row);
+        }
+
+        private void cancelAggregationRowComputation ()
         {
-            final LastRowAggregatedValue[] aggregatedData = new LastRowAggregatedValue[numColVisible];
-            Arrays.fill(aggregatedData, new LastRowAggregatedValue());
-            for (AjtColumnInfo<T> col : visibleTableColumns)
-                if (col.getLastRowAggregationRowType().isToAggregate())
+            if (aggregationWorker != null) aggregationWorker.cancel(true);
+            aggregationWorker = null;
+        }
+
+        private void startAggregationRowComputation ()
+        {
+            cancelAggregationRowComputation();
+            if (!hasAggregationRow) return;
+            final List<AjtColumnInfo<T>> columnsToAggregate = columns.stream().filter(c->c.getLastRowAggregationRowType().isToAggregate()).collect(Collectors.toList());
+            if (columnsToAggregate.isEmpty()) return;
+            final long epochAtStart = refreshEpoch;
+            final SwingWorker<Number[],Void> worker = new SwingWorker<Number[],Void>()
+            {
+                @Override
+                protected Number[] doInBackground()
+                {
+                    return computeAggregationRow(columnsToAggregate , () -> isCancelled());
+                }
+
+                @Override
+                protected void done()
                 {
-                    final Number accumVal = accumIfLastRow[col.getColumnIndexInTableModelWhenVissible()];
-                    if (accumVal == null)
-                        assert false;
-                    aggregatedData [col.getColumnIndexInTableModelWhenVissible()] = new LastRowAggregatedValue(accumVal);
+                    if (isCancelled() || aggregationWorker != this) return;
+                    aggregationWorker = null;
+                    /* Computed from a design already modified and refreshed: the refresh started the computation again */
+                    if (epochAtStart != refreshEpoch) return;
+                    Number [] accumIfLastRow;
+                    try { accumIfLastRow = get(); }
+                    catch (ExecutionException e)
+                    {
+                        if (!(e.getCause() instanceof ConcurrentModificationException))
+                        {
+                            ErrorHandling.addErrorOrException(e.getCause(), AdvancedJTable_abstractElement.class);
+                            return;
+                        }
+                        /* The read failed since the design was being modified, but not refreshed yet: compute it here, with the current design */
+                        accumIfLastRow = computeAggregationRow(columnsToAggregate , () -> false);
+                    }
+                    catch (InterruptedException e) { return; }
+                    for (AjtColumnInfo<T> col : columnsToAggregate)
+                        aggregationRow [columns.indexOf(col)] = new LastRowAggregatedValue(accumIfLastRow [columns.indexOf(col)]);
+                    fireTableRowsUpdated(tableElements.size(), tableElements.size());
                 }
-            dataVector [numRowsDataVector -1] = aggregatedData;
+            };
+            aggregationWorker = worker;
+            worker.execute();
+        }
+
+        /**
+         * Computes the aggregated values of the given columns, indexed in table model order. Does not use the cache,
+         * so it can run outside the event dispatch thread. Returns null if cancelled
+         */
+        private Number [] computeAggregationRow (List<AjtColumnInfo<T>> columnsToAggregate , Supplier<Boolean> isCancelled)
+        {
+            final Number [] accumIfLastRow = new Number [columns.size()];
+            final int [] modelIndexes = columnsToAggregate.stream().mapToInt(c->columns.indexOf(c)).toArray();
+            for (int modelIndex : modelIndexes) accumIfLastRow [modelIndex] = 0.0;
+            for (T element : tableElements)
+            {
+                if (isCancelled.get()) return null;
+                for (int cont = 0; cont < modelIndexes.length ; cont ++)
+                {
+                    final AjtColumnInfo<T> col = columnsToAggregate.get(cont);
+                    final Object val = col.getComputeNewValueAtFunction().apply(element);
+                    accumIfLastRow [modelIndexes [cont]] = col.getLastRowAggregationRowType().agg(val , accumIfLastRow [modelIndexes [cont]]).doubleValue();
+                }
+            }
+            return accumIfLastRow;
         }
-        return dataVector;
     }
 
     private void printColumnInfo (String message)
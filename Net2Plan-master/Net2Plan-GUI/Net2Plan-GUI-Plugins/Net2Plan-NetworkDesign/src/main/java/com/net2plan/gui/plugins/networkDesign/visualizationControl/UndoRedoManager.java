@@ -11,25 +11,28 @@
 package com.net2plan.gui.plugins.networkDesign.visualizationControl;
 
 import com.net2plan.gui.plugins.GUINetworkDesign;
+import com.net2plan.gui.plugins.networkDesign.openStack.OpenStackNet;
 import com.net2plan.interfaces.networkDesign.NetPlan;
+import com.net2plan.interfaces.networkDesign.NetPlanSnapshot;
 import com.net2plan.interfaces.networkDesign.NetworkLayer;
 import com.net2plan.utils.Triple;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 
 /**
- * Manages the undo/redo information, tracking the current netPlan and the visualization state
+ * Manages the undo/redo information, tracking the current netPlan and the visualization state. The designs are stored as
+ * {@link NetPlanSnapshot} objects, each one sharing with the previous one the sections of the design (the nodes, the resources,
+ * each layer...) that did not change. Each change still serializes the whole design
  */
 public class UndoRedoManager
 {
     private final GUINetworkDesign callback;
-    private LinkedList<VisualizationSnapshot> timeline;
+    private LinkedList<UndoRedoState> timeline;
     private int timelineCursor;
     private int listMaxSize;
 
-    private VisualizationSnapshot backupState;
-
     public UndoRedoManager(GUINetworkDesign callback, int listMaxSize)
     {
         this.timeline = new LinkedList<>();
@@ -42,17 +45,50 @@ public class UndoRedoManager
     {
         if (this.listMaxSize <= 1) return; // nothing is stored since nothing will be retrieved
 
-        final VisualizationSnapshot snapshot = callback.getVisualizationState().getSnapshot().copy();
+        final UndoRedoState previousState = timelineCursor < 0 ? null : timeline.get(timelineCursor);
+        addState(new UndoRedoState(callback.getVisualizationState().getSnapshot(), previousState, previousState == null ? null : previousState.openStackNet));
+    }
 
-        // Removing all changes made after the one at the cursor
-        if (timelineCursor != timeline.size() - 1)
-        {
-            timeline.subList(timelineCursor, timeline.size()).clear();
+    /**
+     * Adds a change in the OpenStack network. The state at the cursor is updated to keep the given copy of the OpenStack network before
+     * the change, which is restored when undoing it, and a new state is added keeping the copy after the change. The copies must not be
+     * modified afterwards
+     *
+     * @param openStackNetBeforeChange a copy of the OpenStack network before the change
+     * @param openStackNetAfterChange a copy of the OpenStack network after the change
+     */
+    public void addOpenStackNetChange(OpenStackNet openStackNetBeforeChange, OpenStackNet openStackNetAfterChange)
+    {
+        if (this.listMaxSize <= 1) return; // nothing is stored since nothing will be retrieved
 
-            // Adding a copy of the current state before it was modified
-            timeline.add(backupState);
+        if (timelineCursor >= 0)
+        {
+            final UndoRedoState currentState = timeline.get(timelineCursor);
+            timeline.set(timelineCursor, currentState.withOpenStackNet(openStackNetBeforeChange));
         }
-        timeline.add(snapshot);
+        final UndoRedoState previousState = timelineCursor < 0 ? null : timeline.get(timelineCursor);
+        addState(new UndoRedoState(callback.getVisualizationState().getSnapshot(), previousState, openStackNetAfterChange));
+    }
+
+    /**
+     * Returns a copy of the OpenStack network kept in the current state of the navigation, or null if no OpenStack change was recorded
+     * up to it. The object returned is independent of the stored information
+     *
+     * @return see above
+     */
+    public OpenStackNet getNavigationCurrentOpenStackNet()
+    {
+        if (timelineCursor < 0) return null;
+        final OpenStackNet res = timeline.get(timelineCursor).openStackNet;
+        return res == null ? null : res.copy();
+    }
+
+    private void addState(UndoRedoState state)
+    {
+        // Removing all changes made after the one at the cursor. The stored states are immutable, so the one at the cursor is kept
+        if (timelineCursor != timeline.size() - 1)
+            timeline.subList(timelineCursor + 1, timeline.size()).clear();
+        timeline.add(state);
 
         // Remove the older changes so that the list does not bloat.
         while (timeline.size() > listMaxSize)
@@ -65,8 +101,8 @@ public class UndoRedoManager
     }
 
     /**
-     * Returns the undo info in the navigation. Returns null if we are already in the first element. The NetPlan object returned is null if
-     * there is no change respect to the current one
+     * Returns the undo info in the navigation. Returns null if we are already in the first element. The NetPlan object returned is a new
+     * object, independent of the stored information
      *
      * @return see above
      */
@@ -77,15 +113,12 @@ public class UndoRedoManager
 
         this.timelineCursor--;
 
-        final VisualizationSnapshot currentState = timeline.get(this.timelineCursor);
-        this.backupState = currentState.copy();
-
-        return currentState.getSnapshotDefinition();
+        return timeline.get(this.timelineCursor).getSnapshotDefinition();
     }
 
     /**
-     * Returns the forward info in the navigation. Returns null if we are already in the head. The NetPlan object returned is null if
-     * there is no change respect to the current one
+     * Returns the forward info in the navigation. Returns null if we are already in the head. The NetPlan object returned is a new
+     * object, independent of the stored information
      *
      * @return see above
      */
@@ -96,14 +129,58 @@ public class UndoRedoManager
 
         this.timelineCursor++;
 
-        final VisualizationSnapshot currentState = timeline.get(this.timelineCursor);
-        this.backupState = currentState.copy();
-
-        return currentState.getSnapshotDefinition();
+        return timeline.get(this.timelineCursor).getSnapshotDefinition();
     }
 
     private boolean checkMovementValidity()
     {
         return !(timeline.isEmpty() || this.listMaxSize <= 1 );
     }
+
+    /* The design, the layer order and visibility in the canvas, indexed by layer index since the layer objects are recreated, and
+     * the OpenStack network (shared by the consecutive states where it did not change, null if none was recorded yet) */
+    private static class UndoRedoState
+    {
+        private final NetPlanSnapshot netPlanSnapshot;
+        private final Map<Integer, Integer> layerIndexToVisualizationOrder;
+        private final Map<Integer, Boolean> layerIndexToVisibility;
+        private final OpenStackNet openStackNet;
+
+        private UndoRedoState(NetPlanSnapshot netPlanSnapshot, Map<Integer, Integer> layerIndexToVisualizationOrder, Map<Integer, Boolean> layerIndexToVisibility, OpenStackNet openStackNet)
+        {
+            this.netPlanSnapshot = netPlanSnapshot;
+            this.layerIndexToVisualizationOrder = layerIndexToVisualizationOrder;
+            this.layerIndexToVisibility = layerIndexToVisibility;
+            this.openStackNet = openStackNet;
+        }
+
+        UndoRedoState(VisualizationSnapshot visualizationSnapshot, UndoRedoState previousState, OpenStackNet openStackNet)
+        {
+            this.openStackNet = openStackNet;
+            this.netPlanSnapshot = new NetPlanSnapshot(visualizationSnapshot.getNetPlan(), previousState == null ? null : previousState.netPlanSnapshot);
+            this.layerIndexToVisualizationOrder = new HashMap<>();
+            this.layerIndexToVisibility = new HashMap<>();
+            for (Map.Entry<NetworkLayer, Integer> entry : visualizationSnapshot.getMapCanvasLayerVisualizationOrder().entrySet())
+                layerIndexToVisualizationOrder.put(entry.getKey().getIndex(), entry.getValue());
+            for (Map.Entry<NetworkLayer, Boolean> entry : visualizationSnapshot.getMapCanvasLayerVisibility().entrySet())
+                layerIndexToVisibility.put(entry.getKey().getIndex(), entry.getValue());
+        }
+
+        UndoRedoState withOpenStackNet(OpenStackNet openStackNet)
+        {
+            return new UndoRedoState(netPlanSnapshot, layerIndexToVisualizationOrder, layerIndexToVisibility, openStackNet);
+        }
+
+        Triple<NetPlan, Map<NetworkLayer, Integer>, Map<NetworkLayer, Boolean>> getSnapshotDefinition()
+        {
+            final NetPlan np = netPlanSnapshot.getNetPlan();
+            final Map<NetworkLayer, Integer> visualizationOrder = new HashMap<>();
+            final Map<NetworkLayer, Boolean> visibility = new HashMap<>();
+            for (Map.Entry<Integer, Integer> entry : layerIndexToVisualizationOrder.entrySet())
+                visualizationOrder.put(np.getNetworkLayer(entry.getKey()), entry.getValue());
+            for (Map.Entry<Integer, Boolean> entry : layerIndexToVisibility.entrySet())
+                visibility.put(np.getNetworkLayer(entry.getKey()), entry.getValue());
+            return Triple.unmodifiableOf(np, visualizationOrder, visibility);
+        }
+    }
 }
@@ -455,53 +455,64 @@ public class VisualizationState
             if (isLayerVisibleInCanvas(layer))
                 cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.put(layer, cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.size());
         }
+        final double iconHeightIfNotActive = getCanvasDefaultGUINodeIconHeightIfNotActive();
         for (Node n : this.getNetPlan().getNodes())
-        {
-            List<GUINode> guiNodesThisNode = new ArrayList<>();
-            cache_mapNode2ListVerticallyStackedGUINodes.put(n, guiNodesThisNode);
-            Set<GUILink> intraNodeGUILinksThisNode = new HashSet<>();
-            cache_canvasIntraNodeGUILinks.put(n, intraNodeGUILinksThisNode);
-            Map<Pair<Integer, Integer>, GUILink> thisNodeInterLayerLinksInfoMap = new HashMap<>();
-            cache_mapNode2IntraNodeCanvasGUILinkMap.put(n, thisNodeInterLayerLinksInfoMap);
-            for (int trueVisualizationOrderIndex = 0; trueVisualizationOrderIndex < cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.size(); trueVisualizationOrderIndex++)
-            {
-                final NetworkLayer newLayer = cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.inverseBidiMap().get(trueVisualizationOrderIndex);
-                final double iconHeightIfNotActive = nodeSizeFactorRespectToDefault * (getNetPlan().getNumberOfNodes() > 100 ? VisualizationConstants.DEFAULT_GUINODE_SHAPESIZE_MORETHAN100NODES : VisualizationConstants.DEFAULT_GUINODE_SHAPESIZE);
-                final GUINode gn = new GUINode(n, newLayer, iconHeightIfNotActive);
-                guiNodesThisNode.add(gn);
-                if (trueVisualizationOrderIndex > 0)
-                {
-                    final GUINode lowerLayerGNode = guiNodesThisNode.get(trueVisualizationOrderIndex - 1);
-                    final GUINode upperLayerGNode = guiNodesThisNode.get(trueVisualizationOrderIndex);
-                    if (upperLayerGNode != gn) throw new RuntimeException();
-                    final GUILink glLowerToUpper = new GUILink(this , null, lowerLayerGNode, gn,
-                            VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault),
-                            VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault));
-                    final GUILink glUpperToLower = new GUILink(this , null, gn, lowerLayerGNode,
-                            VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault),
-                            VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault));
-                    intraNodeGUILinksThisNode.add(glLowerToUpper);
-                    intraNodeGUILinksThisNode.add(glUpperToLower);
-                    thisNodeInterLayerLinksInfoMap.put(Pair.of(trueVisualizationOrderIndex - 1, trueVisualizationOrderIndex), glLowerToUpper);
-                    thisNodeInterLayerLinksInfoMap.put(Pair.of(trueVisualizationOrderIndex, trueVisualizationOrderIndex - 1), glUpperToLower);
-                }
-            }
-        }
+            addCanvasGUINodesAndIntraNodeGUILinks(n, iconHeightIfNotActive);
+        for (NetworkLayer layer : cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.keySet())
+            for (Link e : this.getNetPlan().getLinks(layer))
+                addCanvasGUILink(e);
+    }
+
+    private double getCanvasDefaultGUINodeIconHeightIfNotActive()
+    {
+        return nodeSizeFactorRespectToDefault * (getNetPlan().getNumberOfNodes() > 100 ? VisualizationConstants.DEFAULT_GUINODE_SHAPESIZE_MORETHAN100NODES : VisualizationConstants.DEFAULT_GUINODE_SHAPESIZE);
+    }
+
+    /* Creates the GUI nodes of the node (one per visible layer), and the intra-node GUI links between them */
+    private void addCanvasGUINodesAndIntraNodeGUILinks(Node n, double iconHeightIfNotActive)
+    {
+        List<GUINode> guiNodesThisNode = new ArrayList<>();
+        cache_mapNode2ListVerticallyStackedGUINodes.put(n, guiNodesThisNode);
+        Set<GUILink> intraNodeGUILinksThisNode = new HashSet<>();
+        cache_canvasIntraNodeGUILinks.put(n, intraNodeGUILinksThisNode);
+        Map<Pair<Integer, Integer>, GUILink> thisNodeInterLayerLinksInfoMap = new HashMap<>();
+        cache_mapNode2IntraNodeCanvasGUILinkMap.put(n, thisNodeInterLayerLinksInfoMap);
         for (int trueVisualizationOrderIndex = 0; trueVisualizationOrderIndex < cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.size(); trueVisualizationOrderIndex++)
         {
-            final NetworkLayer layer = cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.inverseBidiMap().get(trueVisualizationOrderIndex);
-            for (Link e : this.getNetPlan().getLinks(layer))
+            final NetworkLayer newLayer = cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.inverseBidiMap().get(trueVisualizationOrderIndex);
+            final GUINode gn = new GUINode(n, newLayer, iconHeightIfNotActive);
+            guiNodesThisNode.add(gn);
+            if (trueVisualizationOrderIndex > 0)
             {
-                final GUINode gn1 = cache_mapNode2ListVerticallyStackedGUINodes.get(e.getOriginNode()).get(trueVisualizationOrderIndex);
-                final GUINode gn2 = cache_mapNode2ListVerticallyStackedGUINodes.get(e.getDestinationNode()).get(trueVisualizationOrderIndex);
-                final GUILink gl1 = new GUILink(this , e, gn1, gn2,
-                        VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_REGGUILINK_EDGESTROKE_ACTIVELAYER, linkWidthIncreaseFactorRespectToDefault),
-                        VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_REGGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault));
-                cache_canvasRegularLinkMap.put(e, gl1);
+                final GUINode lowerLayerGNode = guiNodesThisNode.get(trueVisualizationOrderIndex - 1);
+                final GUINode upperLayerGNode = guiNodesThisNode.get(trueVisualizationOrderIndex);
+                if (upperLayerGNode != gn) throw new RuntimeException();
+                final GUILink glLowerToUpper = new GUILink(this , null, lowerLayerGNode, gn,
+                        VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault),
+                        VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault));
+                final GUILink glUpperToLower = new GUILink(this , null, gn, lowerLayerGNode,
+                        VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault),
+                        VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_INTRANODEGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault));
+                intraNodeGUILinksThisNode.add(glLowerToUpper);
+                intraNodeGUILinksThisNode.add(glUpperToLower);
+                thisNodeInterLayerLinksInfoMap.put(Pair.of(trueVisualizationOrderIndex - 1, trueVisualizationOrderIndex), glLowerToUpper);
+                thisNodeInterLayerLinksInfoMap.put(Pair.of(trueVisualizationOrderIndex, trueVisualizationOrderIndex - 1), glUpperToLower);
             }
         }
     }
 
+    /* Creates the GUI link of a link in a visible layer. The GUI nodes of its end nodes must exist */
+    private void addCanvasGUILink(Link e)
+    {
+        final int trueVisualizationOrderIndex = cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.get(e.getLayer());
+        final GUINode gn1 = cache_mapNode2ListVerticallyStackedGUINodes.get(e.getOriginNode()).get(trueVisualizationOrderIndex);
+        final GUINode gn2 = cache_mapNode2ListVerticallyStackedGUINodes.get(e.getDestinationNode()).get(trueVisualizationOrderIndex);
+        final GUILink gl1 = new GUILink(this , e, gn1, gn2,
+                VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_REGGUILINK_EDGESTROKE_ACTIVELAYER, linkWidthIncreaseFactorRespectToDefault),
+                VisualizationUtils.resizedBasicStroke(VisualizationConstants.DEFAULT_REGGUILINK_EDGESTROKE, linkWidthIncreaseFactorRespectToDefault));
+        cache_canvasRegularLinkMap.put(e, gl1);
+    }
+
     public boolean decreaseCanvasFontSizeAll()
     {
         boolean changedSize = false;
@@ -669,11 +680,48 @@ public class VisualizationState
 
     /**
      * To call when the topology has new/has removed any link or node, but keeping the same layers.
-     * The topology is remade, which involves implicitly a reset of the view
+     * Only the GUI nodes and links of the added or removed nodes and links are created or removed, the rest are kept.
+     * This involves implicitly a reset of the picked state. If the layers changed, the topology is remade
      */
     public void recomputeCanvasTopologyBecauseOfLinkOrNodeAdditionsOrRemovals()
     {
-        this.setCanvasLayerVisibilityAndOrder(this.getNetPlan(), null, null);
+        final NetPlan np = this.getNetPlan();
+        final Set<NetworkLayer> layersInView = visualizationSnapshot.getMapCanvasLayerVisualizationOrder().keySet();
+        if (!layersInView.equals(new HashSet<>(np.getNetworkLayers())))
+        {
+            this.setCanvasLayerVisibilityAndOrder(np, null, null);
+            return;
+        }
+
+        /* Remove the GUI elements of the removed nodes and links */
+        final Set<Node> nodes = new HashSet<>(np.getNodes());
+        for (Node n : new ArrayList<>(cache_mapNode2ListVerticallyStackedGUINodes.keySet()))
+        {
+            if (nodes.contains(n)) continue;
+            cache_mapNode2ListVerticallyStackedGUINodes.remove(n);
+            cache_canvasIntraNodeGUILinks.remove(n);
+            cache_mapNode2IntraNodeCanvasGUILinkMap.remove(n);
+        }
+        cache_canvasRegularLinkMap.keySet().removeIf(e -> e.getNetPlan() != np);
+
+        /* Add the ones of the new nodes and links */
+        final double iconHeightIfNotActive = getCanvasDefaultGUINodeIconHeightIfNotActive();
+        for (Node n : np.getNodes())
+            if (!cache_mapNode2ListVerticallyStackedGUINodes.containsKey(n))
+                addCanvasGUINodesAndIntraNodeGUILinks(n, iconHeightIfNotActive);
+        for (NetworkLayer layer : cache_mapCanvasVisibleLayer2VisualizationOrderRemovingNonVisible.keySet())
+            for (Link e : np.getLinks(layer))
+                if (!cache_canvasRegularLinkMap.containsKey(e))
+                    addCanvasGUILink(e);
+
+        /* The default node size depends on the number of nodes */
+        for (List<GUINode> guiNodes : cache_mapNode2ListVerticallyStackedGUINodes.values())
+            for (GUINode gn : guiNodes)
+                if (gn.getIconHeightInNotActiveLayer() != iconHeightIfNotActive)
+                    gn.setIconHeightInNonActiveLayer(iconHeightIfNotActive);
+
+        /* implicitly we restart the picking state, and the kept elements return to the non-picked colors */
+        pickManager.cleanPick();
     }
 
     public void setCanvasLayerVisibility(final NetworkLayer layer, final boolean isVisible)
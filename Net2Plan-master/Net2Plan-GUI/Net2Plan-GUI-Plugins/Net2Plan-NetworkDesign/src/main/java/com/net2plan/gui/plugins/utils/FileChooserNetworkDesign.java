@@ -24,6 +24,7 @@ import com.net2plan.io.IOBrite;
 import com.net2plan.io.IOMatPlanWDM_design;
 import com.net2plan.io.IOMatPlanWDM_trafficMatrix;
 import com.net2plan.io.IONet2Plan;
+import com.net2plan.io.IONet2PlanBinary;
 import com.net2plan.io.IOSNDLibNative;
 import com.net2plan.io.IOTrafficMatrix2DFile;
 import com.net2plan.io.IOVisum;
@@ -45,6 +46,7 @@ public class FileChooserNetworkDesign extends FileChooserConfirmOverwrite
     static
     {
         PluginSystem.addPlugin(IOFilter.class, IONet2Plan.class);
+        PluginSystem.addPlugin(IOFilter.class, IONet2PlanBinary.class);
         PluginSystem.addPlugin(IOFilter.class, IOSNDLibNative.class);
         PluginSystem.addPlugin(IOFilter.class, IOBrite.class);
         PluginSystem.addPlugin(IOFilter.class, IOVisum.class);
@@ -0,0 +1,228 @@
+package com.net2plan.gui.plugins.networkDesign.openStack;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OpenStackNetTest
+{
+    private OpenStackNet osn;
+    private OpenStackNetwork network1, network2;
+    private OpenStackSubnet subnet1, subnet2;
+
+    /* Elements as imported from a server: none of them is backed by a NetPlan element */
+    @Before
+    public void setUp()
+    {
+        osn = new OpenStackNet();
+        network1 = addNetwork(osn, "net1", "tenant1");
+        network2 = addNetwork(osn, "net2", "tenant1");
+        subnet1 = addSubnet(osn, "subnet1", "net1");
+        subnet2 = addSubnet(osn, "subnet2", "net1");
+    }
+
+    @Test
+    public void testImportedElementsAreDistinctAndIndexed()
+    {
+        assertNotEquals(subnet1, subnet2);
+        assertNotEquals(subnet1.getInternalId(), subnet2.getInternalId());
+        for (OpenStackNetworkElement e : Arrays.asList(network1, network2, subnet1, subnet2))
+        {
+            assertSame(e, osn.getOpenStackNetworkElementByInternalId(e.getInternalId()));
+            assertSame(e, osn.getOpenStackNetworkElementByOpenStackId(e.getId()));
+        }
+    }
+
+    @Test
+    public void testUpdateAndRemoveSubnetsOfTheSameNetwork()
+    {
+        assertEquals(Arrays.asList(subnet1, subnet2), osn.getOpenStackSubnetsOfNetwork("net1"));
+
+        /* The second subnet moves to another network: the first one is kept in the first network */
+        assertTrue(osn.updateOpenStackSubnet(subnet2, "subnet2", "10.0.1.0/24", "10.0.1.1", "net2"));
+        assertEquals(Collections.singletonList(subnet1), osn.getOpenStackSubnetsOfNetwork("net1"));
+        assertEquals(Collections.singletonList(subnet2), osn.getOpenStackSubnetsOfNetwork("net2"));
+
+        assertTrue(osn.updateOpenStackSubnet(subnet2, "subnet2", "10.0.1.0/24", "10.0.1.1", "net1"));
+        assertEquals(Arrays.asList(subnet1, subnet2), osn.getOpenStackSubnetsOfNetwork("net1"));
+
+        /* Removing the second subnet keeps the first one */
+        osn.removeOpenStackNetworkElement(subnet2);
+        assertEquals(Collections.singletonList(subnet1), osn.getOpenStackSubnetsOfNetwork("net1"));
+        assertEquals(Collections.singletonList(subnet1), osn.getOpenStackSubnets());
+        assertEquals(null, osn.getOpenStackNetworkElementByInternalId(subnet2.getInternalId()));
+        assertSame(subnet1, osn.getOpenStackNetworkElementByInternalId(subnet1.getInternalId()));
+
+        osn.removeOpenStackNetworkElement(subnet1);
+        assertTrue(osn.getOpenStackSubnetsOfNetwork("net1").isEmpty());
+    }
+
+    @Test
+    public void testUpdateAndRemoveNetworksOfTheSameTenant()
+    {
+        assertTrue(osn.updateOpenStackNetwork(network2, "net2", "", "", "tenant2"));
+        assertEquals(Collections.singletonList(network1), osn.getOpenStackNetworksOfTenant("tenant1"));
+        assertEquals(Collections.singletonList(network2), osn.getOpenStackNetworksOfTenant("tenant2"));
+
+        osn.removeOpenStackNetworkElement(network1);
+        assertTrue(osn.getOpenStackNetworksOfTenant("tenant1").isEmpty());
+        assertEquals(Collections.singletonList(network2), osn.getOpenStackNetworksOfTenant("tenant2"));
+    }
+
+    @Test
+    public void testCopyKeepsInternalIds()
+    {
+        final OpenStackNet copy = osn.copy();
+        for (OpenStackNetworkElement e : Arrays.asList(network1, network2, subnet1, subnet2))
+        {
+            final OpenStackNetworkElement eCopy = copy.getOpenStackNetworkElementByInternalId(e.getInternalId());
+            assertSame(copy, eCopy.getOpenStackNet());
+            assertEquals(e.getId(), eCopy.getId());
+        }
+        final OpenStackSubnet newSubnet = addSubnet(copy, "subnet3", "net1");
+        assertEquals(null, osn.getOpenStackNetworkElementByInternalId(newSubnet.getInternalId()));
+        assertEquals(3, copy.getOpenStackSubnetsOfNetwork("net1").size());
+    }
+
+    /**
+     * A resynchronization adds the elements new in the server, updates those that changed, and removes those no longer in it, keeping the
+     * objects of the unchanged ones. The indexes reflect the new contents
+     */
+    @Test
+    public void testResyncAddsUpdatesAndRemovesElements() throws Exception
+    {
+        try (OpenStackServerStub server = new OpenStackServerStub())
+        {
+            server.addUser("user1", "alice");
+            server.addUser("user2", "bob");
+            server.addNetwork("net1", "net1", "tenant1");
+            server.addNetwork("net2", "net2", "tenant1");
+            server.addSubnet("subnet1", "subnet1", "net1", "10.0.1.0/24");
+            server.addSubnet("subnet2", "subnet2", "net1", "10.0.2.0/24");
+            server.addSubnet("subnet3", "subnet3", "net2", "10.0.3.0/24");
+            server.addRouter("router1", "r1", "ACTIVE", true);
+            server.addRouter("router2", "r2", "ACTIVE", true);
+            final OpenStackNet osn = OpenStackNet.buildOpenStackNetFromServer(server.connect());
+            final OpenStackNetworkElement user1 = osn.getOpenStackNetworkElementByOpenStackId("user1");
+            final OpenStackNetworkElement net1 = osn.getOpenStackNetworkElementByOpenStackId("net1");
+            final OpenStackNetworkElement net2 = osn.getOpenStackNetworkElementByOpenStackId("net2");
+            final OpenStackNetworkElement subnet2 = osn.getOpenStackNetworkElementByOpenStackId("subnet2");
+            final OpenStackNetworkElement subnet3 = osn.getOpenStackNetworkElementByOpenStackId("subnet3");
+            final OpenStackNode router1 = (OpenStackNode) osn.getOpenStackNetworkElementByOpenStackId("router1");
+            final OpenStackNetworkElement subnet1 = osn.getOpenStackNetworkElementByOpenStackId("subnet1");
+            final OpenStackNetworkElement user2 = osn.getOpenStackNetworkElementByOpenStackId("user2");
+            final OpenStackNetworkElement router2 = osn.getOpenStackNetworkElementByOpenStackId("router2");
+
+            server.users.remove("user2");
+            server.addNetwork("net2", "net2", "tenant2");
+            server.subnets.remove("subnet1");
+            server.addSubnet("subnet2", "subnet2", "net2", "10.0.22.0/24");
+            server.addSubnet("subnet4", "subnet4", "net1", "10.0.4.0/24");
+            server.addRouter("router1", "r1", "DOWN", false);
+            server.routers.remove("router2");
+            server.addRouter("router3", "r3", "ACTIVE", true);
+            final OpenStackChangeSet changes = osn.resyncFromServer();
+
+            assertEquals(new HashSet<>(Arrays.asList("subnet4", "router3")), new HashSet<>(TopologyCreatorTest.getIds(changes.getAddedElements())));
+            assertEquals(new HashSet<>(Arrays.asList(net2, subnet2, router1)), new HashSet<>(changes.getUpdatedElements()));
+            assertEquals(new HashSet<>(Arrays.asList(user2, subnet1, router2)), new HashSet<>(changes.getRemovedElements()));
+
+            assertEquals(Collections.singletonList(user1), osn.getOpenStackUsers());
+            assertEquals(Arrays.asList(net1, net2), osn.getOpenStackNetworks());
+            assertEquals(Arrays.asList("subnet2", "subnet3", "subnet4"), TopologyCreatorTest.getIds(osn.getOpenStackSubnets()));
+            assertEquals(Arrays.asList("router1", "router3"), TopologyCreatorTest.getIds(osn.getOpenStackNodes()));
+            for (int index = 0; index < osn.getOpenStackSubnets().size(); index++) assertEquals(index, osn.getOpenStackSubnets().get(index).getOpenStackIndex());
+            assertEquals("DOWN", router1.getStatus().name());
+            assertTrue(!router1.isAdminStateUp());
+            assertEquals(2, osn.getNetPlan().getNumberOfNodes());
+
+            assertEquals(Collections.singletonList(net1), osn.getOpenStackNetworksOfTenant("tenant1"));
+            assertEquals(Collections.singletonList(net2), osn.getOpenStackNetworksOfTenant("tenant2"));
+            assertEquals(Collections.singletonList("subnet4"), TopologyCreatorTest.getIds(osn.getOpenStackSubnetsOfNetwork("net1")));
+            assertEquals(Arrays.asList(subnet3, subnet2), osn.getOpenStackSubnetsOfNetwork("net2"));
+            assertEquals("10.0.22.0/24", ((OpenStackSubnet) subnet2).getSubnetCidr());
+            for (OpenStackNetworkElement e : Arrays.asList(user2, subnet1, router2))
+            {
+                assertEquals(null, osn.getOpenStackNetworkElementByOpenStackId(e.getId()));
+                assertEquals(null, osn.getOpenStackNetworkElementByInternalId(e.getInternalId()));
+            }
+            for (String id : Arrays.asList("user1", "net1", "net2", "subnet2", "subnet3", "subnet4", "router1", "router3"))
+            {
+                final OpenStackNetworkElement e = osn.getOpenStackNetworkElementByOpenStackId(id);
+                assertSame(e, osn.getOpenStackNetworkElementByInternalId(e.getInternalId()));
+            }
+
+            assertTrue(osn.resyncFromServer().isEmpty());
+        }
+    }
+
+    /* The networks are read in several pages: a network removed from the first page shifts the others, and none is lost or repeated */
+    @Test
+    public void testResyncOfPaginatedNetworks() throws Exception
+    {
+        try (OpenStackServerStub server = new OpenStackServerStub())
+        {
+            server.addRouter("router1", "r1", "ACTIVE", true);
+            for (int cont = 0; cont < 2 * TopologyCreator.PAGE_SIZE + 10; cont++) server.addNetwork(String.format("net%04d", cont), "net", "tenant1");
+            final OpenStackNet osn = OpenStackNet.buildOpenStackNetFromServer(server.connect());
+            assertEquals(2 * TopologyCreator.PAGE_SIZE + 10, osn.getOpenStackNetworks().size());
+
+            server.networks.remove("net0000");
+            server.networks.remove(String.format("net%04d", TopologyCreator.PAGE_SIZE));
+            server.addNetwork("net9999", "net", "tenant1");
+            final OpenStackChangeSet changes = osn.resyncFromServer();
+            assertEquals(Collections.singletonList("net9999"), TopologyCreatorTest.getIds(changes.getAddedElements()));
+            assertEquals(Arrays.asList("net0000", String.format("net%04d", TopologyCreator.PAGE_SIZE)), TopologyCreatorTest.getIds(changes.getRemovedElements()));
+            assertTrue(changes.getUpdatedElements().isEmpty());
+            assertEquals(new ArrayList<>(server.networks.keySet()), TopologyCreatorTest.getIds(osn.getOpenStackNetworks()));
+            assertEquals(2 * TopologyCreator.PAGE_SIZE + 9, osn.getOpenStackNetworksOfTenant("tenant1").size());
+        }
+    }
+
+    /* If the server cannot be read, the object is not modified */
+    @Test
+    public void testFailedResyncLeavesTheObjectUnchanged() throws Exception
+    {
+        final OpenStackNet osn;
+        try (OpenStackServerStub server = new OpenStackServerStub())
+        {
+            server.addNetwork("net1", "net1", "tenant1");
+            server.addRouter("router1", "r1", "ACTIVE", true);
+            osn = OpenStackNet.buildOpenStackNetFromServer(server.connect());
+        }
+        final List<OpenStackNetwork> networks = new ArrayList<>(osn.getOpenStackNetworks());
+        final List<OpenStackNode> nodes = new ArrayList<>(osn.getOpenStackNodes());
+        try
+        {
+            osn.resyncFromServer();
+            fail();
+        } catch (Net2PlanException e)
+        {
+            assertEquals(networks, osn.getOpenStackNetworks());
+            assertEquals(nodes, osn.getOpenStackNodes());
+            assertSame(networks.get(0), osn.getOpenStackNetworkElementByOpenStackId("net1"));
+        }
+    }
+
+    static OpenStackNetwork addNetwork(OpenStackNet osn, String networkId, String tenantId)
+    {
+        return osn.addOpenStackNetwork(networkId, networkId, null, null, null, "", "", null, tenantId, true, false, false);
+    }
+
+    static OpenStackSubnet addSubnet(OpenStackNet osn, String subnetId, String networkId)
+    {
+        return osn.addOpenStackSubnet(subnetId, subnetId, null, "10.0.0.0/24", null, "10.0.0.1", null, null, null, null, networkId, "tenant1", true);
+    }
+}
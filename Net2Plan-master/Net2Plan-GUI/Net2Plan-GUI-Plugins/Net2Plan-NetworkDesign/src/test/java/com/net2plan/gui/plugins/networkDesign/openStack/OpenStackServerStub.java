@@ -0,0 +1,176 @@
+package com.net2plan.gui.plugins.networkDesign.openStack;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server answering the Keystone v3 and Neutron calls made by {@link TopologyCreator}: the token request, and the lists of
+ * users, networks, subnets and routers. The networks are paginated with the Neutron limit and marker parameters. The contents can be
+ * changed between two imports. The server can also ignore the limit, or ignore the marker, as some deployments do.
+ */
+class OpenStackServerStub implements AutoCloseable
+{
+    /* The elements, as the JSON objects returned by the server, by OpenStack id */
+    final Map<String, Map<String, Object>> users = new LinkedHashMap<>();
+    final Map<String, Map<String, Object>> networks = new LinkedHashMap<>();
+    final Map<String, Map<String, Object>> subnets = new LinkedHashMap<>();
+    final Map<String, Map<String, Object>> routers = new LinkedHashMap<>();
+
+    volatile boolean isLimitIgnored = false;
+    volatile boolean isMarkerIgnored = false;
+
+    /* The limit and marker (null if none) of each network list request received, in order */
+    final List<String> networkListLimits = Collections.synchronizedList(new ArrayList<>());
+    final List<String> networkListMarkers = Collections.synchronizedList(new ArrayList<>());
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    OpenStackServerStub() throws IOException
+    {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.executor = Executors.newCachedThreadPool();
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /* The address to give to the TopologyCreator */
+    String getAddress()
+    {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    TopologyCreator connect()
+    {
+        return new TopologyCreator(getAddress(), "admin", "password", "admin");
+    }
+
+    void addUser(String id, String name)
+    {
+        users.put(id, object("id", id, "name", name, "domain_id", "default", "email", name + "@net2plan.com", "description", ""));
+    }
+
+    void addNetwork(String id, String name, String tenantId)
+    {
+        networks.put(id, object("id", id, "name", name, "tenant_id", tenantId, "status", "ACTIVE", "admin_state_up", true, "shared", false));
+    }
+
+    void addSubnet(String id, String name, String networkId, String cidr)
+    {
+        subnets.put(id, object("id", id, "name", name, "network_id", networkId, "tenant_id", "tenant1", "cidr", cidr, "gateway_ip", "10.0.0.1", "ip_version", 4, "enable_dhcp", true));
+    }
+
+    void addRouter(String id, String name, String status, boolean isAdminStateUp)
+    {
+        routers.put(id, object("id", id, "name", name, "tenant_id", "tenant1", "status", status, "admin_state_up", isAdminStateUp, "distributed", false));
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private synchronized void handle(HttpExchange exchange) throws IOException
+    {
+        final String path = exchange.getRequestURI().getPath();
+        final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        final String body;
+        int status = 200;
+        if (path.endsWith("/auth/tokens"))
+        {
+            status = 201;
+            exchange.getResponseHeaders().add("X-Subject-Token", "token");
+            final String url = "http://" + getAddress();
+            body = "{\"token\":{\"methods\":[\"password\"],\"expires_at\":\"2099-01-01T00:00:00.000000Z\",\"issued_at\":\"2017-01-01T00:00:00.000000Z\","
+                    + "\"user\":{\"id\":\"admin\",\"name\":\"admin\",\"domain\":{\"id\":\"default\",\"name\":\"Default\"}},"
+                    + "\"project\":{\"id\":\"admin\",\"name\":\"admin\",\"domain\":{\"id\":\"default\",\"name\":\"Default\"}},"
+                    + "\"catalog\":[" + catalogEntry("identity", "keystone", url + "/identity/v3") + "," + catalogEntry("network", "neutron", url + "/network") + "]}}";
+        }
+        else if (path.endsWith("/users")) body = list("users", new ArrayList<>(users.values()));
+        else if (path.endsWith("/subnets")) body = list("subnets", new ArrayList<>(subnets.values()));
+        else if (path.endsWith("/routers")) body = list("routers", new ArrayList<>(routers.values()));
+        else if (path.endsWith("/networks"))
+        {
+            networkListLimits.add(query.get("limit"));
+            networkListMarkers.add(query.get("marker"));
+            final List<Map<String, Object>> all = new ArrayList<>(networks.values());
+            final List<String> ids = new ArrayList<>(networks.keySet());
+            final int first = isMarkerIgnored || !query.containsKey("marker") ? 0 : ids.indexOf(query.get("marker")) + 1;
+            final int last = isLimitIgnored || !query.containsKey("limit") ? all.size() : Math.min(all.size(), first + Integer.parseInt(query.get("limit")));
+            body = list("networks", all.subList(first, last));
+        }
+        else
+        {
+            status = 404;
+            body = "{}";
+        }
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Connection", "close");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    private static String catalogEntry(String type, String name, String url)
+    {
+        return "{\"type\":\"" + type + "\",\"name\":\"" + name + "\",\"id\":\"" + name + "\",\"endpoints\":[{\"id\":\"" + name + "\",\"interface\":\"public\",\"region\":\"RegionOne\",\"region_id\":\"RegionOne\",\"url\":\"" + url + "\"}]}";
+    }
+
+    private static String list(String name, List<Map<String, Object>> elements)
+    {
+        final StringBuilder st = new StringBuilder("{\"" + name + "\":[");
+        for (int cont = 0; cont < elements.size(); cont++)
+        {
+            if (cont > 0) st.append(",");
+            st.append("{");
+            boolean isFirst = true;
+            for (Map.Entry<String, Object> field : elements.get(cont).entrySet())
+            {
+                if (!isFirst) st.append(",");
+                isFirst = false;
+                final Object value = field.getValue();
+                st.append("\"").append(field.getKey()).append("\":").append(value instanceof String ? "\"" + value + "\"" : String.valueOf(value));
+            }
+            st.append("}");
+        }
+        return st.append("]}").toString();
+    }
+
+    private static Map<String, Object> object(Object... keysAndValues)
+    {
+        final Map<String, Object> res = new LinkedHashMap<>();
+        for (int cont = 0; cont < keysAndValues.length; cont += 2) res.put((String) keysAndValues[cont], keysAndValues[cont + 1]);
+        return res;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws IOException
+    {
+        final Map<String, String> res = new LinkedHashMap<>();
+        if (rawQuery == null) return res;
+        for (String keyValue : rawQuery.split("&"))
+        {
+            final int index = keyValue.indexOf('=');
+            if (index > 0) res.put(URLDecoder.decode(keyValue.substring(0, index), "UTF-8"), URLDecoder.decode(keyValue.substring(index + 1), "UTF-8"));
+        }
+        return res;
+    }
+}
@@ -0,0 +1,102 @@
+package com.net2plan.gui.plugins.networkDesign.openStack;
+
+import com.net2plan.interfaces.networkDesign.Net2PlanException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TopologyCreatorTest
+{
+    private OpenStackServerStub server;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = new OpenStackServerStub();
+        server.addUser("user1", "alice");
+        server.addRouter("router1", "r1", "ACTIVE", true);
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.close();
+    }
+
+    @Test
+    public void testNetworksInSeveralPages()
+    {
+        addNetworks(2 * TopologyCreator.PAGE_SIZE + 200);
+        final OpenStackNet osn = server.connect().getOpenStackNet();
+        assertEquals(getNetworkIds(2 * TopologyCreator.PAGE_SIZE + 200), getIds(osn.getOpenStackNetworks()));
+        assertEquals(Arrays.asList(null, "net0499", "net0999"), server.networkListMarkers);
+        assertEquals(Collections.nCopies(3, "" + TopologyCreator.PAGE_SIZE), server.networkListLimits);
+        assertEquals(1, osn.getOpenStackUsers().size());
+        assertEquals(1, osn.getOpenStackNodes().size());
+        assertEquals(TopologyCreator.RESOURCE_TYPES, new ArrayList<>(osn.getLastImportTimePerResourceTypeInMs().keySet()));
+    }
+
+    /* The last page is empty */
+    @Test
+    public void testNetworksInAnExactNumberOfPages()
+    {
+        addNetworks(2 * TopologyCreator.PAGE_SIZE);
+        final OpenStackNet osn = server.connect().getOpenStackNet();
+        assertEquals(getNetworkIds(2 * TopologyCreator.PAGE_SIZE), getIds(osn.getOpenStackNetworks()));
+        assertEquals(3, server.networkListMarkers.size());
+    }
+
+    @Test
+    public void testServerIgnoringTheLimit()
+    {
+        server.isLimitIgnored = true;
+        addNetworks(2 * TopologyCreator.PAGE_SIZE + 200);
+        final OpenStackNet osn = server.connect().getOpenStackNet();
+        assertEquals(getNetworkIds(2 * TopologyCreator.PAGE_SIZE + 200), getIds(osn.getOpenStackNetworks()));
+        assertEquals(1, server.networkListMarkers.size());
+    }
+
+    /* The server returns the first page again: the listing ends, with the networks of that page */
+    @Test
+    public void testServerIgnoringTheMarker()
+    {
+        server.isMarkerIgnored = true;
+        addNetworks(2 * TopologyCreator.PAGE_SIZE + 200);
+        final OpenStackNet osn = server.connect().getOpenStackNet();
+        assertEquals(getNetworkIds(TopologyCreator.PAGE_SIZE), getIds(osn.getOpenStackNetworks()));
+        assertEquals(2, server.networkListMarkers.size());
+    }
+
+    @Test(expected = Net2PlanException.class)
+    public void testTopologyWithoutRouters()
+    {
+        server.routers.clear();
+        server.connect().getOpenStackNet();
+    }
+
+    private void addNetworks(int numNetworks)
+    {
+        for (String id : getNetworkIds(numNetworks)) server.addNetwork(id, "name-" + id, "tenant1");
+    }
+
+    private static List<String> getNetworkIds(int numNetworks)
+    {
+        final List<String> res = new ArrayList<>();
+        for (int cont = 0; cont < numNetworks; cont++) res.add(String.format("net%04d", cont));
+        return res;
+    }
+
+    static List<String> getIds(List<? extends OpenStackNetworkElement> elements)
+    {
+        final List<String> res = new ArrayList<>();
+        for (OpenStackNetworkElement e : elements) res.add(e.getId());
+        return res;
+    }
+}